@@ -79,6 +79,20 @@ public class CBRConnection extends Connection {
 		return transferDoneTime;
 	}
 
+	/**
+	 * Returns the time when the ongoing transfer is done (i.e., when less
+	 * than one byte is left, see {@link #getRemainingByteCount()}), since
+	 * nothing else changes during a constant bit rate transfer.
+	 * @see Connection#getNextUpdateTime()
+	 */
+	@Override
+	public double getNextUpdateTime() {
+		if (msgOnFly == null || !isUp()) {
+			return super.getNextUpdateTime();
+		}
+		return this.transferDoneTime - 1.0 / this.speed;
+	}
+
 	/**
 	 * Returns true if the current message transfer is done.
 	 * @return True if the transfer is done, false if not
@@ -156,6 +156,21 @@ public abstract class Connection {
 		return this.isUp && this.msgOnFly == null;
 	}
 
+	/**
+	 * Returns the simulation time when the state of this connection may
+	 * change even if nothing else changes in the world. This
+	 * implementation returns the current time while the connection isn't
+	 * ready for a transfer (i.e., the transfer must be polled on every
+	 * update) and Double.MAX_VALUE otherwise.
+	 * @return The earliest time of a possible change in the transfer state
+	 */
+	public double getNextUpdateTime() {
+		if (isReadyForTransfer()) {
+			return Double.MAX_VALUE;
+		}
+		return SimClock.getTime();
+	}
+
 	/**
 	 * Gets the message that this connection is currently transferring.
 	 * @return The message or null if no message is being transferred
@@ -7,6 +7,7 @@ package core;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import movement.*;
@@ -31,10 +32,24 @@ public class DTNHost implements Comparable<DTNHost> {
 	private Path path;
 	private double speed;
 	private double nextTimeToMove;
+	/** distance left to move towards the destination (see prepareMove) */
+	private double remainingMovement;
+	/** has the host moved after its previous update */
+	private boolean moved;
+	/** can the host's update be skipped in the current update round
+	 * (see {@link #checkIdle()}) */
+	private boolean idle;
+	/** connection epoch when the host was found idle */
+	private long idleEpoch;
 	private String name;
 	private List<MessageListener> msgListeners;
 	private List<MovementListener> movListeners;
 	private List<NetworkInterface> net;
+	/** connections of all the interfaces (in the order of the interfaces) */
+	private List<Connection> connections;
+	private List<Connection> connectionsView;
+	/** number of times the connections have changed */
+	private long connectionEpoch;
 	private ModuleCommunicationBus comBus;
 
 	private double oneNHalfDay = 129600; // in seconds
@@ -64,6 +79,9 @@ public class DTNHost implements Comparable<DTNHost> {
 		this.address = getNextAddress();
 		this.name = groupId+address;
 		this.net = new ArrayList<NetworkInterface>();
+		this.connections = new ArrayList<Connection>();
+		this.connectionsView = Collections.unmodifiableList(this.connections);
+		this.connectionEpoch = 0;
 
 		for (NetworkInterface i : interf) {
 			NetworkInterface ni = i.replicate();
@@ -84,6 +102,7 @@ public class DTNHost implements Comparable<DTNHost> {
 		setRouter(mRouterProto.replicate());
 
 		this.location = movement.getInitialLocation();
+		this.moved = true; /* the interfaces must see the initial location */
 
 		this.nextTimeToMove = movement.nextPathAvailable();
 		this.path = null;
@@ -177,17 +196,59 @@ public class DTNHost implements Comparable<DTNHost> {
 	}
 
 	/**
-	 * Returns a copy of the list of connections this host has with other hosts
-	 * @return a copy of the list of connections this host has with other hosts
+	 * Adds a connection to the connections of this host. Must be called
+	 * by the interface right after the connection was added to the end of
+	 * the interface's connection list.
+	 * @param ni The interface of this host that has the connection
+	 * @param con The new connection
 	 */
-	public List<Connection> getConnections() {
-		List<Connection> lc = new ArrayList<Connection>();
-
+	void addConnection(NetworkInterface ni, Connection con) {
+		/* keep the connections in the order of the interfaces */
+		int index = 0;
 		for (NetworkInterface i : net) {
-			lc.addAll(i.getConnections());
+			index += i.getConnections().size();
+			if (i == ni) {
+				break;
+			}
+		}
+		this.connections.add(index - 1, con);
+		this.connectionEpoch++;
+	}
+
+	/**
+	 * Removes a connection from the connections of this host. Must be
+	 * called by the interface when the connection is torn down.
+	 * @param con The removed connection
+	 */
+	void removeConnection(Connection con) {
+		for (int i=0, n=connections.size(); i<n; i++) {
+			if (connections.get(i) == con) {
+				connections.remove(i);
+				this.connectionEpoch++;
+				return;
+			}
 		}
+	}
 
-		return lc;
+	/**
+	 * Returns the connections this host has with other hosts. The list is
+	 * an unmodifiable view that the network interfaces keep up to date, so
+	 * it must not be iterated while connections are created or torn down.
+	 * @return The connections of this host
+	 */
+	public List<Connection> getConnections() {
+		return this.connectionsView;
+	}
+
+	/**
+	 * Returns the connection epoch of this host. The epoch is increased
+	 * every time a connection of the host goes up or down, so a router can
+	 * skip work that depends only on the set of connections if the epoch
+	 * hasn't changed since the last time the work was done.
+	 * @return The connection epoch
+	 */
+	public long getConnectionEpoch() {
+		return this.connectionEpoch;
 	}
 
 	/**
@@ -214,6 +275,7 @@ public class DTNHost implements Comparable<DTNHost> {
 	 */
 	public void setLocation(Coord location) {
 		this.location = location.clone();
+		this.moved = true;
 	}
 
 	/**
@@ -336,6 +398,7 @@ public class DTNHost implements Comparable<DTNHost> {
 	 * @param simulateConnections Should network layer be updated too
 	 */
 	public void update(boolean simulateConnections) {
+		this.moved = false;
 		if (!isRadioActive()) {
 			// Make sure inactive nodes don't have connections
 			tearDownAllConnections();
@@ -350,6 +413,94 @@ public class DTNHost implements Comparable<DTNHost> {
 		this.router.update();
 	}
 
+	/**
+	 * Returns the simulation time when this host may need an update even if
+	 * nothing else changes in the world, i.e., when it starts moving again,
+	 * an ongoing transfer needs attention, the incubation period ends or the
+	 * time dependent state of its interfaces or router changes.
+	 * @return The earliest time of a possible change in this host's state
+	 */
+	public double getNextUpdateTime() {
+		double now = SimClock.getTime();
+		double next = this.nextTimeToMove;
+
+		if (next <= now) {
+			return now; /* moving (or waiting for movement activeness) */
+		}
+
+		for (NetworkInterface i : net) {
+			for (Connection c : i.getConnections()) {
+				next = Math.min(next, c.getNextUpdateTime());
+			}
+			if (next <= now) {
+				return now; /* transfer that must be polled going on */
+			}
+			next = Math.min(next, i.getNextUpdateTime());
+		}
+
+		if (this.firstMessageTime != -1 &&
+				this.firstMessageTime + this.oneNHalfDay > now) {
+			/* one second margin for the rounding of the integer sim time */
+			next = Math.min(next, this.firstMessageTime + this.oneNHalfDay - 1);
+		}
+
+		if (!isRadioActive()) {
+			return next; /* the router isn't updated while the radio is off */
+		}
+		return Math.min(next, this.router.getNextUpdateTime());
+	}
+
+	/**
+	 * Checks if this host can skip its update in the current update round
+	 * and stores the result (see {@link #isIdle()}). A host is idle if it
+	 * hasn't moved after its previous update, doesn't need an update before
+	 * a future time (see {@link #getNextUpdateTime()}) and either has no
+	 * connections or is transferring a message. Nothing in the host's state
+	 * can change then: routers don't start new transfers while a transfer
+	 * is going on, the transfers end at the connections' update times, and
+	 * any connection to or from a moving host is created or torn down by
+	 * the other (non-idle) host.
+	 * @return True if the host is idle
+	 */
+	public boolean checkIdle() {
+		this.idle = !this.moved &&
+			(this.connections.isEmpty() || isTransferring()) &&
+			getNextUpdateTime() > SimClock.getTime();
+		this.idleEpoch = this.connectionEpoch;
+		return this.idle;
+	}
+
+	/**
+	 * Returns true if any of this host's connections is transferring a
+	 * message
+	 * @return True if a transfer is going on
+	 */
+	private boolean isTransferring() {
+		for (int i=0, n = connections.size(); i<n; i++) {
+			if (!connections.get(i).isReadyForTransfer()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true if the host was found idle by the latest
+	 * {@link #checkIdle()} call and its connections haven't changed since
+	 * @return True if the host is idle
+	 */
+	public boolean isIdle() {
+		return this.idle && this.idleEpoch == this.connectionEpoch;
+	}
+
+	/**
+	 * Ends the current update round for this host; the host is no longer
+	 * considered idle
+	 */
+	public void clearIdle() {
+		this.idle = false;
+	}
+
 	/**
 	 * Tears down all connections for this host.
 	 */
@@ -377,19 +528,37 @@ public class DTNHost implements Comparable<DTNHost> {
 	 * @param timeIncrement How long time the node moves
 	 */
 	public void move(double timeIncrement) {
+		if (prepareMove(timeIncrement)) {
+			completeMove();
+		}
+	}
+
+	/**
+	 * Does the first part of {@link #move(double)}: checks if the node
+	 * should move and passes all the waypoints the node reaches during the
+	 * time increment (requesting new waypoints and paths when needed). The
+	 * rest of the movement, i.e., moving towards the current destination, is
+	 * done by {@link #completeMove()}. Unlike completeMove, this method may
+	 * use the shared random number generator of the movement models, so the
+	 * hosts must be prepared one at a time and in a fixed order.
+	 * @param timeIncrement How long time the node moves
+	 * @return True if {@link #completeMove()} must be called to finish the
+	 * movement, false if the node doesn't move any further
+	 */
+	public boolean prepareMove(double timeIncrement) {
 		double possibleMovement;
 		double distance;
-		double dx, dy;
 
 		if (!isMovementActive() || SimClock.getTime() < this.nextTimeToMove) {
-			return;
+			return false;
 		}
 		if (this.destination == null) {
 			if (!setNextWaypoint()) {
-				return;
+				return false;
 			}
 		}
 
+		this.moved = true;
 		possibleMovement = timeIncrement * speed;
 		distance = this.location.distance(this.destination);
 
@@ -398,15 +567,29 @@ public class DTNHost implements Comparable<DTNHost> {
 			this.location.setLocation(this.destination); // snap to destination
 			possibleMovement -= distance;
 			if (!setNextWaypoint()) { // get a new waypoint
-				return; // no more waypoints left
+				return false; // no more waypoints left
 			}
 			distance = this.location.distance(this.destination);
 		}
 
+		this.remainingMovement = possibleMovement;
+		return true;
+	}
+
+	/**
+	 * Moves the node towards its current destination for the distance left
+	 * by the previous {@link #prepareMove(double)} call. Only the location of
+	 * this node is modified, so different nodes can complete their moves
+	 * concurrently.
+	 */
+	public void completeMove() {
+		double distance = this.location.distance(this.destination);
+		double dx, dy;
+
 		// move towards the point for possibleMovement amount
-		dx = (possibleMovement/distance) * (this.destination.getX() -
+		dx = (remainingMovement/distance) * (this.destination.getX() -
 				this.location.getX());
-		dy = (possibleMovement/distance) * (this.destination.getY() -
+		dy = (remainingMovement/distance) * (this.destination.getY() -
 				this.location.getY());
 		this.location.translate(dx, dy);
 	}
@@ -470,7 +653,7 @@ public class DTNHost implements Comparable<DTNHost> {
 		int retVal = this.router.receiveMessage(m, from);
 
 		if (retVal == MessageRouter.RCV_OK) {
-			m.addNodeOnPath(this);	// add this node on the messages path
+			// the router has added this node on the message's path
 			this.firstMessageTime = SimClock.getIntTime();
 		}
 
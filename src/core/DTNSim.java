@@ -18,6 +18,9 @@ public class DTNSim {
 	/** If this option ({@value}) is given to program, batch mode and
 	 * Text UI are used*/
 	public static final String BATCH_MODE_FLAG = "-b";
+	/** If this option ({@value}) is given after the batch mode option,
+	 * the given number of runs are executed in parallel */
+	public static final String PARALLEL_FLAG = "-j";
 	/** Delimiter for batch mode index range values (colon) */
 	public static final String RANGE_DELIMETER = ":";
 
@@ -34,7 +37,10 @@ public class DTNSim {
 	 * or a with a combination of starting run and the number of runs,
 	 * delimited with a {@value #RANGE_DELIMETER}. Different settings from run
 	 * arrays are used for different runs (see
-	 * {@link Settings#setRunIndex(int)}). Following arguments are the settings
+	 * {@link Settings#setRunIndex(int)}). The number of runs can be followed
+	 * (or preceded) by {@link #PARALLEL_FLAG} and the number of runs to
+	 * execute concurrently (see {@link ParallelBatchRunner}).
+	 * Following arguments are the settings
 	 * files for the simulation run (if any). For GUI mode, the number before
 	 * settings files (if given) is the run index to use for that run.
 	 * @param args Command line arguments
@@ -42,6 +48,7 @@ public class DTNSim {
 	public static void main(String[] args) {
 		boolean batchMode = false;
 		int nrofRuns[] = {0,1};
+		int nrofThreads = 1;
 		String confFiles[];
 		int firstConfIndex = 0;
 		int guiIndex = 0;
@@ -52,13 +59,20 @@ public class DTNSim {
 		if (args.length > 0) {
 			if (args[0].equals(BATCH_MODE_FLAG)) {
 				batchMode = true;
-                if (args.length == 1) {
-                    firstConfIndex = 1;
-                }
-                else {
-                    nrofRuns = parseNrofRuns(args[1]);
-                    firstConfIndex = 2;
-                }
+				firstConfIndex = 1;
+				if (args.length > 2 && args[1].equals(PARALLEL_FLAG)) {
+					nrofThreads = parseNrofThreads(args[2]);
+					firstConfIndex = 3;
+				}
+				if (args.length > firstConfIndex) {
+					nrofRuns = parseNrofRuns(args[firstConfIndex]);
+					firstConfIndex++;
+				}
+				if (args.length > firstConfIndex + 1 &&
+						args[firstConfIndex].equals(PARALLEL_FLAG)) {
+					nrofThreads = parseNrofThreads(args[firstConfIndex + 1]);
+					firstConfIndex += 2;
+				}
 			}
 			else { /* GUI mode */
 				try { /* is there a run index for the GUI mode ? */
@@ -76,7 +90,11 @@ public class DTNSim {
 
 		initSettings(confFiles, firstConfIndex);
 
-		if (batchMode) {
+		if (batchMode && nrofThreads > 1) {
+			new ParallelBatchRunner(confFiles, firstConfIndex,
+					nrofThreads).run(nrofRuns[0], nrofRuns[1]);
+		}
+		else if (batchMode) {
 			long startTime = System.currentTimeMillis();
 			for (int i=nrofRuns[0]; i<nrofRuns[1]; i++) {
 				print("Run " + (i+1) + "/" + nrofRuns[1]);
@@ -93,6 +111,22 @@ public class DTNSim {
 		}
 	}
 
+	/**
+	 * Runs a single batch mode run. This is the entry point of the
+	 * {@link ParallelBatchRunner}, which calls it for every run with
+	 * a separate class loader, so all static state of this (class loader's)
+	 * copy of the simulator is fresh and no resetting is needed.
+	 * @param confFiles File name paths where to read the settings
+	 * @param firstConfIndex Index of the first config file name
+	 * @param runIndex The run index to use
+	 */
+	public static void runIsolated(String[] confFiles, int firstConfIndex,
+			int runIndex) {
+		initSettings(confFiles, firstConfIndex);
+		Settings.setRunIndex(runIndex);
+		new DTNSimTextUI().start();
+	}
+
 	/**
 	 * Initializes Settings
 	 * @param confFiles File name paths where to read additional settings
@@ -216,6 +250,29 @@ public class DTNSim {
 		return val;
 	}
 
+	/**
+	 * Parses the number of concurrently executed runs from a command line
+	 * argument
+	 * @param arg The argument to parse
+	 * @return The number of runs to execute in parallel
+	 */
+	private static int parseNrofThreads(String arg) {
+		int val = 0;
+		try {
+			val = Integer.parseInt(arg);
+		} catch (NumberFormatException e) {
+			val = 0;
+		}
+
+		if (val < 1) {
+			System.err.println("Invalid argument '" + arg + "' for" +
+					" number of parallel runs");
+			System.exit(-1);
+		}
+
+		return val;
+	}
+
 	/**
 	 * Prints text to stdout
 	 * @param txt Text to print
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Connection and message events that the {@link EventBus} delivers in bulk
+ * to an {@link EventBatchListener}. The events are stored in parallel
+ * arrays and accessed by their index. The hosts of an event are the
+ * arguments of the corresponding listener method:
+ * <UL>
+ * <LI>connection events: the two hosts</LI>
+ * <LI>message transfer events: the sending (host 1) and the receiving
+ * (host 2) host</LI>
+ * <LI>{@link EventBus#MESSAGE_DELETED}: the host where the message was
+ * deleted (host 1)</LI>
+ * <LI>{@link EventBus#MESSAGE_CREATED}: none</LI>
+ * </UL>
+ * The flag of an event is the "dropped" argument of message deleted events,
+ * the "firstDelivery" argument of message transferred events, and false for
+ * other events. The messages are the same objects that were given to the
+ * listener methods, so their state is what it is when the batch is
+ * delivered, not when the event happened.
+ */
+public class EventBatch {
+	/** Initial capacity of the arrays */
+	private static final int INIT_CAPACITY = 64;
+
+	private int[] types;
+	private double[] times;
+	private DTNHost[] hosts1;
+	private DTNHost[] hosts2;
+	private Message[] messages;
+	private boolean[] flags;
+	private int size;
+
+	/**
+	 * Creates an empty batch
+	 */
+	public EventBatch() {
+		this.types = new int[INIT_CAPACITY];
+		this.times = new double[INIT_CAPACITY];
+		this.hosts1 = new DTNHost[INIT_CAPACITY];
+		this.hosts2 = new DTNHost[INIT_CAPACITY];
+		this.messages = new Message[INIT_CAPACITY];
+		this.flags = new boolean[INIT_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds an event that happened at the current simulation time
+	 * @param type Type of the event
+	 * @param host1 First host of the event (or null)
+	 * @param host2 Second host of the event (or null)
+	 * @param m Message of the event (or null)
+	 * @param flag Flag of the event
+	 */
+	void add(int type, DTNHost host1, DTNHost host2, Message m,
+			boolean flag) {
+		if (size == types.length) {
+			int capacity = size * 2;
+			types = Arrays.copyOf(types, capacity);
+			times = Arrays.copyOf(times, capacity);
+			hosts1 = Arrays.copyOf(hosts1, capacity);
+			hosts2 = Arrays.copyOf(hosts2, capacity);
+			messages = Arrays.copyOf(messages, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+		}
+		types[size] = type;
+		times[size] = SimClock.getTime();
+		hosts1[size] = host1;
+		hosts2[size] = host2;
+		messages[size] = m;
+		flags[size] = flag;
+		size++;
+	}
+
+	/**
+	 * Removes all the events (and the references to their hosts and
+	 * messages)
+	 */
+	void clear() {
+		Arrays.fill(hosts1, 0, size, null);
+		Arrays.fill(hosts2, 0, size, null);
+		Arrays.fill(messages, 0, size, null);
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the number of events in the batch
+	 * @return The number of events
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the type of an event
+	 * @param i Index of the event
+	 * @return The event type (e.g., {@link EventBus#CONNECTION_UP})
+	 */
+	public int getType(int i) {
+		return types[i];
+	}
+
+	/**
+	 * Returns the simulation time when an event happened
+	 * @param i Index of the event
+	 * @return The time of the event
+	 */
+	public double getTime(int i) {
+		return times[i];
+	}
+
+	/**
+	 * Returns the first host of an event
+	 * @param i Index of the event
+	 * @return The first host or null if the event has no hosts
+	 */
+	public DTNHost getHost1(int i) {
+		return hosts1[i];
+	}
+
+	/**
+	 * Returns the second host of an event
+	 * @param i Index of the event
+	 * @return The second host or null if the event has no second host
+	 */
+	public DTNHost getHost2(int i) {
+		return hosts2[i];
+	}
+
+	/**
+	 * Returns the message of an event
+	 * @param i Index of the event
+	 * @return The message or null for connection events
+	 */
+	public Message getMessage(int i) {
+		return messages[i];
+	}
+
+	/**
+	 * Returns the flag of an event
+	 * @param i Index of the event
+	 * @return The flag of the event
+	 */
+	public boolean getFlag(int i) {
+		return flags[i];
+	}
+}
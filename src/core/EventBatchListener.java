@@ -0,0 +1,28 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Interface for connection and message listeners that can process their
+ * events in bulk. If event batching is enabled (see
+ * {@link EventBus#BATCH_EVENTS_S}), the {@link EventBus} collects the
+ * events of the listener into a batch instead of calling the listener
+ * methods, and delivers the batch at the listener's next update (see
+ * {@link ScheduledUpdateListener}), before calling
+ * {@link UpdateListener#updated(java.util.List)}. Listeners that aren't
+ * scheduled update listeners get their batches at every update. Full
+ * batches, and the last batch of the simulation, are delivered right away.
+ * If batching is disabled, the listener methods are called as usual.
+ */
+public interface EventBatchListener extends EventSubscriber {
+
+	/**
+	 * Delivers a batch of events. The batch is cleared after the call, so
+	 * the listener must not keep a reference to it.
+	 * @param batch The events in the order they happened
+	 */
+	public void eventsOccurred(EventBatch batch);
+
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <P>Fans out the connection, message and update events of the simulation
+ * to the registered listeners (e.g., reports). The bus itself is the only
+ * listener that the network interfaces, routers and the world know about.
+ * </P>
+ *
+ * <P>Each listener is called only for the event types it needs: the
+ * listener methods of the types that an {@link EventSubscriber} doesn't
+ * subscribe to are not called, and a {@link ScheduledUpdateListener} is
+ * updated only when its next update is due. Optionally (see
+ * {@link #BATCH_EVENTS_S}), the events of an {@link EventBatchListener}
+ * are delivered in bulk at the listener's updates.</P>
+ *
+ * <P>The listeners of an event type are called in the order they were
+ * registered.</P>
+ */
+public class EventBus implements ConnectionListener, MessageListener,
+	UpdateListener {
+	/** Event batching -setting id ({@value}) in the
+	 * {@link World#OPTIMIZATION_SETTINGS_NS} namespace. Boolean (true/false)
+	 * value. If true, the events of {@link EventBatchListener}s are
+	 * delivered in batches. Default = false. */
+	public static final String BATCH_EVENTS_S = "batchEvents";
+	/** Maximum number of events in a batch ({@value}). Full batches are
+	 * delivered right away. */
+	public static final int MAX_BATCH_SIZE = 4096;
+
+	/** Event type: two hosts were connected */
+	public static final int CONNECTION_UP = 1;
+	/** Event type: two hosts were disconnected */
+	public static final int CONNECTION_DOWN = 1 << 1;
+	/** Event type: a new message was created */
+	public static final int MESSAGE_CREATED = 1 << 2;
+	/** Event type: a message transfer was started */
+	public static final int MESSAGE_TRANSFER_STARTED = 1 << 3;
+	/** Event type: a message was deleted */
+	public static final int MESSAGE_DELETED = 1 << 4;
+	/** Event type: a message transfer was aborted */
+	public static final int MESSAGE_TRANSFER_ABORTED = 1 << 5;
+	/** Event type: a message was transferred */
+	public static final int MESSAGE_TRANSFERRED = 1 << 6;
+	/** Event type: the world was updated */
+	public static final int UPDATE = 1 << 7;
+	/** All connection event types */
+	public static final int CONNECTION_EVENTS = CONNECTION_UP |
+		CONNECTION_DOWN;
+	/** All message event types */
+	public static final int MESSAGE_EVENTS = MESSAGE_CREATED |
+		MESSAGE_TRANSFER_STARTED | MESSAGE_DELETED |
+		MESSAGE_TRANSFER_ABORTED | MESSAGE_TRANSFERRED;
+	/** All event types */
+	public static final int ALL_EVENTS = CONNECTION_EVENTS | MESSAGE_EVENTS |
+		UPDATE;
+
+	/** are the events of batch listeners delivered in batches */
+	private final boolean batching;
+
+	private final List<ConnectionListener> upListeners;
+	private final List<ConnectionListener> downListeners;
+	private final List<MessageListener> createdListeners;
+	private final List<MessageListener> startedListeners;
+	private final List<MessageListener> deletedListeners;
+	private final List<MessageListener> abortedListeners;
+	private final List<MessageListener> transferredListeners;
+
+	/** subscriptions of all the registered listeners */
+	private final List<Subscription> subscriptions;
+	/** subscriptions that need update calls or batch deliveries */
+	private final List<Subscription> scheduled;
+	/** subscriptions whose events are collected into batches */
+	private final List<Subscription> batched;
+	/** earliest next update time of the scheduled subscriptions */
+	private double nextUpdateTime;
+
+	/**
+	 * Creates a new event bus. Batching is configured with the
+	 * {@link #BATCH_EVENTS_S} setting.
+	 */
+	public EventBus() {
+		this(new Settings(World.OPTIMIZATION_SETTINGS_NS).getBoolean(
+				BATCH_EVENTS_S, false));
+	}
+
+	/**
+	 * Creates a new event bus.
+	 * @param batching If true, the events of batch listeners are delivered
+	 * in batches
+	 */
+	public EventBus(boolean batching) {
+		this.batching = batching;
+		this.upListeners = new ArrayList<ConnectionListener>();
+		this.downListeners = new ArrayList<ConnectionListener>();
+		this.createdListeners = new ArrayList<MessageListener>();
+		this.startedListeners = new ArrayList<MessageListener>();
+		this.deletedListeners = new ArrayList<MessageListener>();
+		this.abortedListeners = new ArrayList<MessageListener>();
+		this.transferredListeners = new ArrayList<MessageListener>();
+		this.subscriptions = new ArrayList<Subscription>();
+		this.scheduled = new ArrayList<Subscription>();
+		this.batched = new ArrayList<Subscription>();
+		this.nextUpdateTime = Double.MAX_VALUE;
+	}
+
+	/**
+	 * Adds a new connection listener
+	 * @param cl The listener
+	 */
+	public void addConnectionListener(ConnectionListener cl) {
+		Subscription s = getSubscription(cl);
+		int types = getEventTypes(cl, CONNECTION_EVENTS);
+
+		if (s.batch != null) {
+			s.types |= types;
+			return;
+		}
+		if ((types & CONNECTION_UP) != 0) {
+			upListeners.add(cl);
+		}
+		if ((types & CONNECTION_DOWN) != 0) {
+			downListeners.add(cl);
+		}
+	}
+
+	/**
+	 * Adds a new message listener
+	 * @param ml The listener
+	 */
+	public void addMessageListener(MessageListener ml) {
+		Subscription s = getSubscription(ml);
+		int types = getEventTypes(ml, MESSAGE_EVENTS);
+
+		if (s.batch != null) {
+			s.types |= types;
+			return;
+		}
+		if ((types & MESSAGE_CREATED) != 0) {
+			createdListeners.add(ml);
+		}
+		if ((types & MESSAGE_TRANSFER_STARTED) != 0) {
+			startedListeners.add(ml);
+		}
+		if ((types & MESSAGE_DELETED) != 0) {
+			deletedListeners.add(ml);
+		}
+		if ((types & MESSAGE_TRANSFER_ABORTED) != 0) {
+			abortedListeners.add(ml);
+		}
+		if ((types & MESSAGE_TRANSFERRED) != 0) {
+			transferredListeners.add(ml);
+		}
+	}
+
+	/**
+	 * Adds a new update listener
+	 * @param ul The listener
+	 */
+	public void addUpdateListener(UpdateListener ul) {
+		Subscription s = getSubscription(ul);
+		if ((getEventTypes(ul, UPDATE) & UPDATE) == 0) {
+			return;
+		}
+		s.updateListener = ul;
+		schedule(s);
+	}
+
+	/**
+	 * Delivers the events that are still waiting in the batches. Should be
+	 * called when the simulation ends.
+	 */
+	public void flush() {
+		for (Subscription s : batched) {
+			deliver(s);
+		}
+	}
+
+	/**
+	 * Returns the subscription of a listener and creates one if the
+	 * listener doesn't have one yet
+	 * @param listener The listener
+	 * @return The subscription of the listener
+	 */
+	private Subscription getSubscription(Object listener) {
+		for (Subscription s : subscriptions) {
+			if (s.listener == listener) {
+				return s;
+			}
+		}
+
+		Subscription s = new Subscription(listener);
+		subscriptions.add(s);
+		if (batching && listener instanceof EventBatchListener) {
+			s.batch = new EventBatch();
+			batched.add(s);
+			schedule(s);
+		}
+		return s;
+	}
+
+	/**
+	 * Returns the event types of a listener
+	 * @param listener The listener
+	 * @param interfaceTypes The event types of the listener interface
+	 * @return The types the listener needs out of the interface's types
+	 */
+	private int getEventTypes(Object listener, int interfaceTypes) {
+		if (listener instanceof EventSubscriber) {
+			return ((EventSubscriber)listener).getEventTypes() &
+				interfaceTypes;
+		}
+		return interfaceTypes;
+	}
+
+	/**
+	 * Adds a subscription to the scheduled subscriptions (if it's not
+	 * there yet)
+	 * @param s The subscription
+	 */
+	private void schedule(Subscription s) {
+		if (!scheduled.contains(s)) {
+			scheduled.add(s);
+		}
+		this.nextUpdateTime = Math.min(this.nextUpdateTime, s.nextUpdate);
+	}
+
+	/**
+	 * Delivers the batch of a subscription to its listener (if the batch
+	 * isn't empty) and clears the batch
+	 * @param s The subscription
+	 */
+	private void deliver(Subscription s) {
+		if (s.batch.size() > 0) {
+			((EventBatchListener)s.listener).eventsOccurred(s.batch);
+			s.batch.clear();
+		}
+	}
+
+	/**
+	 * Adds an event to the batches whose listeners need it
+	 */
+	private void addToBatches(int type, DTNHost host1, DTNHost host2,
+			Message m, boolean flag) {
+		for (Subscription s : batched) {
+			if ((s.types & type) != 0) {
+				s.batch.add(type, host1, host2, m, flag);
+				if (s.batch.size() >= MAX_BATCH_SIZE) {
+					deliver(s);
+				}
+			}
+		}
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		for (ConnectionListener cl : upListeners) {
+			cl.hostsConnected(host1, host2);
+		}
+		if (!batched.isEmpty()) {
+			addToBatches(CONNECTION_UP, host1, host2, null, false);
+		}
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		for (ConnectionListener cl : downListeners) {
+			cl.hostsDisconnected(host1, host2);
+		}
+		if (!batched.isEmpty()) {
+			addToBatches(CONNECTION_DOWN, host1, host2, null, false);
+		}
+	}
+
+	public void newMessage(Message m) {
+		for (MessageListener ml : createdListeners) {
+			ml.newMessage(m);
+		}
+		if (!batched.isEmpty()) {
+			addToBatches(MESSAGE_CREATED, null, null, m, false);
+		}
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+		for (MessageListener ml : startedListeners) {
+			ml.messageTransferStarted(m, from, to);
+		}
+		if (!batched.isEmpty()) {
+			addToBatches(MESSAGE_TRANSFER_STARTED, from, to, m, false);
+		}
+	}
+
+	public void messageDeleted(Message m, DTNHost where, boolean dropped) {
+		for (MessageListener ml : deletedListeners) {
+			ml.messageDeleted(m, where, dropped);
+		}
+		if (!batched.isEmpty()) {
+			addToBatches(MESSAGE_DELETED, where, null, m, dropped);
+		}
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {
+		for (MessageListener ml : abortedListeners) {
+			ml.messageTransferAborted(m, from, to);
+		}
+		if (!batched.isEmpty()) {
+			addToBatches(MESSAGE_TRANSFER_ABORTED, from, to, m, false);
+		}
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery) {
+		for (MessageListener ml : transferredListeners) {
+			ml.messageTransferred(m, from, to, firstDelivery);
+		}
+		if (!batched.isEmpty()) {
+			addToBatches(MESSAGE_TRANSFERRED, from, to, m, firstDelivery);
+		}
+	}
+
+	/**
+	 * Delivers the due batches and calls the update listeners whose update
+	 * is due
+	 * @param hosts A list of all hosts in the world
+	 */
+	public void updated(List<DTNHost> hosts) {
+		double time = SimClock.getTime();
+		if (time < this.nextUpdateTime) {
+			return; /* nothing is due */
+		}
+
+		double next = Double.MAX_VALUE;
+		for (int i=0, n = scheduled.size(); i<n; i++) {
+			Subscription s = scheduled.get(i);
+			if (time >= s.nextUpdate) {
+				if (s.batch != null) {
+					deliver(s);
+				}
+				if (s.updateListener != null) {
+					s.updateListener.updated(hosts);
+				}
+				if (s.scheduledListener != null) {
+					s.nextUpdate = s.scheduledListener.getNextUpdateTime();
+				}
+			}
+			next = Math.min(next, s.nextUpdate);
+		}
+		this.nextUpdateTime = next;
+	}
+
+	/**
+	 * A registered listener and its state in the bus
+	 */
+	private static class Subscription {
+		private final Object listener;
+		/** the listener if it's a scheduled update listener, or null */
+		private final ScheduledUpdateListener scheduledListener;
+		/** the listener if it needs update calls, or null */
+		private UpdateListener updateListener;
+		/** time of the next update (or batch delivery) */
+		private double nextUpdate;
+		/** the events waiting for delivery (null if not batched) */
+		private EventBatch batch;
+		/** event types that are collected into the batch */
+		private int types;
+
+		private Subscription(Object listener) {
+			this.listener = listener;
+			if (listener instanceof ScheduledUpdateListener) {
+				this.scheduledListener = (ScheduledUpdateListener)listener;
+				this.nextUpdate = scheduledListener.getNextUpdateTime();
+			} else {
+				this.scheduledListener = null;
+				this.nextUpdate = Double.NEGATIVE_INFINITY;
+			}
+		}
+	}
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Interface for connection, message and update listeners that need only
+ * some of the event types of their listener interfaces. The
+ * {@link EventBus} doesn't call the listener methods of the other types.
+ * Listeners that don't implement this interface get all the events of their
+ * listener interfaces.
+ */
+public interface EventSubscriber {
+
+	/**
+	 * Returns the event types the listener needs. The types are read once,
+	 * when the listener is registered.
+	 * @return Bitwise OR of the event types (e.g.,
+	 * {@link EventBus#MESSAGE_CREATED}) the listener needs
+	 */
+	public int getEventTypes();
+
+}
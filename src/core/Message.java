@@ -4,14 +4,17 @@
  */
 package core;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
- * A message that is created at a node or passed between nodes.
+ * A message that is created at a node or passed between nodes. Replicates
+ * of a message share the nodes of the path the message has passed before
+ * replicating, and the properties until either of the replicates changes
+ * them.
  */
 public class Message implements Comparable<Message> {
 	/** Value for infinite TTL of message */
@@ -20,14 +23,23 @@ public class Message implements Comparable<Message> {
 	private DTNHost to;
 	/** Identifier of the message */
 	private String id;
+	/** Interned index of the identifier (see {@link #getIdIndex()}) */
+	private int idIndex;
 	/** Size of the message (bytes) */
 	private int size;
-	/** List of nodes this message has passed */
-	private List<DTNHost> path;
+	/** The last node this message has passed (the previous nodes are
+	 * linked from it) */
+	private PathNode path;
+	/** List view of the path (created when needed) */
+	private List<DTNHost> hops;
 	/** Next unique identifier to be given */
 	private static int nextUniqueId;
 	/** Unique ID of this message */
 	private int uniqueId;
+	/** Indexes of the message identifiers */
+	private static Map<String, Integer> idIndexes;
+	/** Message identifiers by their indexes */
+	private static List<String> indexedIds;
 	/** The time this message was received */
 	private double timeReceived;
 	/** The time when this message was created */
@@ -45,6 +57,9 @@ public class Message implements Comparable<Message> {
 	 * stored in the properties should be immutable because only a shallow
 	 * copy of the properties is made when replicating messages */
 	private Map<String, Object> properties;
+	/** Are the properties shared with a replicate (and must be copied
+	 * before changing them) */
+	private boolean propertiesShared;
 
 	/** Application ID of the application that created the message */
 	private String	appID;
@@ -66,8 +81,10 @@ public class Message implements Comparable<Message> {
 		this.from = from;
 		this.to = to;
 		this.id = id;
+		this.idIndex = internId(id);
 		this.size = size;
-		this.path = new ArrayList<DTNHost>();
+		this.path = null;
+		this.hops = null;
 		this.uniqueId = nextUniqueId;
 
 		this.timeCreated = SimClock.getTime();
@@ -76,6 +93,7 @@ public class Message implements Comparable<Message> {
 		this.responseSize = 0;
 		this.requestMsg = null;
 		this.properties = null;
+		this.propertiesShared = false;
 		this.appID = null;
 
 		Message.nextUniqueId++;
@@ -106,6 +124,52 @@ public class Message implements Comparable<Message> {
 		return this.id;
 	}
 
+	/**
+	 * Returns the index of the message's identifier. All messages (and
+	 * replicates) with the same identifier have the same index, and the
+	 * indexes are given in the order the identifiers are first used,
+	 * starting from zero. Hence, the index can be used instead of the ID
+	 * as a key in arrays, bit sets and int keyed maps.
+	 * @return The index of the message ID
+	 */
+	public int getIdIndex() {
+		return this.idIndex;
+	}
+
+	/**
+	 * Returns the index of a message identifier
+	 * @param id The message identifier
+	 * @return The index of the identifier (see {@link #getIdIndex()}) or -1
+	 * if no message with the identifier has been created
+	 */
+	public static int getIdIndex(String id) {
+		Integer index = idIndexes.get(id);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Returns the message identifier that has the given index
+	 * @param index The index of the identifier
+	 * @return The identifier
+	 */
+	public static String getIdForIndex(int index) {
+		return indexedIds.get(index);
+	}
+
+	/**
+	 * Returns the index of a message identifier, giving the next free index
+	 * to identifiers that haven't been seen before
+	 */
+	private static int internId(String id) {
+		Integer index = idIndexes.get(id);
+		if (index == null) {
+			index = indexedIds.size();
+			idIndexes.put(id, index);
+			indexedIds.add(id);
+		}
+		return index;
+	}
+
 	/**
 	 * Returns an ID that is unique per message instance
 	 * (different for replicates too)
@@ -128,15 +192,21 @@ public class Message implements Comparable<Message> {
 	 * @param node The node to add
 	 */
 	public void addNodeOnPath(DTNHost node) {
-		this.path.add(node);
+		this.path = new PathNode(node, this.path);
+		this.hops = null;
 	}
 
 	/**
-	 * Returns a list of nodes this message has passed so far
-	 * @return The list as vector
+	 * Returns a list of nodes this message has passed so far. The list
+	 * can't be modified and it doesn't change if more nodes are added on
+	 * the path.
+	 * @return The list of nodes
 	 */
 	public List<DTNHost> getHops() {
-		return this.path;
+		if (this.hops == null) {
+			this.hops = new HopList(this.path);
+		}
+		return this.hops;
 	}
 
 	/**
@@ -144,7 +214,7 @@ public class Message implements Comparable<Message> {
 	 * @return the amount of hops this message has passed
 	 */
 	public int getHopCount() {
-		return this.path.size() -1;
+		return this.path.length -1;
 	}
 
 	/**
@@ -164,6 +234,18 @@ public class Message implements Comparable<Message> {
 	}
 
 
+	/**
+	 * Returns the simulation time after which the TTL of this message is
+	 * zero or less (see {@link #getTtl()})
+	 * @return The expiry time or Double.MAX_VALUE if the TTL is infinite
+	 */
+	public double getTtlExpiryTime() {
+		if (this.initTtl == INFINITE_TTL) {
+			return Double.MAX_VALUE;
+		}
+		return this.timeCreated + (this.initTtl - 1) * 60.0;
+	}
+
 	/**
 	 * Sets the initial TTL (time-to-live) for this message. The initial
 	 * TTL is the TTL when the original message was created. The current TTL
@@ -250,24 +332,26 @@ public class Message implements Comparable<Message> {
 	}
 
 	/**
-	 * Deep copies message data from other message. If new fields are
+	 * Copies message data from other message. The path and the properties
+	 * are shared with the other message and the properties are copied only
+	 * when either of the messages changes them. If new fields are
 	 * introduced to this class, most likely they should be copied here too
 	 * (unless done in constructor).
 	 * @param m The message where the data is copied
 	 */
 	protected void copyFrom(Message m) {
-		this.path = new ArrayList<DTNHost>(m.path);
+		this.path = m.path;
+		this.hops = m.hops;
 		this.timeCreated = m.timeCreated;
 		this.responseSize = m.responseSize;
 		this.requestMsg  = m.requestMsg;
 		this.initTtl = m.initTtl;
 		this.appID = m.appID;
 
+		this.properties = m.properties;
 		if (m.properties != null) {
-			Set<String> keys = m.properties.keySet();
-			for (String key : keys) {
-				updateProperty(key, m.getProperty(key));
-			}
+			this.propertiesShared = true;
+			m.propertiesShared = true;
 		}
 	}
 
@@ -317,6 +401,11 @@ public class Message implements Comparable<Message> {
 			   that don't use the property feature  */
 			this.properties = new HashMap<String, Object>();
 		}
+		else if (this.propertiesShared) {
+			/* don't change the replicates' properties */
+			this.properties = new HashMap<String, Object>(this.properties);
+			this.propertiesShared = false;
+		}
 
 		this.properties.put(key, value);
 	}
@@ -344,6 +433,8 @@ public class Message implements Comparable<Message> {
 	 */
 	public static void reset() {
 		nextUniqueId = 0;
+		idIndexes = new HashMap<String, Integer>();
+		indexedIds = new ArrayList<String>();
 	}
 
 	/**
@@ -360,4 +451,61 @@ public class Message implements Comparable<Message> {
 		this.appID = appID;
 	}
 
+	/**
+	 * A node on the path of a message. The nodes are never changed so
+	 * the replicates of a message can share them.
+	 */
+	private static class PathNode {
+		private final DTNHost host;
+		/** the previous node on the path (null for the first one) */
+		private final PathNode previous;
+		/** number of nodes on the path up to (and including) this node */
+		private final int length;
+
+		public PathNode(DTNHost host, PathNode previous) {
+			this.host = host;
+			this.previous = previous;
+			this.length = previous == null ? 1 : previous.length + 1;
+		}
+	}
+
+	/**
+	 * Read-only list of the hosts on a path. The hosts are copied to an
+	 * array only when the list is accessed by index.
+	 */
+	private static class HopList extends AbstractList<DTNHost> {
+		private final PathNode last;
+		private DTNHost[] hosts;
+
+		public HopList(PathNode last) {
+			this.last = last;
+		}
+
+		@Override
+		public DTNHost get(int index) {
+			if (hosts == null) {
+				hosts = new DTNHost[size()];
+				for (PathNode n = last; n != null; n = n.previous) {
+					hosts[n.length - 1] = n.host;
+				}
+			}
+			return hosts[index];
+		}
+
+		@Override
+		public int size() {
+			return last == null ? 0 : last.length;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			for (PathNode n = last; n != null; n = n.previous) {
+				if (o == null ? n.host == null : o.equals(n.host)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
 }
@@ -13,11 +13,19 @@ import java.util.List;
  * post data, subscribe to data changes and also poll for data values.
  * This is fairly similar to Message class' property interface, but these
  * values are shared for a node instead of message.
+ *
+ * <P>Values that are read or updated often can be accessed through typed
+ * slots (see {@link #getDoubleSlot(String)}). A slot is resolved once and
+ * stores its value in a primitive field, so using it requires no key
+ * lookups or boxing. The listeners of a slot's key are notified only
+ * when the value actually changes. The string key methods can still be
+ * used for the same keys.</P>
  */
 public class ModuleCommunicationBus {
 	/** Initial capacity for the listener lists (instead of 10) */
 	private static int INIT_CAPACITY = 3;
-	/** The values in the blackboard (or null if none)*/
+	/** The values in the blackboard (or null if none). Keys that have a
+	 * slot are mapped to the slot. */
 	private HashMap<String, Object> values;
 	/** Subscribed listeners (or null if none)*/
 	private HashMap<String, List<ModuleCommunicationListener>> listeners;
@@ -40,7 +48,7 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if there is already a value for the given key
 	 */
 	public void addProperty(String key, Object value) throws SimError {
-		if (this.values != null && this.values.containsKey(key)) {
+		if (containsProperty(key)) {
 			/* check to prevent accidental name space collisions */
 			throw new SimError("A value for the key " + key +
 					" already exists");
@@ -59,7 +67,12 @@ public class ModuleCommunicationBus {
 		if (this.values == null) {
 			return null;
 		}
-		return this.values.get(key);
+		Object value = this.values.get(key);
+		if (value instanceof DoubleSlot) {
+			DoubleSlot slot = (DoubleSlot)value;
+			return slot.isSet() ? (Object)slot.value : null;
+		}
+		return value;
 	}
 
 	/**
@@ -71,7 +84,11 @@ public class ModuleCommunicationBus {
 		if (this.values == null) {
 			return false;
 		}
-		return this.values.containsKey(key);
+		Object value = this.values.get(key);
+		if (value instanceof DoubleSlot) {
+			return ((DoubleSlot)value).isSet();
+		}
+		return value != null || this.values.containsKey(key);
 	}
 
 	/**
@@ -80,6 +97,8 @@ public class ModuleCommunicationBus {
 	 * checks for name space clashes.
 	 * @param key The key which is used to lookup the value
 	 * @param value The new value to store
+	 * @throws SimError if the key has a slot and the value is not of the
+	 * slot's type
 	 */
 	public void updateProperty(String key, Object value) throws SimError {
 		if (this.values == null) {
@@ -88,6 +107,15 @@ public class ModuleCommunicationBus {
 			this.values = new HashMap<String, Object>();
 		}
 
+		Object old = this.values.get(key);
+		if (old instanceof DoubleSlot) {
+			if (!(value instanceof Double)) {
+				throw new SimError("No Double value for key " + key);
+			}
+			((DoubleSlot)old).set((Double)value);
+			return;
+		}
+
 		this.values.put(key, value);
 		notifyListeners(key, value);
 	}
@@ -100,6 +128,15 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if the value with the given key was not a Double
 	 */
 	public double updateDouble(String key, double delta) throws SimError {
+		Object value = this.values != null ? this.values.get(key) : null;
+		if (value instanceof DoubleSlot) {
+			DoubleSlot slot = (DoubleSlot)value;
+			if (!slot.isSet()) {
+				throw new SimError("No value for key " + key);
+			}
+			return slot.add(delta);
+		}
+
 		double current;
 		try {
 			current = (Double)getProperty(key);
@@ -123,6 +160,13 @@ public class ModuleCommunicationBus {
 	 * @throws SimError if the value with the given key was not a Double
 	 */
 	public double getDouble(String key, double naValue) throws SimError {
+		if (this.values != null) {
+			Object value = this.values.get(key);
+			if (value instanceof DoubleSlot) {
+				return ((DoubleSlot)value).get(naValue);
+			}
+		}
+
 		Object value = this.getProperty(key);
 		if (value == null) {
 			return naValue;
@@ -155,12 +199,55 @@ public class ModuleCommunicationBus {
 		}
 	}
 
+	/**
+	 * Returns the double slot of a key. The slot is created if the key
+	 * doesn't have one yet; if the key already has a value, the slot gets
+	 * that value. The same slot is returned for all the calls with the same
+	 * key, so modules should resolve their slots once, e.g., when they are
+	 * initialized.
+	 * @param key The key of the value
+	 * @return The slot of the key
+	 * @throws SimError if the key has a value that is not a Double
+	 */
+	public DoubleSlot getDoubleSlot(String key) throws SimError {
+		if (this.values == null) {
+			this.values = new HashMap<String, Object>();
+		}
+
+		Object value = this.values.get(key);
+		if (value instanceof DoubleSlot) {
+			return (DoubleSlot)value;
+		}
+
+		DoubleSlot slot = new DoubleSlot(key, getListenerList(key));
+		if (this.values.containsKey(key)) {
+			if (!(value instanceof Double)) {
+				throw new SimError("No Double value for key " + key);
+			}
+			slot.isSet = true;
+			slot.value = (Double)value;
+		}
+		this.values.put(key, slot);
+
+		return slot;
+	}
+
 	/**
 	 * Subscribes a module to changes of a certain value.
 	 * @param key The key of the value whose changes the module is interested of
 	 * @param module The module to subscribe.
 	 */
 	public void subscribe(String key, ModuleCommunicationListener module) {
+		getListenerList(key).add(module);
+	}
+
+	/**
+	 * Returns the list of listeners of a key. Creates the list if it doesn't
+	 * exist yet.
+	 * @param key The key
+	 * @return The listeners of the key
+	 */
+	private List<ModuleCommunicationListener> getListenerList(String key) {
 		if (this.listeners == null) {
 			/* first listener for the whole node */
 			this.listeners =
@@ -174,7 +261,7 @@ public class ModuleCommunicationBus {
 			this.listeners.put(key, list);
 		}
 
-		list.add(module);
+		return list;
 	}
 
 	/**
@@ -221,6 +308,90 @@ public class ModuleCommunicationBus {
 	}
 
 
+	/**
+	 * Typed slot for a double value of the bus. The value is stored in a
+	 * primitive field and the slot keeps a reference to the listeners of
+	 * its key, so reading and updating the value requires no key lookups.
+	 * Setting the value notifies the listeners only if the value changes.
+	 */
+	public static class DoubleSlot {
+		private final String key;
+		private final List<ModuleCommunicationListener> listeners;
+		private boolean isSet;
+		private double value;
+
+		private DoubleSlot(String key,
+				List<ModuleCommunicationListener> listeners) {
+			this.key = key;
+			this.listeners = listeners;
+			this.isSet = false;
+		}
+
+		/**
+		 * Returns the key of this slot
+		 * @return The key
+		 */
+		public String getKey() {
+			return this.key;
+		}
+
+		/**
+		 * Returns true if the slot has a value
+		 * @return True if the slot has a value
+		 */
+		public boolean isSet() {
+			return this.isSet;
+		}
+
+		/**
+		 * Returns the value of the slot
+		 * @param naValue The value to return if the slot has no value
+		 * @return The value or naValue if the slot has no value
+		 */
+		public double get(double naValue) {
+			return this.isSet ? this.value : naValue;
+		}
+
+		/**
+		 * Sets the value of the slot. The listeners of the key are notified
+		 * if the slot had no value or the value changed.
+		 * @param newValue The new value
+		 */
+		public void set(double newValue) {
+			if (this.isSet && this.value == newValue) {
+				return; /* no change */
+			}
+			this.isSet = true;
+			this.value = newValue;
+
+			if (this.listeners.size() > 0) {
+				Double boxed = newValue;
+				for (int i=0, n=listeners.size(); i<n; i++) {
+					listeners.get(i).moduleValueChanged(key, boxed);
+				}
+			}
+		}
+
+		/**
+		 * Adds delta to the value of the slot
+		 * @param delta Value added to the old value
+		 * @return The new value
+		 * @throws SimError if the slot has no value
+		 */
+		public double add(double delta) throws SimError {
+			if (!this.isSet) {
+				throw new SimError("No value for key " + key);
+			}
+			set(this.value + delta);
+			return this.value;
+		}
+
+		@Override
+		public String toString() {
+			return this.isSet ? String.valueOf(this.value) : "n/a";
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "ComBus with mapping: " + (this.values != null ?
@@ -4,22 +4,24 @@
  */
 package core;
 
-import input.WKTReader;
 import interfaces.ConnectivityGrid;
 import interfaces.ConnectivityOptimizer;
 
 import java.awt.*;
-import java.io.File;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 
 import movement.MapBasedMovement;
+import movement.map.GeometryCache;
 import movement.map.SimMap;
 import routing.util.EnergyModel;
 
 import util.ActivenessHandler;
+import util.ZoneIndex;
 
 /**
  * Network interface of a DTNHost. Takes care of connectivity among hosts.
@@ -80,6 +82,12 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
     protected double oldTransmitRange;
     protected int transmitSpeed;
     protected ConnectivityOptimizer optimizer = null;
+    /**
+     * combus slots of the radio range and energy values (resolved in
+     * {@link #setHost(DTNHost)})
+     */
+    private ModuleCommunicationBus.DoubleSlot rangeSlot;
+    private ModuleCommunicationBus.DoubleSlot energySlot;
     /**
      * scanning interval, or 0.0 if n/a
      */
@@ -100,11 +108,55 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
     private int activenessJitterValue;
 
 
+    /**
+     * U-Bahn station location -setting id ({@value}). The interface is
+     * inactive in the station zone.
+     */
     public static final String UBAHN_LOCATION = "ubahnLocation";
-    private Coord ubahnLocation = null;
+    /**
+     * U-Bahn station zone radius -setting id ({@value}). Default is 0, i.e.,
+     * the interface is inactive only exactly at the station location.
+     */
+    public static final String UBAHN_RADIUS = "ubahnRadius";
+    /** the U-Bahn station zone (the interface is inactive there) */
+    private ZoneIndex ubahnZone = null;
+    private ZoneIndex.Cache ubahnCache = new ZoneIndex.Cache();
 
+    /**
+     * Cigarette spot locations -setting id ({@value}). Path of a WKT file
+     * with the centers of the cigarette spot zones.
+     */
     public static final String CIGARETTE_LOCATIONS = "cigaretteLocations";
-    private List<Coord> cigaretteLocations = null;
+    /**
+     * Cigarette spot zone radius -setting id ({@value}). Default is
+     * {@link #DEF_CIGARETTE_RADIUS}.
+     */
+    public static final String CIGARETTE_RADIUS = "cigaretteRadius";
+    /**
+     * Transmit range at cigarette spots -setting id ({@value}). Default is
+     * {@link #DEF_CIGARETTE_RANGE}.
+     */
+    public static final String CIGARETTE_RANGE = "cigaretteRange";
+    /**
+     * Transmit speed divisor at cigarette spots -setting id ({@value}).
+     * Default is {@link #DEF_CIGARETTE_SPEED_DIVISOR}.
+     */
+    public static final String CIGARETTE_SPEED_DIVISOR =
+            "cigaretteSpeedDivisor";
+    /** default radius of the cigarette spot zones ({@value}) */
+    public static final double DEF_CIGARETTE_RADIUS = 20;
+    /** default transmit range at cigarette spots ({@value}) */
+    public static final double DEF_CIGARETTE_RANGE = 20;
+    /** default transmit speed divisor at cigarette spots ({@value}) */
+    public static final int DEF_CIGARETTE_SPEED_DIVISOR = 5;
+    /** cigarette spot zones (range and speed are reduced there) */
+    private ZoneIndex cigaretteZones = null;
+    private ZoneIndex.Cache cigaretteCache = new ZoneIndex.Cache();
+    private double cigaretteRange;
+    private int cigaretteSpeedDivisor;
+    /** zones read from files, by file name and radius (zones are read only
+     * once) */
+    private static HashMap<String, ZoneIndex> zoneCache;
 
     public static final String INTERFACE_TYPE = "interfaceType";
 
@@ -119,6 +171,42 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 
     private Color rangeColor = Color.GREEN;
 
+    /**
+     * sorted snapshot indexes of the interfaces that were within range of
+     * this interface when the range snapshot was taken (null if no snapshot)
+     */
+    private int[] rangeSnapshot = null;
+    /**
+     * number of valid indexes in the range snapshot array
+     */
+    private int rangeSnapshotSize;
+    /**
+     * index of this interface in the current range snapshot
+     */
+    private int snapshotIndex;
+    /**
+     * transmit range of this interface when the range snapshot was taken
+     */
+    private double snapshotRange;
+
+    /**
+     * id of this interface in its connectivity optimizer (-1 if none)
+     */
+    private int gridId = -1;
+    /**
+     * index of the connectivity optimizer cell of this interface
+     */
+    private int gridCell = -1;
+    /**
+     * visitor that tries to connect to the visited interfaces
+     */
+    private final ConnectivityOptimizer.InterfaceVisitor connector =
+            new ConnectivityOptimizer.InterfaceVisitor() {
+                public void visit(NetworkInterface ni) {
+                    connect(ni);
+                }
+            };
+
     static {
         DTNSim.registerForReset(NetworkInterface.class.getCanonicalName());
         reset();
@@ -129,6 +217,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
      */
     public static void reset() {
         rng = new Random(0);
+        zoneCache = new HashMap<String, ZoneIndex>();
     }
 
     /**
@@ -159,15 +248,17 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
         if (s.contains(UBAHN_LOCATION)) {
             try {
                 double[] xy = s.getCsvDoubles(UBAHN_LOCATION);
-                ubahnLocation = new Coord(xy[0], xy[1]).clone();
-                MapBasedMovement tmp = new MapBasedMovement(s);
-                SimMap map = tmp.getMap();
+                Coord ubahnLocation = new Coord(xy[0], xy[1]).clone();
+                SimMap map = MapBasedMovement.getSharedMap();
                 Coord offset = map.getOffset();
                 // mirror points if map data is mirrored
                 if (map.isMirrored()) {
                     ubahnLocation.setLocation(ubahnLocation.getX(), -ubahnLocation.getY());
                 }
                 ubahnLocation.translate(offset.getX(), offset.getY());
+                ubahnZone = new ZoneIndex(
+                        Collections.singletonList(ubahnLocation),
+                        s.getDouble(UBAHN_RADIUS, 0));
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -176,24 +267,22 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
         if (s.contains(CIGARETTE_LOCATIONS)) {
             String courseLocationsFile = s.getSetting(
                     CIGARETTE_LOCATIONS);
-            try {
-                cigaretteLocations = new LinkedList<Coord>();
-                List<Coord> locationsRead = (new WKTReader()).
-                        readPoints(new File(courseLocationsFile));
-                MapBasedMovement tmp = new MapBasedMovement(s);
-
-                for (Coord coord : locationsRead) {
-                    SimMap map = tmp.getMap();
-                    Coord offset = map.getOffset();
-                    // mirror points if map data is mirrored
-                    if (map.isMirrored()) {
-                        coord.setLocation(coord.getX(), -coord.getY());
-                    }
-                    coord.translate(offset.getX(), offset.getY());
-                    cigaretteLocations.add(coord);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
+            double radius = s.getDouble(CIGARETTE_RADIUS,
+                    DEF_CIGARETTE_RADIUS);
+            String key = courseLocationsFile + "@" + radius;
+            cigaretteZones = zoneCache.get(key);
+            if (cigaretteZones == null) {
+                cigaretteZones = readZones(courseLocationsFile, radius);
+                zoneCache.put(key, cigaretteZones);
+            }
+            this.cigaretteRange = s.getDouble(CIGARETTE_RANGE,
+                    DEF_CIGARETTE_RANGE);
+            this.cigaretteSpeedDivisor = s.getInt(CIGARETTE_SPEED_DIVISOR,
+                    DEF_CIGARETTE_SPEED_DIVISOR);
+            ensurePositiveValue(cigaretteRange, CIGARETTE_RANGE);
+            if (cigaretteSpeedDivisor < 1) {
+                throw new SettingsError("Setting " + CIGARETTE_SPEED_DIVISOR +
+                        " must be at least 1. Found " + cigaretteSpeedDivisor);
             }
         }
         if (s.contains(INTERFACE_TYPE)) {
@@ -225,6 +314,25 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
         this.connections = new ArrayList<Connection>();
     }
 
+    /**
+     * Reads zone centers from a WKT file, moves them to the coordinates of
+     * the map and returns them as a zone index
+     *
+     * @param zoneFile Path of the WKT file with the zone centers
+     * @param radius Radius of the zones
+     * @return The zones (no zones if reading the file fails)
+     */
+    private static ZoneIndex readZones(String zoneFile, double radius) {
+        List<Coord> centers = new ArrayList<Coord>();
+        try {
+            centers = GeometryCache.getMapPoints(zoneFile,
+                    MapBasedMovement.getSharedMap());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return new ZoneIndex(centers, radius);
+    }
+
     /**
      * copy constructor
      */
@@ -237,8 +345,10 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
         this.transmitSpeed = ni.transmitSpeed;
         this.scanInterval = ni.scanInterval;
         this.ah = ni.ah;
-        this.ubahnLocation = ni.ubahnLocation;
-        this.cigaretteLocations = ni.cigaretteLocations;
+        this.ubahnZone = ni.ubahnZone;
+        this.cigaretteZones = ni.cigaretteZones;
+        this.cigaretteRange = ni.cigaretteRange;
+        this.cigaretteSpeedDivisor = ni.cigaretteSpeedDivisor;
         this.type = ni.type;
         this.rangeColor = ni.rangeColor;
 
@@ -279,6 +389,8 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
             comBus.subscribe(RANGE_ID, this);
             comBus.subscribe(SPEED_ID, this);
         }
+        this.rangeSlot = comBus.getDoubleSlot(RANGE_ID);
+        this.energySlot = comBus.getDoubleSlot(EnergyModel.ENERGY_VALUE_ID);
 
         if (transmitRange > 0) {
             optimizer = ConnectivityGrid.ConnectivityGridFactory(
@@ -326,16 +438,25 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
         this.cListeners = cListeners;
     }
 
+    /**
+     * Returns true if the host is at a cigarette spot
+     *
+     * @return True if the host is in one of the cigarette spot zones
+     */
+    private boolean isInCigaretteZone() {
+        return this.cigaretteZones != null &&
+                this.cigaretteZones.contains(this.host.getLocation(),
+                        this.cigaretteCache);
+    }
+
     /**
      * Returns the transmit range of this network layer
      *
      * @return the transmit range
      */
     public double getTransmitRange() {
-        if(this.cigaretteLocations != null) {
-            for (Coord c : this.cigaretteLocations) {
-                if (this.host.getLocation().distance(c) < 20) return 20;
-            }
+        if (isInCigaretteZone()) {
+            return this.cigaretteRange;
         }
         return this.transmitRange;
     }
@@ -349,10 +470,8 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
      */
     public int getTransmitSpeed(NetworkInterface ni) {
         // TODO: Find transmit speed for cigarette spots
-        if(this.cigaretteLocations != null) {
-            for (Coord c : this.cigaretteLocations) {
-                if (this.host.getLocation().distance(c) < 20) return this.transmitSpeed / 5;
-            }
+        if (isInCigaretteZone()) {
+            return this.transmitSpeed / this.cigaretteSpeedDivisor;
         }
         return this.transmitSpeed;
     }
@@ -372,8 +491,8 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
      * @return true if the interface is on at the moment (false if not)
      */
     public boolean isActive() {
-        if (ubahnLocation != null) {
-            return this.host.getLocation().distance(ubahnLocation) != 0.0;
+        if (ubahnZone != null) {
+            return !ubahnZone.contains(this.host.getLocation(), ubahnCache);
         }
 
         boolean active;
@@ -384,8 +503,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 
         active = ah.isActive(this.activenessJitterValue);
 
-        if (active && host.getComBus().getDouble(EnergyModel.ENERGY_VALUE_ID,
-                1) <= 0) {
+        if (active && energySlot.get(1) <= 0) {
             /* TODO: better way to check battery level */
             /* no battery -> inactive */
             active = false;
@@ -394,15 +512,32 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
         if (active == false && this.transmitRange > 0) {
             /* not active -> make range 0 */
             this.oldTransmitRange = this.transmitRange;
-            host.getComBus().updateProperty(RANGE_ID, 0.0);
+            rangeSlot.set(0.0);
         } else if (active == true && this.transmitRange == 0.0) {
             /* active, but range == 0 -> restore range  */
-            host.getComBus().updateProperty(RANGE_ID,
-                    this.oldTransmitRange);
+            rangeSlot.set(this.oldTransmitRange);
         }
         return active;
     }
 
+    /**
+     * Returns the simulation time when the state of this interface may change
+     * even if the host doesn't move, i.e., when scanning rounds, activeness
+     * periods or energy consumption make the result of the next
+     * {@link #update()} time dependent.
+     *
+     * @return The earliest time of a possible change, or
+     * Double.MAX_VALUE if the interface has no time dependent state
+     */
+    public double getNextUpdateTime() {
+        if (scanInterval > 0.0 ||
+                (ah != null && !ah.isAlwaysActive()) ||
+                energySlot.isSet()) {
+            return SimClock.getTime();
+        }
+        return Double.MAX_VALUE;
+    }
+
     /**
      * Checks if this interface is currently in the scanning mode
      *
@@ -466,10 +601,15 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
      */
     protected void connect(Connection con, NetworkInterface anotherInterface) {
         this.connections.add(con);
+        this.host.addConnection(this, con);
         notifyConnectionListeners(CON_UP, anotherInterface.getHost());
+        if (optimizer != null) {
+            optimizer.connectionUp(this, anotherInterface);
+        }
 
         // set up bidirectional connection
         anotherInterface.getConnections().add(con);
+        anotherInterface.getHost().addConnection(anotherInterface, con);
 
         // inform routers about the connection
         this.host.connectionUp(con);
@@ -486,15 +626,164 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
                               NetworkInterface anotherInterface) {
         con.setUpState(false);
         notifyConnectionListeners(CON_DOWN, anotherInterface.getHost());
+        if (optimizer != null) {
+            optimizer.connectionDown(this, anotherInterface);
+        }
 
         // tear down bidirectional connection
         if (!anotherInterface.getConnections().remove(con)) {
             throw new SimError("No connection " + con + " found in " +
                     anotherInterface);
         }
+        anotherInterface.getHost().removeConnection(con);
 
         this.host.connectionDown(con);
         anotherInterface.getHost().connectionDown(con);
+        /* the caller removes the connection from this interface's list */
+        this.host.removeConnection(con);
+    }
+
+    /**
+     * Updates the location of this interface in the connectivity optimizer,
+     * tears down the connections that are out of range and creates new
+     * ones to the near interfaces. If the optimizer is in the sweep mode
+     * (see {@link ConnectivityOptimizer#isSweeping()}), nothing is done here
+     * because the optimizer updates all connections at once. The optimizer
+     * must be set.
+     */
+    protected void updateConnections() {
+        if (optimizer.isSweeping()) {
+            return; /* connections are updated by the optimizer's sweep */
+        }
+
+        // First break the old ones
+        optimizer.updateLocation(this);
+        breakOutOfRangeConnections();
+        // Then find new possible connections
+        connectToNearInterfaces();
+    }
+
+    /**
+     * Tears down all connections of this interface that are out of range
+     */
+    public void breakOutOfRangeConnections() {
+        for (int i = 0; i < this.connections.size(); ) {
+            Connection con = this.connections.get(i);
+            NetworkInterface anotherInterface = con.getOtherInterface(this);
+
+            // all connections should be up at this stage
+            assert con.isUp() : "Connection " + con + " was down!";
+
+            if (!isWithinRange(anotherInterface)) {
+                disconnect(con, anotherInterface);
+                connections.remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Tries to connect this interface to all interfaces the connectivity
+     * optimizer reports to be near (see {@link #connect(NetworkInterface)}).
+     * The optimizer must be set.
+     */
+    protected void connectToNearInterfaces() {
+        optimizer.visitNearInterfaces(this, this.connector);
+    }
+
+    /**
+     * Tries to connect this and another, not yet connected, interface if
+     * they are within range of each other. First this interface tries to
+     * connect to the other one and, if that doesn't succeed (e.g., this
+     * interface is not scanning), the other one tries to connect to this
+     * (see {@link #connect(NetworkInterface)}). Used by connectivity
+     * optimizers that check every pair of interfaces only once.
+     *
+     * @param anotherInterface The other interface
+     */
+    public void connectPair(NetworkInterface anotherInterface) {
+        if (!isWithinRange(anotherInterface)) {
+            return;
+        }
+        connect(anotherInterface);
+        if (!isConnected(anotherInterface)) {
+            anotherInterface.connect(this);
+        }
+    }
+
+    /**
+     * Returns the id of this interface in its connectivity optimizer
+     *
+     * @return The id or -1 if the interface has no id
+     */
+    public int getGridId() {
+        return this.gridId;
+    }
+
+    /**
+     * Sets the id of this interface in its connectivity optimizer
+     *
+     * @param gridId The id
+     */
+    public void setGridId(int gridId) {
+        this.gridId = gridId;
+    }
+
+    /**
+     * Returns the index of the connectivity optimizer cell this interface
+     * is in
+     *
+     * @return The cell index or -1 if the interface is not in any cell
+     */
+    public int getGridCell() {
+        return this.gridCell;
+    }
+
+    /**
+     * Sets the index of the connectivity optimizer cell this interface is in
+     *
+     * @param gridCell The cell index
+     */
+    public void setGridCell(int gridCell) {
+        this.gridCell = gridCell;
+    }
+
+    /**
+     * Sets a snapshot of the interfaces that are within range of this
+     * interface. As long as the snapshot is set and the transmit ranges of
+     * both interfaces are the same as when the snapshot was taken,
+     * {@link #isWithinRange(NetworkInterface)} uses the snapshot instead of
+     * computing the ranges and distance. The caller is responsible for
+     * clearing the snapshot before any host moves.
+     *
+     * @param index Index of this interface in the snapshot
+     * @param inRange Sorted indexes of the interfaces that are within range
+     * @param count Number of valid indexes in the beginning of the array
+     */
+    public void setRangeSnapshot(int index, int[] inRange, int count) {
+        this.snapshotIndex = index;
+        this.rangeSnapshot = inRange;
+        this.rangeSnapshotSize = count;
+        this.snapshotRange = this.transmitRange;
+    }
+
+    /**
+     * Clears the range snapshot set with {@link #setRangeSnapshot(int, int[], int)}
+     */
+    public void clearRangeSnapshot() {
+        this.rangeSnapshot = null;
+    }
+
+    /**
+     * Returns true if this interface has a range snapshot that is still
+     * valid, i.e., the transmit range hasn't changed after taking it
+     *
+     * @return True if the snapshot can be used
+     */
+    private boolean hasValidRangeSnapshot() {
+        return this.rangeSnapshot != null &&
+                this.transmitRange == this.snapshotRange;
     }
 
     /**
@@ -505,6 +794,13 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
      * @return True if the interface is within range, false if not
      */
     protected boolean isWithinRange(NetworkInterface anotherInterface) {
+        if (hasValidRangeSnapshot() &&
+                anotherInterface.hasValidRangeSnapshot()) {
+            return Arrays.binarySearch(this.rangeSnapshot, 0,
+                    this.rangeSnapshotSize,
+                    anotherInterface.snapshotIndex) >= 0;
+        }
+
         double smallerRange = anotherInterface.getTransmitRange();
         double myRange = getTransmitRange();
         if (myRange < smallerRange) {
@@ -632,17 +928,22 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
         DTNHost anotherNode = anotherInterface.getHost();
         con.setUpState(false);
         notifyConnectionListeners(CON_DOWN, anotherNode);
+        if (optimizer != null) {
+            optimizer.connectionDown(this, anotherInterface);
+        }
 
         // tear down bidirectional connection
         if (!anotherInterface.getConnections().remove(con)) {
             throw new SimError("No connection " + con + " found in " +
                     anotherNode);
         }
+        anotherNode.removeConnection(con);
 
         this.host.connectionDown(con);
         anotherNode.connectionDown(con);
 
         connections.remove(index);
+        this.host.removeConnection(con);
     }
 
     /**
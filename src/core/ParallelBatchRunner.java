@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <P>Runs several batch mode run indexes concurrently inside one JVM.</P>
+ *
+ * <P>The simulator keeps most of its run state (sim clock, random number
+ * generators, address counters, connectivity grids, settings etc.) in static
+ * fields that are reset between runs (see
+ * {@link DTNSim#registerForReset(String)}). Instead of running the runs one
+ * after another, every run is loaded with its own class loader so that
+ * each run gets a private copy of all those static fields, i.e., its own
+ * isolated simulation context. Runs are executed using a fixed size thread
+ * pool and the wall clock time of each run is reported when all runs are
+ * done.</P>
+ *
+ * <P><strong>Note:</strong> all runs share the standard output and an
+ * error that makes a run exit the JVM (e.g. an invalid setting) terminates
+ * all the runs.</P>
+ */
+public class ParallelBatchRunner {
+	/** Name of the method that is called in the isolated context */
+	private static final String RUN_METHOD_NAME = "runIsolated";
+
+	private final String[] confFiles;
+	private final int firstConfIndex;
+	private final int nrofThreads;
+	private final URL[] classPath;
+
+	/**
+	 * Creates a new parallel batch runner.
+	 * @param confFiles The command line arguments containing the settings
+	 * files
+	 * @param firstConfIndex Index of the first settings file in the array
+	 * @param nrofThreads How many runs are executed at the same time
+	 */
+	public ParallelBatchRunner(String[] confFiles, int firstConfIndex,
+			int nrofThreads) {
+		this.confFiles = confFiles;
+		this.firstConfIndex = firstConfIndex;
+		this.nrofThreads = nrofThreads;
+		this.classPath = parseClassPath();
+	}
+
+	/**
+	 * Runs the given range of run indexes and prints a summary of wall
+	 * clock times per run
+	 * @param firstRun Index of the first run
+	 * @param lastRun Index of the last run + 1
+	 */
+	public void run(int firstRun, int lastRun) {
+		ExecutorService pool = Executors.newFixedThreadPool(nrofThreads);
+		List<Future<Double>> results = new ArrayList<Future<Double>>();
+		long startTime = System.currentTimeMillis();
+
+		for (int i=firstRun; i<lastRun; i++) {
+			final int runIndex = i;
+			final int nrofRuns = lastRun;
+			results.add(pool.submit(new Callable<Double>() {
+				public Double call() throws Exception {
+					return runInIsolation(runIndex, nrofRuns);
+				}
+			}));
+		}
+		pool.shutdown();
+
+		StringBuilder summary = new StringBuilder("---\nWall time per run:");
+		for (int i=firstRun; i<lastRun; i++) {
+			String time;
+			try {
+				time = String.format("%.2fs",
+						results.get(i - firstRun).get());
+			} catch (Exception e) {
+				time = "failed (" + e.getCause() + ")";
+			}
+			summary.append("\nRun " + (i+1) + ": " + time);
+		}
+
+		double duration = (System.currentTimeMillis() - startTime)/1000.0;
+		summary.append("\n---\nAll done in " +
+				String.format("%.2f", duration) + "s using " + nrofThreads +
+				" threads");
+		System.out.println(summary);
+	}
+
+	/**
+	 * Runs a single run index using a new class loader
+	 * @param runIndex The run index
+	 * @param nrofRuns Total number of runs (for the progress message)
+	 * @return Wall clock duration of the run in seconds
+	 * @throws Exception if the run couldn't be started or it failed
+	 */
+	private double runInIsolation(int runIndex, int nrofRuns)
+		throws Exception {
+		long startTime = System.currentTimeMillis();
+		Thread thread = Thread.currentThread();
+		ClassLoader oldLoader = thread.getContextClassLoader();
+
+		/* parent of the system loader: only JDK classes are shared */
+		URLClassLoader loader = new URLClassLoader(classPath,
+				ClassLoader.getSystemClassLoader().getParent());
+		try {
+			thread.setContextClassLoader(loader);
+			System.out.println("Run " + (runIndex+1) + "/" + nrofRuns +
+					" started");
+			Class<?> c = Class.forName(DTNSim.class.getName(), true, loader);
+			Method m = c.getMethod(RUN_METHOD_NAME, String[].class,
+					int.class, int.class);
+			m.invoke(null, confFiles, firstConfIndex, runIndex);
+		} catch (InvocationTargetException e) {
+			System.err.println("Run " + (runIndex+1) + " failed");
+			e.getCause().printStackTrace();
+			throw e;
+		} finally {
+			thread.setContextClassLoader(oldLoader);
+			loader.close();
+		}
+
+		return (System.currentTimeMillis() - startTime)/1000.0;
+	}
+
+	/**
+	 * Returns the class path of this JVM as an array of URLs
+	 * @return The class path entries
+	 */
+	private static URL[] parseClassPath() {
+		String[] entries = System.getProperty("java.class.path").split(
+				File.pathSeparator);
+		URL[] urls = new URL[entries.length];
+		try {
+			for (int i=0; i<entries.length; i++) {
+				urls[i] = new File(entries[i]).toURI().toURL();
+			}
+		} catch (MalformedURLException e) {
+			throw new SimError("Invalid class path entry: " + e);
+		}
+		return urls;
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * <P>Runs the parallelizable parts of the {@link World}'s host movement and
+ * host update phases using a fork-join pool.</P>
+ *
+ * <P>The results are identical to the serial phases: everything that uses
+ * shared state (random number generators of the movement models, the
+ * connectivity grids, connection setup and routing) is still done by the
+ * simulation thread in the same order as before. Only the following parts
+ * are executed in parallel:
+ * <UL>
+ * <LI>Moving the hosts towards their current destination (see
+ * {@link DTNHost#completeMove()}). New waypoints and paths are requested
+ * serially in host order (see {@link DTNHost#prepareMove(double)}).</LI>
+ * <LI>Finding the interface pairs that are within range of each other.
+ * The result is given to the interfaces as range snapshots (see
+ * {@link NetworkInterface#setRangeSnapshot(int, int[], int)}) that are used
+ * by the serial connect/disconnect phase instead of range and distance
+ * calculations.</LI>
+ * </UL></P>
+ */
+public class ParallelHostUpdater {
+	/** How many tasks per thread the work is split to */
+	private static final int TASKS_PER_THREAD = 4;
+	/** Minimum number of items processed by a single task */
+	private static final int MIN_TASK_SIZE = 16;
+	/** Maximum number of spatial hash cells per interface */
+	private static final int CELLS_PER_INTERFACE = 4;
+
+	private final ForkJoinPool pool;
+	private final int parallelism;
+	private final List<DTNHost> hosts;
+	/** all network interfaces of all hosts */
+	private final NetworkInterface[] interfaces;
+	/** effective transmit range of each interface in the snapshot */
+	private final double[] ranges;
+	/** spatial hash cell of each interface in the snapshot */
+	private final int[] cellOf;
+	/** next interface in the same spatial hash cell (-1 = last one) */
+	private final int[] nextInCell;
+	/** index of the first interface of each spatial hash cell (-1 = none) */
+	private int[] cellHeads;
+	/** interfaces within range of each interface (first inRangeCount) */
+	private final int[][] inRange;
+	private final int[] inRangeCount;
+	/** hosts that need {@link DTNHost#completeMove()} call */
+	private final ArrayList<DTNHost> movers;
+	private final int sizeX;
+	private final int sizeY;
+	/** number of spatial hash columns, including one border column per side */
+	private int cols;
+	private double cellSize;
+
+	/**
+	 * Creates a new parallel host updater
+	 * @param hosts The hosts of the world
+	 * @param sizeX Width of the world
+	 * @param sizeY Height of the world
+	 * @param parallelism Number of threads to use
+	 */
+	public ParallelHostUpdater(List<DTNHost> hosts, int sizeX, int sizeY,
+			int parallelism) {
+		this.hosts = hosts;
+		this.sizeX = Math.max(sizeX, 1);
+		this.sizeY = Math.max(sizeY, 1);
+		this.parallelism = parallelism;
+		this.pool = new ForkJoinPool(parallelism);
+
+		List<NetworkInterface> nis = new ArrayList<NetworkInterface>();
+		for (DTNHost h : hosts) {
+			nis.addAll(h.getInterfaces());
+		}
+		this.interfaces = nis.toArray(new NetworkInterface[nis.size()]);
+		this.ranges = new double[interfaces.length];
+		this.cellOf = new int[interfaces.length];
+		this.nextInCell = new int[interfaces.length];
+		this.cellHeads = new int[0];
+		this.inRange = new int[interfaces.length][];
+		this.inRangeCount = new int[interfaces.length];
+		for (int i=0; i<interfaces.length; i++) {
+			inRange[i] = new int[8];
+		}
+		this.movers = new ArrayList<DTNHost>(hosts.size());
+	}
+
+	/**
+	 * Moves all hosts for the given amount of time. Gives the same results
+	 * as calling {@link DTNHost#move(double)} for all hosts in host order.
+	 * @param timeIncrement The time how long all nodes should move
+	 */
+	public void moveHosts(double timeIncrement) {
+		movers.clear();
+		for (int i=0, n = hosts.size(); i<n; i++) {
+			DTNHost host = hosts.get(i);
+			if (host.prepareMove(timeIncrement)) {
+				movers.add(host);
+			}
+		}
+
+		runInParallel(movers.size(), new IndexTask() {
+			public void run(int index) {
+				movers.get(index).completeMove();
+			}
+		});
+	}
+
+	/**
+	 * Takes a snapshot of interfaces within range of each other and gives
+	 * it to all interfaces. The snapshot must be cleared with
+	 * {@link #clearRangeSnapshots()} before any of the hosts move.
+	 */
+	public void takeRangeSnapshots() {
+		runInParallel(interfaces.length, new IndexTask() {
+			public void run(int index) {
+				ranges[index] = interfaces[index].getTransmitRange();
+			}
+		});
+
+		/* any pair within range must be in the same or in adjacent cells */
+		double maxRange = 0;
+		for (double r : ranges) {
+			maxRange = Math.max(maxRange, r);
+		}
+		/* bigger cells are fine too; limit the cell count for small ranges */
+		double minCellSize = Math.sqrt((double)sizeX * sizeY /
+				(CELLS_PER_INTERFACE * Math.max(interfaces.length, 1)));
+		this.cellSize = Math.max(Math.max(maxRange, minCellSize), 1.0);
+		this.cols = (int)Math.ceil(sizeX / cellSize) + 2;
+		int rows = (int)Math.ceil(sizeY / cellSize) + 2;
+		if (cellHeads.length < cols * rows) {
+			cellHeads = new int[cols * rows];
+			Arrays.fill(cellHeads, -1);
+		}
+
+		for (int i=0; i<interfaces.length; i++) {
+			Coord c = interfaces[i].getLocation();
+			int cell = cellIndex(c.getY(), rows) * cols +
+				cellIndex(c.getX(), cols);
+			cellOf[i] = cell;
+			nextInCell[i] = cellHeads[cell];
+			cellHeads[cell] = i;
+		}
+
+		runInParallel(interfaces.length, new IndexTask() {
+			public void run(int index) {
+				findInRange(index);
+				interfaces[index].setRangeSnapshot(index, inRange[index],
+						inRangeCount[index]);
+			}
+		});
+
+		/* leave the cell heads empty for the next snapshot */
+		for (int i=0; i<interfaces.length; i++) {
+			cellHeads[cellOf[i]] = -1;
+		}
+	}
+
+	/**
+	 * Returns the spatial hash column or row of a coordinate value. Values
+	 * outside the world are put to the border cells; that keeps the cells
+	 * of any two interfaces within range of each other adjacent.
+	 * @param value The x or y coordinate
+	 * @param count Number of columns or rows (including the border cells)
+	 * @return Index of the column or row
+	 */
+	private int cellIndex(double value, int count) {
+		int index = (int)Math.floor(value / cellSize) + 1;
+		return Math.max(0, Math.min(count - 1, index));
+	}
+
+	/**
+	 * Clears the range snapshots of all interfaces
+	 */
+	public void clearRangeSnapshots() {
+		for (NetworkInterface ni : interfaces) {
+			ni.clearRangeSnapshot();
+		}
+	}
+
+	/**
+	 * Finds all interfaces that are within range of the given interface
+	 * using the same criteria as
+	 * {@link NetworkInterface#isWithinRange(NetworkInterface)}. The sorted
+	 * indexes are stored to the interface's reused buffer.
+	 * @param index Index of the interface
+	 */
+	private void findInRange(int index) {
+		Coord loc = interfaces[index].getLocation();
+		int[] found = inRange[index];
+		int count = 0;
+
+		for (int dy=-cols; dy<=cols; dy+=cols) {
+			for (int dx=-1; dx<=1; dx++) {
+				int cell = cellOf[index] + dy + dx;
+				if (cell < 0 || cell >= cellHeads.length) {
+					continue;
+				}
+				for (int j = cellHeads[cell]; j >= 0; j = nextInCell[j]) {
+					double smallerRange = Math.min(ranges[index], ranges[j]);
+					if (loc.distance(interfaces[j].getLocation()) <=
+						smallerRange) {
+						if (count == found.length) {
+							found = Arrays.copyOf(found, count * 2);
+						}
+						found[count++] = j;
+					}
+				}
+			}
+		}
+
+		Arrays.sort(found, 0, count);
+		inRange[index] = found;
+		inRangeCount[index] = count;
+	}
+
+	/**
+	 * Shuts down the thread pool. The updater can't be used after this.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Runs a task for indexes 0 ... count-1 using the pool and waits until
+	 * all of them are done
+	 * @param count Number of indexes
+	 * @param task The task to run
+	 */
+	private void runInParallel(int count, final IndexTask task) {
+		int taskSize = Math.max(MIN_TASK_SIZE,
+				count / (parallelism * TASKS_PER_THREAD) + 1);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+		for (int start = 0; start < count; start += taskSize) {
+			final int from = start;
+			final int to = Math.min(count, start + taskSize);
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					for (int i=from; i<to; i++) {
+						task.run(i);
+					}
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Void> f : pool.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			throw new SimError(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw new SimError(e);
+		}
+	}
+
+	/** A task that is run for a range of indexes */
+	private interface IndexTask {
+		public void run(int index);
+	}
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Interface for update listeners that don't need every update call, e.g.,
+ * reports that sample the world only once in a while. The {@link EventBus}
+ * calls {@link #updated(java.util.List)} only on the updates that happen
+ * at, or after, the time the listener asks for.
+ */
+public interface ScheduledUpdateListener extends UpdateListener {
+
+	/**
+	 * Returns the simulation time of the next update the listener needs.
+	 * The time is asked when the listener is registered and after every
+	 * update call.
+	 * @return The time of the next needed update, or a time that has
+	 * already passed if every update is needed, or
+	 * {@link Double#MAX_VALUE} if no more updates are needed
+	 */
+	public double getNextUpdateTime();
+
+}
@@ -14,6 +14,7 @@ import java.util.List;
 import movement.MapBasedMovement;
 import movement.MovementModel;
 import movement.map.SimMap;
+import routing.ActiveRouter;
 import routing.MessageRouter;
 
 /**
@@ -39,6 +40,20 @@ public class SimScenario implements Serializable {
 	public static final String UP_INT_S = "updateInterval";
 	/** simulate connections -setting id ({@value})*/
 	public static final String SIM_CON_S = "simulateConnections";
+	/**
+	 * simulation engine -setting id ({@value}). Valid values are
+	 * {@link #ENGINE_STEP} (default) and {@link #ENGINE_EVENT}.
+	 */
+	public static final String ENGINE_S = "engine";
+	/** engine setting's value for the fixed update interval engine */
+	public static final String ENGINE_STEP = "step";
+	/** engine setting's value for the event-driven engine that updates
+	 * only the hosts that are due and skips update intervals where nothing
+	 * happens (see {@link World}). The TTL checks of the routers are aligned
+	 * to fixed times (see {@link ActiveRouter#setAlignedTtlChecks(boolean)}),
+	 * so expired messages may be dropped at different times than with the
+	 * step engine. */
+	public static final String ENGINE_EVENT = "event";
 
 	/** namespace for interface type settings ({@value}) */
 	public static final String INTTYPE_NS = "Interface";
@@ -107,9 +122,12 @@ public class SimScenario implements Serializable {
 	/** Map used for host movement (if any) */
 	private SimMap simMap;
 
-	/** Global connection event listeners */
+	/** Bus that fans out the connection, message and update events to the
+	 * global listeners */
+	private EventBus eventBus;
+	/** Connection event listeners of the interfaces (only the event bus) */
 	private List<ConnectionListener> connectionListeners;
-	/** Global message event listeners */
+	/** Message event listeners of the hosts (only the event bus) */
 	private List<MessageListener> messageListeners;
 	/** Global movement event listeners */
 	private List<MovementListener> movementListeners;
@@ -146,8 +164,11 @@ public class SimScenario implements Serializable {
 		this.simMap = null;
 		this.maxHostRange = 1;
 
+		this.eventBus = new EventBus();
 		this.connectionListeners = new ArrayList<ConnectionListener>();
+		this.connectionListeners.add(this.eventBus);
 		this.messageListeners = new ArrayList<MessageListener>();
+		this.messageListeners.add(this.eventBus);
 		this.movementListeners = new ArrayList<MovementListener>();
 		this.updateListeners = new ArrayList<UpdateListener>();
 		this.appListeners = new ArrayList<ApplicationListener>();
@@ -161,9 +182,29 @@ public class SimScenario implements Serializable {
 
 		createHosts();
 
+		List<UpdateListener> worldListeners = new ArrayList<UpdateListener>();
+		worldListeners.add(this.eventBus);
 		this.world = new World(hosts, worldSizeX, worldSizeY, updateInterval,
-				updateListeners, simulateConnections,
+				worldListeners, simulateConnections,
 				eqHandler.getEventQueues());
+
+		s.setNameSpace(SCENARIO_NS);
+		String engine = s.getSetting(ENGINE_S, ENGINE_STEP);
+		if (engine.equals(ENGINE_EVENT)) {
+			World.EventCounter counter = world.enableEventEngine(endTime);
+			this.eventBus.addConnectionListener(counter);
+			this.eventBus.addMessageListener(counter);
+			/* idle hosts aren't updated at every interval */
+			for (DTNHost host : hosts) {
+				if (host.getRouter() instanceof ActiveRouter) {
+					((ActiveRouter)host.getRouter()).setAlignedTtlChecks(true);
+				}
+			}
+		}
+		else if (!engine.equals(ENGINE_STEP)) {
+			throw new SettingsError("Unknown value '" + engine + "' for " +
+					s.getFullPropertyName(ENGINE_S));
+		}
 	}
 
 	/**
@@ -257,7 +298,7 @@ public class SimScenario implements Serializable {
 	 * @param cl The listener
 	 */
 	public void addConnectionListener(ConnectionListener cl){
-		this.connectionListeners.add(cl);
+		this.eventBus.addConnectionListener(cl);
 	}
 
 	/**
@@ -265,7 +306,7 @@ public class SimScenario implements Serializable {
 	 * @param ml The listener
 	 */
 	public void addMessageListener(MessageListener ml){
-		this.messageListeners.add(ml);
+		this.eventBus.addMessageListener(ml);
 	}
 
 	/**
@@ -289,6 +330,16 @@ public class SimScenario implements Serializable {
 	 */
 	public void addUpdateListener(UpdateListener ul) {
 		this.updateListeners.add(ul);
+		this.eventBus.addUpdateListener(ul);
+	}
+
+	/**
+	 * Returns the event bus that delivers the connection, message and
+	 * update events to the registered listeners
+	 * @return the event bus
+	 */
+	public EventBus getEventBus() {
+		return this.eventBus;
 	}
 
 	/**
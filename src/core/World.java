@@ -8,6 +8,7 @@ import input.EventQueue;
 import input.ExternalEvent;
 import input.MessageEventGenerator;
 import input.ScheduledUpdatesQueue;
+import interfaces.ConnectivityGrid;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -39,6 +40,17 @@ public class World {
 	 */
 	public static final String SIMULATE_CON_ONCE_S = "simulateConnectionsOnce";
 
+	/**
+	 * Number of threads used for moving and updating the hosts -setting id
+	 * ({@value}). Integer value. With more than one thread, the parallel
+	 * parts of the host move and update phases are executed using a
+	 * {@link ParallelHostUpdater}. The results are identical to the ones of
+	 * a single threaded run. Default is {@link #DEF_PARALLELISM}.
+	 */
+	public static final String PARALLELISM_S = "parallelism";
+	/** number of threads -setting's default value ({@value}) */
+	public static final int DEF_PARALLELISM = 1;
+
 	private int sizeX;
 	private int sizeY;
 	private List<EventQueue> eventQueues;
@@ -52,12 +64,28 @@ public class World {
 	/** nodes in the order they should be updated (if the order should be
 	 * randomized; null value means that the order should not be randomized) */
 	private ArrayList<DTNHost> updateOrder;
+	/** random number generator for shuffling the update order */
+	private Random updateOrderRng;
+	/** updater for the parallel phases (null if only one thread is used) */
+	private ParallelHostUpdater parallelUpdater;
 	/** is cancellation of simulation requested from UI */
 	private boolean isCancelled;
 	private List<UpdateListener> updateListeners;
 	/** Queue of scheduled update requests */
 	private ScheduledUpdatesQueue scheduledUpdates;
 	private boolean simulateConOnce;
+	/** counts connection and message events for the event-driven engine
+	 * (null if the fixed step engine is used) */
+	private EventCounter eventCounter;
+	/** is the world in a steady state, i.e., did the last update interval
+	 * pass without any connection or message events */
+	private boolean steadyState;
+	/** simulation end time (used only by the event-driven engine) */
+	private double endTime;
+	/** number of host updates skipped by the event-driven engine */
+	private long nrofSkippedUpdates;
+	/** idle hosts whose update was skipped in the current update round */
+	private ArrayList<DTNHost> skippedHosts;
 
 	/**
 	 * Constructor.
@@ -76,6 +104,7 @@ public class World {
 		this.simClock = SimClock.getInstance();
 		this.scheduledUpdates = new ScheduledUpdatesQueue();
 		this.isCancelled = false;
+		this.skippedHosts = new ArrayList<DTNHost>();
 
 		setNextEventQueue();
 		initSettings();
@@ -93,9 +122,20 @@ public class World {
 		}
 		simulateConOnce = s.getBoolean(SIMULATE_CON_ONCE_S, false);
 
+		int parallelism = s.getInt(PARALLELISM_S, DEF_PARALLELISM);
+		if (parallelism < 1) {
+			throw new SettingsError("Invalid value for " +
+					s.getFullPropertyName(PARALLELISM_S) + ": " + parallelism);
+		}
+		if (parallelism > 1) {
+			this.parallelUpdater = new ParallelHostUpdater(hosts,
+					sizeX, sizeY, parallelism);
+		}
+
 		if(randomizeUpdates) {
 			// creates the update order array that can be shuffled
 			this.updateOrder = new ArrayList<DTNHost>(this.hosts);
+			this.updateOrderRng = new Random();
 		}
 		else { // null pointer means "don't randomize"
 			this.updateOrder = null;
@@ -144,12 +184,40 @@ public class World {
 		this.nextQueueEventTime = earliest;
 	}
 
+	/**
+	 * Enables the event-driven engine. In this mode, only the hosts that
+	 * are not idle (see {@link DTNHost#checkIdle()}) are updated, and update
+	 * intervals where nothing can change (see {@link #skipIdleIntervals()})
+	 * are skipped without moving or updating the hosts. Since an idle host
+	 * doesn't look for new connections itself, a connection between an
+	 * idle and a moving host is always created by the moving host, so the
+	 * connection's direction and the order of the following router updates
+	 * may differ from the fixed step engine.
+	 * @param endTime The simulation end time; intervals are not skipped
+	 * past it
+	 * @return The listener that must be informed about all connection and
+	 * message events in the world
+	 */
+	public EventCounter enableEventEngine(double endTime) {
+		this.eventCounter = new EventCounter();
+		this.endTime = endTime;
+		this.steadyState = false;
+		return this.eventCounter;
+	}
+
 	/**
 	 * Update (move, connect, disconnect etc.) all hosts in the world.
 	 * Runs all external events that are due between the time when
 	 * this method is called and after one update interval.
 	 */
 	public void update () {
+		long nrofEvents = 0;
+
+		if (this.eventCounter != null) {
+			skipIdleIntervals();
+			nrofEvents = this.eventCounter.getCount();
+		}
+
 		double runUntil = SimClock.getTime() + this.updateInterval;
 
 		setNextEventQueue();
@@ -176,33 +244,130 @@ public class World {
 		for (UpdateListener ul : this.updateListeners) {
 			ul.updated(this.hosts);
 		}
+
+		if (this.eventCounter != null) {
+			this.steadyState = (nrofEvents == this.eventCounter.getCount());
+		}
+	}
+
+	/**
+	 * Skips update intervals as long as updating the hosts would not change
+	 * anything. This is the case when the previous interval passed without
+	 * any connection or message events (i.e., the hosts' updates reached a
+	 * fixed point), no external events are due and none of the hosts needs
+	 * an update (see {@link DTNHost#getNextUpdateTime()}). The sim clock is
+	 * still advanced in update interval steps, and the update order
+	 * shuffling and update listener calls are done for every skipped
+	 * interval.
+	 */
+	private void skipIdleIntervals() {
+		if (!this.steadyState) {
+			return;
+		}
+
+		double wakeUp = this.endTime;
+		for (int i=0, n = hosts.size(); i<n; i++) {
+			wakeUp = Math.min(wakeUp, hosts.get(i).getNextUpdateTime());
+			if (wakeUp <= SimClock.getTime()) {
+				return; /* some host needs an update right away */
+			}
+		}
+
+		double next = SimClock.getTime() + this.updateInterval;
+		setNextEventQueue();
+		while (next < wakeUp && !isEventDue(next) && !this.isCancelled) {
+			simClock.setTime(next);
+			this.nrofSkippedUpdates += hosts.size();
+			if (this.updateOrder != null) {
+				shuffleUpdateOrder();
+			}
+			for (UpdateListener ul : this.updateListeners) {
+				ul.updated(this.hosts);
+			}
+			next = SimClock.getTime() + this.updateInterval;
+		}
+	}
+
+	/**
+	 * Returns true if the next external event should be processed during
+	 * an update interval that ends at the given time
+	 * @param time End time of the update interval
+	 * @return True if an event is due before the given time
+	 */
+	private boolean isEventDue(double time) {
+		if (this.nextQueueEventTime > time) {
+			return false;
+		}
+		if (this.nextEventQueue instanceof MessageEventGenerator) {
+			MessageEventGenerator gen =
+				(MessageEventGenerator)this.nextEventQueue;
+			/* generators that reached their max event count are ignored */
+			return gen.maxNumEvents == -1 ||
+				gen.currentNumEvents < gen.maxNumEvents;
+		}
+		return true;
 	}
 
 	/**
 	 * Updates all hosts (calls update for every one of them). If update
 	 * order randomizing is on (updateOrder array is defined), the calls
-	 * are made in random order.
+	 * are made in random order. In the connection sweep mode
+	 * (see {@link ConnectivityGrid#SWEEP_S}), the connections of all hosts
+	 * are updated before the host updates. With the event-driven engine,
+	 * the hosts that are idle (see {@link DTNHost#checkIdle()}) are not
+	 * updated. If another host connects to or disconnects from an idle host
+	 * after the idle host's turn, the idle host is updated at the end of
+	 * the round.
 	 */
 	private void updateHosts() {
-		if (this.updateOrder == null) { // randomizing is off
-			for (int i=0, n = hosts.size();i < n; i++) {
-				if (this.isCancelled) {
-					break;
-				}
-				hosts.get(i).update(simulateConnections);
+		boolean useSnapshots = parallelUpdater != null && simulateConnections;
+		boolean skipIdle = this.eventCounter != null;
+		if (useSnapshots) {
+			parallelUpdater.takeRangeSnapshots();
+		}
+		if (skipIdle) {
+			for (int i=0, n = hosts.size(); i<n; i++) {
+				hosts.get(i).checkIdle();
 			}
 		}
-		else { // update order randomizing is on
-			assert this.updateOrder.size() == this.hosts.size() :
-				"Nrof hosts has changed unexpectedly";
-			Random rng = new Random(SimClock.getIntTime());
-			Collections.shuffle(this.updateOrder, rng);
-			for (int i=0, n = hosts.size();i < n; i++) {
-				if (this.isCancelled) {
-					break;
-				}
-				this.updateOrder.get(i).update(simulateConnections);
+		if (simulateConnections && ConnectivityGrid.isSweepModeOn()) {
+			ConnectivityGrid.sweepAll();
+		}
+
+		if (this.updateOrder != null) { // update order randomizing is on
+			shuffleUpdateOrder();
+		}
+		List<DTNHost> order = this.updateOrder != null ?
+				this.updateOrder : this.hosts;
+		for (int i=0, n = order.size();i < n; i++) {
+			if (this.isCancelled) {
+				break;
 			}
+			DTNHost host = order.get(i);
+			if (skipIdle && host.isIdle()) {
+				this.skippedHosts.add(host);
+				continue;
+			}
+			host.clearIdle();
+			host.update(simulateConnections);
+		}
+
+		/* hosts whose connections changed after their turn are updated last */
+		for (int i=0, n = skippedHosts.size(); i<n; i++) {
+			DTNHost host = skippedHosts.get(i);
+			if (host.isIdle()) {
+				this.nrofSkippedUpdates++;
+				host.clearIdle();
+			}
+			else if (!this.isCancelled) {
+				host.clearIdle();
+				host.update(simulateConnections);
+			}
+		}
+		skippedHosts.clear();
+
+		if (useSnapshots) {
+			parallelUpdater.clearRangeSnapshots();
 		}
 
 		if (simulateConOnce && simulateConnections) {
@@ -210,17 +375,53 @@ public class World {
 		}
 	}
 
+	/**
+	 * Shuffles the update order of the hosts using the current sim time
+	 * as the seed (the same generator is re-seeded for every shuffle)
+	 */
+	private void shuffleUpdateOrder() {
+		assert this.updateOrder.size() == this.hosts.size() :
+			"Nrof hosts has changed unexpectedly";
+		this.updateOrderRng.setSeed(SimClock.getIntTime());
+		Collections.shuffle(this.updateOrder, this.updateOrderRng);
+	}
+
 	/**
 	 * Moves all hosts in the world for a given amount of time
 	 * @param timeIncrement The time how long all nodes should move
 	 */
 	private void moveHosts(double timeIncrement) {
+		if (this.parallelUpdater != null) {
+			this.parallelUpdater.moveHosts(timeIncrement);
+			return;
+		}
+
 		for (int i=0,n = hosts.size(); i<n; i++) {
 			DTNHost host = hosts.get(i);
 			host.move(timeIncrement);
 		}
 	}
 
+	/**
+	 * Returns the number of host updates that the event-driven engine has
+	 * skipped (i.e., update polls avoided because nothing was due)
+	 * @return The number of skipped host updates
+	 */
+	public long getNrofSkippedUpdates() {
+		return this.nrofSkippedUpdates;
+	}
+
+	/**
+	 * Releases the resources (e.g., the threads of the parallel updater)
+	 * of the world after the simulation has ended
+	 */
+	public void done() {
+		if (this.parallelUpdater != null) {
+			this.parallelUpdater.shutdown();
+			this.parallelUpdater = null;
+		}
+	}
+
 	/**
 	 * Asynchronously cancels the currently running simulation
 	 */
@@ -282,4 +483,53 @@ public class World {
 	public EventQueue getNextEventQueue() {
 		return this.nextEventQueue;
 	}
+
+	/**
+	 * Listener that counts all connection and message events. Used by the
+	 * event-driven engine to detect update intervals where nothing happens.
+	 */
+	public static class EventCounter implements ConnectionListener,
+		MessageListener {
+		private long count = 0;
+
+		/**
+		 * Returns the number of events counted so far
+		 * @return the number of events
+		 */
+		public long getCount() {
+			return this.count;
+		}
+
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			count++;
+		}
+
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+			count++;
+		}
+
+		public void newMessage(Message m) {
+			count++;
+		}
+
+		public void messageTransferStarted(Message m, DTNHost from,
+				DTNHost to) {
+			count++;
+		}
+
+		public void messageDeleted(Message m, DTNHost where,
+				boolean dropped) {
+			count++;
+		}
+
+		public void messageTransferAborted(Message m, DTNHost from,
+				DTNHost to) {
+			count++;
+		}
+
+		public void messageTransferred(Message m, DTNHost from, DTNHost to,
+				boolean firstDelivery) {
+			count++;
+		}
+	}
 }
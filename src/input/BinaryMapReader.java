@@ -0,0 +1,176 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import movement.map.MapNode;
+import movement.map.SimMap;
+import core.Coord;
+
+/**
+ * Reads maps compiled with {@link MapCompiler}. The compiled file is memory
+ * mapped and the map is built directly from the node coordinate, type and
+ * adjacency arrays, so no text parsing or coordinate hashing is needed.
+ */
+public class BinaryMapReader {
+	/** Extension of compiled map files */
+	public static final String COMPILED_EXT = ".bmap";
+
+	private MappedByteBuffer buffer;
+	private int flags;
+	private List<String> mapFiles;
+
+	/**
+	 * Constructor. Maps the file to memory and reads its header.
+	 * @param compiledFile The compiled map file
+	 * @throws IOException if the file couldn't be read or is not a compiled
+	 * map of supported version
+	 */
+	public BinaryMapReader(File compiledFile) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(compiledFile, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} finally {
+			raf.close(); // the mapping stays valid after closing
+		}
+
+		if (buffer.getInt() != MapCompiler.MAGIC) {
+			throw new IOException(compiledFile + " is not a compiled map");
+		}
+		int version = buffer.getInt();
+		if (version != MapCompiler.VERSION) {
+			throw new IOException("Unsupported compiled map version " +
+					version + " in " + compiledFile);
+		}
+		this.flags = buffer.getInt();
+
+		int nrofFiles = buffer.getInt();
+		this.mapFiles = new ArrayList<String>(nrofFiles);
+		for (int i = 0; i < nrofFiles; i++) {
+			byte[] name = new byte[buffer.getInt()];
+			buffer.get(name);
+			mapFiles.add(new String(name, "UTF-8"));
+		}
+	}
+
+	/**
+	 * Returns the compiled map file of a set of map files
+	 * @param mapFiles The map files (in node type order)
+	 * @return The file where {@link MapCompiler} stores the compiled map
+	 */
+	public static File getCompiledFile(List<String> mapFiles) {
+		return new File(mapFiles.get(0) + COMPILED_EXT);
+	}
+
+	/**
+	 * Returns a reader for the compiled version of the given map files if
+	 * one exists, was compiled from exactly the same files and is newer than
+	 * all of them.
+	 * @param mapFiles The map files (in node type order)
+	 * @return A reader for the compiled map or null if there's no up-to-date
+	 * compiled map
+	 * @throws IOException if the compiled file couldn't be read
+	 */
+	public static BinaryMapReader openCompiled(List<String> mapFiles)
+		throws IOException {
+		File compiled = getCompiledFile(mapFiles);
+		if (!compiled.isFile()) {
+			return null;
+		}
+		for (String file : mapFiles) {
+			if (new File(file).lastModified() >= compiled.lastModified()) {
+				return null; // some source is newer -> compiled map is stale
+			}
+		}
+
+		BinaryMapReader reader = new BinaryMapReader(compiled);
+		if (!reader.getMapFiles().equals(mapFiles)) {
+			return null;
+		}
+		return reader;
+	}
+
+	/**
+	 * Returns the map files the map was compiled from
+	 * @return The map file paths in node type order
+	 */
+	public List<String> getMapFiles() {
+		return this.mapFiles;
+	}
+
+	/**
+	 * Returns true if all map nodes were reachable from all other nodes
+	 * when the map was compiled
+	 * @return true if the map is connected
+	 */
+	public boolean isConnected() {
+		return (flags & MapCompiler.FLAG_CONNECTED) != 0;
+	}
+
+	/**
+	 * Returns a new SimMap based on the compiled map. The nodes are in the
+	 * same order as in the map the compiled map was created from.
+	 * @return a new SimMap based on the compiled map
+	 */
+	public SimMap getMap() {
+		ByteBuffer b = buffer.duplicate();
+		b.position(buffer.position());
+
+		int nrofNodes = b.getInt();
+		int nrofNeighbors = b.getInt();
+		Coord minBound = new Coord(b.getDouble(), b.getDouble());
+		Coord maxBound = new Coord(b.getDouble(), b.getDouble());
+
+		DoubleBuffer xs = b.asDoubleBuffer();
+		b.position(b.position() + nrofNodes * 8);
+		DoubleBuffer ys = b.asDoubleBuffer();
+		b.position(b.position() + nrofNodes * 8);
+		IntBuffer types = b.asIntBuffer();
+		b.position(b.position() + nrofNodes * 4);
+		IntBuffer firstNeighbor = b.asIntBuffer();
+		b.position(b.position() + (nrofNodes + 1) * 4);
+		IntBuffer neighbors = b.asIntBuffer();
+		assert neighbors.remaining() == nrofNeighbors : "Truncated map";
+
+		List<MapNode> nodes = new ArrayList<MapNode>(nrofNodes);
+		Map<Coord, MapNode> nodesMap = new HashMap<Coord, MapNode>(
+				nrofNodes * 2);
+		for (int i = 0; i < nrofNodes; i++) {
+			MapNode node = new MapNode(new Coord(xs.get(i), ys.get(i)));
+			int mask = types.get(i);
+			for (int t = MapNode.MIN_TYPE; t <= MapNode.MAX_TYPE; t++) {
+				if ((mask & (1 << t)) != 0) {
+					node.addType(t);
+				}
+			}
+			nodes.add(node);
+			nodesMap.put(node.getLocation(), node);
+		}
+
+		for (int i = 0; i < nrofNodes; i++) {
+			MapNode node = nodes.get(i);
+			for (int j = firstNeighbor.get(i); j < firstNeighbor.get(i+1);
+					j++) {
+				node.addNeighbor(nodes.get(neighbors.get(j)));
+			}
+		}
+
+		return new SimMap(nodes, nodesMap, minBound, maxBound);
+	}
+}
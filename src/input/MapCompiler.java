@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import movement.map.MapNode;
+import movement.map.SimMap;
+
+/**
+ * <P>Compiles WKT map files to the binary map format read by
+ * {@link BinaryMapReader}. The map is read exactly like
+ * {@link movement.MapBasedMovement} reads it (bidirectional paths, the
+ * n<SUP>th</SUP> file's nodes get type n) and stored with the nodes in the
+ * same order, so simulations using the compiled map give the same results
+ * as the ones using the WKT files. The connectedness of the map is checked
+ * at compile time.</P>
+ *
+ * <P>Usage: <CODE>java input.MapCompiler mapFile1 [mapFile2 ...]</CODE></P>
+ *
+ * <P>The compiled map is written next to the first map file (see
+ * {@link BinaryMapReader#getCompiledFile(List)}), where the map based
+ * movement models pick it up automatically as long as it is newer than
+ * all the map files.</P>
+ */
+public class MapCompiler {
+	/** Identifier at the start of compiled map files */
+	public static final int MAGIC = 0x4F4E454D; // "ONEM"
+	/** Version of the compiled map format */
+	public static final int VERSION = 1;
+	/** Flag bit for maps whose all nodes are reachable from each other */
+	public static final int FLAG_CONNECTED = 1;
+
+	/**
+	 * Compiles a map
+	 * @param mapFiles Paths of the WKT map files (in node type order)
+	 * @param outFile The file where the compiled map is written to
+	 * @return True if the map is connected, false if not
+	 * @throws IOException if reading or writing some of the files fails
+	 */
+	public static boolean compile(List<String> mapFiles, File outFile)
+		throws IOException {
+		WKTMapReader r = new WKTMapReader(true);
+		for (int i = 1; i <= mapFiles.size(); i++) {
+			r.addPaths(new File(mapFiles.get(i-1)), i);
+		}
+		SimMap map = r.getMap();
+
+		List<MapNode> nodes = map.getNodes();
+		int nrofNodes = nodes.size();
+		IdentityHashMap<MapNode, Integer> indexes =
+			new IdentityHashMap<MapNode, Integer>();
+		for (int i = 0; i < nrofNodes; i++) {
+			indexes.put(nodes.get(i), i);
+		}
+
+		/* adjacency in compressed sparse row form */
+		int[] firstNeighbor = new int[nrofNodes + 1];
+		for (int i = 0; i < nrofNodes; i++) {
+			firstNeighbor[i + 1] = firstNeighbor[i] +
+				nodes.get(i).getNeighbors().size();
+		}
+		int[] neighbors = new int[firstNeighbor[nrofNodes]];
+		for (int i = 0; i < nrofNodes; i++) {
+			int j = firstNeighbor[i];
+			for (MapNode n : nodes.get(i).getNeighbors()) {
+				neighbors[j++] = indexes.get(n);
+			}
+		}
+
+		boolean connected = isConnected(firstNeighbor, neighbors);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(outFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(connected ? FLAG_CONNECTED : 0);
+			out.writeInt(mapFiles.size());
+			for (String file : mapFiles) {
+				byte[] name = file.getBytes("UTF-8");
+				out.writeInt(name.length);
+				out.write(name);
+			}
+			out.writeInt(nrofNodes);
+			out.writeInt(neighbors.length);
+			out.writeDouble(map.getMinBound().getX());
+			out.writeDouble(map.getMinBound().getY());
+			out.writeDouble(map.getMaxBound().getX());
+			out.writeDouble(map.getMaxBound().getY());
+			for (MapNode n : nodes) {
+				out.writeDouble(n.getLocation().getX());
+			}
+			for (MapNode n : nodes) {
+				out.writeDouble(n.getLocation().getY());
+			}
+			for (MapNode n : nodes) {
+				out.writeInt(getTypeMask(n));
+			}
+			for (int first : firstNeighbor) {
+				out.writeInt(first);
+			}
+			for (int neighbor : neighbors) {
+				out.writeInt(neighbor);
+			}
+		} finally {
+			out.close();
+		}
+
+		return connected;
+	}
+
+	/**
+	 * Returns the types of a node as a bit mask (bit n set for type n)
+	 */
+	private static int getTypeMask(MapNode node) {
+		int mask = 0;
+		for (int t = MapNode.MIN_TYPE; t <= MapNode.MAX_TYPE; t++) {
+			if (node.isType(t)) {
+				mask |= 1 << t;
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Checks that all nodes can be reached from the first node
+	 * @param firstNeighbor Index of the first neighbor of each node
+	 * @param neighbors Neighbor indexes of all nodes
+	 * @return True if all nodes were reached
+	 */
+	private static boolean isConnected(int[] firstNeighbor, int[] neighbors) {
+		int nrofNodes = firstNeighbor.length - 1;
+		if (nrofNodes == 0) {
+			return true;
+		}
+
+		boolean[] visited = new boolean[nrofNodes];
+		int[] queue = new int[nrofNodes];
+		int head = 0;
+		int tail = 0;
+		visited[0] = true;
+		queue[tail++] = 0;
+
+		while (head < tail) {
+			int node = queue[head++];
+			for (int j = firstNeighbor[node]; j < firstNeighbor[node+1]; j++) {
+				int n = neighbors[j];
+				if (!visited[n]) {
+					visited[n] = true;
+					queue[tail++] = n;
+				}
+			}
+		}
+
+		return tail == nrofNodes;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java input.MapCompiler " +
+					"mapFile1 [mapFile2 ...]");
+			System.exit(1);
+		}
+
+		List<String> mapFiles = Arrays.asList(args);
+		File outFile = BinaryMapReader.getCompiledFile(mapFiles);
+		boolean connected = compile(mapFiles, outFile);
+		System.out.println("Wrote " + outFile);
+		if (!connected) {
+			System.out.println("Warning: all map nodes are not connected");
+		}
+	}
+}
@@ -5,12 +5,15 @@
 package interfaces;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 
 import movement.MovementModel;
 
 import core.Coord;
+import core.DTNHost;
 import core.DTNSim;
 import core.NetworkInterface;
 import core.Settings;
@@ -54,14 +57,45 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	/** default value for cell size multiplier ({@value}) */
 	public static final int DEF_CON_CELL_SIZE_MULT = 5;
 
-	private GridCell[][] cells;
-	private HashMap<NetworkInterface, GridCell> ginterfaces;
+	/**
+	 * Connection sweep mode -setting id ({@value}). Boolean. Used in
+	 * {@link World#OPTIMIZATION_SETTINGS_NS} name space. If true, the
+	 * connections are not updated by every interface separately but by a
+	 * sweep over the grid (see {@link #sweepAll()}) that checks every
+	 * candidate pair of interfaces only once per update. The connection
+	 * rules are the same, but the order in which the connections are
+	 * created during an update (and which end initiates them) may differ
+	 * from the default mode. Default is false.
+	 */
+	public static final String SWEEP_S = "connectionSweep";
+
+	/** how large the interface arrays are initially */
+	private static final int EXPECTED_INTERFACE_COUNT = 16;
+	/** how large the cells' interface arrays are initially */
+	private static final int EXPECTED_CELL_COUNT = 5;
+
+	/** interface ids of the interfaces in each cell, in the order they
+	 * were added to the cell (cells are indexed row by row) */
+	private int[][] cellMembers;
+	/** number of interfaces in each cell */
+	private int[] cellCounts;
+	/** all interfaces of the grid indexed by their grid ids */
+	private NetworkInterface[] members;
+	private int nrofMembers;
+	/** number of cells in one row of the cell arrays */
+	private int rowLength;
+	/** grid id pairs of the connected interfaces (only in sweep mode) */
+	private PairSet connectedPairs;
+	/** the sweep round when each cell was last swept (only in sweep mode) */
+	private int[] sweptCells;
+	private int sweepRound;
 	private int cellSize;
 	private int rows;
 	private int cols;
 	private static int worldSizeX;
 	private static int worldSizeY;
 	private static int cellSizeMultiplier;
+	private static boolean sweepMode;
 
 	static HashMap<Integer,ConnectivityGrid> gridobjects;
 
@@ -85,6 +119,7 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		else {
 			cellSizeMultiplier = DEF_CON_CELL_SIZE_MULT;
 		}
+		sweepMode = s.getBoolean(SWEEP_S, false);
 		if (cellSizeMultiplier < 1) {
 			throw new SettingsError("Too small value (" + cellSizeMultiplier +
 					") for " + World.OPTIMIZATION_SETTINGS_NS +
@@ -101,15 +136,17 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		this.rows = worldSizeY/cellSize + 1;
 		this.cols = worldSizeX/cellSize + 1;
 		// leave empty cells on both sides to make neighbor search easier
-		this.cells = new GridCell[rows+2][cols+2];
+		this.rowLength = cols + 2;
+		this.cellMembers = new int[(rows+2) * rowLength][];
+		this.cellCounts = new int[(rows+2) * rowLength];
 		this.cellSize = cellSize;
-
-		for (int i=0; i<rows+2; i++) {
-			for (int j=0; j<cols+2; j++) {
-				this.cells[i][j] = new GridCell();
-			}
+		this.members = new NetworkInterface[EXPECTED_INTERFACE_COUNT];
+		this.nrofMembers = 0;
+		if (sweepMode) {
+			this.connectedPairs = new PairSet();
+			this.sweptCells = new int[(rows+2) * rowLength];
+			this.sweepRound = 0;
 		}
-		ginterfaces = new HashMap<NetworkInterface,GridCell>();
 	}
 
 	/**
@@ -133,13 +170,24 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	}
 
 	/**
-	 * Adds a network interface to the overlay grid
+	 * Adds a network interface to the overlay grid (unless it is already in
+	 * the grid)
 	 * @param ni The new network interface
 	 */
 	public void addInterface(NetworkInterface ni) {
-		GridCell c = cellFromCoord(ni.getLocation());
-		c.addInterface(ni);
-		ginterfaces.put(ni,c);
+		if (isMember(ni)) {
+			return;
+		}
+		if (nrofMembers == members.length) {
+			members = Arrays.copyOf(members, nrofMembers * 2);
+		}
+		int id = nrofMembers++;
+		members[id] = ni;
+		ni.setGridId(id);
+
+		int cell = cellFromCoord(ni.getLocation());
+		addToCell(cell, id);
+		ni.setGridCell(cell);
 	}
 
 	/**
@@ -147,11 +195,13 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	 * @param ni The interface to be removed
 	 */
 	public void removeInterface(NetworkInterface ni) {
-		GridCell c = ginterfaces.get(ni);
-		if (c != null) {
-			c.removeInterface(ni);
+		if (!isMember(ni)) {
+			return;
 		}
-		ginterfaces.remove(ni);
+		removeFromCell(ni.getGridCell(), ni.getGridId());
+		members[ni.getGridId()] = null;
+		ni.setGridId(-1);
+		ni.setGridCell(-1);
 	}
 
 	/**
@@ -169,48 +219,71 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	 * @param ni The interface to update
 	 */
 	public void updateLocation(NetworkInterface ni) {
-		GridCell oldCell = (GridCell)ginterfaces.get(ni);
-		GridCell newCell = cellFromCoord(ni.getLocation());
+		int oldCell = ni.getGridCell();
+		int newCell = cellFromCoord(ni.getLocation());
 
 		if (newCell != oldCell) {
-			oldCell.moveInterface(ni, newCell);
-			ginterfaces.put(ni,newCell);
+			addToCell(newCell, ni.getGridId());
+			removeFromCell(oldCell, ni.getGridId());
+			ni.setGridCell(newCell);
 		}
 	}
 
 	/**
-	 * Finds all neighboring cells and the cell itself based on the coordinates
-	 * @param c The coordinates
-	 * @return Array of neighboring cells
+	 * Returns true if the interface has been added to this grid
+	 * @param ni The interface
+	 * @return True if the interface is in this grid
 	 */
-	private GridCell[] getNeighborCellsByCoord(Coord c) {
-		// +1 due empty cells on both sides of the matrix
-		int row = (int)(c.getY()/cellSize) + 1;
-		int col = (int)(c.getX()/cellSize) + 1;
-		return getNeighborCells(row,col);
+	private boolean isMember(NetworkInterface ni) {
+		int id = ni.getGridId();
+		return id >= 0 && id < nrofMembers && members[id] == ni;
+	}
+
+	/**
+	 * Adds an interface to the end of a cell's interface list
+	 * @param cell Index of the cell
+	 * @param id Grid id of the interface
+	 */
+	private void addToCell(int cell, int id) {
+		int[] ids = cellMembers[cell];
+		int count = cellCounts[cell];
+		if (ids == null) {
+			ids = new int[EXPECTED_CELL_COUNT];
+			cellMembers[cell] = ids;
+		} else if (count == ids.length) {
+			ids = Arrays.copyOf(ids, count * 2);
+			cellMembers[cell] = ids;
+		}
+		ids[count] = id;
+		cellCounts[cell] = count + 1;
 	}
 
 	/**
-	 * Returns an array of Cells that contains the neighbors of a certain
-	 * cell and the cell itself.
-	 * @param row Row index of the cell
-	 * @param col Column index of the cell
-	 * @return Array of neighboring Cells
+	 * Removes an interface from a cell's interface list. The order of the
+	 * other interfaces in the cell is preserved.
+	 * @param cell Index of the cell
+	 * @param id Grid id of the interface
 	 */
-	private GridCell[] getNeighborCells(int row, int col) {
-		return new GridCell[] {
-			cells[row-1][col-1],cells[row-1][col],cells[row-1][col+1],//1st row
-			cells[row][col-1],cells[row][col],cells[row][col+1],//2nd row
-			cells[row+1][col-1],cells[row+1][col],cells[row+1][col+1]//3rd row
-		};
+	private void removeFromCell(int cell, int id) {
+		int[] ids = cellMembers[cell];
+		int count = cellCounts[cell];
+		for (int i=0; i<count; i++) {
+			if (ids[i] == id) {
+				System.arraycopy(ids, i + 1, ids, i, count - i - 1);
+				cellCounts[cell] = count - 1;
+				return;
+			}
+		}
+		assert false : "interface " + members[id] + " not found from cell " +
+			cell;
 	}
 
 	/**
-	 * Get the cell having the specific coordinates
+	 * Get the index of the cell having the specific coordinates
 	 * @param c Coordinates
-	 * @return The cell
+	 * @return The cell index
 	 */
-	private GridCell cellFromCoord(Coord c) {
+	private int cellFromCoord(Coord c) {
 		// +1 due empty cells on both sides of the matrix
 		int row = (int)(c.getY()/cellSize) + 1;
 		int col = (int)(c.getX()/cellSize) + 1;
@@ -218,14 +291,20 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 		assert row > 0 && row <= rows && col > 0 && col <= cols : "Location " +
 		c + " is out of world's bounds";
 
-		return this.cells[row][col];
+		return row * rowLength + col;
 	}
 
 	/**
 	 * Returns all interfaces that use the same technology and channel
 	 */
 	public Collection<NetworkInterface> getAllInterfaces() {
-		return (Collection<NetworkInterface>)ginterfaces.keySet();
+		List<NetworkInterface> all = new ArrayList<NetworkInterface>();
+		for (int i=0; i<nrofMembers; i++) {
+			if (members[i] != null) {
+				all.add(members[i]);
+			}
+		}
+		return all;
 	}
 
 	/**
@@ -236,20 +315,172 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	 */
 	public Collection<NetworkInterface> getNearInterfaces(
 			NetworkInterface ni) {
-		ArrayList<NetworkInterface> niList = new ArrayList<NetworkInterface>();
-		GridCell loc = (GridCell)ginterfaces.get(ni);
-
-		if (loc != null) {
-			GridCell[] neighbors =
-				getNeighborCellsByCoord(ni.getLocation());
-			for (int i=0; i < neighbors.length; i++) {
-				niList.addAll(neighbors[i].getInterfaces());
+		final ArrayList<NetworkInterface> niList =
+			new ArrayList<NetworkInterface>();
+		visitNearInterfaces(ni, new InterfaceVisitor() {
+			public void visit(NetworkInterface near) {
+				niList.add(near);
 			}
+		});
+		return niList;
+	}
+
+	/**
+	 * Calls the visitor for all interfaces that are in the same cell or in
+	 * the neighboring cells of the given interface's location. Cells are
+	 * visited row by row and the interfaces of a cell in the order they
+	 * entered the cell. No objects are created.
+	 * @param ni The interface whose neighboring interfaces are visited
+	 * @param visitor The visitor
+	 */
+	@Override
+	public void visitNearInterfaces(NetworkInterface ni,
+			InterfaceVisitor visitor) {
+		if (!isMember(ni)) {
+			return;
 		}
 
-		return niList;
+		int center = cellFromCoord(ni.getLocation());
+		for (int row = center - rowLength; row <= center + rowLength;
+				row += rowLength) {
+			for (int cell = row - 1; cell <= row + 1; cell++) {
+				int[] ids = cellMembers[cell];
+				for (int i=0, n = cellCounts[cell]; i<n; i++) {
+					visitor.visit(members[ids[i]]);
+				}
+			}
+		}
 	}
 
+	/**
+	 * Returns true if the connection sweep mode is on
+	 * (see {@link #SWEEP_S})
+	 * @return True if the grids update the connections
+	 */
+	public static boolean isSweepModeOn() {
+		return sweepMode;
+	}
+
+	/**
+	 * Updates the connections of all interfaces in all grids
+	 * (see {@link #sweep()})
+	 */
+	public static void sweepAll() {
+		for (ConnectivityGrid grid : gridobjects.values()) {
+			grid.sweep();
+		}
+	}
+
+	@Override
+	public boolean isSweeping() {
+		return sweepMode;
+	}
+
+	@Override
+	public void connectionUp(NetworkInterface ni1, NetworkInterface ni2) {
+		if (connectedPairs != null && isMember(ni1) && isMember(ni2)) {
+			connectedPairs.add(pairKey(ni1.getGridId(), ni2.getGridId()));
+		}
+	}
+
+	@Override
+	public void connectionDown(NetworkInterface ni1, NetworkInterface ni2) {
+		if (connectedPairs != null && isMember(ni1) && isMember(ni2)) {
+			connectedPairs.remove(pairKey(ni1.getGridId(), ni2.getGridId()));
+		}
+	}
+
+	/**
+	 * Updates the connections of all interfaces in this grid. First the
+	 * locations of all interfaces are updated and the connections that are
+	 * out of range are torn down. Then every cell is paired with itself and
+	 * its four "forward" neighbor cells (east, south-west, south and
+	 * south-east) so that every candidate pair of interfaces is checked
+	 * only once. Pairs that are already connected are skipped using a
+	 * pair-keyed set and the rest are given to
+	 * {@link NetworkInterface#connectPair(NetworkInterface)}. Interfaces of
+	 * idle hosts (see {@link DTNHost#isIdle()}) haven't moved, so they
+	 * aren't relocated and pairs of two idle hosts are not checked.
+	 */
+	public void sweep() {
+		for (int i=0; i<nrofMembers; i++) {
+			if (members[i] != null && !members[i].getHost().isIdle()) {
+				updateLocation(members[i]);
+			}
+		}
+
+		for (int i=0; i<nrofMembers; i++) {
+			/* inactive hosts' connections are torn down by the hosts */
+			if (members[i] != null && !members[i].getHost().isIdle() &&
+					members[i].getHost().isRadioActive()) {
+				members[i].breakOutOfRangeConnections();
+			}
+		}
+
+		/* go through the occupied cells (each one only once) */
+		sweepRound++;
+		for (int m=0; m<nrofMembers; m++) {
+			if (members[m] == null) {
+				continue;
+			}
+			int cell = members[m].getGridCell();
+			if (sweptCells[cell] == sweepRound) {
+				continue;
+			}
+			sweptCells[cell] = sweepRound;
+
+			int[] ids = cellMembers[cell];
+			for (int i=0, count = cellCounts[cell]; i<count; i++) {
+				for (int j=i+1; j<count; j++) {
+					checkPair(ids[i], ids[j]);
+				}
+				checkPairs(ids[i], cell + 1);
+				checkPairs(ids[i], cell + rowLength - 1);
+				checkPairs(ids[i], cell + rowLength);
+				checkPairs(ids[i], cell + rowLength + 1);
+			}
+		}
+	}
+
+	/**
+	 * Checks all pairs of an interface and the interfaces of a cell
+	 * @param id Grid id of the interface
+	 * @param cell Index of the cell
+	 */
+	private void checkPairs(int id, int cell) {
+		int[] ids = cellMembers[cell];
+		for (int i=0, n = cellCounts[cell]; i<n; i++) {
+			checkPair(id, ids[i]);
+		}
+	}
+
+	/**
+	 * Tries to connect two interfaces if they are not connected yet
+	 * @param id1 Grid id of the first interface
+	 * @param id2 Grid id of the second interface
+	 */
+	private void checkPair(int id1, int id2) {
+		if (members[id1].getHost().isIdle() &&
+				members[id2].getHost().isIdle()) {
+			return; /* neither one has moved */
+		}
+		if (!connectedPairs.contains(pairKey(id1, id2))) {
+			members[id1].connectPair(members[id2]);
+		}
+	}
+
+	/**
+	 * Returns an order independent key for a pair of grid ids
+	 * @param id1 The first id
+	 * @param id2 The second id
+	 * @return The key
+	 */
+	private static long pairKey(int id1, int id2) {
+		if (id1 > id2) {
+			return ((long)id2 << 32) | id1;
+		}
+		return ((long)id1 << 32) | id2;
+	}
 
 	/**
 	 * Returns a string representation of the ConnectivityCells object
@@ -261,63 +492,96 @@ public class ConnectivityGrid extends ConnectivityOptimizer {
 	}
 
 	/**
-	 * A single cell in the cell grid. Contains the interfaces that are
-	 * currently in that part of the grid.
+	 * A hash set of non-negative long keys using open addressing, so that
+	 * adding, removing and looking up keys doesn't create objects.
 	 */
-	public class GridCell {
-		// how large array is initially chosen
-		private static final int EXPECTED_INTERFACE_COUNT = 5;
-		private ArrayList<NetworkInterface> interfaces;
-
-		private GridCell() {
-			this.interfaces = new ArrayList<NetworkInterface>(
-					EXPECTED_INTERFACE_COUNT);
+	private static class PairSet {
+		private static final long EMPTY = -1;
+		private static final int INITIAL_CAPACITY = 64;
+		private long[] keys;
+		private int size;
+
+		private PairSet() {
+			this.keys = new long[INITIAL_CAPACITY];
+			Arrays.fill(keys, EMPTY);
 		}
 
 		/**
-		 * Returns a list of of interfaces in this cell
-		 * @return a list of of interfaces in this cell
+		 * Returns true if the set contains the key
+		 * @param key The key
+		 * @return True if the key is in the set
 		 */
-		public ArrayList<NetworkInterface> getInterfaces() {
-			return this.interfaces;
+		public boolean contains(long key) {
+			return keys[indexOf(keys, key)] == key;
 		}
 
 		/**
-		 * Adds an interface to this cell
-		 * @param ni The interface to add
+		 * Adds a key to the set
+		 * @param key The key
 		 */
-		public void addInterface(NetworkInterface ni) {
-			this.interfaces.add(ni);
+		public void add(long key) {
+			int i = indexOf(keys, key);
+			if (keys[i] == key) {
+				return;
+			}
+			keys[i] = key;
+			size++;
+			if (size * 2 > keys.length) {
+				rehash(keys.length * 2);
+			}
 		}
 
 		/**
-		 * Removes an interface from this cell
-		 * @param ni The interface to remove
+		 * Removes a key from the set
+		 * @param key The key
 		 */
-		public void removeInterface(NetworkInterface ni) {
-			this.interfaces.remove(ni);
+		public void remove(long key) {
+			int mask = keys.length - 1;
+			int i = indexOf(keys, key);
+			if (keys[i] != key) {
+				return;
+			}
+			keys[i] = EMPTY;
+			size--;
+
+			/* shift back the following keys of the same probe sequence */
+			for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+				int home = hash(keys[j]) & mask;
+				if ((j > i && (home <= i || home > j)) ||
+					(j < i && (home <= i && home > j))) {
+					keys[i] = keys[j];
+					keys[j] = EMPTY;
+					i = j;
+				}
+			}
 		}
 
-		/**
-		 * Moves a interface in a Cell to another Cell
-		 * @param ni The interface to move
-		 * @param to The cell where the interface should be moved to
-		 */
-		public void moveInterface(NetworkInterface ni, GridCell to) {
-			to.addInterface(ni);
-			boolean removeOk = this.interfaces.remove(ni);
-			assert removeOk : "interface " + ni +
-				" not found from cell with " + interfaces.toString();
+		private void rehash(int capacity) {
+			long[] old = this.keys;
+			this.keys = new long[capacity];
+			Arrays.fill(keys, EMPTY);
+			for (long key : old) {
+				if (key != EMPTY) {
+					keys[indexOf(keys, key)] = key;
+				}
+			}
 		}
 
 		/**
-		 * Returns a string representation of the cell
-		 * @return a string representation of the cell
+		 * Returns the slot of the key or the empty slot where it should be
 		 */
-		public String toString() {
-			return getClass().getSimpleName() + " with " +
-				this.interfaces.size() + " interfaces :" + this.interfaces;
+		private static int indexOf(long[] table, long key) {
+			int mask = table.length - 1;
+			int i = hash(key) & mask;
+			while (table[i] != EMPTY && table[i] != key) {
+				i = (i + 1) & mask;
+			}
+			return i;
 		}
-	}
 
+		private static int hash(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int)(h ^ (h >>> 32));
+		}
+	}
 }
@@ -45,4 +45,64 @@ abstract public class ConnectivityOptimizer {
 	 * ConnectivityOptimizer
 	 */
 	abstract public Collection<NetworkInterface> getAllInterfaces();
+
+	/**
+	 * Calls the visitor for all network interfaces that might be located so
+	 * that they can be connected with the network interface, in the same
+	 * order as they are returned by {@link #getNearInterfaces(NetworkInterface)}.
+	 * This implementation iterates the collection returned by
+	 * getNearInterfaces; subclasses should override it to visit the
+	 * interfaces without creating the collection. The visitor must not
+	 * add, remove or move interfaces in this optimizer.
+	 *
+	 * @param ni network interface that needs to be connected
+	 * @param visitor The visitor to call for every near interface
+	 */
+	public void visitNearInterfaces(NetworkInterface ni,
+			InterfaceVisitor visitor) {
+		for (NetworkInterface near : getNearInterfaces(ni)) {
+			visitor.visit(near);
+		}
+	}
+
+	/**
+	 * Returns true if the optimizer is in the sweep mode, i.e., it updates
+	 * the connections of all its interfaces at once and the interfaces
+	 * should not do it in their own update. This implementation returns
+	 * false.
+	 * @return True if the optimizer updates the connections
+	 */
+	public boolean isSweeping() {
+		return false;
+	}
+
+	/**
+	 * Informs the optimizer that a connection between two interfaces was
+	 * created. This implementation does nothing.
+	 * @param ni1 The interface that created the connection
+	 * @param ni2 The other interface
+	 */
+	public void connectionUp(NetworkInterface ni1, NetworkInterface ni2) {
+	}
+
+	/**
+	 * Informs the optimizer that a connection between two interfaces was
+	 * torn down. This implementation does nothing.
+	 * @param ni1 The interface that tore down the connection
+	 * @param ni2 The other interface
+	 */
+	public void connectionDown(NetworkInterface ni1, NetworkInterface ni2) {
+	}
+
+	/**
+	 * Interface for visitors of network interfaces found by a connectivity
+	 * optimizer
+	 */
+	public interface InterfaceVisitor {
+		/**
+		 * Method is called for every visited network interface
+		 * @param ni The network interface
+		 */
+		public void visit(NetworkInterface ni);
+	}
 }
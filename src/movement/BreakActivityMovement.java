@@ -7,12 +7,12 @@ package movement;
 import core.Coord;
 import core.Settings;
 import core.SimClock;
-import input.WKTReader;
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.GeometryCache;
+import movement.map.RouteCache;
 import movement.map.SimMap;
 
-import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -77,18 +77,10 @@ public class BreakActivityMovement extends MapBasedMovement
         } else {
             try {
                 allTables = new LinkedList<Coord>();
-                List<Coord> locationsRead = (new WKTReader()).
-                        readPoints(new File(tablesFile));
-                for (Coord coord : locationsRead) {
-                    SimMap map = getMap();
-                    Coord offset = map.getOffset();
-                    // mirror points if map data is mirrored
-                    if (map.isMirrored()) {
-                        coord.setLocation(coord.getX(), -coord.getY());
-                    }
-                    coord.translate(offset.getX(), offset.getY());
-                    allTables.add(coord);
-                }
+                allTables.addAll(GeometryCache.getMapPoints(
+                        tablesFile, getMap()));
+                RouteCache.getInstance().addPointsOfInterest(pathFinder,
+                        allTables, getMap());
                 tableLocation = allTables.get(
                         rng.nextInt(allTables.size())).clone();
             } catch (Exception e) {
@@ -142,8 +134,8 @@ public class BreakActivityMovement extends MapBasedMovement
             }
             MapNode thisNode = map.getNodeByCoord(lastWaypoint);
             MapNode destinationNode = map.getNodeByCoord(tableLocation);
-            List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-                    destinationNode);
+            List<MapNode> nodes = RouteCache.getInstance().getShortestPath(
+                    pathFinder, thisNode, destinationNode);
             Path path = new Path(generateSpeed());
             for (MapNode node : nodes) {
                 path.addWaypoint(node.getLocation());
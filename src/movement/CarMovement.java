@@ -8,6 +8,7 @@ import java.util.List;
 
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.RouteCache;
 import core.Coord;
 import core.Settings;
 
@@ -59,7 +60,8 @@ public class CarMovement extends MapBasedMovement implements
 		MapNode fromNode = getMap().getNodeByCoord(from);
 		MapNode toNode = getMap().getNodeByCoord(to);
 
-		List<MapNode> nodePath = pathFinder.getShortestPath(fromNode, toNode);
+		List<MapNode> nodePath = RouteCache.getInstance().getShortestPath(
+				pathFinder, fromNode, toNode);
 
 		for (MapNode node : nodePath) { // create a Path from the shortest path
 			path.addWaypoint(node.getLocation());
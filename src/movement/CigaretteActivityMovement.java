@@ -7,12 +7,12 @@ package movement;
 import core.Coord;
 import core.Settings;
 import core.SimClock;
-import input.WKTReader;
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.GeometryCache;
+import movement.map.RouteCache;
 import movement.map.SimMap;
 
-import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -75,18 +75,10 @@ public class CigaretteActivityMovement extends MapBasedMovement
 
         try {
             allCigaretteSpots = new LinkedList<Coord>();
-            List<Coord> locationsRead = (new WKTReader()).
-                    readPoints(new File(cigaretteFile));
-            for (Coord coord : locationsRead) {
-                SimMap map = getMap();
-                Coord offset = map.getOffset();
-                // mirror points if map data is mirrored
-                if (map.isMirrored()) {
-                    coord.setLocation(coord.getX(), -coord.getY());
-                }
-                coord.translate(offset.getX(), offset.getY());
-                allCigaretteSpots.add(coord);
-            }
+            allCigaretteSpots.addAll(GeometryCache.getMapPoints(
+                    cigaretteFile, getMap()));
+            RouteCache.getInstance().addPointsOfInterest(pathFinder,
+                    allCigaretteSpots, getMap());
             cigaretteSpotLocation = allCigaretteSpots.get(
                     rng.nextInt(allCigaretteSpots.size())).clone();
         } catch (Exception e) {
@@ -132,8 +124,8 @@ public class CigaretteActivityMovement extends MapBasedMovement
             }
             MapNode thisNode = map.getNodeByCoord(lastWaypoint);
             MapNode destinationNode = map.getNodeByCoord(cigaretteSpotLocation);
-            List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-                    destinationNode);
+            List<MapNode> nodes = RouteCache.getInstance().getShortestPath(
+                    pathFinder, thisNode, destinationNode);
             Path path = new Path(generateSpeed());
             for (MapNode node : nodes) {
                 path.addWaypoint(node.getLocation());
@@ -7,10 +7,9 @@ package movement;
 import core.Coord;
 import core.DTNSim;
 import core.Settings;
-import input.WKTReader;
+import movement.map.GeometryCache;
 import movement.map.SimMap;
 
-import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -46,20 +45,8 @@ public class CigaretteStationaryMovement extends MovementModel {
 
 		try {
 			allCigaretteSpots = new LinkedList<Coord>();
-			List<Coord> locationsRead = (new WKTReader()).
-					readPoints(new File(courseLocationsFile));
-			MapBasedMovement tmp = new MapBasedMovement(s);
-
-			for (Coord coord : locationsRead) {
-				SimMap map = tmp.getMap();
-				Coord offset = map.getOffset();
-				// mirror points if map data is mirrored
-				if (map.isMirrored()) {
-					coord.setLocation(coord.getX(), -coord.getY());
-				}
-				coord.translate(offset.getX(), offset.getY());
-				allCigaretteSpots.add(coord);
-			}
+			allCigaretteSpots.addAll(GeometryCache.getMapPoints(
+					courseLocationsFile, MapBasedMovement.getSharedMap()));
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -7,11 +7,10 @@ package movement;
 import core.Coord;
 import core.DTNSim;
 import core.Settings;
-import input.WKTReader;
 import movement.map.MapNode;
+import movement.map.GeometryCache;
 import movement.map.SimMap;
 
-import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -48,20 +47,8 @@ public class ClassStationaryMovement extends MovementModel {
 
 		try {
 			allCourses = new LinkedList<Coord>();
-			List<Coord> locationsRead = (new WKTReader()).
-					readPoints(new File(courseLocationsFile));
-			MapBasedMovement tmp = new MapBasedMovement(s);
-
-			for (Coord coord : locationsRead) {
-				SimMap map = tmp.getMap();
-				Coord offset = map.getOffset();
-				// mirror points if map data is mirrored
-				if (map.isMirrored()) {
-					coord.setLocation(coord.getX(), -coord.getY());
-				}
-				coord.translate(offset.getX(), offset.getY());
-				allCourses.add(coord);
-			}
+			allCourses.addAll(GeometryCache.getMapPoints(
+					courseLocationsFile, MapBasedMovement.getSharedMap()));
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
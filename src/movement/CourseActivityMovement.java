@@ -7,13 +7,13 @@ package movement;
 import core.Coord;
 import core.Settings;
 import core.SimClock;
-import input.WKTReader;
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.GeometryCache;
+import movement.map.RouteCache;
 import movement.map.SimMap;
 import util.ParetoRNG;
 
-import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -94,18 +94,10 @@ public class CourseActivityMovement extends MapBasedMovement implements
 		} else {
 			try {
 				allCourses = new LinkedList<Coord>();
-				List<Coord> locationsRead = (new WKTReader()).
-					readPoints(new File(courseLocationsFile));
-				for (Coord coord : locationsRead) {
-					SimMap map = getMap();
-					Coord offset = map.getOffset();
-					// mirror points if map data is mirrored
-					if (map.isMirrored()) {
-						coord.setLocation(coord.getX(), -coord.getY());
-					}
-					coord.translate(offset.getX(), offset.getY());
-					allCourses.add(coord);
-				}
+				allCourses.addAll(GeometryCache.getMapPoints(
+						courseLocationsFile, getMap()));
+				RouteCache.getInstance().addPointsOfInterest(pathFinder,
+						allCourses, getMap());
 
 				courseLocation = allCourses.get(
 						rng.nextInt(allCourses.size())).clone();
@@ -186,8 +178,8 @@ public class CourseActivityMovement extends MapBasedMovement implements
 			}
 			MapNode thisNode = map.getNodeByCoord(lastWaypoint);
 			MapNode destinationNode = map.getNodeByCoord(courseLocation);
-			List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-					destinationNode);
+			List<MapNode> nodes = RouteCache.getInstance().getShortestPath(
+					pathFinder, thisNode, destinationNode);
 			Path path = new Path(generateSpeed());
 			for (MapNode node : nodes) {
 				path.addWaypoint(node.getLocation());
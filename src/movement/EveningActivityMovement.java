@@ -4,14 +4,14 @@
  */
 package movement;
 
-import input.WKTReader;
 
-import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.GeometryCache;
+import movement.map.RouteCache;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -103,18 +103,8 @@ public class EveningActivityMovement extends MapBasedMovement
 		} else {
 			try {
 				meetingSpotLocations = new LinkedList<Coord>();
-				List<Coord> locationsRead = (new WKTReader()).readPoints(
-						new File(shoppingSpotsFile));
-				for (Coord coord : locationsRead) {
-					SimMap map = getMap();
-					Coord offset = map.getOffset();
-					// mirror points if map data is mirrored
-					if (map.isMirrored()) {
-						coord.setLocation(coord.getX(), -coord.getY());
-					}
-					coord.translate(offset.getX(), offset.getY());
-					meetingSpotLocations.add(coord);
-				}
+				meetingSpotLocations.addAll(GeometryCache.getMapPoints(
+						shoppingSpotsFile, getMap()));
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
@@ -179,8 +169,8 @@ public class EveningActivityMovement extends MapBasedMovement
 			MapNode thisNode = map.getNodeByCoord(lastWaypoint);
 			MapNode destinationNode = map.getNodeByCoord(startAtLocation);
 
-			List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-					destinationNode);
+			List<MapNode> nodes = RouteCache.getInstance().getShortestPath(
+					pathFinder, thisNode, destinationNode);
 			Path path = new Path(generateSpeed());
 			for (MapNode node : nodes) {
 				path.addWaypoint(node.getLocation());
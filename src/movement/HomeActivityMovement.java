@@ -4,14 +4,14 @@
  */
 package movement;
 
-import input.WKTReader;
 
-import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.GeometryCache;
+import movement.map.RouteCache;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -77,18 +77,8 @@ public class HomeActivityMovement extends MapBasedMovement
 		} else {
 			try {
 				allHomes = new LinkedList<Coord>();
-				List<Coord> locationsRead = (new WKTReader()).readPoints(
-						new File(homeLocationsFile));
-				for (Coord coord : locationsRead) {
-					SimMap map = getMap();
-					Coord offset = map.getOffset();
-					// mirror points if map data is mirrored
-					if (map.isMirrored()) {
-						coord.setLocation(coord.getX(), -coord.getY());
-					}
-					coord.translate(offset.getX(), offset.getY());
-					allHomes.add(coord);
-				}
+				allHomes.addAll(GeometryCache.getMapPoints(
+						homeLocationsFile, getMap()));
 				homeLocation = allHomes.get(rng.nextInt(allHomes.size())).clone();
 			} catch (Exception e) {
 				e.printStackTrace();
@@ -167,8 +157,8 @@ public class HomeActivityMovement extends MapBasedMovement
 			}
 			MapNode thisNode = map.getNodeByCoord(lastWaypoint);
 			MapNode destinationNode = map.getNodeByCoord(homeLocation);
-			List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-					destinationNode);
+			List<MapNode> nodes = RouteCache.getInstance().getShortestPath(
+					pathFinder, thisNode, destinationNode);
 			Path path = new Path(generateSpeed());
 			for (MapNode node : nodes) {
 				path.addWaypoint(node.getLocation());
@@ -4,6 +4,7 @@
  */
 package movement;
 
+import input.BinaryMapReader;
 import input.WKTMapReader;
 
 import java.io.File;
@@ -17,6 +18,7 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.Vector;
 
+import movement.map.GeometryCache;
 import movement.map.MapNode;
 import movement.map.SimMap;
 import core.Coord;
@@ -62,10 +64,6 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 
 	/** how many map files are read */
 	private int nrofMapFilesRead = 0;
-	/** map cache -- in case last mm read the same map, use it without loading*/
-	private static SimMap cachedMap = null;
-	/** names of the previously cached map's files (for hit comparison) */
-	private static List<String> cachedMapFiles = null;
 
 	private double[] waitTimeRange = null;
 
@@ -272,62 +270,84 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 
 	/**
 	 * Reads a sim map from location set to the settings, mirrors the map and
-	 * moves its upper left corner to origo.
-	 * @return A new SimMap based on the settings
+	 * moves its upper left corner to origo. Maps are read only once per
+	 * scenario (see {@link GeometryCache}).
+	 * @return A new or cached SimMap based on the settings
 	 */
 	private SimMap readMap() {
-		SimMap simMap;
-		Settings settings = new Settings(MAP_BASE_MOVEMENT_NS);
-		WKTMapReader r = new WKTMapReader(true);
+		SimMap simMap = getSharedMap();
+		nrofMapFilesRead = getMapFiles().size();
+		return simMap;
+	}
 
-		if (cachedMap == null) {
-			cachedMapFiles = new ArrayList<String>(); // no cache present
-		}
-		else { // something in cache
-			// check out if previously asked map was asked again
-			SimMap cached = checkCache(settings);
-			if (cached != null) {
-				nrofMapFilesRead = cachedMapFiles.size();
-				return cached; // we had right map cached -> return it
-			}
-			else { // no hit -> reset cache
-				cachedMapFiles = new ArrayList<String>();
-				cachedMap = null;
-			}
+	/**
+	 * Returns the sim map defined by the map based movement settings
+	 * ({@link #MAP_BASE_MOVEMENT_NS} name space). The map is read, checked,
+	 * mirrored and moved so that its upper left corner is in origo only the
+	 * first time it is requested during a scenario; after that the same map
+	 * object is returned. Modules that only need the map (e.g., for
+	 * converting WKT points to map coordinates) should use this instead of
+	 * creating a MapBasedMovement. If the map files have an up-to-date
+	 * compiled version (see {@link input.MapCompiler}), it is used instead of
+	 * parsing the map files.
+	 * @return The map
+	 */
+	public static SimMap getSharedMap() {
+		List<String> mapFiles = getMapFiles();
+		SimMap simMap = GeometryCache.getMap(mapFiles);
+		if (simMap != null) {
+			return simMap; // we had right map cached -> return it
 		}
 
 		try {
-			int nrofMapFiles = settings.getInt(NROF_FILES_S);
-
-			for (int i = 1; i <= nrofMapFiles; i++ ) {
-				String pathFile = settings.getSetting(FILE_S + i);
-				cachedMapFiles.add(pathFile);
-				r.addPaths(new File(pathFile), i);
+			BinaryMapReader compiled = BinaryMapReader.openCompiled(mapFiles);
+			if (compiled != null) { // up-to-date compiled map available
+				simMap = compiled.getMap();
+				if (!compiled.isConnected()) {
+					checkMapConnectedness(simMap.getNodes());
+				}
+			} else {
+				WKTMapReader r = new WKTMapReader(true);
+				for (int i = 1; i <= mapFiles.size(); i++ ) {
+					r.addPaths(new File(mapFiles.get(i-1)), i);
+				}
+				simMap = r.getMap();
+				checkMapConnectedness(simMap.getNodes());
 			}
-
-			nrofMapFilesRead = nrofMapFiles;
 		} catch (IOException e) {
 			throw new SimError(e.toString(),e);
 		}
 
-		simMap = r.getMap();
-		checkMapConnectedness(simMap.getNodes());
 		// mirrors the map (y' = -y) and moves its upper left corner to origo
 		simMap.mirror();
 		Coord offset = simMap.getMinBound().clone();
 		simMap.translate(-offset.getX(), -offset.getY());
 		checkCoordValidity(simMap.getNodes());
 
-		cachedMap = simMap;
+		GeometryCache.putMap(mapFiles, simMap);
 		return simMap;
 	}
 
+	/**
+	 * Returns the map files defined in the settings
+	 * @return The map file paths in node type order
+	 */
+	private static List<String> getMapFiles() {
+		Settings settings = new Settings(MAP_BASE_MOVEMENT_NS);
+		int nrofMapFiles = settings.getInt(NROF_FILES_S);
+		List<String> mapFiles = new ArrayList<String>(nrofMapFiles);
+		for (int i = 1; i <= nrofMapFiles; i++ ) {
+			mapFiles.add(settings.getSetting(FILE_S + i));
+		}
+		return mapFiles;
+	}
+
 	/**
 	 * Checks that all map nodes can be reached from all other map nodes
 	 * @param nodes The list of nodes to check
 	 * @throws SettingsError if all map nodes are not connected
 	 */
-	private void checkMapConnectedness(List<MapNode> nodes) {
+	private static void checkMapConnectedness(List<MapNode> nodes) {
 		Set<MapNode> visited = new HashSet<MapNode>();
 		Queue<MapNode> unvisited = new LinkedList<MapNode>();
 		MapNode firstNode;
@@ -372,41 +392,22 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 	 * @param nodes The list of nodes to check
 	 * @throws SettingsError if some map node is out of bounds
 	 */
-	private void checkCoordValidity(List<MapNode> nodes) {
+	private static void checkCoordValidity(List<MapNode> nodes) {
+		Settings settings = new Settings(MOVEMENT_MODEL_NS);
+		int [] worldSize = settings.getCsvInts(WORLD_SIZE,2);
+		int maxX = worldSize[0];
+		int maxY = worldSize[1];
+
 		// Check that all map nodes are within world limits
 		for (MapNode n : nodes) {
 			double x = n.getLocation().getX();
 			double y = n.getLocation().getY();
-			if (x < 0 || x > getMaxX() || y < 0 || y > getMaxY()) {
+			if (x < 0 || x > maxX || y < 0 || y > maxY) {
 				throw new SettingsError("Map node " + n.getLocation() +
 						" is out of world  bounds "+
-						"(x: 0..." + getMaxX() + " y: 0..." + getMaxY() + ")");
-			}
-		}
-	}
-
-	/**
-	 * Checks map cache if the requested map file(s) match to the cached
-	 * sim map
-	 * @param settings The Settings where map file names are found
-	 * @return A cached map or null if the cached map didn't match
-	 */
-	private SimMap checkCache(Settings settings) {
-		int nrofMapFiles = settings.getInt(NROF_FILES_S);
-
-		if (nrofMapFiles != cachedMapFiles.size() || cachedMap == null) {
-			return null; // wrong number of files
-		}
-
-		for (int i = 1; i <= nrofMapFiles; i++ ) {
-			String pathFile = settings.getSetting(FILE_S + i);
-			if (!pathFile.equals(cachedMapFiles.get(i-1))) {
-				return null;	// found wrong file name
+						"(x: 0..." + maxX + " y: 0..." + maxY + ")");
 			}
 		}
-
-		// all files matched -> return cached map
-		return cachedMap;
 	}
 
 	@Override
@@ -9,6 +9,7 @@ import java.util.List;
 import core.SettingsError;
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.RouteCache;
 import movement.map.MapRoute;
 import core.Coord;
 import core.Settings;
@@ -107,7 +108,8 @@ public class MapRouteMovement extends MapBasedMovement implements
 		Path p = new Path(generateSpeed());
 		MapNode to = route.nextStop();
 
-		List<MapNode> nodePath = pathFinder.getShortestPath(lastMapNode, to);
+		List<MapNode> nodePath = RouteCache.getInstance().getShortestPath(
+				pathFinder, lastMapNode, to);
 
 		// this assertion should never fire if the map is checked in read phase
 		assert nodePath.size() > 0 : "No path from " + lastMapNode + " to " +
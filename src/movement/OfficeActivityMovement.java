@@ -4,9 +4,7 @@
  */
 package movement;
 
-import input.WKTReader;
 
-import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -14,6 +12,8 @@ import util.ParetoRNG;
 
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.GeometryCache;
+import movement.map.RouteCache;
 import movement.map.SimMap;
 import core.Coord;
 import core.Settings;
@@ -107,18 +107,8 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 		} else {
 			try {
 				allOffices = new LinkedList<Coord>();
-				List<Coord> locationsRead = (new WKTReader()).
-					readPoints(new File(officeLocationsFile));
-				for (Coord coord : locationsRead) {
-					SimMap map = getMap();
-					Coord offset = map.getOffset();
-					// mirror points if map data is mirrored
-					if (map.isMirrored()) {
-						coord.setLocation(coord.getX(), -coord.getY());
-					}
-					coord.translate(offset.getX(), offset.getY());
-					allOffices.add(coord);
-				}
+				allOffices.addAll(GeometryCache.getMapPoints(
+						officeLocationsFile, getMap()));
 				officeLocation = allOffices.get(
 						rng.nextInt(allOffices.size())).clone();
 			} catch (Exception e) {
@@ -201,8 +191,8 @@ public class OfficeActivityMovement extends MapBasedMovement implements
 			}
 			MapNode thisNode = map.getNodeByCoord(lastWaypoint);
 			MapNode destinationNode = map.getNodeByCoord(officeLocation);
-			List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-					destinationNode);
+			List<MapNode> nodes = RouteCache.getInstance().getShortestPath(
+					pathFinder, thisNode, destinationNode);
 			Path path = new Path(generateSpeed());
 			for (MapNode node : nodes) {
 				path.addWaypoint(node.getLocation());
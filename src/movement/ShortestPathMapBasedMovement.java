@@ -8,6 +8,7 @@ import java.util.List;
 
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.RouteCache;
 import movement.map.PointsOfInterest;
 import core.Settings;
 
@@ -50,7 +51,8 @@ public class ShortestPathMapBasedMovement extends MapBasedMovement implements
 		Path p = new Path(generateSpeed());
 		MapNode to = pois.selectDestination();
 
-		List<MapNode> nodePath = pathFinder.getShortestPath(lastMapNode, to);
+		List<MapNode> nodePath = RouteCache.getInstance().getShortestPath(
+				pathFinder, lastMapNode, to);
 
 		// this assertion should never fire if the map is checked in read phase
 		assert nodePath.size() > 0 : "No path from " + lastMapNode + " to " +
@@ -10,9 +10,11 @@ import core.SimClock;
 import input.WKTReader;
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.RouteCache;
 import movement.map.SimMap;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -67,6 +69,8 @@ public class UBahnActivityMovement extends MapBasedMovement
 					ubahnLocation.setLocation(ubahnLocation.getX(), -ubahnLocation.getY());
 				}
 				ubahnLocation.translate(offset.getX(), offset.getY());
+				RouteCache.getInstance().addPointsOfInterest(pathFinder,
+						Collections.singletonList(ubahnLocation), map);
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
@@ -107,8 +111,8 @@ public class UBahnActivityMovement extends MapBasedMovement
 			}
 			MapNode thisNode = map.getNodeByCoord(lastWaypoint);
 			MapNode destinationNode = map.getNodeByCoord(ubahnLocation);
-			List<MapNode> nodes = pathFinder.getShortestPath(thisNode,
-					destinationNode);
+			List<MapNode> nodes = RouteCache.getInstance().getShortestPath(
+					pathFinder, thisNode, destinationNode);
 			Path path = new Path(generateSpeed());
 			for (MapNode node : nodes) {
 				path.addWaypoint(node.getLocation());
@@ -4,35 +4,58 @@
  */
 package movement.map;
 
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
 
 /**
- * Implementation of the Dijkstra's shortest path algorithm.
+ * <P>Implementation of the Dijkstra's shortest path algorithm with an
+ * optional A* heuristic.</P>
+ *
+ * <P>The search state is stored in arrays indexed by the node ids (see
+ * {@link MapNode#getId()}) and reused between searches: instead of clearing
+ * the arrays, every search has its own generation number and values stored
+ * by earlier searches are ignored. Unvisited nodes are kept in an indexed
+ * binary heap that supports updating a node's place in the heap. Nodes with
+ * equal distances are ordered by their coordinates, so the paths are the
+ * same as with a search using any other priority queue implementation.</P>
+ *
+ * <P>A path finder is not thread safe; it must not be used by multiple
+ * threads concurrently.</P>
  */
 public class DijkstraPathFinder {
 	/** Value for infinite distance  */
-	private static final Double INFINITY = Double.MAX_VALUE;
-	/** Initial size of the priority queue */
-	private static final int PQ_INIT_SIZE = 11;
-
-	/** Map of node distances from the source node */
-	private DistanceMap distances;
-	/** Set of already visited nodes (where the shortest path is known) */
-	private Set<MapNode> visited;
-	/** Priority queue of unvisited nodes discovered so far */
-	private Queue<MapNode> unvisited;
-	/** Map of previous nodes on the shortest path(s) */
-	private Map<MapNode, MapNode> prevNodes;
+	private static final double INFINITY = Double.MAX_VALUE;
+	/** Initial size of the node arrays */
+	private static final int INIT_SIZE = 16;
 
 	private int [] okMapNodes;
+	/** use euclidean distance to the destination as A* heuristic */
+	private boolean useHeuristic;
+
+	/** generation number of the current search */
+	private int generation;
+	/** generation of the search that set the node's values */
+	private int[] stamps;
+	/** distances of the nodes from the source node */
+	private double[] distances;
+	/** distances from source plus the heuristic estimate (heap keys) */
+	private double[] keys;
+	/** ids of the previous nodes on the shortest path(s) */
+	private int[] prevNodes;
+	/** is the node visited (shortest path known) in the current search */
+	private boolean[] visited;
+	/** positions of the nodes in the heap (-1 = not in the heap) */
+	private int[] heapIndexes;
+	/** nodes by their ids */
+	private MapNode[] nodes;
+	/** binary heap of unvisited nodes discovered so far (node ids) */
+	private int[] heap;
+	private int heapSize;
 
 	/**
 	 * Constructor.
@@ -40,8 +63,71 @@ public class DijkstraPathFinder {
 	 * all nodes are OK
 	 */
 	public DijkstraPathFinder(int [] okMapNodes) {
+		this(okMapNodes, false);
+	}
+
+	/**
+	 * Constructor.
+	 * @param okMapNodes The map node types that are OK for paths or null if
+	 * all nodes are OK
+	 * @param useHeuristic If true, the search is guided towards the
+	 * destination using the euclidean distance as A* heuristic. The paths
+	 * are still shortest paths, but a different one may be chosen if there
+	 * are many paths of the same length.
+	 */
+	public DijkstraPathFinder(int [] okMapNodes, boolean useHeuristic) {
 		super();
 		this.okMapNodes = okMapNodes;
+		this.useHeuristic = useHeuristic;
+		this.generation = 0;
+		allocate(INIT_SIZE);
+	}
+
+	/**
+	 * Allocates (or grows) the node arrays
+	 * @param size Minimum size of the arrays
+	 */
+	private void allocate(int size) {
+		int newSize = Math.max(size, stamps == null ? 0 : stamps.length * 2);
+		if (stamps == null) {
+			stamps = new int[newSize];
+			distances = new double[newSize];
+			keys = new double[newSize];
+			prevNodes = new int[newSize];
+			visited = new boolean[newSize];
+			heapIndexes = new int[newSize];
+			nodes = new MapNode[newSize];
+			heap = new int[newSize];
+		} else {
+			stamps = Arrays.copyOf(stamps, newSize);
+			distances = Arrays.copyOf(distances, newSize);
+			keys = Arrays.copyOf(keys, newSize);
+			prevNodes = Arrays.copyOf(prevNodes, newSize);
+			visited = Arrays.copyOf(visited, newSize);
+			heapIndexes = Arrays.copyOf(heapIndexes, newSize);
+			nodes = Arrays.copyOf(nodes, newSize);
+			heap = Arrays.copyOf(heap, newSize);
+		}
+	}
+
+	/**
+	 * Makes a node part of the current search (if it isn't already)
+	 * @param node The node
+	 * @return The id of the node
+	 */
+	private int touch(MapNode node) {
+		int id = node.getId();
+		if (id >= stamps.length) {
+			allocate(id + 1);
+		}
+		if (stamps[id] != generation) {
+			stamps[id] = generation;
+			distances[id] = INFINITY;
+			visited[id] = false;
+			heapIndexes[id] = -1;
+			nodes[id] = node;
+		}
+		return id;
 	}
 
 	/**
@@ -51,16 +137,18 @@ public class DijkstraPathFinder {
 	private void initWith(MapNode node) {
 		assert (okMapNodes != null ? node.isType(okMapNodes) : true);
 
-		// create needed data structures
-		this.unvisited = new PriorityQueue<MapNode>(PQ_INIT_SIZE,
-				new DistanceComparator());
-		this.visited = new HashSet<MapNode>();
-		this.prevNodes = new HashMap<MapNode, MapNode>();
-		this.distances = new DistanceMap();
+		generation++;
+		if (generation == 0) { // wrapped around -> old stamps may match
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+		heapSize = 0;
 
 		// set distance to source 0 and initialize unvisited queue
-		this.distances.put(node, 0);
-		this.unvisited.add(node);
+		int id = touch(node);
+		distances[id] = 0;
+		keys[id] = 0;
+		push(id);
 	}
 
 	/**
@@ -79,41 +167,121 @@ public class DijkstraPathFinder {
 		}
 
 		initWith(from);
-		MapNode node = null;
+		int toId = to.getId();
+		int node = -1;
 
 		// always take the node with shortest distance
-		while ((node = unvisited.poll()) != null) {
-			if (node == to) {
+		while (heapSize > 0) {
+			node = poll();
+			if (node == toId) {
 				break; // we found the destination -> no need to search further
 			}
 
-			visited.add(node); // mark the node as visited
-			relax(node); // add/update neighbor nodes' distances
+			visited[node] = true; // mark the node as visited
+			relax(node, to); // add/update neighbor nodes' distances
 		}
 
 		// now we either have the path or such path wasn't available
-		if (node == to) { // found a path
-			path.add(0,to);
-			MapNode prev = prevNodes.get(to);
-			while (prev != from) {
-				path.add(0, prev);	// always put previous node to beginning
-				prev = prevNodes.get(prev);
+		if (node == toId) { // found a path
+			return buildPath(from, to);
+		}
+
+		return path;
+	}
+
+	/**
+	 * Finds shortest paths from a node to many destinations with a single
+	 * search. The paths are the same as the ones returned by
+	 * {@link #getShortestPath(MapNode, MapNode)} for a path finder that
+	 * doesn't use the A* heuristic.
+	 * @param from The source of the paths
+	 * @param destinations The destinations of the paths
+	 * @return The shortest paths by their destinations. Destinations that
+	 * can't be reached from the source are not in the map.
+	 */
+	public Map<MapNode, List<MapNode>> getShortestPaths(MapNode from,
+			Collection<MapNode> destinations) {
+		Map<MapNode, List<MapNode>> paths =
+			new HashMap<MapNode, List<MapNode>>();
+		IdentityHashMap<MapNode, Boolean> targets =
+			new IdentityHashMap<MapNode, Boolean>();
+
+		for (MapNode to : destinations) {
+			if (from.compareTo(to) == 0) { // the same as the source
+				List<MapNode> path = new LinkedList<MapNode>();
+				path.add(from);
+				paths.put(to, path);
+			} else {
+				targets.put(to, Boolean.TRUE);
+			}
+		}
+
+		initWith(from);
+		int targetsLeft = targets.size();
+		while (heapSize > 0 && targetsLeft > 0) {
+			int node = poll();
+			if (targets.containsKey(nodes[node])) {
+				paths.put(nodes[node], buildPath(from, nodes[node]));
+				targetsLeft--;
 			}
 
-			path.add(0, from); // finally put the source node to first node
+			visited[node] = true;
+			relax(node, null);
 		}
 
+		return paths;
+	}
+
+	/**
+	 * Builds the path to a node from the previous nodes of the current
+	 * search
+	 * @param from The source of the path
+	 * @param to The destination of the path (must be reached)
+	 * @return The path
+	 */
+	private List<MapNode> buildPath(MapNode from, MapNode to) {
+		List<MapNode> path = new LinkedList<MapNode>();
+		int fromId = from.getId();
+
+		path.add(0,to);
+		int prev = prevNodes[to.getId()];
+		while (prev != fromId) {
+			path.add(0, nodes[prev]); // always put previous node to beginning
+			prev = prevNodes[prev];
+		}
+
+		path.add(0, from); // finally put the source node to first node
 		return path;
 	}
 
+	/**
+	 * Returns the map node types that are OK for paths
+	 * @return The OK map node types or null if all nodes are OK
+	 */
+	public int[] getOkMapNodes() {
+		return this.okMapNodes;
+	}
+
+	/**
+	 * Returns true if the A* heuristic is used
+	 * @return true if the A* heuristic is used
+	 */
+	public boolean isUsingHeuristic() {
+		return this.useHeuristic;
+	}
+
 	/**
 	 * Relaxes the neighbors of a node (updates the shortest distances).
-	 * @param node The node whose neighbors are relaxed
+	 * @param node The id of the node whose neighbors are relaxed
+	 * @param to The destination of the path (null if the heuristic must not
+	 * be used)
 	 */
-	private void relax(MapNode node) {
-		double nodeDist = distances.get(node);
-		for (MapNode n : node.getNeighbors()) {
-			if (visited.contains(n)) {
+	private void relax(int node, MapNode to) {
+		MapNode mapNode = nodes[node];
+		double nodeDist = distances[node];
+		for (MapNode n : mapNode.getNeighborArray()) {
+			int id = touch(n);
+			if (visited[id]) {
 				continue; // skip visited nodes
 			}
 
@@ -122,26 +290,22 @@ public class DijkstraPathFinder {
 			}
 
 			// n node's distance from path's source node
-			double nDist = nodeDist + getDistance(node, n);
+			double nDist = nodeDist + getDistance(mapNode, n);
 
-			if (distances.get(n) > nDist) { // stored distance > found dist?
-				prevNodes.put(n, node);
-				setDistance(n, nDist);
+			if (distances[id] > nDist) { // stored distance > found dist?
+				prevNodes[id] = node;
+				distances[id] = nDist;
+				keys[id] = (useHeuristic && to != null) ?
+						nDist + getDistance(n, to) : nDist;
+				if (heapIndexes[id] < 0) {
+					push(id);
+				} else {
+					siftUp(heapIndexes[id]); // key decreased -> move up
+				}
 			}
 		}
 	}
 
-	/**
-	 * Sets the distance from source node to a node
-	 * @param n The node whose distance is set
-	 * @param distance The distance of the node from the source node
-	 */
-	private void setDistance(MapNode n, double distance) {
-		unvisited.remove(n); // remove node from old place in the queue
-		distances.put(n, distance); // update distance
-		unvisited.add(n); // insert node to the new place in the queue
-	}
-
 	/**
 	 * Returns the (euclidean) distance between the two map nodes
 	 * @param from The first node
@@ -153,76 +317,74 @@ public class DijkstraPathFinder {
 	}
 
 	/**
-	 * Comparator that compares two map nodes by their distance from
-	 * the source node.
+	 * Compares two nodes by their keys and coordinates
+	 * @return True if node1 should be polled before node2
 	 */
-	private class DistanceComparator implements Comparator<MapNode> {
-
-		/**
-		 * Compares two map nodes by their distance from the source node
-		 * @return -1, 0 or 1 if node1's distance is smaller, equal to, or
-		 * bigger than node2's distance
-		 */
-		public int compare(MapNode node1, MapNode node2) {
-			double dist1 = distances.get(node1);
-			double dist2 = distances.get(node2);
-
-			if (dist1 > dist2) {
-				return 1;
-			}
-			else if (dist1 < dist2) {
-				return -1;
-			}
-			else {
-				return node1.compareTo(node2);
-			}
+	private boolean isBefore(int node1, int node2) {
+		if (keys[node1] != keys[node2]) {
+			return keys[node1] < keys[node2];
 		}
+		return nodes[node1].compareTo(nodes[node2]) < 0;
 	}
 
 	/**
-	 * Simple Map implementation for storing distances.
+	 * Adds a node to the heap
+	 * @param node Id of the node
 	 */
-	private class DistanceMap {
-		private HashMap<MapNode, Double> map;
-
-		/**
-		 * Constructor. Creates an empty distance map
-		 */
-		public DistanceMap() {
-			this.map = new HashMap<MapNode, Double>();
-		}
+	private void push(int node) {
+		heap[heapSize] = node;
+		heapIndexes[node] = heapSize;
+		siftUp(heapSize++);
+	}
 
-		/**
-		 * Returns the distance to a node. If no distance value
-		 * is found, returns {@link DijkstraPathFinder#INFINITY} as the value.
-		 * @param node The node whose distance is requested
-		 * @return The distance to that node
-		 */
-		public double get(MapNode node) {
-			Double value = map.get(node);
-			if (value != null) {
-				return value;
-			}
-			else {
-				return INFINITY;
-			}
+	/**
+	 * Removes and returns the first node of the heap
+	 * @return Id of the node
+	 */
+	private int poll() {
+		int first = heap[0];
+		heapIndexes[first] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndexes[heap[0]] = 0;
+			siftDown(0);
 		}
+		return first;
+	}
 
-		/**
-		 * Puts a new distance value for a map node
-		 * @param node The node
-		 * @param distance Distance to that node
-		 */
-		public void  put(MapNode node, double distance) {
-			map.put(node, distance);
+	private void siftUp(int index) {
+		int node = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!isBefore(node, heap[parent])) {
+				break;
+			}
+			heap[index] = heap[parent];
+			heapIndexes[heap[index]] = index;
+			index = parent;
 		}
+		heap[index] = node;
+		heapIndexes[node] = index;
+	}
 
-		/**
-		 * Returns a string representation of the map's contents
-		 * @return a string representation of the map's contents
-		 */
-		public String toString() {
-			return map.toString();
+	private void siftDown(int index) {
+		int node = heap[index];
+		int half = heapSize >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < heapSize && isBefore(heap[right], heap[child])) {
+				child = right;
+			}
+			if (!isBefore(heap[child], node)) {
+				break;
+			}
+			heap[index] = heap[child];
+			heapIndexes[heap[index]] = index;
+			index = child;
 		}
+		heap[index] = node;
+		heapIndexes[node] = index;
 	}
 }
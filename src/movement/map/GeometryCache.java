@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import input.WKTReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import core.Coord;
+import core.DTNSim;
+
+/**
+ * <P>Scenario wide cache of geometry data read from WKT files. Map data
+ * (see {@link SimMap}) is cached by the list of map files (the position of
+ * a file in the list is the node type of its nodes) and point lists are
+ * cached by file path, so every file is parsed only once per scenario no
+ * matter how many movement models or network interfaces use it.</P>
+ *
+ * <P>The cached maps are shared as such, but the point lists are always
+ * returned as new lists of new coordinates so that the users can modify
+ * them freely.</P>
+ */
+public class GeometryCache {
+	/** maps by the list of their map files */
+	private static HashMap<List<String>, SimMap> maps;
+	/** parsed points by file path */
+	private static HashMap<String, List<Coord>> points;
+	/** points converted to map coordinates, by map and file path */
+	private static IdentityHashMap<SimMap, HashMap<String, List<Coord>>>
+		mapPoints;
+
+	static {
+		DTNSim.registerForReset(GeometryCache.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Clears the cache
+	 */
+	public static void reset() {
+		maps = new HashMap<List<String>, SimMap>();
+		points = new HashMap<String, List<Coord>>();
+		mapPoints = new IdentityHashMap<SimMap,
+			HashMap<String, List<Coord>>>();
+	}
+
+	/**
+	 * Returns a cached map
+	 * @param mapFiles The map files of the map (in node type order)
+	 * @return The map or null if no such map is cached
+	 */
+	public static SimMap getMap(List<String> mapFiles) {
+		return maps.get(mapFiles);
+	}
+
+	/**
+	 * Adds a map to the cache
+	 * @param mapFiles The map files of the map (in node type order)
+	 * @param map The map read from the files
+	 */
+	public static void putMap(List<String> mapFiles, SimMap map) {
+		maps.put(new ArrayList<String>(mapFiles), map);
+	}
+
+	/**
+	 * Returns the points of a WKT file
+	 * @param file Path of the WKT file
+	 * @return A new list of the points in the file
+	 * @throws IOException if the file couldn't be read
+	 */
+	public static List<Coord> getPoints(String file) throws IOException {
+		List<Coord> cached = points.get(file);
+		if (cached == null) {
+			cached = (new WKTReader()).readPoints(new File(file));
+			points.put(file, cached);
+		}
+		return copyOf(cached);
+	}
+
+	/**
+	 * Returns the points of a WKT file converted to the coordinates of a
+	 * map, i.e., mirrored if the map data is mirrored and translated by the
+	 * map's offset
+	 * @param file Path of the WKT file
+	 * @param map The map
+	 * @return A new list of the converted points
+	 * @throws IOException if the file couldn't be read
+	 */
+	public static List<Coord> getMapPoints(String file, SimMap map)
+		throws IOException {
+		HashMap<String, List<Coord>> ofMap = mapPoints.get(map);
+		if (ofMap == null) {
+			ofMap = new HashMap<String, List<Coord>>();
+			mapPoints.put(map, ofMap);
+		}
+
+		List<Coord> cached = ofMap.get(file);
+		if (cached == null) {
+			cached = getPoints(file);
+			Coord offset = map.getOffset();
+			for (Coord coord : cached) {
+				// mirror points if map data is mirrored
+				if (map.isMirrored()) {
+					coord.setLocation(coord.getX(), -coord.getY());
+				}
+				coord.translate(offset.getX(), offset.getY());
+			}
+			ofMap.put(file, cached);
+		}
+		return copyOf(cached);
+	}
+
+	/**
+	 * Returns a deep copy of a list of coordinates
+	 */
+	private static List<Coord> copyOf(List<Coord> coords) {
+		List<Coord> copy = new ArrayList<Coord>(coords.size());
+		for (Coord c : coords) {
+			copy.add(c.clone());
+		}
+		return copy;
+	}
+}
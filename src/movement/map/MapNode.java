@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Vector;
 
 import core.Coord;
+import core.DTNSim;
 import core.SettingsError;
 
 /**
@@ -20,11 +21,21 @@ public class MapNode implements Comparable<MapNode> {
 	/** Biggest valid type of a node: {@value} */
 	public static final int MAX_TYPE = 31;
 
+	/** id of the next created node */
+	private static int nextId;
+
+	static {
+		DTNSim.registerForReset(MapNode.class.getCanonicalName());
+		reset();
+	}
 
 	private Coord location;
 	private Vector<MapNode> neighbors;
+	/** the neighbors in an array or null if not created yet */
+	private MapNode[] neighborArray;
 	// bit mask of map node's types or 0 if no type's are defined
 	private int type;
+	private final int id;
 
 	/**
 	 * Constructor. Creates a map node to a location.
@@ -34,6 +45,24 @@ public class MapNode implements Comparable<MapNode> {
 		this.location = location;
 		this.neighbors = new Vector<MapNode>();
 		type = 0;
+		this.id = nextId++;
+	}
+
+	/**
+	 * Resets the node id counter
+	 */
+	public static void reset() {
+		nextId = 0;
+	}
+
+	/**
+	 * Returns the id of the node. Nodes get consecutive ids (starting
+	 * from 0) in their creation order, so the ids can be used as array
+	 * indexes, e.g., by path finders.
+	 * @return The id of the node
+	 */
+	public int getId() {
+		return this.id;
 	}
 
 	/**
@@ -108,6 +137,7 @@ public class MapNode implements Comparable<MapNode> {
 	private void addToList(MapNode node) {
 		if (!this.neighbors.contains(node) && node != this) {
 			this.neighbors.add(node);
+			this.neighborArray = null;
 		}
 	}
 
@@ -127,6 +157,19 @@ public class MapNode implements Comparable<MapNode> {
 		return neighbors;
 	}
 
+	/**
+	 * Returns the neighbors of this node in an array. The array must not be
+	 * modified.
+	 * @return the neighbors in an array (in the same order as in the list
+	 * returned by {@link #getNeighbors()})
+	 */
+	public MapNode[] getNeighborArray() {
+		if (neighborArray == null) {
+			neighborArray = neighbors.toArray(new MapNode[neighbors.size()]);
+		}
+		return neighborArray;
+	}
+
 	/**
 	 * Returns a String representation of the map node
 	 * @return a String representation of the map node
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import core.Coord;
+import core.DTNSim;
+import core.Settings;
+import core.SettingsError;
+
+/**
+ * <P>Scenario wide cache of shortest paths between map nodes. Paths are
+ * cached by their source and destination nodes and the kind of path finder
+ * (OK map node types and whether A* heuristic is used) that found them, so
+ * all the movement model replicas of all node groups share the paths. When
+ * the cache is full, the least recently used path is dropped.</P>
+ *
+ * <P>Movement models that move between fixed points of interest (e.g.,
+ * class rooms, tables or stations) can register them with
+ * {@link #addPointsOfInterest(DijkstraPathFinder, Collection)}. If
+ * precomputing is enabled, the paths between all registered points are
+ * found already when they are registered.</P>
+ *
+ * <P>The paths are shared, so they must not be modified.</P>
+ */
+public class RouteCache {
+	/** route cache settings namespace ({@value}) */
+	public static final String ROUTE_CACHE_NS = "RouteCache";
+	/** maximum number of cached paths -setting id ({@value}). Zero disables
+	 * caching. Default is {@link #DEF_SIZE}. */
+	public static final String SIZE_S = "size";
+	/** precompute paths between points of interest -setting id
+	 * ({@value}). Boolean. Default is false. */
+	public static final String PRECOMPUTE_S = "precompute";
+	/** default maximum number of cached paths ({@value}) */
+	public static final int DEF_SIZE = 5000;
+
+	/** the cache of the current scenario or null if not created yet */
+	private static RouteCache cache;
+
+	static {
+		DTNSim.registerForReset(RouteCache.class.getCanonicalName());
+		reset();
+	}
+
+	private final int maxSize;
+	private final boolean precompute;
+	private final LinkedHashMap<RouteKey, List<MapNode>> routes;
+	/** registered points of interest by path finder kind */
+	private final HashMap<Long, Set<MapNode>> pois;
+	/** number of paths found from / not found from the cache */
+	private long hits;
+	private long misses;
+
+	/**
+	 * Creates a new route cache
+	 * @param maxSize Maximum number of cached paths (0 = no caching)
+	 * @param precompute If true, paths between points of interest are
+	 * found when the points are registered
+	 */
+	public RouteCache(final int maxSize, boolean precompute) {
+		this.maxSize = maxSize;
+		this.precompute = precompute;
+		this.pois = new HashMap<Long, Set<MapNode>>();
+		this.routes = new LinkedHashMap<RouteKey, List<MapNode>>(16, 0.75f,
+				true) {
+			protected boolean removeEldestEntry(
+					Map.Entry<RouteKey, List<MapNode>> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Clears the cache of the scenario
+	 */
+	public static void reset() {
+		cache = null;
+	}
+
+	/**
+	 * Returns the route cache of the scenario. The cache is created using
+	 * the settings of the {@value #ROUTE_CACHE_NS} namespace when this
+	 * method is called the first time.
+	 * @return The route cache
+	 */
+	public static RouteCache getInstance() {
+		if (cache == null) {
+			Settings s = new Settings(ROUTE_CACHE_NS);
+			int size = s.getInt(SIZE_S, DEF_SIZE);
+			if (size < 0) {
+				throw new SettingsError("Negative value for " +
+						s.getFullPropertyName(SIZE_S));
+			}
+			cache = new RouteCache(size, s.getBoolean(PRECOMPUTE_S, false));
+		}
+		return cache;
+	}
+
+	/**
+	 * Returns true if the route cache of the scenario has been created,
+	 * i.e., some movement model has used it
+	 * @return true if the cache exists
+	 */
+	public static boolean isCreated() {
+		return cache != null;
+	}
+
+	/**
+	 * Returns a shortest path between two map nodes from the cache or finds
+	 * it using the path finder and caches it
+	 * @param finder The path finder to use if the path isn't cached
+	 * @param from The source of the path
+	 * @param to The destination of the path
+	 * @return The path as returned by
+	 * {@link DijkstraPathFinder#getShortestPath(MapNode, MapNode)}
+	 */
+	public List<MapNode> getShortestPath(DijkstraPathFinder finder,
+			MapNode from, MapNode to) {
+		if (maxSize == 0) {
+			return finder.getShortestPath(from, to);
+		}
+
+		RouteKey key = new RouteKey(from, to, getKind(finder));
+		List<MapNode> path = routes.get(key);
+		if (path != null) {
+			hits++;
+			return path;
+		}
+
+		misses++;
+		path = Collections.unmodifiableList(new ArrayList<MapNode>(
+				finder.getShortestPath(from, to)));
+		routes.put(key, path);
+		return path;
+	}
+
+	/**
+	 * Registers points of interest that are frequently used as sources or
+	 * destinations of paths. If precomputing is enabled, the paths between
+	 * all points registered for the same kind of path finders are added to
+	 * the cache.
+	 * @param finder The path finder used for the paths
+	 * @param locations Locations of the points of interest. Locations that
+	 * aren't map nodes are ignored.
+	 * @param map The map whose nodes the points are
+	 */
+	public void addPointsOfInterest(DijkstraPathFinder finder,
+			Collection<Coord> locations, SimMap map) {
+		List<MapNode> nodes = new ArrayList<MapNode>();
+		for (Coord c : locations) {
+			MapNode node = map.getNodeByCoord(c);
+			if (node != null) {
+				nodes.add(node);
+			}
+		}
+		addPointsOfInterest(finder, nodes);
+	}
+
+	/**
+	 * Registers points of interest that are frequently used as sources or
+	 * destinations of paths. If precomputing is enabled, the paths between
+	 * all points registered for the same kind of path finders are added to
+	 * the cache.
+	 * @param finder The path finder used for the paths
+	 * @param nodes The points of interest
+	 */
+	public void addPointsOfInterest(DijkstraPathFinder finder,
+			Collection<MapNode> nodes) {
+		long kind = getKind(finder);
+		Set<MapNode> registered = pois.get(kind);
+		if (registered == null) {
+			registered = new LinkedHashSet<MapNode>();
+			pois.put(kind, registered);
+		}
+
+		Set<MapNode> added = new LinkedHashSet<MapNode>();
+		for (MapNode node : nodes) {
+			if (registered.add(node)) {
+				added.add(node);
+			}
+		}
+
+		if (!precompute || maxSize == 0 || added.isEmpty()) {
+			return;
+		}
+
+		/* paths from the new points to all points and from the old points
+		 * to the new ones */
+		for (MapNode from : registered) {
+			Collection<MapNode> targets = added.contains(from) ?
+					registered : added;
+			if (finder.isUsingHeuristic()) {
+				for (MapNode to : targets) {
+					getShortestPath(finder, from, to);
+				}
+				continue;
+			}
+
+			Map<MapNode, List<MapNode>> paths =
+				finder.getShortestPaths(from, targets);
+			for (MapNode to : targets) {
+				List<MapNode> path = paths.get(to);
+				if (path == null) { // unreachable -> cache the empty path
+					path = new ArrayList<MapNode>();
+				}
+				routes.put(new RouteKey(from, to, kind),
+						Collections.unmodifiableList(
+								new ArrayList<MapNode>(path)));
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of paths found from the cache
+	 * @return the number of cache hits
+	 */
+	public long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of paths that weren't in the cache
+	 * @return the number of cache misses
+	 */
+	public long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Returns the number of cached paths
+	 * @return the number of cached paths
+	 */
+	public int size() {
+		return this.routes.size();
+	}
+
+	/**
+	 * Returns a value that identifies the kind of paths a path finder finds
+	 * (ok map node types and usage of heuristic)
+	 * @param finder The path finder
+	 * @return The kind of the path finder
+	 */
+	private static long getKind(DijkstraPathFinder finder) {
+		long kind;
+		int[] okTypes = finder.getOkMapNodes();
+		if (okTypes == null) {
+			kind = 1L << 32; // all types are OK
+		} else {
+			kind = 0;
+			for (int type : okTypes) {
+				kind |= 1L << type;
+			}
+		}
+		if (finder.isUsingHeuristic()) {
+			kind |= 1L << 33;
+		}
+		return kind;
+	}
+
+	/**
+	 * Key of a cached path
+	 */
+	private static class RouteKey {
+		private final MapNode from;
+		private final MapNode to;
+		private final long kind;
+
+		public RouteKey(MapNode from, MapNode to, long kind) {
+			this.from = from;
+			this.to = to;
+			this.kind = kind;
+		}
+
+		@Override
+		public int hashCode() {
+			return (from.getId() * 31 + to.getId()) * 31 +
+				(int)(kind ^ (kind >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof RouteKey)) {
+				return false;
+			}
+			RouteKey other = (RouteKey)o;
+			return from == other.from && to == other.to &&
+				kind == other.kind;
+		}
+	}
+}
@@ -37,6 +37,25 @@ public class SimMap implements Serializable {
 		setBounds();
 	}
 
+	/**
+	 * Constructor for maps whose node order and bounds are already known
+	 * (e.g., maps read from a compiled map file)
+	 * @param nodes The map nodes in the order they are returned by
+	 * {@link #getNodes()}
+	 * @param nodesMap The same nodes hashed by their location
+	 * @param minBound The upper left corner coordinate of the map
+	 * @param maxBound The lower right corner coordinate of the map
+	 */
+	public SimMap(List<MapNode> nodes, Map<Coord, MapNode> nodesMap,
+			Coord minBound, Coord maxBound) {
+		this.offset = new Coord(0,0);
+		this.nodes = new ArrayList<MapNode>(nodes);
+		this.nodesMap = nodesMap;
+		this.isMirrored = false;
+		this.minBound = minBound;
+		this.maxBound = maxBound;
+	}
+
 	/**
 	 * Returns all the map nodes in a list
 	 * @return all the map nodes in a list
@@ -57,6 +76,7 @@ public class SimMap implements Serializable {
 			for (MapNode node : getNodes()) {
 				nodesMap.put(node.getLocation(), node); // re-hash
 			}
+			needsRehash = false;
 		}
 
 		return nodesMap.get(c);
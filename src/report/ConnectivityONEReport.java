@@ -6,13 +6,23 @@ package report;
 
 import core.ConnectionListener;
 import core.DTNHost;
+import report.util.BinaryReportReader;
+import report.util.BinaryReportWriter;
+import report.util.ReportSchema;
+import report.util.RowFormatter;
 
 /**
  * Link connectivity report generator for ONE StandardEventsReader input.
  * Connections that start during the warm up period are ignored.
+ * Supports the binary output format (see {@link Report#OUTPUT_FORMAT_S}).
  */
 public class ConnectivityONEReport extends Report
 	implements ConnectionListener {
+	/* columns of the binary output */
+	private static final int TIME_COL = 0;
+	private static final int HOST1_COL = 1;
+	private static final int HOST2_COL = 2;
+	private static final int UP_COL = 3;
 
 	/**
 	 * Constructor.
@@ -27,6 +37,10 @@ public class ConnectivityONEReport extends Report
 			return;
 		}
 		newEvent();
+		if (isBinaryOutput()) {
+			writeRow(h1, h2, true);
+			return;
+		}
 		write(createTimeStamp() + " CONN " + connectionString(h1, h2) + " up");
 	}
 
@@ -38,9 +52,35 @@ public class ConnectivityONEReport extends Report
 			return;
 		}
 
+		if (isBinaryOutput()) {
+			writeRow(h1, h2, false);
+			return;
+		}
 		write(createTimeStamp() + " CONN " + conString + " down");
 	}
 
+	@Override
+	protected ReportSchema getBinarySchema() {
+		return new ReportSchema(TextLayout.class.getName())
+			.addDouble("time").addInt("host1").addInt("host2").addInt("up");
+	}
+
+	/**
+	 * Writes a connection event to the binary output. The node with the
+	 * lower network address is the first host.
+	 * @param h1 The other node of the connection
+	 * @param h2 The other node of the connection
+	 * @param up True if the connection went up, false if down
+	 */
+	private void writeRow(DTNHost h1, DTNHost h2, boolean up) {
+		BinaryReportWriter bw = getBinaryOutput();
+		bw.setDouble(TIME_COL, getSimTime());
+		bw.setInt(HOST1_COL, Math.min(h1.getAddress(), h2.getAddress()));
+		bw.setInt(HOST2_COL, Math.max(h1.getAddress(), h2.getAddress()));
+		bw.setInt(UP_COL, up ? 1 : 0);
+		endRow();
+	}
+
 	/**
 	 * Creates and returns a "@" prefixed time stamp of the current simulation
 	 * time
@@ -66,4 +106,18 @@ public class ConnectivityONEReport extends Report
 		}
 	}
 
+	/**
+	 * Converts the rows of the binary output to the text layout
+	 */
+	public static class TextLayout implements RowFormatter {
+		public String getHeader(BinaryReportReader r) {
+			return null;
+		}
+
+		public String format(BinaryReportReader r) {
+			return String.format("%.2f", r.getDouble(TIME_COL)) + " CONN " +
+				r.getInt(HOST1_COL) + " " + r.getInt(HOST2_COL) +
+				(r.getInt(UP_COL) != 0 ? " up" : " down");
+		}
+	}
 }
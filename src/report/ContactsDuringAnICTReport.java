@@ -11,6 +11,7 @@ import java.util.List;
 import core.ConnectionListener;
 import core.DTNHost;
 import core.UpdateListener;
+import report.util.ContactGraph;
 
 /**
  * The number of contacts during an inter-contact time metric is similar to
@@ -21,13 +22,26 @@ import core.UpdateListener;
  * inter-contact both nodes wait the exact same time but will meet a different
  * number of nodes.
  *
+ * <p>Each node has a running count of its contacts. When two nodes
+ * disconnect, both nodes' counts are stored in a sparse
+ * {@link ContactGraph}, and the number of contacts during the inter-contact
+ * is the difference of the counts when the nodes meet again. This way the
+ * memory use follows the number of distinct node pairs that have met, and
+ * a contact doesn't have to update all the inter-contacts of the nodes.</p>
+ *
  * @author Frans Ekman
  */
 public class ContactsDuringAnICTReport extends Report
 	implements ConnectionListener, UpdateListener {
 
-	private boolean[][] areDisconnected;
-	private int[][] contactCount;
+	/** Value of an edge of {@link #disconnectedAt} for connected nodes */
+	private static final int CONNECTED = -1;
+
+	/** Contact counts of the nodes when they were disconnected from the
+	 * other nodes (or {@link #CONNECTED}) */
+	private ContactGraph disconnectedAt;
+	/** Number of contacts of each node */
+	private int[] contactCount;
 	private LinkedList<Integer> contactsDuringIC;
 
 	private boolean updateHasBeenCalled;
@@ -51,41 +65,35 @@ public class ContactsDuringAnICTReport extends Report
 		}
 		int id1 = host1.getAddress();
 		int id2 = host2.getAddress();
-		if (areDisconnected[id1][id2]) {
-			areDisconnected[id1][id2] = false;
-			areDisconnected[id2][id1] = false;
-			contactsDuringIC.add(new Integer(contactCount[id1][id2]));
-			contactsDuringIC.add(new Integer(contactCount[id2][id1]));
-			contactCount[id1][id2] = 0;
-			contactCount[id2][id1] = 0;
+		int since1 = disconnectedAt.get(id1, id2, CONNECTED);
+		if (since1 != CONNECTED) {
+			int since2 = disconnectedAt.get(id2, id1, CONNECTED);
+			disconnectedAt.put(id1, id2, CONNECTED);
+			disconnectedAt.put(id2, id1, CONNECTED);
+			contactsDuringIC.add(new Integer(contactCount[id1] - since1));
+			contactsDuringIC.add(new Integer(contactCount[id2] - since2));
 		}
 
-		incContactForAllDisconnectedNodes(host1);
-		incContactForAllDisconnectedNodes(host2);
-
-	}
-
-	private void incContactForAllDisconnectedNodes(DTNHost host) {
-		int id = host.getAddress();
-		for (int i=0; i<contactCount[id].length; i++) {
-			if (areDisconnected[id][i]) {
-				contactCount[id][i]++;
-			}
-		}
+		contactCount[id1]++;
+		contactCount[id2]++;
 	}
 
 	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
 		if (!updateHasBeenCalled) {
 			return;
 		}
-		areDisconnected[host1.getAddress()][host2.getAddress()] = true;
-		areDisconnected[host2.getAddress()][host1.getAddress()] = true;
+		int id1 = host1.getAddress();
+		int id2 = host2.getAddress();
+		if (disconnectedAt.get(id1, id2, CONNECTED) == CONNECTED) {
+			disconnectedAt.put(id1, id2, contactCount[id1]);
+			disconnectedAt.put(id2, id1, contactCount[id2]);
+		}
 	}
 
 	public void updated(List<DTNHost> hosts) {
-		if (areDisconnected == null || contactCount == null) {
-			areDisconnected = new boolean[hosts.size()][hosts.size()];
-			contactCount = new int[hosts.size()][hosts.size()];
+		if (disconnectedAt == null || contactCount == null) {
+			disconnectedAt = new ContactGraph(hosts.size());
+			contactCount = new int[hosts.size()];
 		}
 		updateHasBeenCalled = true;
 	}
@@ -4,19 +4,39 @@
  */
 package report;
 
+import core.Coord;
 import core.DTNHost;
+import core.EventBus;
+import core.EventSubscriber;
 import core.Message;
 import core.MessageListener;
+import report.util.BinaryReportReader;
+import report.util.BinaryReportWriter;
+import report.util.DoubleFormatter;
+import report.util.ReportSchema;
+import report.util.RowFormatter;
 
 /**
  * Reports delivered messages
  * report csv:
+ * Supports the binary output format (see {@link Report#OUTPUT_FORMAT_S}).
  */
-public class CovidTransmissionReport extends Report implements MessageListener {
+public class CovidTransmissionReport extends Report implements MessageListener,
+        EventSubscriber {
     public static final String HEADER =
             "message_id|from|to|creation_time|host_location|section|distance";
     /** all message delays */
 
+    /* columns of the binary output */
+    private static final int ID_COL = 0;
+    private static final int FROM_COL = 1;
+    private static final int TO_COL = 2;
+    private static final int TIME_COL = 3;
+    private static final int X_COL = 4;
+    private static final int Y_COL = 5;
+    private static final int SECTION_COL = 6;
+    private static final int DISTANCE_COL = 7;
+
     /**
      * Constructor.
      */
@@ -27,10 +47,49 @@ public class CovidTransmissionReport extends Report implements MessageListener {
     @Override
     public void init() {
         super.init();
-        write(HEADER);
+        if (!isBinaryOutput()) {
+            write(HEADER);
+        }
+    }
+
+    @Override
+    protected ReportSchema getBinarySchema() {
+        return new ReportSchema(TextLayout.class.getName())
+                .addString("message_id").addString("from").addString("to")
+                .addDouble("creation_time").addDouble("x").addDouble("y")
+                .addString("section").addDouble("distance");
+    }
+
+    /**
+     * Writes a row to the binary output
+     * @param m The message
+     * @param from Name of the sending host or null for new messages
+     * @param to Name of the receiving host (creator for new messages)
+     * @param location Location of the sending (or creating) host
+     * @param section Name of the specific location
+     * @param distance Distance between the message's source and
+     * destination (NaN for new messages)
+     */
+    private void writeRow(Message m, String from, String to, Coord location,
+                          String section, double distance) {
+        BinaryReportWriter bw = getBinaryOutput();
+        bw.setString(ID_COL, m.getId());
+        bw.setString(FROM_COL, from);
+        bw.setString(TO_COL, to);
+        bw.setDouble(TIME_COL, getSimTime());
+        bw.setDouble(X_COL, location.getX());
+        bw.setDouble(Y_COL, location.getY());
+        bw.setString(SECTION_COL, section);
+        bw.setDouble(DISTANCE_COL, distance);
+        endRow();
     }
 
     public void newMessage(Message m) {
+        if (isBinaryOutput()) {
+            writeRow(m, null, m.getFrom().toString(), m.getFrom().getLocation(),
+                    m.getFrom().getSpecificLocationName(), Double.NaN);
+            return;
+        }
         String event_string = m.getId() + "|"
                 + "|"
                 + m.getFrom().toString() + "|"
@@ -42,6 +101,12 @@ public class CovidTransmissionReport extends Report implements MessageListener {
 
     public void messageTransferred(Message m, DTNHost from, DTNHost to,
                                    boolean finalTarget) {
+        if (isBinaryOutput()) {
+            writeRow(m, from.toString(), to.toString(), from.getLocation(),
+                    to.getSpecificLocationName(),
+                    m.getFrom().getLocation().distance(m.getTo().getLocation()));
+            return;
+        }
         String event_string = m.getId() + "|"
                 + from.toString() + "|"
                 + to.toString() + "|"
@@ -49,7 +114,6 @@ public class CovidTransmissionReport extends Report implements MessageListener {
                 + from.getLocation() + "|"
                 + to.getSpecificLocationName() + "|"
                 + m.getFrom().getLocation().distance(m.getTo().getLocation());
-        System.out.println(event_string);
         write(event_string);
     }
 
@@ -63,4 +127,34 @@ public class CovidTransmissionReport extends Report implements MessageListener {
     public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
     public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
 
+    public int getEventTypes() {
+        return EventBus.MESSAGE_CREATED | EventBus.MESSAGE_TRANSFERRED;
+    }
+
+    /**
+     * Converts the rows of the binary output to the text layout. Rows
+     * without a sending host are new messages.
+     */
+    public static class TextLayout implements RowFormatter {
+        private DoubleFormatter formatter;
+
+        public String getHeader(BinaryReportReader r) {
+            return HEADER;
+        }
+
+        public String format(BinaryReportReader r) {
+            if (formatter == null) {
+                formatter = new DoubleFormatter(Integer.parseInt(
+                        r.getSchema().getProperty(PRECISION_SETTING)));
+            }
+            String from = r.getString(FROM_COL);
+            return r.getString(ID_COL) + "|"
+                    + (from != null ? from : "") + "|"
+                    + r.getString(TO_COL) + "|"
+                    + formatter.format(r.getDouble(TIME_COL)) + "|"
+                    + new Coord(r.getDouble(X_COL), r.getDouble(Y_COL)) + "|"
+                    + r.getString(SECTION_COL) + "|"
+                    + (from != null ? r.getDouble(DISTANCE_COL) : "");
+        }
+    }
 }
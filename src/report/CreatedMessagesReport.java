@@ -5,6 +5,8 @@
 package report;
 
 import core.DTNHost;
+import core.EventBus;
+import core.EventSubscriber;
 import core.Message;
 import core.MessageListener;
 
@@ -13,7 +15,8 @@ import core.MessageListener;
  * the warm up period are ignored.
  * For output syntax, see {@link #HEADER}.
  */
-public class CreatedMessagesReport extends Report implements MessageListener {
+public class CreatedMessagesReport extends Report implements MessageListener,
+	EventSubscriber {
 	public static String HEADER = "# time  ID  size  fromHost  toHost  TTL  " +
 		"isResponse";
 
@@ -49,6 +52,10 @@ public class CreatedMessagesReport extends Report implements MessageListener {
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
 
+	public int getEventTypes() {
+		return EventBus.MESSAGE_CREATED;
+	}
+
 	@Override
 	public void done() {
 		super.done();
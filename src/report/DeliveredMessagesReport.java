@@ -7,18 +7,39 @@ package report;
 import java.util.List;
 
 import core.DTNHost;
+import core.EventBus;
+import core.EventSubscriber;
 import core.Message;
 import core.MessageListener;
+import report.util.BinaryReportReader;
+import report.util.BinaryReportWriter;
+import report.util.DoubleFormatter;
+import report.util.ReportSchema;
+import report.util.RowFormatter;
 
 /**
  * Report information about all delivered messages. Messages created during
  * the warm up period are ignored.
- * For output syntax, see {@link #HEADER}.
+ * For output syntax, see {@link #HEADER}. Supports the binary output
+ * format (see {@link Report#OUTPUT_FORMAT_S}).
  */
-public class DeliveredMessagesReport extends Report implements MessageListener {
+public class DeliveredMessagesReport extends Report implements MessageListener,
+	EventSubscriber {
 	public static String HEADER = "# time  ID  size  hopcount  deliveryTime  " +
 		"fromHost  toHost  remainingTtl  isResponse  path";
 
+	/* columns of the binary output */
+	private static final int TIME_COL = 0;
+	private static final int ID_COL = 1;
+	private static final int SIZE_COL = 2;
+	private static final int HOPS_COL = 3;
+	private static final int DELAY_COL = 4;
+	private static final int FROM_COL = 5;
+	private static final int TO_COL = 6;
+	private static final int TTL_COL = 7;
+	private static final int RESPONSE_COL = 8;
+	private static final int PATH_COL = 9;
+
 	/**
 	 * Constructor.
 	 */
@@ -29,7 +50,18 @@ public class DeliveredMessagesReport extends Report implements MessageListener {
 	@Override
 	public void init() {
 		super.init();
-		write(HEADER);
+		if (!isBinaryOutput()) {
+			write(HEADER);
+		}
+	}
+
+	@Override
+	protected ReportSchema getBinarySchema() {
+		return new ReportSchema(TextLayout.class.getName())
+			.addDouble("time").addString("id").addInt("size")
+			.addInt("hopcount").addDouble("deliveryTime")
+			.addString("fromHost").addString("toHost")
+			.addInt("remainingTtl").addInt("isResponse").addString("path");
 	}
 
 	/**
@@ -52,6 +84,21 @@ public class DeliveredMessagesReport extends Report implements MessageListener {
 			boolean firstDelivery) {
 		if (!isWarmupID(m.getId()) && firstDelivery) {
 			int ttl = m.getTtl();
+			if (isBinaryOutput()) {
+				BinaryReportWriter bw = getBinaryOutput();
+				bw.setDouble(TIME_COL, getSimTime());
+				bw.setString(ID_COL, m.getId());
+				bw.setInt(SIZE_COL, m.getSize());
+				bw.setInt(HOPS_COL, m.getHopCount());
+				bw.setDouble(DELAY_COL, getSimTime() - m.getCreationTime());
+				bw.setString(FROM_COL, String.valueOf(m.getFrom()));
+				bw.setString(TO_COL, String.valueOf(m.getTo()));
+				bw.setInt(TTL_COL, ttl);
+				bw.setInt(RESPONSE_COL, m.isResponse() ? 1 : 0);
+				bw.setString(PATH_COL, getPathString(m));
+				endRow();
+				return;
+			}
 			write(format(getSimTime()) + " " + m.getId() + " " +
 					m.getSize() + " " + m.getHopCount() + " " +
 					format(getSimTime() - m.getCreationTime()) + " " +
@@ -72,8 +119,39 @@ public class DeliveredMessagesReport extends Report implements MessageListener {
 	public void messageTransferAborted(Message m, DTNHost from, DTNHost to) {}
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
 
+	public int getEventTypes() {
+		return EventBus.MESSAGE_CREATED | EventBus.MESSAGE_TRANSFERRED;
+	}
+
 	@Override
 	public void done() {
 		super.done();
 	}
+
+	/**
+	 * Converts the rows of the binary output to the text layout
+	 */
+	public static class TextLayout implements RowFormatter {
+		private DoubleFormatter formatter;
+
+		public String getHeader(BinaryReportReader r) {
+			return HEADER;
+		}
+
+		public String format(BinaryReportReader r) {
+			if (formatter == null) {
+				formatter = new DoubleFormatter(Integer.parseInt(
+					r.getSchema().getProperty(PRECISION_SETTING)));
+			}
+			int ttl = r.getInt(TTL_COL);
+			return formatter.format(r.getDouble(TIME_COL)) + " " +
+				r.getString(ID_COL) + " " + r.getInt(SIZE_COL) + " " +
+				r.getInt(HOPS_COL) + " " +
+				formatter.format(r.getDouble(DELAY_COL)) + " " +
+				r.getString(FROM_COL) + " " + r.getString(TO_COL) + " " +
+				(ttl != Integer.MAX_VALUE ? ttl : "n/a") +
+				(r.getInt(RESPONSE_COL) != 0 ? " Y " : " N ") +
+				r.getString(PATH_COL);
+		}
+	}
 }
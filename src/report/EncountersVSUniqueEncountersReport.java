@@ -9,6 +9,7 @@ import java.util.List;
 import core.ConnectionListener;
 import core.DTNHost;
 import core.UpdateListener;
+import report.util.ContactGraph;
 
 /**
  * The total- vs. the unique encounters for each node
@@ -44,20 +45,14 @@ public class EncountersVSUniqueEncountersReport extends Report
 	@Override
 	public void done() {
 		int[] totalEncounters = totalEncountersReport.getEncounters();
-		int[][] nodeRelationships = uniqueEncountersReport.getNodeRelationships();
+		ContactGraph nodeRelationships =
+			uniqueEncountersReport.getNodeRelationships();
 
 		for (int i=0; i<totalEncounters.length; i++) {
 			String row = "";
 			row += i + "\t";
 			row += totalEncounters[i] + "\t";
-
-			int count = 0;
-			for (int j=0; j<nodeRelationships.length; j++) {
-				if (nodeRelationships[i][j] > 0) {
-					count++;
-				}
-			}
-			row += count;
+			row += nodeRelationships.getDegree(i);
 			write(row);
 		}
 
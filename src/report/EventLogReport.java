@@ -9,13 +9,18 @@ import core.DTNHost;
 import core.Message;
 import core.MessageListener;
 import input.StandardEventsReader;
+import report.util.BinaryReportReader;
+import report.util.BinaryReportWriter;
+import report.util.ReportSchema;
+import report.util.RowFormatter;
 
 /**
  * Report that creates same output as the GUI's event log panel but formatted
  * like {@link input.StandardEventsReader} input. Message relying event has
  * extra one-letter identifier to tell whether that message was delivered to
  * final destination, delivered there again, or just normally relayed
- * (see the public constants).
+ * (see the public constants). Supports the binary output format
+ * (see {@link Report#OUTPUT_FORMAT_S}).
  */
 public class EventLogReport extends Report
 	implements ConnectionListener, MessageListener {
@@ -27,6 +32,21 @@ public class EventLogReport extends Report
 	/** Extra info for message relayed event ("delivered again"): {@value} */
 	public static final String MESSAGE_TRANS_DELIVERED_AGAIN = "A";
 
+	/* columns of the binary output */
+	private static final int TIME_COL = 0;
+	private static final int ACTION_COL = 1;
+	private static final int HOST1_COL = 2;
+	private static final int HOST2_COL = 3;
+	private static final int MESSAGE_COL = 4;
+	private static final int EXTRA_COL = 5;
+
+	@Override
+	protected ReportSchema getBinarySchema() {
+		return new ReportSchema(TextLayout.class.getName())
+			.addDouble("time").addString("action").addString("host1")
+			.addString("host2").addString("message").addString("extra");
+	}
+
 	/**
 	 * Processes a log event by writing a line to the report file
 	 * @param action The action as a string
@@ -37,6 +57,18 @@ public class EventLogReport extends Report
 	 */
 	private void processEvent(final String action, final DTNHost host1,
 			final DTNHost host2, final Message message, final String extra) {
+		if (isBinaryOutput()) {
+			BinaryReportWriter bw = getBinaryOutput();
+			bw.setDouble(TIME_COL, getSimTime());
+			bw.setString(ACTION_COL, action);
+			bw.setString(HOST1_COL, host1 != null ? host1.toString() : null);
+			bw.setString(HOST2_COL, host2 != null ? host2.toString() : null);
+			bw.setString(MESSAGE_COL, message != null ? message.getId() : null);
+			bw.setString(EXTRA_COL, extra);
+			endRow();
+			return;
+		}
+
 		write(getSimTime() + " " + action + " " + (host1 != null ? host1 : "")
 				+ (host2 != null ? (" " + host2) : "")
 				+ (message != null ? " " + message : "")
@@ -85,4 +117,25 @@ public class EventLogReport extends Report
 	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
 		processEvent(StandardEventsReader.SEND, from, to, m, null);
 	}
+
+	/**
+	 * Converts the rows of the binary output to the text layout
+	 */
+	public static class TextLayout implements RowFormatter {
+		public String getHeader(BinaryReportReader r) {
+			return null;
+		}
+
+		public String format(BinaryReportReader r) {
+			String host1 = r.getString(HOST1_COL);
+			String host2 = r.getString(HOST2_COL);
+			String message = r.getString(MESSAGE_COL);
+			String extra = r.getString(EXTRA_COL);
+			return r.getDouble(TIME_COL) + " " + r.getString(ACTION_COL) + " " +
+				(host1 != null ? host1 : "")
+				+ (host2 != null ? (" " + host2) : "")
+				+ (message != null ? " " + message : "")
+				+ (extra != null ? " " + extra : "");
+		}
+	}
 }
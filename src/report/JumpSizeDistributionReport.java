@@ -3,8 +3,10 @@ package report;
 import core.Coord;
 import core.DTNHost;
 import core.Settings;
+import core.SettingsError;
 import core.SimScenario;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -25,6 +27,13 @@ import java.util.List;
  * the sample interval should be in the order of a few hours to get prevent
  * skewing.</p>
  *
+ * <p>By default every jump size is kept until the distribution is written,
+ * because the bucket width depends on the longest jump, so the memory use
+ * grows with the number of hosts and samples. Only if the bucket width is
+ * set ('{@value #BUCKET_WIDTH_SETTING}'), the jumps are counted to fixed
+ * width buckets as they are sampled and the memory use is bounded by the
+ * bucket counts (raw output still keeps every jump).</p>
+ *
  * <p>Output line format is: "jump_length probability sample_count"</p>
  *
  * @author teemuk
@@ -40,6 +49,13 @@ extends SamplingReport {
 	 * root of the sample count.*/
 	public static final String BUCKET_COUNT_SETTING = "bucketCount";
 
+	/** Setting for a fixed bucket width (in meters) of the probability
+	 * density function ({@value}). If set, the jump sizes are counted to the
+	 * buckets while sampling and the bucket count setting is ignored; the
+	 * output has as many buckets as needed for the longest jump. By default
+	 * the width is derived from the longest jump and the bucket count. */
+	public static final String BUCKET_WIDTH_SETTING = "bucketWidth";
+
 	/** Set to {@code true} to output the raw jump sizes instead of the
 	 * distributions ({@value}).*/
 	public static final String RAW_OUTPUT_SETTING = "outputRawData";
@@ -49,10 +65,16 @@ extends SamplingReport {
 	// Instance vars
 	//========================================================================//
 	private final Coord[] previousLocations;
+	/** Jump sizes per host (null if they are counted to fixed buckets) */
 	private final double[][] samples;
 	private final int[] sampleCounts;
 
 	private final int bucketCount;
+	/** Fixed bucket width, or -1 if the width depends on the longest jump */
+	private final double bucketWidth;
+	/** Jump counts of the fixed width buckets */
+	private int[] frequencies;
+	private int totalSamples;
 
 	private final boolean outputRawData;
 	//========================================================================//
@@ -70,8 +92,6 @@ extends SamplingReport {
 		final int numSamples = (int) Math.ceil(simDuration / super.interval);
 
 		this.previousLocations = new Coord[nodeCount];
-		this.samples = new double[nodeCount][numSamples];
-		this.sampleCounts = new int[nodeCount];
 
 		int i = 0;
 		for (final DTNHost host : simScenario.getHosts()) {
@@ -91,6 +111,29 @@ extends SamplingReport {
 				= settings.getInt(BUCKET_COUNT_SETTING, defaultBucketCount);
 
 		this.outputRawData = settings.getBoolean(RAW_OUTPUT_SETTING, false);
+
+		this.bucketWidth = settings.getDouble(BUCKET_WIDTH_SETTING, -1);
+		if (settings.contains(BUCKET_WIDTH_SETTING) && this.bucketWidth <= 0) {
+			throw new SettingsError("Setting '" + BUCKET_WIDTH_SETTING
+					+ "' must be positive. Found " + this.bucketWidth + ".");
+		}
+
+		if (this.bucketWidth > 0 && !this.outputRawData) {
+			this.samples = null;
+		} else {
+			this.samples = new double[nodeCount][];
+		}
+		this.sampleCounts = new int[nodeCount];
+		this.frequencies = new int[0];
+	}
+
+	@Override
+	protected final void init() {
+		super.init();
+
+		Arrays.fill(this.sampleCounts, 0);
+		this.frequencies = new int[0];
+		this.totalSamples = 0;
 	}
 
 	@Override
@@ -107,29 +150,32 @@ extends SamplingReport {
 			return;
 		}
 
-		final double maxJumpLength = maxJump(this.samples, this.sampleCounts);
-		// Extend the range 1% beyond the maximum value so that the max value
-		// falls into the last bucket.
-		final double bucketWidth = (1.01 * maxJumpLength) / this.bucketCount;
-		final int[] frequencies = new int[this.bucketCount];
-
-		int totalSamples = 0;
-		for (int host = 0; host < this.samples.length; host++) {
-			final int sampleCount = this.sampleCounts[host];
-			totalSamples += sampleCount;
-			for (int sample = 0; sample < sampleCount; sample++) {
-				final double jumpLength = this.samples[host][sample];
-				final int bucketIndex = (int) (jumpLength / bucketWidth);
-				frequencies[bucketIndex] += 1;
+		final double width;
+		if (this.samples != null) {
+			final double maxJumpLength
+					= maxJump(this.samples, this.sampleCounts);
+			// Extend the range 1% beyond the maximum value so that the max
+			// value falls into the last bucket.
+			width = (1.01 * maxJumpLength) / this.bucketCount;
+			this.frequencies = new int[this.bucketCount];
+
+			for (int host = 0; host < this.samples.length; host++) {
+				final int sampleCount = this.sampleCounts[host];
+				for (int sample = 0; sample < sampleCount; sample++) {
+					final double jumpLength = this.samples[host][sample];
+					addToBucket(jumpLength, width);
+				}
 			}
+		} else {
+			width = this.bucketWidth;
 		}
 
-		for (int i = 0; i < frequencies.length; i++) {
-			final double jumpLength = (i + 0.5) * bucketWidth;
+		for (int i = 0; i < this.frequencies.length; i++) {
+			final double jumpLength = (i + 0.5) * width;
 			final double density
-					= 1.0 * frequencies[i] / (totalSamples * bucketWidth);
+					= 1.0 * this.frequencies[i] / (this.totalSamples * width);
 			final String densityLine = "" + jumpLength + " " + density + " "
-					+ frequencies[i];
+					+ this.frequencies[i];
 			super.write(densityLine);
 		}
 
@@ -156,9 +202,11 @@ extends SamplingReport {
 					final double jumpSize
 							= currentLocation.distance(previousLocation);
 
-					final int curSample = this.sampleCounts[i];
-					this.samples[i][curSample] = jumpSize;
-					this.sampleCounts[i]++;
+					if (this.samples == null) {
+						addToBucket(jumpSize, this.bucketWidth);
+					} else {
+						addSample(i, jumpSize);
+					}
 				}
 			} else {
 				// Clear previous location for inactive nodes.
@@ -172,6 +220,30 @@ extends SamplingReport {
 	//========================================================================//
 	// Private
 	//========================================================================//
+	private void addSample(final int host, final double jumpSize) {
+		final int curSample = this.sampleCounts[host];
+		double[] hostSamples = this.samples[host];
+		if (hostSamples == null) {
+			hostSamples = new double[16];
+			this.samples[host] = hostSamples;
+		} else if (curSample == hostSamples.length) {
+			hostSamples = Arrays.copyOf(hostSamples, curSample * 2);
+			this.samples[host] = hostSamples;
+		}
+		hostSamples[curSample] = jumpSize;
+		this.sampleCounts[host]++;
+	}
+
+	private void addToBucket(final double jumpSize, final double width) {
+		final int bucketIndex = (int) (jumpSize / width);
+		if (bucketIndex >= this.frequencies.length) {
+			this.frequencies = Arrays.copyOf(this.frequencies,
+					bucketIndex + 1);
+		}
+		this.frequencies[bucketIndex] += 1;
+		this.totalSamples++;
+	}
+
 	private static double maxJump(
 			final double[][] samples,
 			final int[] sampleCounts) {
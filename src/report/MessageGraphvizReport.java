@@ -61,8 +61,8 @@ public class MessageGraphvizReport extends Report implements MessageListener {
 
 		for (Message m : deliveredMessages) {
 			List<DTNHost> path = m.getHops();
-			String pathString = path.remove(0).toString(); // start node
-			pathString += "->" + path.remove(0).toString(); // start node
+			String pathString = path.get(0).toString(); // start node
+			pathString += "->" + path.get(1).toString(); // next node
 			write (pathString + ";");
 		}
 
@@ -4,9 +4,11 @@ import core.Coord;
 import core.DTNHost;
 import core.Settings;
 import core.SettingsError;
+import core.SimError;
 import core.SimScenario;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -18,6 +20,12 @@ import java.util.List;
  * <p>The report can be configured to output a gnuplot script file that
  * produces a heat map graph of the node densities.
  *
+ * <p>The averages are calculated from running per-cell totals, so with
+ * the '{@value #ONLY_AVERAGE_SETTING}' setting the memory use doesn't grow
+ * with the length of the simulation. Otherwise the counts of all the samples
+ * are kept until they are written, i.e., until the end of the simulation
+ * or of the report interval (see {@link SamplingReport}).
+ *
  * @author teemuk
  */
 public class NodeDensityReport
@@ -68,7 +76,13 @@ extends SamplingReport {
 
 	private final boolean onlyAverage;
 	private final String runName;
-	private final List<int[][]> samples;
+	/** Total counts of the samples per cell (index x * yCount + y) */
+	private final long[] totals;
+	/** Number of samples since the last output */
+	private int sampleCount;
+	/** Counts of the samples (index x * yCount + y), null if only the
+	 * average is written */
+	private List<int[]> samples;
 	//========================================================================//
 
 
@@ -108,12 +122,10 @@ extends SamplingReport {
 		this.divisionWidth = 1.0 * worldWidth / this.horizontalCount;
 		this.divisionHeight = 1.0 * worldHeight / this.verticalCount;
 
-		final double duration = scenario.getEndTime();
-		final int sampleCount = (int) (duration / super.interval + 1);
-
-		this.samples = new ArrayList<int[][]>(sampleCount);
+		this.totals = new long[this.horizontalCount * this.verticalCount];
 
 		this.runName = scenario.getName();
+		this.samples = this.onlyAverage ? null : new ArrayList<int[]>();
 	}
 	//========================================================================//
 
@@ -123,17 +135,29 @@ extends SamplingReport {
 	//========================================================================//
 	@Override
 	protected void sample(final List<DTNHost> hosts) {
-		final int[][] sample
-				= new int[this.horizontalCount][this.verticalCount];
+		final int[] sample = this.onlyAverage ? null
+				: new int[this.totals.length];
 
 		for (final DTNHost host : hosts) {
 			final Coord location = host.getLocation();
 			final int xBucket = (int) (location.getX() / this.divisionWidth);
 			final int yBucket = (int) (location.getY() / this.divisionHeight);
-			sample[xBucket][yBucket]++;
+			if (xBucket < 0 || xBucket >= this.horizontalCount
+					|| yBucket < 0 || yBucket >= this.verticalCount) {
+				throw new SimError("Host " + host + " at " + location
+						+ " is outside the density grid");
+			}
+			final int cell = xBucket * this.verticalCount + yBucket;
+			this.totals[cell]++;
+			if (sample != null) {
+				sample[cell]++;
+			}
 		}
 
-		this.samples.add(sample);
+		this.sampleCount++;
+		if (sample != null) {
+			this.samples.add(sample);
+		}
 	}
 	//========================================================================//
 
@@ -141,6 +165,17 @@ extends SamplingReport {
 	//========================================================================//
 	// Report
 	//========================================================================//
+	@Override
+	protected void init() {
+		super.init();
+
+		Arrays.fill(this.totals, 0);
+		this.sampleCount = 0;
+		if (!this.onlyAverage) {
+			this.samples = new ArrayList<int[]>();
+		}
+	}
+
 	@Override
 	public void done() {
 
@@ -148,24 +183,29 @@ extends SamplingReport {
 			this.outputGnuplotPrefix();
 		}
 
-		final double[][] averages = getAverageDensities(this.samples,
-				this.horizontalCount, this.verticalCount);
-
+		final StringBuilder line = new StringBuilder();
 		for (int g_x = 0; g_x < this.horizontalCount; g_x++) {
 			for (int g_y = 0; g_y < this.verticalCount; g_y++) {
-				String line = "" + g_x + " " + g_y + " "
-						+ averages[g_x][g_y];
+				final int cell = g_x * this.verticalCount + g_y;
+				// totals are exact in a double, so this equals the sum of
+				// the sample counts divided by the number of samples
+				final double average
+						= (double) this.totals[cell] / this.sampleCount;
+
+				line.setLength(0);
+				line.append(g_x).append(' ').append(g_y).append(' ')
+						.append(average);
 				if (!this.onlyAverage) {
-					for (final int[][] sample : this.samples) {
-						line += " " + sample[g_x][g_y];
+					for (final int[] sample : this.samples) {
+						line.append(' ').append(sample[cell]);
 					}
 				}
-				super.write(line);
+				super.write(line.toString());
 			}
 		}
 
 		if (this.gnuplot) {
-			this.outputGnuplotSuffix(this.samples.size());
+			this.outputGnuplotSuffix(this.sampleCount);
 		}
 
 		super.done();
@@ -173,37 +213,6 @@ extends SamplingReport {
 	//========================================================================//
 
 
-	//========================================================================//
-	// Private
-	//========================================================================//
-	private static double[][] getAverageDensities(
-			final List<int[][]> samples,
-			final int horizontalCount,
-			final int verticalCount) {
-		final double[][] averages = new double[horizontalCount][verticalCount];
-
-		// Get total count
-		for (final int[][] sample : samples) {
-			for (int g_x = 0; g_x < horizontalCount; g_x++) {
-				for (int g_y = 0; g_y < verticalCount; g_y++) {
-					averages[g_x][g_y] += sample[g_x][g_y];
-				}
-			}
-		}
-
-		// Calculate average
-		final int count = samples.size();
-		for (int g_x = 0; g_x < horizontalCount; g_x++) {
-			for (int g_y = 0; g_y < verticalCount; g_y++) {
-				averages[g_x][g_y] /= count;
-			}
-		}
-
-		return averages;
-	}
-	//========================================================================//
-
-
 	//========================================================================//
 	// Private - Gnuplot
 	//========================================================================//
@@ -4,6 +4,7 @@ import core.Coord;
 import core.DTNHost;
 import core.SimScenario;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -23,6 +24,10 @@ import java.util.List;
  * the center of mass of the samples:
  * r_cm = 1/n * sum_i( r_i ).</p>
  *
+ * <p>The center of mass is calculated from running sums of the coordinates
+ * and the sum of the squared distances from it with Welford's online
+ * algorithm, so the samples themselves are not stored.</p>
+ *
  * <p>The output line format is: "node_id node_name r_cm_x r_cm_y r_g"</p>
  *
  * @author teemuk
@@ -33,8 +38,15 @@ extends SamplingReport {
 	//========================================================================//
 	// Instance vars
 	//========================================================================//
-	private final double[][][] samples;
 	private final int[] sampleCounts;
+	/** Sums of the sampled coordinates (for the center of mass) */
+	private final double[] sumX;
+	private final double[] sumY;
+	/** Running means of the sampled coordinates */
+	private final double[] meanX;
+	private final double[] meanY;
+	/** Running sums of the squared distances from the mean */
+	private final double[] squaredDistances;
 	private final String[] nodeNames;
 	//========================================================================//
 
@@ -47,11 +59,13 @@ extends SamplingReport {
 
 		final SimScenario simScenario = SimScenario.getInstance();
 		final int nodeCount = simScenario.getHosts().size();
-		final double simDuration = simScenario.getEndTime();
-		final int numSamples = (int) Math.ceil(simDuration / super.interval);
 
-		this.samples = new double[nodeCount][numSamples][2];
 		this.sampleCounts = new int[nodeCount];
+		this.sumX = new double[nodeCount];
+		this.sumY = new double[nodeCount];
+		this.meanX = new double[nodeCount];
+		this.meanY = new double[nodeCount];
+		this.squaredDistances = new double[nodeCount];
 		this.nodeNames = new String[nodeCount];
 
 		int i = 0;
@@ -61,25 +75,31 @@ extends SamplingReport {
 		}
 	}
 
+	@Override
+	protected final void init() {
+		super.init();
+
+		Arrays.fill(this.sampleCounts, 0);
+		Arrays.fill(this.sumX, 0);
+		Arrays.fill(this.sumY, 0);
+		Arrays.fill(this.meanX, 0);
+		Arrays.fill(this.meanY, 0);
+		Arrays.fill(this.squaredDistances, 0);
+	}
+
 	@Override
 	public final void done() {
-		final int nodeCount = this.samples.length;
+		final int nodeCount = this.sampleCounts.length;
 
 		for (int i = 0; i < nodeCount; i++) {
-			final double[][] sample = this.samples[i];
 			final int sampleCount = this.sampleCounts[i];
-			final double[] geomCenter = geometricCenter(sample, sampleCount);
+			final double centerX = this.sumX[i] / sampleCount;
+			final double centerY = this.sumY[i] / sampleCount;
 
-			double d_squared = 0;
-			for (int j = 0; j < sampleCount; j++) {
-				final double[] p = sample[j];
-				final double d = distance(geomCenter, p);
-				d_squared += d * d;
-			}
-
-			final double rg = Math.sqrt(1.0 / sampleCount * d_squared);
+			final double rg = Math.sqrt(1.0 / sampleCount
+					* this.squaredDistances[i]);
 			super.write("" + i + " " + this.nodeNames[i] + " "
-					+ geomCenter[0] + " " + geomCenter[1] + " "
+					+ centerX + " " + centerY + " "
 					+ rg);
 		}
 
@@ -99,38 +119,20 @@ extends SamplingReport {
 				final Coord location = host.getLocation();
 				final double x = location.getX();
 				final double y = location.getY();
-				final int curSample = this.sampleCounts[nodeId];
-				final double[] sample = this.samples[nodeId][curSample];
-				sample[0] = x;
-				sample[1] = y;
-				this.sampleCounts[nodeId]++;
+				final int n = ++this.sampleCounts[nodeId];
+
+				this.sumX[nodeId] += x;
+				this.sumY[nodeId] += y;
+
+				// Welford's update of the mean and the squared distances
+				final double dx = x - this.meanX[nodeId];
+				final double dy = y - this.meanY[nodeId];
+				this.meanX[nodeId] += dx / n;
+				this.meanY[nodeId] += dy / n;
+				this.squaredDistances[nodeId] += dx * (x - this.meanX[nodeId])
+						+ dy * (y - this.meanY[nodeId]);
 			}
 		}
 	}
 	//========================================================================//
-
-
-	//========================================================================//
-	// Private
-	//========================================================================//
-	private static double[] geometricCenter(
-			final double[][] samples,
-			final int sampleCount) {
-		double sumX = 0;
-		double sumY = 0;
-		for (int i = 0; i < sampleCount; i++) {
-			sumX += samples[i][0];
-			sumY += samples[i][1];
-		}
-		return new double[] {sumX / sampleCount, sumY / sampleCount};
-	}
-
-	private static double distance(
-			final double[] p1,
-			final double[] p2 ) {
-		final double dx = p2[0] - p1[0];
-		final double dy = p2[1] - p1[1];
-		return Math.sqrt(dx * dx + dy * dy);
-	}
-	//========================================================================//
 }
@@ -5,7 +5,6 @@
 package report;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
@@ -17,7 +16,12 @@ import java.util.Set;
 import core.Settings;
 import core.SimClock;
 import core.SimError;
+import core.SettingsError;
 import core.SimScenario;
+import report.util.BinaryReportWriter;
+import report.util.DoubleFormatter;
+import report.util.ReportSchema;
+import report.util.ReportWriter;
 
 /**
  * Abstract superclass for all reports. All settings defined in this class
@@ -40,6 +44,21 @@ public abstract class Report {
 	public static final String PRECISION_SETTING = "precision";
 	/** Default precision of formatted double values */
 	public static final int DEF_PRECISION = 4;
+	/** Asynchronous output -setting id ({@value}). Boolean. If true, the
+	 * report output is written to the file in a background thread (see
+	 * {@link ReportWriter}). Default is true. */
+	public static final String ASYNC_OUTPUT_S = "asyncOutput";
+	/** Output format -setting id ({@value}). Either {@value #TEXT_FORMAT}
+	 * (default) or {@value #BINARY_FORMAT}. Reports that support the binary
+	 * format (see {@link #getBinarySchema()}) write binary columnar files
+	 * that can be converted to the text layout or CSV with
+	 * {@link report.tools.ReportConverter}. Other reports always write
+	 * text. */
+	public static final String OUTPUT_FORMAT_S = "format";
+	/** Value of the text output format ({@value}) */
+	public static final String TEXT_FORMAT = "text";
+	/** Value of the binary output format ({@value}) */
+	public static final String BINARY_FORMAT = "binary";
 	/** The default output directory of reports (can be overridden per report
 	 * with {@link Report#OUTPUT_SETTING}) -setting id ({@value})*/
 	public static final String REPORTDIR_SETTING = "Report.reportDir";
@@ -51,10 +70,26 @@ public abstract class Report {
 	public static final String WARMUP_S = "warmup";
 	/** Suffix of report files without explicit output */
 	public static final String OUT_SUFFIX = ".txt";
+	/** Suffix of binary report files without explicit output */
+	public static final String BINARY_SUFFIX = ".bin";
 	/** Suffix for reports that are created on n second intervals */
 	public static final String INTERVALLED_FORMAT ="%04d" + OUT_SUFFIX;
+	/** Suffix for binary reports that are created on n second intervals */
+	public static final String BINARY_INTERVALLED_FORMAT ="%04d" +
+		BINARY_SUFFIX;
 	/** The print writer used to write output. See {@link #write(String)} */
 	protected PrintWriter out;
+	/** The buffered writer {@link #out} writes to */
+	private ReportWriter writer;
+	private boolean asyncOutput;
+	private DoubleFormatter formatter;
+	/** Is the binary format requested in the settings */
+	private boolean binaryFormat;
+	/** Schema of the binary output (null if the output is text) */
+	private ReportSchema binarySchema;
+	private boolean schemaResolved;
+	/** The writer of binary output (null if the output is text) */
+	private BinaryReportWriter binaryOut;
 	/** String value for values that could not be calculated */
 	public static final String NAN = "NaN";
 	private String prefix = "";
@@ -66,6 +101,8 @@ public abstract class Report {
 	private double outputInterval;
 	private double lastReportTime;
 	private String outFileName;
+	/** Should the format's suffix be added to {@link #outFileName} */
+	private boolean addSuffix;
 	private String scenarioName;
 
 	/**
@@ -106,6 +143,20 @@ public abstract class Report {
 		else {
 			precision = DEF_PRECISION;
 		}
+		this.formatter = new DoubleFormatter(precision);
+
+		this.asyncOutput = settings.getBoolean(ASYNC_OUTPUT_S, true);
+
+		if (settings.contains(OUTPUT_FORMAT_S)) {
+			String format = settings.getSetting(OUTPUT_FORMAT_S);
+			if (format.equals(BINARY_FORMAT)) {
+				this.binaryFormat = true;
+			} else if (!format.equals(TEXT_FORMAT)) {
+				throw new SettingsError("Unknown report output format '" +
+						format + "'. Valid formats are " + TEXT_FORMAT +
+						" and " + BINARY_FORMAT);
+			}
+		}
 
 		if (settings.contains(OUTPUT_SETTING)) {
 			outFileName = settings.getSetting(OUTPUT_SETTING);
@@ -121,9 +172,8 @@ public abstract class Report {
 			}
 			outFileName = outDir + scenarioName +
 				"_" + this.getClass().getSimpleName();
-			if (outputInterval == -1) {
-				outFileName += OUT_SUFFIX; // no intervalled reports
-			}
+			// no intervalled reports -> suffix is added when output is created
+			addSuffix = (outputInterval == -1);
 
 		}
 
@@ -181,6 +231,10 @@ public abstract class Report {
 		if (outputInterval > 0) {
 			createSuffixedOutput(outFileName);
 		}
+		else if (addSuffix) {
+			createOutput(outFileName +
+					(isBinaryOutput() ? BINARY_SUFFIX : OUT_SUFFIX));
+		}
 		else {
 			createOutput(outFileName);
 		}
@@ -192,7 +246,13 @@ public abstract class Report {
 	 */
 	private void createOutput(String outFileName) {
 		try {
-			this.out = new PrintWriter(new FileWriter(outFileName));
+			if (isBinaryOutput()) {
+				this.binaryOut = new BinaryReportWriter(outFileName,
+						binarySchema);
+			} else {
+				this.writer = new ReportWriter(outFileName, asyncOutput);
+				this.out = new PrintWriter(this.writer);
+			}
 		} catch (IOException e) {
 			throw new SimError("Couldn't open file '" + outFileName +
 					"' for report output\n" + e.getMessage(), e);
@@ -204,7 +264,8 @@ public abstract class Report {
 	 * @param outFileName Prefix of the output file's name
 	 */
 	private void createSuffixedOutput(String outFileName) {
-		String suffix = String.format(INTERVALLED_FORMAT,
+		String suffix = String.format(isBinaryOutput() ?
+				BINARY_INTERVALLED_FORMAT : INTERVALLED_FORMAT,
 				this.lastOutputSuffix);
 		createOutput(outFileName+suffix);
 		this.lastOutputSuffix++;
@@ -232,10 +293,71 @@ public abstract class Report {
 	 * @see #setPrefix(String)
 	 */
 	protected void write(String txt) {
+		if (isBinaryOutput()) {
+			throw new SimError(getClass().getSimpleName() +
+					" wrote text to binary output");
+		}
 		if (out == null) {
 			init();
 		}
-		out.println(prefix + txt);
+		writer.writeLine(prefix, txt);
+	}
+
+	/**
+	 * Returns the schema of the report's binary output. Reports that
+	 * support the binary output format ({@link #OUTPUT_FORMAT_S}) override
+	 * this and write their rows with {@link #getBinaryOutput()} instead of
+	 * {@link #write(String)} when {@link #isBinaryOutput()} is true.
+	 * The precision setting is added to the schema's properties.
+	 * @return The schema or null if the report doesn't support the binary
+	 * format (default)
+	 */
+	protected ReportSchema getBinarySchema() {
+		return null;
+	}
+
+	/**
+	 * Returns true if the report's output is binary, i.e., the binary
+	 * format is requested and the report supports it
+	 * @return true if the output is binary, false if it's text
+	 */
+	protected boolean isBinaryOutput() {
+		if (!schemaResolved) {
+			schemaResolved = true;
+			if (binaryFormat) {
+				binarySchema = getBinarySchema();
+			}
+			if (binarySchema != null) {
+				binarySchema.setProperty(PRECISION_SETTING,
+						String.valueOf(precision));
+			}
+		}
+		return binarySchema != null;
+	}
+
+	/**
+	 * Returns the writer of the binary output. Initializes the output
+	 * if it hasn't been initialized yet.
+	 * @return The writer
+	 */
+	protected BinaryReportWriter getBinaryOutput() {
+		if (binaryOut == null) {
+			init();
+		}
+		return binaryOut;
+	}
+
+	/**
+	 * Ends a row of the binary output
+	 * @see #getBinaryOutput()
+	 */
+	protected void endRow() {
+		try {
+			binaryOut.endRow();
+		} catch (IOException e) {
+			throw new SimError("Couldn't write report output to '" +
+					outFileName + "'\n" + e.getMessage(), e);
+		}
 	}
 
 	/**
@@ -245,7 +367,7 @@ public abstract class Report {
 	 * @return Formatted value in a string
 	 */
 	protected String format(double value) {
-		return String.format("%." + precision + "f", value);
+		return formatter.format(value);
 	}
 
 	/**
@@ -330,8 +452,20 @@ public abstract class Report {
 	 * that it's time for the next report.
 	 */
 	public void done() {
+		if (binaryOut != null) {
+			try {
+				binaryOut.close();
+			} catch (IOException e) {
+				throw new SimError("Couldn't write report output to '" +
+						outFileName + "'\n" + e.getMessage(), e);
+			}
+		}
 		if (out != null) {
 			out.close();
+			if (out.checkError()) {
+				throw new SimError("Couldn't write report output to '" +
+						outFileName + "'");
+			}
 		}
 	}
 
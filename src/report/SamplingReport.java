@@ -1,21 +1,29 @@
 package report;
 
 import core.DTNHost;
+import core.ScheduledUpdateListener;
 import core.Settings;
 import core.SettingsError;
 import core.SimClock;
-import core.UpdateListener;
 
 import java.util.List;
 
 /**
  * Abstract class that makes it easier to implement sampling reports.
  *
+ * <p>Sampling reports accumulate their results over the samples and write
+ * them when the report is done. If the report interval
+ * ({@link Report#INTERVAL_SETTING}) is set, the results are also flushed to
+ * a new file after every interval, and each file covers only the samples of
+ * its interval. The output is initialized at the first sample.
+ * Subclasses should reset their accumulated results in {@link #init()}.
+ * The report is updated only when a sample is due.
+ *
  * @author teemuk
  */
 public abstract class SamplingReport
 extends Report
-implements UpdateListener {
+implements ScheduledUpdateListener {
 
 	//========================================================================//
 	// Settings
@@ -65,10 +73,21 @@ implements UpdateListener {
 	//========================================================================//
 	@Override
 	public void updated(final List<DTNHost> hosts) {
-		if (SimClock.getTime() - lastRecord < interval) return;
+		if (SimClock.getTime() < getNextUpdateTime()) return;
 		lastRecord = SimClock.getTime();
 
+		if (super.out == null) {
+			// the output, and its first interval, starts from the first sample
+			this.init();
+		} else {
+			super.newEvent();
+		}
 		this.sample(hosts);
 	}
+
+	@Override
+	public double getNextUpdateTime() {
+		return lastRecord + interval;
+	}
 	//========================================================================//
 }
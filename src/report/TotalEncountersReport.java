@@ -8,15 +8,21 @@ import java.util.List;
 
 import core.ConnectionListener;
 import core.DTNHost;
-import core.UpdateListener;
+import core.EventBatch;
+import core.EventBatchListener;
+import core.EventBus;
+import core.ScheduledUpdateListener;
+import core.SimClock;
 
 /**
- * A report of the distribution of how many encounters (contacts) a node has had
+ * A report of the distribution of how many encounters (contacts) a node has had.
+ * The report needs only the first update call, and it can process the
+ * encounters in batches (see {@link EventBus#BATCH_EVENTS_S}).
  *
  * @author Frans Ekman
  */
 public class TotalEncountersReport extends Report implements ConnectionListener,
-	UpdateListener {
+	ScheduledUpdateListener, EventBatchListener {
 
 	private int[] encounters;
 
@@ -34,12 +40,31 @@ public class TotalEncountersReport extends Report implements ConnectionListener,
 
 	public void hostsDisconnected(DTNHost host1, DTNHost host2) {}
 
+	public void eventsOccurred(EventBatch batch) {
+		if (encounters == null) {
+			return;
+		}
+		for (int i=0, n = batch.size(); i<n; i++) {
+			encounters[batch.getHost1(i).getAddress()]++;
+			encounters[batch.getHost2(i).getAddress()]++;
+		}
+	}
+
+	public int getEventTypes() {
+		return EventBus.CONNECTION_UP | EventBus.UPDATE;
+	}
+
 	public void updated(List<DTNHost> hosts) {
 		if (encounters == null) {
 			encounters = new int[hosts.size()];
 		}
 	}
 
+	public double getNextUpdateTime() {
+		/* the array is created at the first update */
+		return encounters == null ? SimClock.getTime() : Double.MAX_VALUE;
+	}
+
 	@Override
 	public void done() {
 
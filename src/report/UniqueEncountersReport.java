@@ -9,17 +9,23 @@ import java.util.List;
 import core.ConnectionListener;
 import core.DTNHost;
 import core.UpdateListener;
+import report.util.ContactGraph;
 
 /**
  * UniqueEncountersReport class creates a report of the distribution of how
- * many promilles of the other nodes a node has encountered.
+ * many promilles of the other nodes a node has encountered. The encounters
+ * are counted in a sparse {@link ContactGraph}, so the memory use follows
+ * the number of distinct encounters.
  *
  * @author Frans Ekman
  */
 public class UniqueEncountersReport extends Report implements
 	ConnectionListener, UpdateListener {
 
-	private int[][] nodeRelationships;
+	/** Numbers of encounters between the nodes (null before the first
+	 * update) */
+	private ContactGraph nodeRelationships;
+	private int nrofHosts;
 
 	public UniqueEncountersReport() {
 
@@ -29,15 +35,16 @@ public class UniqueEncountersReport extends Report implements
 		if (nodeRelationships == null) {
 			return;
 		}
-		nodeRelationships[host1.getAddress()][host2.getAddress()]++;
-		nodeRelationships[host2.getAddress()][host1.getAddress()]++;
+		nodeRelationships.add(host1.getAddress(), host2.getAddress(), 1);
+		nodeRelationships.add(host2.getAddress(), host1.getAddress(), 1);
 	}
 
 	public void hostsDisconnected(DTNHost host1, DTNHost host2) {}
 
 	public void updated(List<DTNHost> hosts) {
 		if (nodeRelationships == null) {
-			nodeRelationships = new int[hosts.size()][hosts.size()];
+			nrofHosts = hosts.size();
+			nodeRelationships = new ContactGraph(nrofHosts);
 		}
 	}
 
@@ -50,15 +57,9 @@ public class UniqueEncountersReport extends Report implements
 			return;
 		}
 
-		for (int i=0; i<nodeRelationships.length; i++) {
-			int count = 0;
-			for (int j=0; j<nodeRelationships.length; j++) {
-				if (nodeRelationships[i][j] > 0) {
-					count++;
-				}
-			}
-
-			int promille = (count * 1000)/nodeRelationships.length;
+		for (int i=0; i<nrofHosts; i++) {
+			int count = nodeRelationships.getDegree(i);
+			int promille = (count * 1000)/nrofHosts;
 			distribution[promille]++;
 		}
 
@@ -70,11 +71,16 @@ public class UniqueEncountersReport extends Report implements
 		super.done();
 	}
 
-	public int[][] getNodeRelationships() {
+	/**
+	 * Returns the numbers of encounters between the nodes (by address)
+	 * @return The encounter graph or null if the report hasn't been
+	 * updated yet
+	 */
+	public ContactGraph getNodeRelationships() {
 		return nodeRelationships;
 	}
 
-	public void setNodeRelationships(int[][] nodeRelationships) {
+	public void setNodeRelationships(ContactGraph nodeRelationships) {
 		this.nodeRelationships = nodeRelationships;
 	}
 
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report.tools;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import report.Report;
+import report.util.BinaryReportReader;
+import report.util.ReportSchema;
+import report.util.RowFormatter;
+
+/**
+ * <P>Converts binary report files (see {@link Report#OUTPUT_FORMAT_S}) to
+ * the text layout of the report that wrote the file, or to CSV.</P>
+ *
+ * <P>Usage: <CODE>java report.tools.ReportConverter [-csv] inputFile
+ * [outputFile]</CODE></P>
+ *
+ * <P>If the output file is not given, the output is written next to the
+ * input file, with the {@value Report#BINARY_SUFFIX} suffix replaced by
+ * {@value #TEXT_SUFFIX} or {@value #CSV_SUFFIX}. The CSV output has a header
+ * row of the column names; strings are quoted and missing (null) strings
+ * are empty.</P>
+ */
+public class ReportConverter {
+	/** Option for the CSV output ({@value}) */
+	public static final String CSV_OPTION = "-csv";
+	/** Suffix of the text output file ({@value}) */
+	public static final String TEXT_SUFFIX = Report.OUT_SUFFIX;
+	/** Suffix of the CSV output file ({@value}) */
+	public static final String CSV_SUFFIX = ".csv";
+
+	/**
+	 * Converts a binary report file to the report's text layout
+	 * @param inFile Path of the binary report file
+	 * @param outFile Path of the text file to write
+	 * @throws IOException if reading or writing the files fails, or the
+	 * file has no (valid) text layout
+	 */
+	public static void toText(String inFile, String outFile)
+		throws IOException {
+		BinaryReportReader r = new BinaryReportReader(inFile);
+		try {
+			RowFormatter layout = createLayout(r.getSchema());
+			PrintWriter out = new PrintWriter(new BufferedWriter(
+					new FileWriter(outFile)));
+			String header = layout.getHeader(r);
+			if (header != null) {
+				out.println(header);
+			}
+			while (r.next()) {
+				out.println(layout.format(r));
+			}
+			close(out, outFile);
+		} finally {
+			r.close();
+		}
+	}
+
+	/**
+	 * Converts a binary report file to CSV
+	 * @param inFile Path of the binary report file
+	 * @param outFile Path of the CSV file to write
+	 * @throws IOException if reading or writing the files fails
+	 */
+	public static void toCsv(String inFile, String outFile)
+		throws IOException {
+		BinaryReportReader r = new BinaryReportReader(inFile);
+		try {
+			ReportSchema schema = r.getSchema();
+			int nrofColumns = schema.getColumnCount();
+			PrintWriter out = new PrintWriter(new BufferedWriter(
+					new FileWriter(outFile)));
+			StringBuilder sb = new StringBuilder();
+
+			for (int i = 0; i < nrofColumns; i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				appendQuoted(schema.getColumnName(i), sb);
+			}
+			out.println(sb);
+
+			while (r.next()) {
+				sb.setLength(0);
+				for (int i = 0; i < nrofColumns; i++) {
+					if (i > 0) {
+						sb.append(',');
+					}
+					switch (schema.getColumnType(i)) {
+					case ReportSchema.DOUBLE:
+						sb.append(r.getDouble(i));
+						break;
+					case ReportSchema.INT:
+						sb.append(r.getInt(i));
+						break;
+					default:
+						String s = r.getString(i);
+						if (s != null) {
+							appendQuoted(s, sb);
+						}
+					}
+				}
+				out.println(sb);
+			}
+			close(out, outFile);
+		} finally {
+			r.close();
+		}
+	}
+
+	/**
+	 * Creates the text layout of a binary report file
+	 * @param schema Schema of the file
+	 * @return The layout
+	 * @throws IOException if the file has no layout or the layout class
+	 * can't be instantiated
+	 */
+	private static RowFormatter createLayout(ReportSchema schema)
+		throws IOException {
+		String layout = schema.getLayout();
+		if (layout == null) {
+			throw new IOException("The file has no text layout; use " +
+					CSV_OPTION);
+		}
+		try {
+			return (RowFormatter)Class.forName(layout)
+				.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IOException("Can't create text layout " + layout +
+					": " + e, e);
+		} catch (ClassCastException e) {
+			throw new IOException(layout + " is not a RowFormatter", e);
+		}
+	}
+
+	private static void appendQuoted(String s, StringBuilder sb) {
+		sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+	}
+
+	private static void close(PrintWriter out, String outFile)
+		throws IOException {
+		out.close();
+		if (out.checkError()) {
+			throw new IOException("Couldn't write to " + outFile);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		boolean csv = args.length > 0 && args[0].equals(CSV_OPTION);
+		int first = csv ? 1 : 0;
+		if (args.length - first < 1 || args.length - first > 2) {
+			System.out.println("Usage: java report.tools.ReportConverter " +
+					"[" + CSV_OPTION + "] inputFile [outputFile]");
+			System.exit(1);
+		}
+
+		/* same number formatting as in the simulator (see core.DTNSim) */
+		Locale.setDefault(Locale.US);
+
+		String inFile = args[first];
+		String outFile;
+		if (args.length - first == 2) {
+			outFile = args[first + 1];
+		} else {
+			outFile = inFile;
+			if (outFile.endsWith(Report.BINARY_SUFFIX)) {
+				outFile = outFile.substring(0, outFile.length() -
+						Report.BINARY_SUFFIX.length());
+			}
+			outFile += (csv ? CSV_SUFFIX : TEXT_SUFFIX);
+		}
+
+		if (csv) {
+			toCsv(inFile, outFile);
+		} else {
+			toText(inFile, outFile);
+		}
+		System.out.println("Wrote " + outFile);
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader of binary report files written by {@link BinaryReportWriter}.
+ * The rows are read one at a time with {@link #next()}, after which the
+ * values of the current row can be queried by column index.
+ */
+public class BinaryReportReader {
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	private final DataInputStream in;
+	private final ReportSchema schema;
+	private final double[][] doubles;
+	private final int[][] ints;
+	private final List<String> dictionary;
+	/** number of rows in the current row group */
+	private int nrofRows;
+	/** index of the current row in the row group */
+	private int row;
+	private boolean ended;
+
+	/**
+	 * Opens a binary report file and reads its header
+	 * @param fileName Name (and path) of the file
+	 * @throws IOException if the file can't be read or it's not a binary
+	 * report file
+	 */
+	public BinaryReportReader(String fileName) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(fileName), BUFFER_SIZE));
+		try {
+			this.schema = readHeader(fileName);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+
+		int nrofColumns = schema.getColumnCount();
+		this.doubles = new double[nrofColumns][];
+		this.ints = new int[nrofColumns][];
+		this.dictionary = new ArrayList<String>();
+		this.nrofRows = 0;
+		this.row = 0;
+		this.ended = false;
+	}
+
+	private ReportSchema readHeader(String fileName) throws IOException {
+		if (in.readInt() != BinaryReportWriter.MAGIC) {
+			throw new IOException(fileName + " is not a binary report file");
+		}
+		int version = in.readInt();
+		if (version != BinaryReportWriter.VERSION) {
+			throw new IOException("Unsupported binary report version " +
+					version + " in " + fileName);
+		}
+
+		String layout = readString();
+		ReportSchema s = new ReportSchema(layout.length() > 0 ? layout : null);
+
+		int nrofProperties = in.readInt();
+		for (int i=0; i<nrofProperties; i++) {
+			String key = readString();
+			s.setProperty(key, readString());
+		}
+
+		int nrofColumns = in.readInt();
+		for (int i=0; i<nrofColumns; i++) {
+			String name = readString();
+			byte type = in.readByte();
+			try {
+				s.addColumn(name, type);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage() + " in " + fileName);
+			}
+		}
+
+		return s;
+	}
+
+	private String readString() throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the schema of the file
+	 * @return The schema
+	 */
+	public ReportSchema getSchema() {
+		return this.schema;
+	}
+
+	/**
+	 * Moves to the next row
+	 * @return True if there was a next row, false at the end of the file
+	 * @throws IOException if reading the file fails
+	 */
+	public boolean next() throws IOException {
+		row++;
+		if (row < nrofRows) {
+			return true;
+		}
+		if (ended) {
+			return false;
+		}
+
+		readRowGroup();
+		return !ended;
+	}
+
+	private void readRowGroup() throws IOException {
+		nrofRows = in.readInt();
+		row = 0;
+		if (nrofRows == 0) {
+			ended = true;
+			return;
+		}
+
+		int nrofNewStrings = in.readInt();
+		for (int i=0; i<nrofNewStrings; i++) {
+			dictionary.add(readString());
+		}
+
+		for (int i=0; i<schema.getColumnCount(); i++) {
+			if (schema.getColumnType(i) == ReportSchema.DOUBLE) {
+				if (doubles[i] == null || doubles[i].length < nrofRows) {
+					doubles[i] = new double[nrofRows];
+				}
+				for (int j=0; j<nrofRows; j++) {
+					doubles[i][j] = in.readDouble();
+				}
+			} else {
+				if (ints[i] == null || ints[i].length < nrofRows) {
+					ints[i] = new int[nrofRows];
+				}
+				for (int j=0; j<nrofRows; j++) {
+					ints[i][j] = in.readInt();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of a double column on the current row
+	 * @param column Index of the column
+	 * @return The value
+	 */
+	public double getDouble(int column) {
+		return doubles[column][row];
+	}
+
+	/**
+	 * Returns the value of an int column on the current row
+	 * @param column Index of the column
+	 * @return The value
+	 */
+	public int getInt(int column) {
+		return ints[column][row];
+	}
+
+	/**
+	 * Returns the value of a string column on the current row
+	 * @param column Index of the column
+	 * @return The value (can be null)
+	 */
+	public String getString(int column) {
+		int index = ints[column][row];
+		return index < 0 ? null : dictionary.get(index);
+	}
+
+	/**
+	 * Closes the file
+	 * @throws IOException if closing fails
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <P>Writer of binary columnar report files. The rows are collected to
+ * row groups and each group is written column by column: double columns
+ * as 8 byte values and int columns as 4 byte values. String columns are
+ * dictionary encoded; each distinct string is stored only once and the
+ * rows contain 4 byte indexes of the strings (-1 for null).</P>
+ *
+ * <P>File layout (big endian, strings as an int byte count followed by the
+ * UTF-8 bytes):</P>
+ * <PRE>
+ * int magic ({@link #MAGIC}), int version ({@link #VERSION})
+ * string layout class name ("" if none)
+ * int property count, (string key, string value) * count
+ * int column count, (string name, byte type) * count
+ * row groups:
+ *   int row count (0 ends the file)
+ *   int count of new dictionary strings, string * count
+ *   values of each column (row count values per column)
+ * </PRE>
+ *
+ * <P>A row is written by setting the values of its columns and calling
+ * {@link #endRow()}. The columns that are not set get the default values
+ * (NaN, 0 or null).</P>
+ */
+public class BinaryReportWriter {
+	/** Identifier at the start of binary report files */
+	public static final int MAGIC = 0x4F4E4552; // "ONER"
+	/** Version of the binary report format */
+	public static final int VERSION = 1;
+	/** Number of rows in a (full) row group */
+	public static final int ROW_GROUP_SIZE = 4096;
+	/** Size of the output buffer (in bytes) */
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	private final ReportSchema schema;
+	private final DataOutputStream out;
+	/** values of the double columns (null for other columns) */
+	private final double[][] doubles;
+	/** values of the int and string columns (null for double columns) */
+	private final int[][] ints;
+	private int nrofRows;
+
+	/** indexes of the strings in the dictionary */
+	private final Map<String, Integer> dictionary;
+	/** strings added to the dictionary after the last row group */
+	private final List<String> newStrings;
+	private boolean closed;
+
+	/**
+	 * Creates a writer and writes the header of the file
+	 * @param fileName Name (and path) of the file
+	 * @param schema The columns of the file
+	 * @throws IOException if the file can't be written
+	 */
+	public BinaryReportWriter(String fileName, ReportSchema schema)
+			throws IOException {
+		this.schema = schema;
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(fileName), BUFFER_SIZE));
+
+		int nrofColumns = schema.getColumnCount();
+		this.doubles = new double[nrofColumns][];
+		this.ints = new int[nrofColumns][];
+		for (int i=0; i<nrofColumns; i++) {
+			if (schema.getColumnType(i) == ReportSchema.DOUBLE) {
+				doubles[i] = new double[ROW_GROUP_SIZE];
+			} else {
+				ints[i] = new int[ROW_GROUP_SIZE];
+			}
+		}
+		this.nrofRows = 0;
+		clearRow();
+
+		this.dictionary = new HashMap<String, Integer>();
+		this.newStrings = new ArrayList<String>();
+		this.closed = false;
+
+		writeHeader();
+	}
+
+	private void writeHeader() throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeString(schema.getLayout() != null ? schema.getLayout() : "");
+
+		out.writeInt(schema.getProperties().size());
+		for (Map.Entry<String, String> e : schema.getProperties().entrySet()) {
+			writeString(e.getKey());
+			writeString(e.getValue());
+		}
+
+		out.writeInt(schema.getColumnCount());
+		for (int i=0; i<schema.getColumnCount(); i++) {
+			writeString(schema.getColumnName(i));
+			out.writeByte(schema.getColumnType(i));
+		}
+	}
+
+	private void writeString(String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Returns the schema of the file
+	 * @return The schema
+	 */
+	public ReportSchema getSchema() {
+		return this.schema;
+	}
+
+	/**
+	 * Sets the value of a double column for the current row
+	 * @param column Index of the column
+	 * @param value The value
+	 */
+	public void setDouble(int column, double value) {
+		doubles[column][nrofRows] = value;
+	}
+
+	/**
+	 * Sets the value of an int column for the current row
+	 * @param column Index of the column
+	 * @param value The value
+	 */
+	public void setInt(int column, int value) {
+		ints[column][nrofRows] = value;
+	}
+
+	/**
+	 * Sets the value of a string column for the current row
+	 * @param column Index of the column
+	 * @param value The value (can be null)
+	 */
+	public void setString(int column, String value) {
+		int index = -1;
+		if (value != null) {
+			Integer i = dictionary.get(value);
+			if (i == null) {
+				i = dictionary.size();
+				dictionary.put(value, i);
+				newStrings.add(value);
+			}
+			index = i;
+		}
+		ints[column][nrofRows] = index;
+	}
+
+	/**
+	 * Ends the current row. Writes the row group if it's full.
+	 * @throws IOException if writing the file fails
+	 */
+	public void endRow() throws IOException {
+		if (closed) {
+			return; /* ignore rows after close (like text reports do) */
+		}
+		nrofRows++;
+		if (nrofRows == ROW_GROUP_SIZE) {
+			writeRowGroup();
+		}
+		clearRow();
+	}
+
+	/**
+	 * Sets the default values for the columns of the current row
+	 */
+	private void clearRow() {
+		for (int i=0; i<doubles.length; i++) {
+			if (doubles[i] != null) {
+				doubles[i][nrofRows] = Double.NaN;
+			} else if (schema.getColumnType(i) == ReportSchema.STRING) {
+				ints[i][nrofRows] = -1;
+			} else {
+				ints[i][nrofRows] = 0;
+			}
+		}
+	}
+
+	private void writeRowGroup() throws IOException {
+		out.writeInt(nrofRows);
+
+		out.writeInt(newStrings.size());
+		for (String s : newStrings) {
+			writeString(s);
+		}
+		newStrings.clear();
+
+		for (int i=0; i<doubles.length; i++) {
+			if (doubles[i] != null) {
+				for (int j=0; j<nrofRows; j++) {
+					out.writeDouble(doubles[i][j]);
+				}
+			} else {
+				for (int j=0; j<nrofRows; j++) {
+					out.writeInt(ints[i][j]);
+				}
+			}
+		}
+
+		nrofRows = 0;
+	}
+
+	/**
+	 * Writes the remaining rows and the end of the file and closes the file
+	 * @throws IOException if writing the file fails
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (nrofRows > 0) {
+				writeRowGroup();
+			}
+			out.writeInt(0);
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report.util;
+
+import java.util.Arrays;
+
+import util.IntIntHashMap;
+
+/**
+ * <P>Sparse directed graph of contacts between nodes, with an int value for
+ * each edge (e.g., the number of encounters). The nodes are identified by
+ * non-negative int indexes, e.g., the network addresses of the hosts.</P>
+ *
+ * <P>Each node has an {@link IntIntHashMap} from the other node's index to
+ * the value, so the memory use follows the number of distinct contacts
+ * instead of the square of the number of nodes, and the number of contacts
+ * of a node ({@link #getDegree(int)}) is known without scanning. Undirected
+ * contacts are stored as two edges.</P>
+ */
+public class ContactGraph {
+	/** Initial capacity of a node's map */
+	private static final int INIT_CAPACITY = 4;
+	/** Initial size of the node array */
+	private static final int INIT_NODES = 16;
+
+	/** Edges from each node (null if the node has none) */
+	private IntIntHashMap[] edges;
+	private int nrofEdges;
+
+	/**
+	 * Creates an empty graph
+	 */
+	public ContactGraph() {
+		this(INIT_NODES);
+	}
+
+	/**
+	 * Creates an empty graph
+	 * @param nrofNodes Expected number of nodes (the graph grows as needed)
+	 */
+	public ContactGraph(int nrofNodes) {
+		this.edges = new IntIntHashMap[Math.max(nrofNodes, 1)];
+		this.nrofEdges = 0;
+	}
+
+	/**
+	 * Returns the value of an edge
+	 * @param from Index of the node where the edge starts
+	 * @param to Index of the node where the edge ends
+	 * @param defaultValue Value to return if there is no such edge
+	 * @return The value of the edge or the default value
+	 */
+	public int get(int from, int to, int defaultValue) {
+		IntIntHashMap map = edgesOf(from);
+		return map == null ? defaultValue : map.get(to, defaultValue);
+	}
+
+	/**
+	 * Returns true if the graph has an edge
+	 * @param from Index of the node where the edge starts
+	 * @param to Index of the node where the edge ends
+	 * @return true if there is an edge from the node to the other node
+	 */
+	public boolean contains(int from, int to) {
+		IntIntHashMap map = edgesOf(from);
+		return map != null && map.containsKey(to);
+	}
+
+	/**
+	 * Sets the value of an edge. The edge is added if it doesn't exist.
+	 * @param from Index of the node where the edge starts
+	 * @param to Index of the node where the edge ends
+	 * @param value The value
+	 */
+	public void put(int from, int to, int value) {
+		IntIntHashMap map = createEdgesOf(from, to);
+		int size = map.size();
+		map.put(to, value);
+		nrofEdges += map.size() - size;
+	}
+
+	/**
+	 * Adds to the value of an edge. The edge is added with the value 0 if
+	 * it doesn't exist.
+	 * @param from Index of the node where the edge starts
+	 * @param to Index of the node where the edge ends
+	 * @param delta The amount to add
+	 * @return The new value of the edge
+	 */
+	public int add(int from, int to, int delta) {
+		IntIntHashMap map = createEdgesOf(from, to);
+		int size = map.size();
+		int value = map.add(to, delta);
+		nrofEdges += map.size() - size;
+		return value;
+	}
+
+	/**
+	 * Returns the number of edges from a node, i.e., the number of distinct
+	 * nodes the node has had contact with
+	 * @param node Index of the node
+	 * @return The number of edges
+	 */
+	public int getDegree(int node) {
+		IntIntHashMap map = edgesOf(node);
+		return map == null ? 0 : map.size();
+	}
+
+	/**
+	 * Returns the total number of edges in the graph
+	 * @return The number of edges
+	 */
+	public int getEdgeCount() {
+		return this.nrofEdges;
+	}
+
+	/**
+	 * Returns the indexes of the nodes that a node has edges to
+	 * @param node Index of the node
+	 * @return The indexes in ascending order
+	 */
+	public int[] getNeighbors(int node) {
+		IntIntHashMap map = edgesOf(node);
+		if (map == null) {
+			return new int[0];
+		}
+		int[] neighbors = map.keys();
+		Arrays.sort(neighbors);
+		return neighbors;
+	}
+
+	/**
+	 * Removes all the edges
+	 */
+	public void clear() {
+		Arrays.fill(edges, null);
+		this.nrofEdges = 0;
+	}
+
+	/**
+	 * Returns the edges of a node
+	 * @param node Index of the node
+	 * @return The edges or null if the node has none
+	 */
+	private IntIntHashMap edgesOf(int node) {
+		return node >= 0 && node < edges.length ? edges[node] : null;
+	}
+
+	/**
+	 * Returns the edges of a node, creating the map if the node has none
+	 * @param from Index of the node
+	 * @param to Index of the other node of the edge that is added
+	 * @return The edges of the node
+	 */
+	private IntIntHashMap createEdgesOf(int from, int to) {
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("Invalid edge " + from +
+					"->" + to);
+		}
+		if (from >= edges.length) {
+			edges = Arrays.copyOf(edges, Math.max(from + 1, edges.length * 2));
+		}
+		if (edges[from] == null) {
+			edges[from] = new IntIntHashMap(INIT_CAPACITY);
+		}
+		return edges[from];
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report.util;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * <P>Formats double values with a fixed number of decimals. The result is
+ * the same as with <CODE>String.format("%.Nf", value)</CODE>, but values of
+ * moderate size are formatted using integer arithmetic, without parsing a
+ * format string or creating a {@link java.util.Formatter}.</P>
+ *
+ * <P>The fast path is used only for values that aren't (nearly) halfway
+ * between two results, because <CODE>String.format</CODE> rounds the
+ * shortest decimal presentation of the value (half up) instead of the
+ * exact binary value. Other values, and all the values if the default
+ * locale doesn't use the plain digits and a dot, are formatted with
+ * <CODE>String.format</CODE>.</P>
+ */
+public class DoubleFormatter {
+	/** Powers of ten for the supported fast path precisions */
+	private static final long[] POW10 = {1L, 10L, 100L, 1000L, 10000L,
+		100000L, 1000000L, 10000000L, 100000000L, 1000000000L};
+	/** Maximum (scaled) value formatted with the fast path. Keeps the
+	 * rounding error of the scaling far below {@link #HALF_MARGIN}. */
+	private static final double MAX_FAST_VALUE = 1e12;
+	/** Scaled values this close to a halfway point use the slow path */
+	private static final double HALF_MARGIN = 1e-3;
+
+	private final int precision;
+	private final String format;
+	private final boolean fastPath;
+
+	/**
+	 * Constructor.
+	 * @param precision Number of decimals in the formatted values
+	 */
+	public DoubleFormatter(int precision) {
+		this.precision = precision;
+		this.format = "%." + precision + "f";
+
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(
+				Locale.getDefault(Locale.Category.FORMAT));
+		this.fastPath = precision < POW10.length &&
+				symbols.getZeroDigit() == '0' &&
+				symbols.getDecimalSeparator() == '.';
+	}
+
+	/**
+	 * Returns the number of decimals in the formatted values
+	 * @return The precision
+	 */
+	public int getPrecision() {
+		return this.precision;
+	}
+
+	/**
+	 * Formats a value
+	 * @param value The value to format
+	 * @return The formatted value
+	 */
+	public String format(double value) {
+		if (!fastPath) {
+			return String.format(format, value);
+		}
+
+		StringBuilder sb = new StringBuilder(24);
+		if (!formatTo(value, sb)) {
+			return String.format(format, value);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Appends a formatted value to a string builder
+	 * @param value The value to format
+	 * @param sb The builder to append to
+	 * @return The builder
+	 */
+	public StringBuilder appendTo(double value, StringBuilder sb) {
+		if (!fastPath || !formatTo(value, sb)) {
+			sb.append(String.format(format, value));
+		}
+		return sb;
+	}
+
+	/**
+	 * Formats a value using the fast path, if possible
+	 * @param value The value to format
+	 * @param sb The builder where the formatted value is appended
+	 * @return True if the value was formatted, false if the slow path
+	 * must be used (nothing is appended then)
+	 */
+	private boolean formatTo(double value, StringBuilder sb) {
+		long pow = POW10[precision];
+		double scaled = Math.abs(value) * pow;
+		if (!(scaled < MAX_FAST_VALUE)) {
+			return false; /* too big, infinite or NaN */
+		}
+
+		long whole = (long)scaled;
+		double fraction = scaled - whole;
+		if (Math.abs(fraction - 0.5) < HALF_MARGIN) {
+			return false; /* rounding direction may differ */
+		}
+		long n = fraction > 0.5 ? whole + 1 : whole;
+
+		if (Double.doubleToRawLongBits(value) < 0) {
+			sb.append('-'); /* also for negative zero */
+		}
+		sb.append(n / pow);
+		if (precision > 0) {
+			sb.append('.');
+			long decimals = n % pow;
+			for (long p = pow / 10; p > decimals && p > 1; p /= 10) {
+				sb.append('0');
+			}
+			sb.append(decimals);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column layout of a binary report file (see {@link BinaryReportWriter}).
+ * The schema also names the {@link RowFormatter} class that converts the
+ * rows back to the report's text layout and can have string properties,
+ * e.g., the precision of the formatted values.
+ */
+public class ReportSchema {
+	/** Column type of double values (8 bytes per row) */
+	public static final byte DOUBLE = 1;
+	/** Column type of int values (4 bytes per row) */
+	public static final byte INT = 2;
+	/** Column type of dictionary encoded strings (4 bytes per row) */
+	public static final byte STRING = 3;
+
+	private final String layout;
+	private final List<String> names;
+	private final List<Byte> types;
+	private final Map<String, String> properties;
+
+	/**
+	 * Creates a schema without columns
+	 * @param layout Name of the {@link RowFormatter} class that converts the
+	 * rows to text, or null if there is no text layout
+	 */
+	public ReportSchema(String layout) {
+		this.layout = layout;
+		this.names = new ArrayList<String>();
+		this.types = new ArrayList<Byte>();
+		this.properties = new LinkedHashMap<String, String>();
+	}
+
+	/**
+	 * Adds a double column
+	 * @param name Name of the column
+	 * @return This schema
+	 */
+	public ReportSchema addDouble(String name) {
+		return addColumn(name, DOUBLE);
+	}
+
+	/**
+	 * Adds an int column
+	 * @param name Name of the column
+	 * @return This schema
+	 */
+	public ReportSchema addInt(String name) {
+		return addColumn(name, INT);
+	}
+
+	/**
+	 * Adds a string column
+	 * @param name Name of the column
+	 * @return This schema
+	 */
+	public ReportSchema addString(String name) {
+		return addColumn(name, STRING);
+	}
+
+	/**
+	 * Adds a column
+	 * @param name Name of the column
+	 * @param type Type of the column ({@link #DOUBLE}, {@link #INT} or
+	 * {@link #STRING})
+	 * @return This schema
+	 */
+	public ReportSchema addColumn(String name, byte type) {
+		if (type < DOUBLE || type > STRING) {
+			throw new IllegalArgumentException("Invalid column type " + type);
+		}
+		this.names.add(name);
+		this.types.add(type);
+		return this;
+	}
+
+	/**
+	 * Sets a property
+	 * @param key Key of the property
+	 * @param value Value of the property
+	 * @return This schema
+	 */
+	public ReportSchema setProperty(String key, String value) {
+		this.properties.put(key, value);
+		return this;
+	}
+
+	/**
+	 * Returns a property
+	 * @param key Key of the property
+	 * @return The value or null if there is no such property
+	 */
+	public String getProperty(String key) {
+		return this.properties.get(key);
+	}
+
+	/**
+	 * Returns the properties
+	 * @return The properties (in the order they were set)
+	 */
+	public Map<String, String> getProperties() {
+		return this.properties;
+	}
+
+	/**
+	 * Returns the name of the text layout class
+	 * @return The name or null if there is no text layout
+	 */
+	public String getLayout() {
+		return this.layout;
+	}
+
+	/**
+	 * Returns the number of columns
+	 * @return The number of columns
+	 */
+	public int getColumnCount() {
+		return this.names.size();
+	}
+
+	/**
+	 * Returns the name of a column
+	 * @param column Index of the column
+	 * @return The name
+	 */
+	public String getColumnName(int column) {
+		return this.names.get(column);
+	}
+
+	/**
+	 * Returns the type of a column
+	 * @param column Index of the column
+	 * @return The type
+	 */
+	public byte getColumnType(int column) {
+		return this.types.get(column);
+	}
+
+	/**
+	 * Returns the index of a column
+	 * @param name Name of the column
+	 * @return The index or -1 if there is no such column
+	 */
+	public int getColumnIndex(String name) {
+		return this.names.indexOf(name);
+	}
+}
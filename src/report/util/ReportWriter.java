@@ -0,0 +1,361 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report.util;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <P>Buffered writer for report files. The text is collected to chunks and
+ * full chunks are handed to a background thread that encodes them (using
+ * the platform's default charset, like {@link java.io.FileWriter}) and
+ * writes them to the file through a large buffer of a {@link FileChannel}.
+ * One background thread is shared by all the report writers.</P>
+ *
+ * <P>Each writer has a fixed ring of chunks. If the background thread falls
+ * behind, the writing thread waits until the next chunk of the ring has
+ * been written. {@link #close()} waits until all the text is in the file,
+ * so the file is complete when it returns. Writers can also be created
+ * synchronous, in which case the chunks are written in the calling
+ * thread.</P>
+ *
+ * <P>Errors of the background thread are thrown from the next
+ * {@link #write(String, int, int)}, {@link #flush()} or {@link #close()}
+ * call. IOExceptions, RuntimeExceptions and Errors are rethrown as they
+ * are. If the background thread dies, a new one is started.</P>
+ */
+public class ReportWriter extends Writer {
+	/** Size of a chunk (in chars) when it's handed to the writer thread */
+	private static final int CHUNK_SIZE = 64 * 1024;
+	/** Number of chunks in the ring of a writer */
+	private static final int RING_SIZE = 4;
+	/** Size of the file buffer (in bytes) */
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	private static final String NEWLINE =
+		System.getProperty("line.separator");
+
+	/** Chunks waiting for the writer thread */
+	private static BlockingQueue<Chunk> queue;
+	private static Thread writerThread;
+
+	private final boolean async;
+	private final FileChannel channel;
+	private final CharsetEncoder encoder;
+	private final ByteBuffer buffer;
+	private final Chunk[] ring;
+	/** the chunk that is being filled */
+	private Chunk current;
+	private int currentIndex;
+	private boolean closed;
+	/** error of the writer thread (or null if none) */
+	private volatile Throwable error;
+
+	/**
+	 * Creates a writer for a file. If the file exists, it is truncated.
+	 * @param fileName Name (and path) of the file
+	 * @param async Should the file be written in the background thread
+	 * @throws IOException if the file can't be opened
+	 */
+	public ReportWriter(String fileName, boolean async) throws IOException {
+		this.async = async;
+		this.channel = new FileOutputStream(fileName).getChannel();
+		this.encoder = Charset.defaultCharset().newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.ring = new Chunk[RING_SIZE];
+		for (int i=0; i<RING_SIZE; i++) {
+			this.ring[i] = new Chunk(this);
+		}
+		this.currentIndex = 0;
+		this.current = ring[0];
+		this.closed = false;
+	}
+
+	/**
+	 * Writes a line (and a line separator)
+	 * @param prefix Text to write before the line
+	 * @param line The line
+	 */
+	public void writeLine(String prefix, String line) {
+		if (closed) {
+			return; /* like PrintWriter, ignore writes after close */
+		}
+		StringBuilder text = current.text;
+		text.append(prefix).append(line).append(NEWLINE);
+		if (text.length() >= CHUNK_SIZE) {
+			nextChunk(false);
+		}
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Writer closed");
+		}
+		checkError();
+		current.text.append(cbuf, off, len);
+		if (current.text.length() >= CHUNK_SIZE) {
+			nextChunk(false);
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Writer closed");
+		}
+		checkError();
+		current.text.append(str, off, off + len);
+		if (current.text.length() >= CHUNK_SIZE) {
+			nextChunk(false);
+		}
+	}
+
+	/**
+	 * Hands the current chunk over to be written to the file and waits
+	 * until it has been written
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (closed) {
+			return;
+		}
+		Chunk chunk = current;
+		chunk.flush = true;
+		nextChunk(false);
+		waitFor(chunk);
+		checkError();
+	}
+
+	/**
+	 * Writes all the text to the file and closes it. Waits until the file
+	 * is complete.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		Chunk last = current;
+		nextChunk(true);
+		closed = true;
+		waitFor(last);
+		checkError();
+	}
+
+	/**
+	 * Hands the current chunk over to be written and takes the next chunk of
+	 * the ring in use
+	 * @param last Is this the last chunk of the file
+	 */
+	private void nextChunk(boolean last) {
+		current.last = last;
+		if (async) {
+			synchronized (this) {
+				current.pending = true;
+			}
+			submit(current);
+		} else {
+			writeChunk(current);
+		}
+
+		currentIndex = (currentIndex + 1) % RING_SIZE;
+		current = ring[currentIndex];
+		waitFor(current);
+	}
+
+	/**
+	 * Waits until a chunk is not pending in the writer thread anymore
+	 * @param chunk The chunk
+	 */
+	private synchronized void waitFor(Chunk chunk) {
+		boolean interrupted = false;
+		while (chunk.pending) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void checkError() throws IOException {
+		Throwable e = error;
+		if (e == null) {
+			return;
+		} else if (e instanceof IOException) {
+			throw (IOException)e;
+		} else if (e instanceof RuntimeException) {
+			throw (RuntimeException)e;
+		} else if (e instanceof Error) {
+			throw (Error)e;
+		}
+		throw new IOException(e);
+	}
+
+	/**
+	 * Encodes a chunk to the buffer and writes the buffer to the file when
+	 * it's full. Called by the writer thread, or the writing thread for
+	 * synchronous writers.
+	 * @param chunk The chunk to write
+	 */
+	private void writeChunk(Chunk chunk) {
+		try {
+			if (error == null) {
+				CharBuffer chars = CharBuffer.wrap(chunk.text);
+				encode(chars, chunk.last);
+				if (chunk.last) {
+					while (encoder.flush(buffer).isOverflow()) {
+						writeBuffer();
+					}
+				}
+				if (chunk.last || chunk.flush) {
+					writeBuffer();
+				}
+			}
+		} catch (Throwable e) {
+			error = e;
+		} finally {
+			chunk.text.setLength(0);
+			chunk.flush = false;
+			if (chunk.last) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					if (error == null) {
+						error = e;
+					}
+				}
+			}
+		}
+	}
+
+	private void encode(CharBuffer chars, boolean endOfInput)
+			throws IOException {
+		while (true) {
+			CoderResult result = encoder.encode(chars, buffer, endOfInput);
+			if (result.isOverflow()) {
+				writeBuffer();
+			} else if (result.isUnderflow()) {
+				return;
+			} else {
+				result.throwException();
+			}
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Gives a chunk to the shared writer thread. Starts the thread if it
+	 * isn't running yet.
+	 * @param chunk The chunk
+	 */
+	private static synchronized void submit(Chunk chunk) {
+		if (queue == null) {
+			queue = new LinkedBlockingQueue<Chunk>();
+		}
+		queue.add(chunk);
+		if (writerThread == null) {
+			startWriterThread();
+		}
+	}
+
+	/**
+	 * Starts a new writer thread for the queue. Must be called while holding
+	 * the class lock.
+	 */
+	private static void startWriterThread() {
+		writerThread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					processChunks(queue);
+				} finally {
+					writerThreadDied();
+				}
+			}
+		}, "ReportWriter");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Forgets the dead writer thread and starts a new one if there are
+	 * chunks left in the queue
+	 */
+	private static synchronized void writerThreadDied() {
+		writerThread = null;
+		if (!queue.isEmpty()) {
+			startWriterThread();
+		}
+	}
+
+	/**
+	 * Writes the chunks of the queue as they arrive
+	 * @param queue The queue
+	 */
+	private static void processChunks(BlockingQueue<Chunk> queue) {
+		while (true) {
+			Chunk chunk;
+			try {
+				chunk = queue.take();
+			} catch (InterruptedException e) {
+				continue;
+			}
+
+			ReportWriter writer = chunk.writer;
+			try {
+				writer.writeChunk(chunk);
+			} finally {
+				synchronized (writer) {
+					chunk.pending = false;
+					writer.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Text of the file that is written at once
+	 */
+	private static class Chunk {
+		private final ReportWriter writer;
+		private final StringBuilder text;
+		/** is the chunk given to the writer thread but not written yet */
+		private boolean pending;
+		/** is this the last chunk of the file */
+		private boolean last;
+		/** should the buffer be written to the file after this chunk */
+		private boolean flush;
+
+		public Chunk(ReportWriter writer) {
+			this.writer = writer;
+			this.text = new StringBuilder();
+			this.pending = false;
+			this.last = false;
+			this.flush = false;
+		}
+	}
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report.util;
+
+/**
+ * Interface for classes that convert the rows of a binary report file
+ * back to the text layout of the report. The implementing classes must
+ * have a public no-argument constructor.
+ */
+public interface RowFormatter {
+	/**
+	 * Returns the text written before the rows
+	 * @param reader The reader of the file (positioned before the first row)
+	 * @return The header text or null if there is no header
+	 */
+	public String getHeader(BinaryReportReader reader);
+
+	/**
+	 * Formats the current row of a reader
+	 * @param reader The reader of the file
+	 * @return The row as a line of text (without a line separator)
+	 */
+	public String format(BinaryReportReader reader);
+}
@@ -5,7 +5,6 @@
 package routing;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
@@ -17,6 +16,7 @@ import util.Tuple;
 
 import core.Connection;
 import core.DTNHost;
+import core.DTNSim;
 import core.Message;
 import core.MessageListener;
 import core.NetworkInterface;
@@ -45,6 +45,18 @@ public abstract class ActiveRouter extends MessageRouter {
 	protected ArrayList<Connection> sendingConnections;
 	/** sim time when the last TTL check was done */
 	private double lastTtlCheck;
+	/** earliest time when the TTL of some buffered message may run out */
+	private double nextTtlExpiry;
+	/** are the TTL checks aligned to multiples of the check interval
+	 * (see {@link #setAlignedTtlChecks(boolean)}) */
+	private boolean alignedTtlChecks;
+	/** number of TTL checks that didn't need to go through the buffer */
+	private static long nrofSkippedTtlChecks;
+
+	static {
+		DTNSim.registerForReset(ActiveRouter.class.getCanonicalName());
+		reset();
+	}
 
 	private MessageTransferAcceptPolicy policy;
 	private EnergyModel energy;
@@ -84,6 +96,7 @@ public abstract class ActiveRouter extends MessageRouter {
 		super.init(host, mListeners);
 		this.sendingConnections = new ArrayList<Connection>(1);
 		this.lastTtlCheck = 0;
+		this.nextTtlExpiry = Double.MAX_VALUE;
 	}
 
 	/**
@@ -152,7 +165,7 @@ public abstract class ActiveRouter extends MessageRouter {
 			Message res = new Message(this.getHost(),m.getFrom(),
 					RESPONSE_PREFIX+m.getId(), m.getResponseSize());
 			this.createNewMessage(res);
-			this.getMessage(RESPONSE_PREFIX+m.getId()).setRequest(m);
+			res.setRequest(m);
 		}
 
 		return m;
@@ -168,7 +181,11 @@ public abstract class ActiveRouter extends MessageRouter {
 
 	/**
 	 * Tries to start a transfer of message using a connection. Is starting
-	 * succeeds, the connection is added to the watch list of active connections
+	 * succeeds, the connection is added to the watch list of active connections.
+	 * Messages that the other host is already carrying are not offered
+	 * if the other host is an active router (which would reject them): the
+	 * summary vector of the other host's buffer is checked first and
+	 * DENIED_OLD is returned without replicating the message.
 	 * @param m The message to transfer
 	 * @param con The connection to use
 	 * @return the value returned by
@@ -181,8 +198,14 @@ public abstract class ActiveRouter extends MessageRouter {
 			return TRY_LATER_BUSY;
 		}
 
-		if (!policy.acceptSending(getHost(),
-				con.getOtherNode(getHost()), con, m)) {
+		DTNHost other = con.getOtherNode(getHost());
+		MessageRouter otherRouter = other.getRouter();
+		if (otherRouter instanceof ActiveRouter && m.getTo() != other &&
+				otherRouter.hasMessage(m)) {
+			return DENIED_OLD; /* summary vector says the peer has it */
+		}
+
+		if (!policy.acceptSending(getHost(), other, con, m)) {
 			return MessageRouter.DENIED_POLICY;
 		}
 
@@ -191,7 +214,7 @@ public abstract class ActiveRouter extends MessageRouter {
 			addToSendingConnections(con);
 		}
 		else if (deleteDelivered && retVal == DENIED_OLD &&
-				m.getTo() == con.getOtherNode(this.getHost())) {
+				m.getTo() == other) {
 			/* final recipient has already received the msg -> delete it */
 			this.deleteMessage(m.getId(), false);
 		}
@@ -233,7 +256,7 @@ public abstract class ActiveRouter extends MessageRouter {
 		}
 
 		if ( hasMessage(m.getId()) || isDeliveredMessage(m) ||
-				super.isBlacklistedMessage(m.getId())) {
+				super.isBlacklistedMessage(m)) {
 			return DENIED_OLD; // already seen this message -> reject it
 		}
 
@@ -291,13 +314,25 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * Drops messages whose TTL is less than zero.
 	 */
 	protected void dropExpiredMessages() {
+		double next = Double.MAX_VALUE;
 		Message[] messages = getMessageCollection().toArray(new Message[0]);
 		for (int i=0; i<messages.length; i++) {
 			int ttl = messages[i].getTtl();
 			if (ttl <= 0) {
 				deleteMessage(messages[i].getId(), true);
 			}
+			else {
+				next = Math.min(next, messages[i].getTtlExpiryTime());
+			}
 		}
+		this.nextTtlExpiry = next;
+	}
+
+	@Override
+	protected void addToMessages(Message m, boolean newMessage) {
+		super.addToMessages(m, newMessage);
+		this.nextTtlExpiry = Math.min(this.nextTtlExpiry,
+				m.getTtlExpiryTime());
 	}
 
 	/**
@@ -313,8 +348,10 @@ public abstract class ActiveRouter extends MessageRouter {
 
 
 	/**
-	 * Returns the oldest (by receive time) message in the message buffer
-	 * (that is not being sent if excludeMsgBeingSent is true).
+	 * Returns the next message to drop from the message buffer (that is not
+	 * being sent if excludeMsgBeingSent is true). The order of dropping is
+	 * defined by the drop policy ({@link MessageRouter#DROP_POLICY_S}); by
+	 * default the oldest (by receive time) message is dropped first.
 	 * @param excludeMsgBeingSent If true, excludes message(s) that are
 	 * being sent from the oldest message check (i.e. if oldest message is
 	 * being sent, the second oldest message is returned)
@@ -323,23 +360,15 @@ public abstract class ActiveRouter extends MessageRouter {
 	 * exludeMsgBeingSent is true)
 	 */
 	protected Message getNextMessageToRemove(boolean excludeMsgBeingSent) {
-		Collection<Message> messages = this.getMessageCollection();
-		Message oldest = null;
-		for (Message m : messages) {
-
+		for (Message m : getMessagesInDropOrder()) {
 			if (excludeMsgBeingSent && isSending(m.getId())) {
 				continue; // skip the message(s) that router is sending
 			}
 
-			if (oldest == null ) {
-				oldest = m;
-			}
-			else if (oldest.getReceiveTime() > m.getReceiveTime()) {
-				oldest = m;
-			}
+			return m;
 		}
 
-		return oldest;
+		return null;
 	}
 
 	/**
@@ -618,10 +647,8 @@ public abstract class ActiveRouter extends MessageRouter {
 		}
 
 		/* time to do a TTL check and drop old messages? Only if not sending */
-		if (SimClock.getTime() - lastTtlCheck >= TTL_CHECK_INTERVAL &&
-				sendingConnections.size() == 0) {
-			dropExpiredMessages();
-			lastTtlCheck = SimClock.getTime();
+		if (sendingConnections.size() == 0) {
+			checkTtls();
 		}
 
 		if (energy != null) {
@@ -631,6 +658,97 @@ public abstract class ActiveRouter extends MessageRouter {
 		}
 	}
 
+	/**
+	 * Drops the expired messages if a TTL check is due. By default, the
+	 * buffer is checked every {@link #TTL_CHECK_INTERVAL} seconds after
+	 * the previous check, but going through the buffer is skipped until the
+	 * TTL of some message may have run out (see
+	 * {@link Message#getTtlExpiryTime()}). With aligned TTL checks, the
+	 * buffer is checked only at the check time of
+	 * {@link #getTtlCheckTime()}.
+	 */
+	private void checkTtls() {
+		double now = SimClock.getTime();
+		if (this.alignedTtlChecks) {
+			if (now >= getTtlCheckTime()) {
+				dropExpiredMessages();
+			}
+			return;
+		}
+
+		if (now - lastTtlCheck >= TTL_CHECK_INTERVAL) {
+			/* one second margin for the rounding in the TTL calculation */
+			if (now >= this.nextTtlExpiry - 1) {
+				dropExpiredMessages();
+			} else {
+				nrofSkippedTtlChecks++; /* no message can have expired yet */
+			}
+			lastTtlCheck = now;
+		}
+	}
+
+	/**
+	 * Returns the time of the next TTL check. With aligned TTL checks, it
+	 * is the first multiple of {@link #TTL_CHECK_INTERVAL} at which the TTL
+	 * of some buffered message may have run out, so it doesn't depend on
+	 * when the host was updated before. Otherwise it's one check interval
+	 * after the previous check.
+	 * @return The check time or Double.MAX_VALUE if no message can expire
+	 */
+	private double getTtlCheckTime() {
+		if (this.nextTtlExpiry == Double.MAX_VALUE) {
+			return Double.MAX_VALUE;
+		}
+		if (!this.alignedTtlChecks) {
+			return lastTtlCheck + TTL_CHECK_INTERVAL;
+		}
+		/* one second margin for the rounding in the TTL calculation */
+		return Math.ceil((this.nextTtlExpiry - 1) / TTL_CHECK_INTERVAL) *
+			TTL_CHECK_INTERVAL;
+	}
+
+	/**
+	 * Sets the TTL checks aligned to the multiples of
+	 * {@link #TTL_CHECK_INTERVAL}. The event-driven engine uses aligned
+	 * checks, since a host that isn't updated at every interval can't do a
+	 * check every {@link #TTL_CHECK_INTERVAL} seconds after the previous
+	 * one. Messages may then be dropped at different times than with the
+	 * default checks.
+	 * @param aligned True for aligned checks, false for the default checks
+	 */
+	public void setAlignedTtlChecks(boolean aligned) {
+		this.alignedTtlChecks = aligned;
+	}
+
+	/**
+	 * Returns the number of TTL checks (in all routers) that didn't go
+	 * through the buffer because no message could have expired yet
+	 * @return The number of skipped TTL checks
+	 */
+	public static long getNrofSkippedTtlChecks() {
+		return nrofSkippedTtlChecks;
+	}
+
+	/**
+	 * Resets the skipped TTL check counter
+	 */
+	public static void reset() {
+		nrofSkippedTtlChecks = 0;
+	}
+
+	/**
+	 * Returns the time of the next TTL check (or the current time if energy
+	 * modeling is enabled) unless the superclass requires an earlier update.
+	 * @see MessageRouter#getNextUpdateTime()
+	 */
+	@Override
+	public double getNextUpdateTime() {
+		if (energy != null) {
+			return SimClock.getTime();
+		}
+		return Math.min(super.getNextUpdateTime(), getTtlCheckTime());
+	}
+
 	/**
 	 * Method is called just before a transfer is aborted at {@link #update()}
 	 * due connection going down. This happens on the sending host.
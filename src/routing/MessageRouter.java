@@ -4,6 +4,8 @@
  */
 package routing;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -20,7 +22,10 @@ import core.Settings;
 import core.SettingsError;
 import core.SimClock;
 import core.SimError;
+import routing.util.DropPolicy;
+import routing.util.MessageBuffer;
 import routing.util.RoutingInfo;
+import util.IntHashMap;
 import util.Tuple;
 
 /**
@@ -47,6 +52,18 @@ public abstract class MessageRouter {
 	 */
 	public static final String SEND_QUEUE_MODE_S = "sendQueue";
 
+	/**
+	 * Message drop policy -setting id ({@value}). Name of a
+	 * {@link DropPolicy} class in the routing.util package that decides which
+	 * messages are dropped first when the buffer is full. Default is
+	 * {@link #DEF_DROP_POLICY}. Custom policies can be added the same way.
+	 */
+	public static final String DROP_POLICY_S = "dropPolicy";
+	/** Default drop policy ({@value}): oldest received message first */
+	public static final String DEF_DROP_POLICY = "OldestFirstDropPolicy";
+	/** Package where to look for drop policy classes ({@value}) */
+	public static final String DROP_POLICY_PACKAGE = "routing.util.";
+
 	/** Setting value for random queue mode */
 	public static final int Q_MODE_RANDOM = 1;
 	/** Setting value for FIFO queue mode */
@@ -85,14 +102,18 @@ public abstract class MessageRouter {
 	public static final int INCUBATION_PERIOD = 2;
 
 	private List<MessageListener> mListeners;
-	/** The messages being transferred with msgID_hostName keys */
-	private HashMap<String, Message> incomingMessages;
+	/** The messages being transferred (at most one per connection) */
+	private List<Message> incomingMessages;
+	/** The hosts the incoming messages are from (by the same indexes) */
+	private List<DTNHost> incomingFrom;
 	/** The messages this router is carrying */
-	private HashMap<String, Message> messages;
-	/** The messages this router has received as the final recipient */
-	private HashMap<String, Message> deliveredMessages;
-	/** The messages that Applications on this router have blacklisted */
-	private HashMap<String, Object> blacklistedMessages;
+	private MessageBuffer messages;
+	/** The messages this router has received as the final recipient, by
+	 * their ID indexes (see {@link Message#getIdIndex()}) */
+	private IntHashMap<Message> deliveredMessages;
+	/** ID indexes of the messages that Applications on this router have
+	 * blacklisted */
+	private BitSet blacklistedMessages;
 	/** Host where this router belongs to */
 	private DTNHost host;
 	/** size of the buffer */
@@ -101,6 +122,8 @@ public abstract class MessageRouter {
 	protected int msgTtl;
 	/** Queue mode for sending messages */
 	private int sendQueueMode;
+	/** The order of dropping messages from a full buffer */
+	private DropPolicy dropPolicy;
 
 	/** applications attached to the host */
 	private HashMap<String, Collection<Application>> applications = null;
@@ -143,6 +166,15 @@ public abstract class MessageRouter {
 		else {
 			sendQueueMode = Q_MODE_RANDOM;
 		}
+
+		String policy = s.getSetting(DROP_POLICY_S, DEF_DROP_POLICY);
+		Object policyObject = s.createObject(DROP_POLICY_PACKAGE + policy);
+		if (!(policyObject instanceof DropPolicy)) {
+			throw new SettingsError("Invalid value for " +
+					s.getFullPropertyName(DROP_POLICY_S) + ": " + policy +
+					" is not a drop policy");
+		}
+		this.dropPolicy = (DropPolicy)policyObject;
 	}
 
 	/**
@@ -153,10 +185,11 @@ public abstract class MessageRouter {
 	 * @param mListeners The message listeners
 	 */
 	public void init(DTNHost host, List<MessageListener> mListeners) {
-		this.incomingMessages = new HashMap<String, Message>();
-		this.messages = new HashMap<String, Message>();
-		this.deliveredMessages = new HashMap<String, Message>();
-		this.blacklistedMessages = new HashMap<String, Object>();
+		this.incomingMessages = new ArrayList<Message>();
+		this.incomingFrom = new ArrayList<DTNHost>();
+		this.messages = new MessageBuffer(this.dropPolicy);
+		this.deliveredMessages = new IntHashMap<Message>();
+		this.blacklistedMessages = new BitSet();
 		this.mListeners = mListeners;
 		this.host = host;
 	}
@@ -169,6 +202,7 @@ public abstract class MessageRouter {
 		this.bufferSize = r.bufferSize;
 		this.msgTtl = r.msgTtl;
 		this.sendQueueMode = r.sendQueueMode;
+		this.dropPolicy = r.dropPolicy;
 
 		this.applications = new HashMap<String, Collection<Application>>();
 		for (Collection<Application> apps : r.applications.values()) {
@@ -191,6 +225,22 @@ public abstract class MessageRouter {
 		}
 	}
 
+	/**
+	 * Returns the simulation time when the result of {@link #update()} may
+	 * change even if no connections or messages change, e.g., because of
+	 * timers. Routers with time dependent state should override this.
+	 * This implementation returns the current time if any applications are
+	 * attached (since applications can do anything on update).
+	 * @return The earliest time of a possible change in this router's
+	 * behavior, or Double.MAX_VALUE if there is no time dependent state
+	 */
+	public double getNextUpdateTime() {
+		if (this.applications.isEmpty()) {
+			return Double.MAX_VALUE;
+		}
+		return SimClock.getTime();
+	}
+
 	/**
 	 * Informs the router about change in connections state.
 	 * @param con The connection that changed
@@ -212,7 +262,19 @@ public abstract class MessageRouter {
 	 * @return True if the router has message with this id, false if not
 	 */
 	public boolean hasMessage(String id) {
-		return this.messages.containsKey(id);
+		return this.messages.contains(id);
+	}
+
+	/**
+	 * Checks if this router has a message with the same id as the given
+	 * message buffered. This is a cheaper check than
+	 * {@link #hasMessage(String)} since it only uses the summary vector
+	 * (bit set of message ID indexes) of the buffer.
+	 * @param m The message
+	 * @return True if the router has message with the same id, false if not
+	 */
+	public boolean hasMessage(Message m) {
+		return this.messages.contains(m);
 	}
 
 	/**
@@ -224,7 +286,7 @@ public abstract class MessageRouter {
 	 * this host as the final recipient.
 	 */
 	protected boolean isDeliveredMessage(Message m) {
-		return (this.deliveredMessages.containsKey(m.getId()));
+		return (this.deliveredMessages.containsKey(m.getIdIndex()));
 	}
 
 	/**
@@ -237,7 +299,18 @@ public abstract class MessageRouter {
 	 * @return <code>true</code> if blacklisted, <code>false</code> otherwise.
 	 */
 	protected boolean isBlacklistedMessage(String id) {
-		return this.blacklistedMessages.containsKey(id);
+		int index = Message.getIdIndex(id);
+		return index >= 0 && this.blacklistedMessages.get(index);
+	}
+
+	/**
+	 * Returns <code>true</code> if the message has been blacklisted
+	 * (see {@link #isBlacklistedMessage(String)}).
+	 * @param m The message
+	 * @return <code>true</code> if blacklisted, <code>false</code> otherwise.
+	 */
+	protected boolean isBlacklistedMessage(Message m) {
+		return this.blacklistedMessages.get(m.getIdIndex());
 	}
 
 	/**
@@ -249,7 +322,18 @@ public abstract class MessageRouter {
 	 * @return a reference to the messages of this router in collection
 	 */
 	public Collection<Message> getMessageCollection() {
-		return this.messages.values();
+		return this.messages.getMessages();
+	}
+
+	/**
+	 * Returns the messages of this router in the order they should be
+	 * dropped when the buffer is full (as defined by the drop policy
+	 * setting {@link #DROP_POLICY_S}). The buffer must not be modified while
+	 * iterating through the messages.
+	 * @return The messages in the drop order
+	 */
+	protected Iterable<Message> getMessagesInDropOrder() {
+		return this.messages.getDropOrder();
 	}
 
 	/**
@@ -276,17 +360,11 @@ public abstract class MessageRouter {
 	 * size isn't defined)
 	 */
 	public long getFreeBufferSize() {
-		long occupancy = 0;
-
 		if (this.getBufferSize() == Integer.MAX_VALUE) {
 			return Integer.MAX_VALUE;
 		}
 
-		for (Message m : getMessageCollection()) {
-			occupancy += m.getSize();
-		}
-
-		return this.getBufferSize() - occupancy;
+		return this.getBufferSize() - this.messages.getOccupancy();
 	}
 
 	/**
@@ -324,20 +402,20 @@ public abstract class MessageRouter {
 
 	/**
 	 * Try to start receiving a message from another host.
-	 * @param m Message to put in the receiving buffer
+	 * @param m Message to put in the receiving buffer. This must be a
+	 * replicate of the sender's message (see {@link Message#replicate()})
+	 * since the receiving router keeps and modifies it.
 	 * @param from Who the message is from
 	 * @return Value zero if the node accepted the message (RCV_OK), value less
 	 * than zero if node rejected the message (e.g. DENIED_OLD), value bigger
 	 * than zero if the other node should try later (e.g. TRY_LATER_BUSY).
 	 */
 	public int receiveMessage(Message m, DTNHost from) {
-		Message newMessage = m.replicate();
-
-		this.putToIncomingBuffer(newMessage, from);
-		newMessage.addNodeOnPath(this.host);
+		this.putToIncomingBuffer(m, from);
+		m.addNodeOnPath(this.host);
 
 		for (MessageListener ml : this.mListeners) {
-			ml.messageTransferStarted(newMessage, from, getHost());
+			ml.messageTransferStarted(m, from, getHost());
 		}
 
 		return RCV_OK; // superclass always accepts messages
@@ -385,11 +463,11 @@ public abstract class MessageRouter {
 			// -> put to buffer
 			addToMessages(aMessage, false);
 		} else if (isFirstDelivery) {
-			this.deliveredMessages.put(id, aMessage);
+			this.deliveredMessages.put(incoming.getIdIndex(), aMessage);
 		} else if (outgoing == null) {
 			// Blacklist messages that an app wants to drop.
 			// Otherwise the peer will just try to send it back again.
-			this.blacklistedMessages.put(id, null);
+			this.blacklistedMessages.set(incoming.getIdIndex());
 		}
 
 		for (MessageListener ml : this.mListeners) {
@@ -407,7 +485,8 @@ public abstract class MessageRouter {
 	 * @param from Who the message was from (previous hop).
 	 */
 	protected void putToIncomingBuffer(Message m, DTNHost from) {
-		this.incomingMessages.put(m.getId() + "_" + from.toString(), m);
+		this.incomingMessages.add(m);
+		this.incomingFrom.add(from);
 	}
 
 	/**
@@ -418,7 +497,14 @@ public abstract class MessageRouter {
 	 * @return The found message or null if such message wasn't found
 	 */
 	protected Message removeFromIncomingBuffer(String id, DTNHost from) {
-		return this.incomingMessages.remove(id + "_" + from.toString());
+		for (int i=0, n=this.incomingMessages.size(); i<n; i++) {
+			if (this.incomingFrom.get(i) == from &&
+					this.incomingMessages.get(i).getId().equals(id)) {
+				this.incomingFrom.remove(i);
+				return this.incomingMessages.remove(i);
+			}
+		}
+		return null;
 	}
 
 	/**
@@ -428,7 +514,12 @@ public abstract class MessageRouter {
 	 * @return True if such message is incoming right now
 	 */
 	protected boolean isIncomingMessage(String id) {
-		return this.incomingMessages.containsKey(id);
+		for (Message m : this.incomingMessages) {
+			if (m.getId().equals(id)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -439,7 +530,7 @@ public abstract class MessageRouter {
 	 * message, if false, nothing is informed.
 	 */
 	protected void addToMessages(Message m, boolean newMessage) {
-		this.messages.put(m.getId(), m);
+		this.messages.add(m);
 
 		if (newMessage) {
 			for (MessageListener ml : this.mListeners) {
@@ -605,7 +696,7 @@ public abstract class MessageRouter {
 		ri.addMoreInfo(delivered);
 		ri.addMoreInfo(cons);
 
-		for (Message m : this.incomingMessages.values()) {
+		for (Message m : this.incomingMessages) {
 			incoming.addMoreInfo(new RoutingInfo(m));
 		}
 
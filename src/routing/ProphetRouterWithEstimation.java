@@ -8,10 +8,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+import routing.util.PredictabilityTable;
 import routing.util.RoutingInfo;
 
 import util.Tuple;
@@ -72,10 +71,8 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	private double ptavg;
 
 	/** delivery predictabilities */
-	private Map<DTNHost, Double> preds;
+	private PredictabilityTable preds;
 
-	/** last meeting time with a node */
-	private Map<DTNHost, Double> meetings;
 	private int nrofSamples;
 	private double meanIET;
 
@@ -126,14 +123,13 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	 * Initializes predictability hash
 	 */
 	private void initPreds() {
-		this.preds = new HashMap<DTNHost, Double>();
+		this.preds = new PredictabilityTable();
 	}
 
 	/**
 	 * Initializes inter-encounter time estimator
 	 */
 	private void initMeetings() {
-		this.meetings = new HashMap<DTNHost, Double>();
 		this.meanIET = 0;
 		this.nrofSamples = 0;
 	}
@@ -159,18 +155,19 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	private boolean updateIET(DTNHost host) {
 		/* First estimate the mean InterEncounter Time */
 		double currentTime = SimClock.getTime();
-		if (meetings.containsKey(host)) {
-			double timeDiff = currentTime - meetings.get(host);
-			// System.out.printf("current time: %f\t last time:  %f\n",currentTime,meetings.get(host));
+		double lastMeeting = preds.getLastEncounter(host);
+		if (!Double.isNaN(lastMeeting)) {
+			double timeDiff = currentTime - lastMeeting;
+			// System.out.printf("current time: %f\t last time:  %f\n",currentTime,lastMeeting);
 
 			nrofSamples++;
 			meanIET = (((double)nrofSamples -1) / (double)nrofSamples) * meanIET
 			+ (1 / (double)nrofSamples) * timeDiff;
-			meetings.put(host, currentTime);
+			preds.setLastEncounter(host, currentTime);
 			return true;
 		} else {
 			/* nothing to update */
-			meetings.put(host,currentTime);
+			preds.setLastEncounter(host, currentTime);
 			return false;
 		}
 	}
@@ -327,7 +324,7 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	private void updateDeliveryPredFor(DTNHost host) {
 		double oldValue = getPredFor(host);
 		double newValue = oldValue + (1 - oldValue) * pinit;
-		preds.put(host, newValue);
+		preds.set(host, newValue);
 	}
 
 	/**
@@ -338,12 +335,7 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	 */
 	public double getPredFor(DTNHost host) {
 		ageDeliveryPreds(); // make sure preds are updated before getting
-		if (preds.containsKey(host)) {
-			return preds.get(host);
-		}
-		else {
-			return 0;
-		}
+		return preds.get(host);
 	}
 
 	/**
@@ -358,17 +350,19 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 		" with other routers of same type";
 
 		double pForHost = getPredFor(host); // P(a,b)
-		Map<DTNHost, Double> othersPreds =
+		PredictabilityTable othersPreds =
 			((ProphetRouterWithEstimation)otherRouter).getDeliveryPreds();
 
-		for (Map.Entry<DTNHost, Double> e : othersPreds.entrySet()) {
-			if (e.getKey() == getHost()) {
+		for (int i=0, n=othersPreds.size(); i<n; i++) {
+			DTNHost c = othersPreds.getHost(i);
+			if (c == getHost()) {
 				continue; // don't add yourself
 			}
 
-			double pOld = getPredFor(e.getKey()); // P(a,c)_old
-			double pNew = pOld + ( 1 - pOld) * pForHost * e.getValue() * beta;
-			preds.put(e.getKey(), pNew);
+			double pOld = getPredFor(c); // P(a,c)_old
+			double pNew = pOld + ( 1 - pOld) * pForHost *
+				othersPreds.getValue(i) * beta;
+			preds.set(c, pNew);
 		}
 	}
 
@@ -384,10 +378,7 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 			return;
 		}
 
-		double mult = Math.pow(gamma, timeDiff);
-		for (Map.Entry<DTNHost, Double> e : preds.entrySet()) {
-			e.setValue(e.getValue()*mult);
-		}
+		preds.age(gamma, timeDiff);
 
 		this.lastAgeUpdate = SimClock.getTime();
 	}
@@ -396,11 +387,24 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	 * Returns a map of this router's delivery predictions
 	 * @return a map of this router's delivery predictions
 	 */
-	private Map<DTNHost, Double> getDeliveryPreds() {
+	private PredictabilityTable getDeliveryPreds() {
 		ageDeliveryPreds(); // make sure the aging is done
 		return this.preds;
 	}
 
+	/**
+	 * Delivery predictabilities age every time they are read, so this
+	 * router is kept updated as long as it can start transfers.
+	 * @see MessageRouter#getNextUpdateTime()
+	 */
+	@Override
+	public double getNextUpdateTime() {
+		if (canStartTransfer()) {
+			return SimClock.getTime();
+		}
+		return super.getNextUpdateTime();
+	}
+
 	@Override
 	public void update() {
 		super.update();
@@ -497,9 +501,9 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 		RoutingInfo ri = new RoutingInfo(preds.size() +
 		" delivery prediction(s)");
 
-		for (Map.Entry<DTNHost, Double> e : preds.entrySet()) {
-			DTNHost host = e.getKey();
-			Double value = e.getValue();
+		for (int i=0, n=preds.size(); i<n; i++) {
+			DTNHost host = preds.getHost(i);
+			double value = preds.getValue(i);
 
 			ri.addMoreInfo(new RoutingInfo(String.format("%s : %.6f",
 					host, value)));
@@ -10,12 +10,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import java.util.Random;
 
+import routing.util.PredictabilityTable;
 import routing.util.RoutingInfo;
 
 
@@ -69,10 +68,7 @@ public class ProphetV2Router extends ActiveRouter {
 	private double gamma;
 
 	/** delivery predictabilities */
-	private Map<DTNHost, Double> preds;
-
-	/** last encouter timestamp (sim)time */
-	private Map<DTNHost, Double> lastEncouterTime;
+	private PredictabilityTable preds;
 
 	/** last delivery predictability update (sim)time */
 	private double lastAgeUpdate;
@@ -100,7 +96,6 @@ public class ProphetV2Router extends ActiveRouter {
 		}
 
 		initPreds();
-		initEncTimes();
 
 	}
 
@@ -114,21 +109,13 @@ public class ProphetV2Router extends ActiveRouter {
 		this.beta = r.beta;
 		this.gamma = r.gamma;
 		initPreds();
-		initEncTimes();
-	}
-
-	/**
-	 * Initializes lastEncouterTime hash
-	 */
-	private void initEncTimes() {
-		this.lastEncouterTime = new HashMap<DTNHost, Double>();
 	}
 
 		/**
 	 * Initializes predictability hash
 	 */
 	private void initPreds() {
-		this.preds = new HashMap<DTNHost, Double>();
+		this.preds = new PredictabilityTable();
 	}
 
 	@Override
@@ -164,8 +151,8 @@ public class ProphetV2Router extends ActiveRouter {
 
 		double oldValue = getPredFor(host);
 		double newValue = oldValue + (1 - oldValue) * PEnc;
-		preds.put(host, newValue);
-		lastEncouterTime.put(host, simTime);
+		preds.set(host, newValue);
+		preds.setLastEncounter(host, simTime);
 	}
 
 	/**
@@ -175,8 +162,9 @@ public class ProphetV2Router extends ActiveRouter {
 	 * @return the last timestamp of encouter with the host
 	 */
 	public double getEncTimeFor(DTNHost host) {
-		if (lastEncouterTime.containsKey(host)) {
-			return lastEncouterTime.get(host);
+		double time = preds.getLastEncounter(host);
+		if (!Double.isNaN(time)) {
+			return time;
 		}
 		else {
 			return 0;
@@ -191,12 +179,7 @@ public class ProphetV2Router extends ActiveRouter {
 	 */
 	public double getPredFor(DTNHost host) {
 		ageDeliveryPreds(); // make sure preds are updated before getting
-		if (preds.containsKey(host)) {
-			return preds.get(host);
-		}
-		else {
-			return 0;
-		}
+		return preds.get(host);
 	}
 
 	/**
@@ -211,19 +194,20 @@ public class ProphetV2Router extends ActiveRouter {
 			"PRoPHETv2 only works with other routers of same type";
 
 		double pForHost = getPredFor(host); // P(a,b)
-		Map<DTNHost, Double> othersPreds =
+		PredictabilityTable othersPreds =
 			((ProphetV2Router)otherRouter).getDeliveryPreds();
 
-		for (Map.Entry<DTNHost, Double> e : othersPreds.entrySet()) {
-			if (e.getKey() == getHost()) {
+		for (int i=0, n=othersPreds.size(); i<n; i++) {
+			DTNHost c = othersPreds.getHost(i);
+			if (c == getHost()) {
 				continue; // don't add yourself
 			}
 
 //ProphetV2 max(old,new)
-			double pOld = getPredFor(e.getKey()); // P(a,c)_old
-			double pNew = pForHost * e.getValue() * beta;
+			double pOld = getPredFor(c); // P(a,c)_old
+			double pNew = pForHost * othersPreds.getValue(i) * beta;
 			if(pNew>pOld)
-				preds.put(e.getKey(), pNew);
+				preds.set(c, pNew);
 
 		}
 	}
@@ -242,10 +226,7 @@ public class ProphetV2Router extends ActiveRouter {
 			return;
 		}
 
-		double mult = Math.pow(gamma, timeDiff);
-		for (Map.Entry<DTNHost, Double> e : preds.entrySet()) {
-			e.setValue(e.getValue()*mult);
-		}
+		preds.age(gamma, timeDiff);
 
 		this.lastAgeUpdate = SimClock.getTime();
 	}
@@ -254,11 +235,24 @@ public class ProphetV2Router extends ActiveRouter {
 	 * Returns a map of this router's delivery predictions
 	 * @return a map of this router's delivery predictions
 	 */
-	private Map<DTNHost, Double> getDeliveryPreds() {
+	private PredictabilityTable getDeliveryPreds() {
 		ageDeliveryPreds(); // make sure the aging is done
 		return this.preds;
 	}
 
+	/**
+	 * Delivery predictabilities age every time they are read, so this
+	 * router is kept updated as long as it can start transfers.
+	 * @see MessageRouter#getNextUpdateTime()
+	 */
+	@Override
+	public double getNextUpdateTime() {
+		if (canStartTransfer()) {
+			return SimClock.getTime();
+		}
+		return super.getNextUpdateTime();
+	}
+
 	@Override
 	public void update() {
 		super.update();
@@ -356,9 +350,9 @@ public class ProphetV2Router extends ActiveRouter {
 		RoutingInfo ri = new RoutingInfo(preds.size() +
 				" delivery prediction(s)");
 
-		for (Map.Entry<DTNHost, Double> e : preds.entrySet()) {
-			DTNHost host = e.getKey();
-			Double value = e.getValue();
+		for (int i=0, n=preds.size(); i<n; i++) {
+			DTNHost host = preds.getHost(i);
+			double value = preds.getValue(i);
 
 			ri.addMoreInfo(new RoutingInfo(String.format("%s : %.6f",
 					host, value)));
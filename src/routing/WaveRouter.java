@@ -4,10 +4,6 @@
  */
 package routing;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-
 import routing.util.RoutingInfo;
 
 import core.Connection;
@@ -15,6 +11,7 @@ import core.DTNHost;
 import core.Message;
 import core.Settings;
 import core.SimClock;
+import util.IntHashMap;
 
 /**
  * Epidemic-like message router making waves of messages.
@@ -34,10 +31,11 @@ public class WaveRouter extends ActiveRouter {
 	public static final String CUSTODY_S = "custodyFraction";
 	private double immunityTime;
 	private double custodyFraction;
-	/** map of recently received messages and their receive times */
-	private Map<String, Double> recentMessages;
-	/** IDs of the messages this host has custody for */
-	private Map<String, Double> custodyMessages;
+	/** receive times of recently received messages by their ID indexes */
+	private IntHashMap<Double> recentMessages;
+	/** custody start times of the messages this host has custody for, by
+	 * the messages' ID indexes */
+	private IntHashMap<Double> custodyMessages;
 
 	/**
 	 * Constructor. Creates a new message router based on the settings in
@@ -56,22 +54,22 @@ public class WaveRouter extends ActiveRouter {
 	 */
 	protected WaveRouter(WaveRouter r) {
 		super(r);
-		recentMessages = new HashMap<String, Double>();
+		recentMessages = new IntHashMap<Double>();
 		this.immunityTime = r.immunityTime;
 		this.custodyFraction = r.custodyFraction;
-		this.custodyMessages = new HashMap<String, Double>();
+		this.custodyMessages = new IntHashMap<Double>();
 	}
 
 	@Override
 	protected int checkReceiving(Message m, DTNHost from) {
-		Double lastTime = this.recentMessages.get(m.getId());
+		Double lastTime = this.recentMessages.get(m.getIdIndex());
 
 		if (lastTime != null) {
 			if (lastTime + this.immunityTime > SimClock.getTime()) {
 				return DENIED_POLICY; /* still immune to the message */
 			} else {
 				/* immunity has passed; remove from recent */
-				this.recentMessages.remove(m.getId());
+				this.recentMessages.remove(m.getIdIndex());
 			}
 		}
 
@@ -84,15 +82,12 @@ public class WaveRouter extends ActiveRouter {
 	 */
 	@Override
 	protected Message getNextMessageToRemove(boolean excludeMsgBeingSent) {
-		Collection<Message> messages = this.getMessageCollection();
-		Message oldest = null;
-
-		for (Message m : messages) {
-			Double custodyStartTime = this.custodyMessages.get(m.getId());
+		for (Message m : getMessagesInDropOrder()) {
+			Double custodyStartTime = this.custodyMessages.get(m.getIdIndex());
 			if (custodyStartTime != null) {
 				if (SimClock.getTime() >
 					custodyStartTime + immunityTime * custodyFraction) {
-					this.custodyMessages.remove(m.getId()); /* time passed */
+					this.custodyMessages.remove(m.getIdIndex()); /* time passed */
 				} else {
 					continue; /* skip messages that still have custody */
 				}
@@ -103,15 +98,10 @@ public class WaveRouter extends ActiveRouter {
 				continue; /* skip the message(s) that router is sending */
 			}
 
-			if (oldest == null ) {
-				oldest = m;
-			}
-			else if (oldest.getReceiveTime() > m.getReceiveTime()) {
-				oldest = m;
-			}
+			return m;
 		}
 
-		return oldest;
+		return null;
 	}
 
 	@Override
@@ -133,15 +123,34 @@ public class WaveRouter extends ActiveRouter {
 	public Message messageTransferred(String id, DTNHost from) {
 		Message m = super.messageTransferred(id, from);
 		/* store received message IDs for immunity */
-		this.recentMessages.put(m.getId(), new Double(SimClock.getTime()));
-		this.custodyMessages.put(id, SimClock.getTime());
+		this.recentMessages.put(m.getIdIndex(), SimClock.getTime());
+		this.custodyMessages.put(m.getIdIndex(), SimClock.getTime());
 		return m;
 	}
 
+	/**
+	 * Returns the earliest time when immunity or custody of some message
+	 * ends (unless the superclass requires an earlier update).
+	 * @see MessageRouter#getNextUpdateTime()
+	 */
+	@Override
+	public double getNextUpdateTime() {
+		double next = super.getNextUpdateTime();
+
+		for (Double time : this.recentMessages.values()) {
+			next = Math.min(next, time + this.immunityTime);
+		}
+		for (Double time : this.custodyMessages.values()) {
+			next = Math.min(next, time + immunityTime * custodyFraction);
+		}
+
+		return next;
+	}
+
 	@Override
 	protected void transferDone(Connection con) {
 		/* remove from custody messages (if it was there) */
-		this.custodyMessages.remove(con.getMessage().getId());
+		this.custodyMessages.remove(con.getMessage().getIdIndex());
 	}
 
 	@Override
@@ -150,10 +159,10 @@ public class WaveRouter extends ActiveRouter {
 		RoutingInfo immunity = new RoutingInfo("Immune to " +
 				this.recentMessages.size() + " messages");
 
-		for (String id : recentMessages.keySet()) {
-			RoutingInfo m = new RoutingInfo(id + " until " +
-					String.format("%.2f",
-							recentMessages.get(id) + this.immunityTime));
+		for (int index : recentMessages.keys()) {
+			RoutingInfo m = new RoutingInfo(Message.getIdForIndex(index) +
+					" until " + String.format("%.2f",
+							recentMessages.get(index) + this.immunityTime));
 			immunity.addMoreInfo(m);
 		}
 		ri.addMoreInfo(immunity);
@@ -4,33 +4,55 @@
  */
 package routing.maxprop;
 
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.Set;
 
 /**
- * Dijkstra's shortest path implementation for MaxProp Router module.
+ * <P>Dijkstra's shortest path implementation for MaxProp Router module.</P>
+ *
+ * <P>The search state is stored in arrays indexed by the node indexes
+ * (addresses) and reused between searches, and the meeting probabilities
+ * are read from the array presentation of the probability sets (see
+ * {@link MeetingProbabilitySet#getIndexArray()}).</P>
+ *
+ * <P>The costs from a start node to all the nodes it can reach are cached
+ * and reused by {@link #getCost(int, int)} until a probability set of some
+ * node that the search visited is changed. The user of the class must tell
+ * about the changes with {@link #probsChanged(int)}.</P>
  */
 public class MaxPropDijkstra {
 	/** Value for infinite distance  */
-	private static final Double INFINITY = Double.MAX_VALUE;
-	/** Initial size of the priority queue */
-	private static final int PQ_INIT_SIZE = 11;
-
-	/** Map of node distances from the source node */
-	private DistanceMap distancesFromStart;
-	/** Set of already visited nodes (where the shortest path is known) */
-	private Set<Integer> visited;
-	/** Priority queue of unvisited nodes discovered so far */
-	private Queue<Integer> unvisited;
-	/** Map of previous nodes on the shortest path(s) -- only used for
-	 * debugging purposes */
-	private Map<Integer, Integer> prevNodes;
+	private static final double INFINITY = Double.MAX_VALUE;
+	/** Initial size of the node arrays */
+	private static final int INIT_SIZE = 16;
+	/** Maximum number of cached search results. If there are more, all
+	 * the results are dropped. */
+	private static final int MAX_CACHED_RESULTS = 64;
+
+	/** generation number of the current search */
+	private int generation;
+	/** generation of the search that set the node's values */
+	private int[] stamps;
+	/** distances of the nodes from the source node */
+	private double[] distances;
+	/** is the node visited (shortest path known) in the current search */
+	private boolean[] visited;
+	/** positions of the nodes in the heap (-1 = not in the heap) */
+	private int[] heapIndexes;
+	/** binary heap of unvisited nodes discovered so far */
+	private int[] heap;
+	private int heapSize;
+
+	/** cached search results by their start node index */
+	private CostResult[] results;
+	/** all cached search results */
+	private List<CostResult> cachedResults;
+
 	/** Mapping of to other nodes' (whom this node has met) probability sets */
 	private Map<Integer, MeetingProbabilitySet> probs;
 
@@ -41,184 +63,315 @@ public class MaxPropDijkstra {
 	 */
 	public MaxPropDijkstra(Map<Integer, MeetingProbabilitySet> probs) {
 		this.probs = probs;
+		this.generation = 0;
+		this.results = new CostResult[INIT_SIZE];
+		this.cachedResults = new ArrayList<CostResult>();
+		allocate(INIT_SIZE);
+	}
+
+	/**
+	 * Allocates (or grows) the node arrays
+	 * @param size Minimum size of the arrays
+	 */
+	private void allocate(int size) {
+		int newSize = Math.max(size, stamps == null ? 0 : stamps.length * 2);
+		if (stamps == null) {
+			stamps = new int[newSize];
+			distances = new double[newSize];
+			visited = new boolean[newSize];
+			heapIndexes = new int[newSize];
+			heap = new int[newSize];
+		} else {
+			stamps = Arrays.copyOf(stamps, newSize);
+			distances = Arrays.copyOf(distances, newSize);
+			visited = Arrays.copyOf(visited, newSize);
+			heapIndexes = Arrays.copyOf(heapIndexes, newSize);
+			heap = Arrays.copyOf(heap, newSize);
+		}
+	}
+
+	/**
+	 * Makes a node part of the current search (if it isn't already)
+	 * @param node The node
+	 */
+	private void touch(int node) {
+		if (node >= stamps.length) {
+			allocate(node + 1);
+		}
+		if (stamps[node] != generation) {
+			stamps[node] = generation;
+			distances[node] = INFINITY;
+			visited[node] = false;
+			heapIndexes[node] = -1;
+		}
 	}
 
 	/**
 	 * Initializes a new search with the first hop router node
 	 * @param firstHop The first hop router node
 	 */
-	private void initWith(Integer firstHop) {
-		this.unvisited = new PriorityQueue<Integer>(PQ_INIT_SIZE,
-				new DistanceComparator());
-		this.visited = new HashSet<Integer>();
-		this.prevNodes = new HashMap<Integer, Integer>();
-		this.distancesFromStart = new DistanceMap();
+	private void initWith(int firstHop) {
+		generation++;
+		if (generation == 0) { // wrapped around -> old stamps may match
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+		heapSize = 0;
 
 		// set distance to source 0 and initialize unvisited queue
-		this.distancesFromStart.put(firstHop, 0);
-		this.unvisited.add(firstHop);
+		touch(firstHop);
+		distances[firstHop] = 0;
+		push(firstHop);
 	}
 
 	/**
 	 * Calculates total costs to the given set of target nodes. The cost to
 	 * a node is the sum of complements of probabilities that all the links
-	 * come up as the next contact of the nodes.
+	 * come up as the next contact of the nodes. The result is not cached.
 	 * @param from The index (address) of the start node
 	 * @param to The address set of destination nodes
 	 * @return A map of (destination node, cost) tuples
 	 */
 	public Map<Integer, Double> getCosts(Integer from, Set<Integer> to) {
 		Map<Integer, Double> distMap = new HashMap<Integer, Double>();
-		int nrofNodesToFind = to.size();
+		CostResult result = search(from);
+
+		for (Integer node : to) {
+			double cost = result.getCost(node);
+			if (cost != INFINITY) {
+				distMap.put(node, cost);
+			}
+		}
+
+		return distMap;
+	}
+
+	/**
+	 * Returns the cost from a node to another (see
+	 * {@link #getCosts(Integer, Set)}). The costs from the start node to all
+	 * the nodes are calculated and cached when they are needed the first
+	 * time and reused until {@link #probsChanged(int)} is called for a node
+	 * the costs depend on.
+	 * @param from The index (address) of the start node
+	 * @param to The index (address) of the destination node
+	 * @return The cost or Double.MAX_VALUE if there is no known path to
+	 * the destination
+	 */
+	public double getCost(int from, int to) {
+		CostResult result = from < results.length ? results[from] : null;
+
+		if (result == null) {
+			if (cachedResults.size() >= MAX_CACHED_RESULTS) {
+				clearCache();
+			}
+			result = search(from);
+			if (from >= results.length) {
+				results = Arrays.copyOf(results,
+						Math.max(from + 1, results.length * 2));
+			}
+			results[from] = result;
+			cachedResults.add(result);
+		}
+
+		return result.getCost(to);
+	}
+
+	/**
+	 * Tells that the meeting probability set of a node has changed (or it
+	 * was replaced with another set). Drops the cached costs of all the
+	 * searches that visited the node.
+	 * @param node The index (address) of the node
+	 */
+	public void probsChanged(int node) {
+		for (int i=cachedResults.size()-1; i>=0; i--) {
+			CostResult result = cachedResults.get(i);
+			if (result.visited.get(node)) {
+				results[result.from] = null;
+				/* replace with the last one; the order doesn't matter */
+				int last = cachedResults.size() - 1;
+				cachedResults.set(i, cachedResults.get(last));
+				cachedResults.remove(last);
+			}
+		}
+	}
+
+	/**
+	 * Drops all the cached costs
+	 */
+	public void clearCache() {
+		for (CostResult result : cachedResults) {
+			results[result.from] = null;
+		}
+		cachedResults.clear();
+	}
+
+	/**
+	 * Calculates the costs from a node to all the nodes it can reach
+	 * @param from The index (address) of the start node
+	 * @return The costs
+	 */
+	private CostResult search(int from) {
+		BitSet visitedNodes = new BitSet();
+		int maxNode = from;
 
 		initWith(from);
-		Integer node = null;
 
 		// always take the node with shortest distance
-		while ((node = unvisited.poll()) != null) {
-			if (to.contains(node)) {
-				// found one of the requested nodes
-				distMap.put(node, distancesFromStart.get(node));
-				nrofNodesToFind--;
-				if (nrofNodesToFind == 0) {
-					break; // all requested nodes found
-				}
+		while (heapSize > 0) {
+			int node = poll();
+			visited[node] = true; // mark the node as visited
+			visitedNodes.set(node);
+			if (node > maxNode) {
+				maxNode = node;
 			}
-
-			visited.add(node); // mark the node as visited
 			relax(node);       // add/update neighbor nodes' distances
 		}
 
-		return distMap;
+		double[] costs = new double[maxNode + 1];
+		for (int node = visitedNodes.nextSetBit(0); node >= 0;
+				node = visitedNodes.nextSetBit(node + 1)) {
+			costs[node] = distances[node];
+		}
+		return new CostResult(from, costs, visitedNodes);
 	}
 
 	/**
 	 * Relaxes the neighbors of a node (updates the shortest distances).
 	 * @param node The node whose neighbors are relaxed
 	 */
-	private void relax(Integer node) {
-		double nodeDist = distancesFromStart.get(node);
-		Collection<Integer> neighbors;
+	private void relax(int node) {
+		double nodeDist = distances[node];
+		MeetingProbabilitySet mps = this.probs.get(node);
 
-		if (!this.probs.containsKey(node)) {
+		if (mps == null) {
 			return; // node's neighbors are not known
 		}
 
-		neighbors =	this.probs.get(node).getAllProbs().keySet();
-
-		for (Integer n : neighbors) {
-			if (visited.contains(n)) {
+		int[] neighbors = mps.getIndexArray();
+		double[] nodeProbs = mps.getProbArray();
+		for (int i=0; i<neighbors.length; i++) {
+			int n = neighbors[i];
+			touch(n);
+			if (visited[n]) {
 				continue; // skip visited nodes
 			}
 
-			// n node's distance from path's source node
-			double nDist = nodeDist + getDistance(node, n);
+			// n node's distance from path's source node; the "distance"
+			// is the complement of the probability that the next node
+			// "node" meets is n
+			double nDist = nodeDist + ( 1 - nodeProbs[i] );
 
-			if (distancesFromStart.get(n) > nDist) {
+			if (distances[n] > nDist) {
 				// stored distance > found dist -> update
-				prevNodes.put(n, node); // for debugging
-				setDistance(n, nDist);
+				distances[n] = nDist;
+				if (heapIndexes[n] < 0) {
+					push(n);
+				} else {
+					siftUp(heapIndexes[n]); // distance decreased -> move up
+				}
 			}
 		}
 	}
 
 	/**
-	 * Sets the distance from source node to a node
-	 * @param n The node whose distance is set
-	 * @param distance The distance of the node from the source node
+	 * Compares two nodes by their distance from the source node
+	 * @return True if node1 should be polled before node2
 	 */
-	private void setDistance(Integer n, double distance) {
-		unvisited.remove(n); // remove node from old place in the queue
-		distancesFromStart.put(n, distance); // update distance
-		unvisited.add(n); // insert node to the new place in the queue
+	private boolean isBefore(int node1, int node2) {
+		if (distances[node1] != distances[node2]) {
+			return distances[node1] < distances[node2];
+		}
+		return node1 < node2;
 	}
 
 	/**
-	 * Returns the "distance" between two nodes, i.e., the complement of the
-	 * probability that the next node "from" meets is "to". Works only if there
-	 * exist a probability value for "from" meeting "to".
-	 * @param from The first node
-	 * @param to The second node
-	 * @return The distance between the two nodes
+	 * Adds a node to the heap
+	 * @param node The node
 	 */
-	private double getDistance(Integer from, Integer to) {
-		assert probs.containsKey(from) : "Node " + from + " has not met " + to +
-			" (it has met nodes " + probs.keySet() + ")";
-		return ( 1 - probs.get(from).getProbFor(to) );
+	private void push(int node) {
+		heap[heapSize] = node;
+		heapIndexes[node] = heapSize;
+		siftUp(heapSize++);
 	}
 
 	/**
-	 * Comparator that compares two nodes by their distance from
-	 * the source node.
+	 * Removes and returns the first node of the heap
+	 * @return The node
 	 */
-	private class DistanceComparator implements
-		Comparator<Integer> {
-
-		/**
-		 * Compares two map nodes by their distance from the source node
-		 * @return -1, 0 or 1 if node1's distance is smaller, equal to, or
-		 * bigger than node2's distance
-		 */
-		public int compare(Integer node1, Integer node2) {
-			double dist1 = distancesFromStart.get(node1);
-			double dist2 = distancesFromStart.get(node2);
+	private int poll() {
+		int first = heap[0];
+		heapIndexes[first] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndexes[heap[0]] = 0;
+			siftDown(0);
+		}
+		return first;
+	}
 
-			if (dist1 > dist2) {
-				return 1;
+	private void siftUp(int index) {
+		int node = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!isBefore(node, heap[parent])) {
+				break;
 			}
-			else if (dist1 < dist2) {
-				return -1;
+			heap[index] = heap[parent];
+			heapIndexes[heap[index]] = index;
+			index = parent;
+		}
+		heap[index] = node;
+		heapIndexes[node] = index;
+	}
+
+	private void siftDown(int index) {
+		int node = heap[index];
+		int half = heapSize >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < heapSize && isBefore(heap[right], heap[child])) {
+				child = right;
 			}
-			else {
-				return node1.compareTo(node2);
+			if (!isBefore(heap[child], node)) {
+				break;
 			}
+			heap[index] = heap[child];
+			heapIndexes[heap[index]] = index;
+			index = child;
 		}
+		heap[index] = node;
+		heapIndexes[node] = index;
 	}
 
 	/**
-	 * Simple Map implementation for storing distances.
+	 * Costs from a start node to all the nodes it can reach
 	 */
-	private class DistanceMap {
-		private HashMap<Integer, Double> map;
+	private static class CostResult {
+		private final int from;
+		/** costs by node index (only valid for the visited nodes) */
+		private final double[] costs;
+		/** nodes that were visited by the search */
+		private final BitSet visited;
 
-		/**
-		 * Constructor. Creates an empty distance map
-		 */
-		public DistanceMap() {
-			this.map = new HashMap<Integer, Double>();
+		public CostResult(int from, double[] costs, BitSet visited) {
+			this.from = from;
+			this.costs = costs;
+			this.visited = visited;
 		}
 
 		/**
-		 * Returns the distance to a node. If no distance value
-		 * is found, returns {@link MaxPropDijkstra#INFINITY} as the value.
-		 * @param node The node whose distance is requested
-		 * @return The distance to that node
+		 * Returns the cost to a node
+		 * @param node The node
+		 * @return The cost or {@link MaxPropDijkstra#INFINITY} if the node
+		 * can't be reached
 		 */
-		public double get(Integer node) {
-			Double value = map.get(node);
-			if (value != null) {
-				return value;
-			}
-			else {
+		public double getCost(int node) {
+			if (!visited.get(node)) {
 				return INFINITY;
 			}
-		}
-
-		/**
-		 * Puts a new distance value for a map node
-		 * @param node The node
-		 * @param distance Distance to that node
-		 */
-		public void  put(Integer node, double distance) {
-			map.put(node, distance);
-		}
-
-		/**
-		 * Returns a string representation of the map's contents
-		 * @return a string representation of the map's contents
-		 */
-		public String toString() {
-			return map.toString();
+			return costs[node];
 		}
 	}
 }
@@ -20,6 +20,11 @@ public class MeetingProbabilitySet {
 	public static final int INFINITE_SET_SIZE = Integer.MAX_VALUE;
 	/** meeting probabilities (probability that the next node one meets is X) */
 	private Map<Integer, Double> probs;
+	/** node indexes of the probabilities in an array (null if the array
+	 * hasn't been created after the last update) */
+	private int[] indexArray;
+	/** the probabilities in the same order as in {@link #indexArray} */
+	private double[] probArray;
 	/** the time when this MPS was last updated */
 	private double lastUpdateTime;
 	/** the alpha parameter */
@@ -79,6 +84,7 @@ public class MeetingProbabilitySet {
         double smallestValue = Double.MAX_VALUE;
 
 		this.lastUpdateTime = SimClock.getTime();
+		this.indexArray = null;
 
 		if (probs.size() == 0) { // first entry
 			probs.put(index, 1.0);
@@ -107,6 +113,7 @@ public class MeetingProbabilitySet {
 
 	public void updateMeetingProbFor(Integer index, double iet)	{
 		probs.put(index, iet);
+		this.indexArray = null;
 	}
 
 	/**
@@ -125,13 +132,56 @@ public class MeetingProbabilitySet {
 	}
 
 	/**
-	 * Returns a reference to the probability map of this probability set
+	 * Returns a reference to the probability map of this probability set.
+	 * The map must not be modified.
 	 * @return a reference to the probability map of this probability set
 	 */
 	public Map<Integer, Double> getAllProbs() {
 		return this.probs;
 	}
 
+	/**
+	 * Returns the node indexes that have a probability value in an array.
+	 * The array must not be modified.
+	 * @return The node indexes in the same order as the values returned by
+	 * {@link #getProbArray()}
+	 */
+	public int[] getIndexArray() {
+		if (this.indexArray == null) {
+			createArrays();
+		}
+		return this.indexArray;
+	}
+
+	/**
+	 * Returns the probability values in an array. The array must not be
+	 * modified.
+	 * @return The probabilities in the same order as the node indexes
+	 * returned by {@link #getIndexArray()}
+	 */
+	public double[] getProbArray() {
+		if (this.indexArray == null) {
+			createArrays();
+		}
+		return this.probArray;
+	}
+
+	/**
+	 * Creates the array presentation of the probabilities
+	 */
+	private void createArrays() {
+		int[] indexes = new int[probs.size()];
+		double[] values = new double[probs.size()];
+		int i = 0;
+		for (Map.Entry<Integer, Double> e : probs.entrySet()) {
+			indexes[i] = e.getKey();
+			values[i] = e.getValue();
+			i++;
+		}
+		this.probArray = values;
+		this.indexArray = indexes;
+	}
+
 	/**
 	 * Returns the time when this probability set was last updated
 	 * @return the time when this probability set was last updated
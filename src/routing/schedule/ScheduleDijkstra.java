@@ -6,43 +6,124 @@
 package routing.schedule;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
 
 /**
- * Dijkstra's shortest path implementation for schedule data
+ * <P>Dijkstra's shortest (earliest arrival) path implementation for schedule
+ * data.</P>
+ *
+ * <P>The search state is stored in arrays indexed by the node indexes and
+ * reused between searches, and the schedule entries are read from the time
+ * sorted index of the oracle (see {@link ScheduleOracle#getConnected(int,
+ * double)}).</P>
+ *
+ * <P>For static schedules, the earliest arrival times from a source node can
+ * be cached as tables. The result of a search depends on the start time only
+ * through the entries of the source node that start after it, so the same
+ * table is used for all the start times between two consecutive start times
+ * of the source's entries. The tables are dropped when the schedules of the
+ * oracle change.</P>
  */
 /* TODO: combine this with movement.map.DijkstraPathFinder? */
 public class ScheduleDijkstra {
 	/** Value for infinite distance  */
-	private static final Double INFINITY = Double.MAX_VALUE;
-	/** Initial size of the priority queue */
-	private static final int PQ_INIT_SIZE = 11;
-
-	/** Map of the times when one could be at certain node */
-	private TimeMap times;
-	/** Set of already visited nodes (where the shortest path is known) */
-	private Set<Integer> visited;
-	/** Priority queue of unvisited nodes discovered so far */
-	private Queue<Integer> unvisited;
-	/** Map of previous schedule on the shortest path(s) */
-	private Map<Integer, ScheduleEntry> prevHops;
+	private static final double INFINITY = Double.MAX_VALUE;
+	/** Initial size of the node arrays */
+	private static final int INIT_SIZE = 16;
+	/** Maximum number of cached arrival tables. If there are more, all
+	 * the tables are dropped. */
+	private static final int MAX_CACHED_TABLES = 64;
+
+	/** generation number of the current search */
+	private int generation;
+	/** generation of the search that set the node's values */
+	private int[] stamps;
+	/** the times when one could be at certain node */
+	private double[] times;
+	/** is the node visited (earliest arrival known) in the current search */
+	private boolean[] visited;
+	/** previous schedule entries on the shortest path(s) */
+	private ScheduleEntry[] prevHops;
+	/** positions of the nodes in the heap (-1 = not in the heap) */
+	private int[] heapIndexes;
+	/** binary heap of unvisited nodes discovered so far */
+	private int[] heap;
+	private int heapSize;
+	/** biggest node index the current search has touched */
+	private int maxNode;
+
 	/** Oracle that know all schedules */
 	private ScheduleOracle oracle;
+	/** cached arrival tables by source and first entry index (or null) */
+	private HashMap<Long, ArrivalTable> tables;
+	/** version of the oracle's schedules the tables are based on */
+	private int tablesVersion;
 
 	/**
 	 * Constructor.
 	 * @param oracle The schedule oracle
-	 * all nodes are OK
 	 */
 	public ScheduleDijkstra(ScheduleOracle oracle) {
+		this(oracle, false);
+	}
+
+	/**
+	 * Constructor.
+	 * @param oracle The schedule oracle
+	 * @param staticSchedule If true, the earliest arrival tables of the
+	 * searches are cached and reused while the schedules don't change
+	 */
+	public ScheduleDijkstra(ScheduleOracle oracle, boolean staticSchedule) {
 		this.oracle = oracle;
+		this.generation = 0;
+		this.tables = staticSchedule ? new HashMap<Long, ArrivalTable>() :
+			null;
+		allocate(INIT_SIZE);
+	}
+
+	/**
+	 * Allocates (or grows) the node arrays
+	 * @param size Minimum size of the arrays
+	 */
+	private void allocate(int size) {
+		int newSize = Math.max(size, stamps == null ? 0 : stamps.length * 2);
+		if (stamps == null) {
+			stamps = new int[newSize];
+			times = new double[newSize];
+			visited = new boolean[newSize];
+			prevHops = new ScheduleEntry[newSize];
+			heapIndexes = new int[newSize];
+			heap = new int[newSize];
+		} else {
+			stamps = Arrays.copyOf(stamps, newSize);
+			times = Arrays.copyOf(times, newSize);
+			visited = Arrays.copyOf(visited, newSize);
+			prevHops = Arrays.copyOf(prevHops, newSize);
+			heapIndexes = Arrays.copyOf(heapIndexes, newSize);
+			heap = Arrays.copyOf(heap, newSize);
+		}
+	}
+
+	/**
+	 * Makes a node part of the current search (if it isn't already)
+	 * @param node The node
+	 */
+	private void touch(int node) {
+		if (node >= stamps.length) {
+			allocate(node + 1);
+		}
+		if (stamps[node] != generation) {
+			stamps[node] = generation;
+			times[node] = INFINITY;
+			visited[node] = false;
+			prevHops[node] = null;
+			heapIndexes[node] = -1;
+			if (node > maxNode) {
+				maxNode = node;
+			}
+		}
 	}
 
 	/**
@@ -50,15 +131,18 @@ public class ScheduleDijkstra {
 	 * @param node The path's source node
 	 * @param time The time when the path starts
 	 */
-	private void initWith(Integer node, double time) {
-		this.unvisited = new PriorityQueue<Integer>(PQ_INIT_SIZE,
-				new DurationComparator());
-		this.visited = new HashSet<Integer>();
-		this.prevHops = new HashMap<Integer, ScheduleEntry>();
-		this.times = new TimeMap();
+	private void initWith(int node, double time) {
+		generation++;
+		if (generation == 0) { // wrapped around -> old stamps may match
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+		heapSize = 0;
+		maxNode = node;
 
-		this.times.put(node, time);
-		this.unvisited.add(node);
+		touch(node);
+		times[node] = time;
+		push(node);
 	}
 
 	/**
@@ -78,23 +162,21 @@ public class ScheduleDijkstra {
 			return path;
 		}
 
-		initWith(from, time);
-		Integer node = null;
-
-		while ((node = unvisited.poll()) != null) {
-			if (node.equals(to)) {
-				break;
-			}
-
-			visited.add(node);
-			relax(node);
+		ArrivalTable table = null;
+		ScheduleEntry prev;
+		if (tables != null) {
+			table = getTable(from, time);
+			prev = table.getPrevHop(to);
+		} else {
+			search(from, time, to);
+			prev = getPrevHop(to);
 		}
 
-		if (node != null) { // found a path
-			ScheduleEntry prev = prevHops.get(to);
+		if (prev != null) { // found a path
 			while (prev.getFrom() != from) {
 				path.add(0, prev);
-				prev = prevHops.get(prev.getFrom());
+				prev = (table != null ? table.getPrevHop(prev.getFrom()) :
+					getPrevHop(prev.getFrom()));
 			}
 
 			path.add(0, prev);
@@ -103,109 +185,237 @@ public class ScheduleDijkstra {
 		return path;
 	}
 
+	/**
+	 * Returns the earliest time one can be at the destination
+	 * @param from The source of the path
+	 * @param to The destination of the path
+	 * @param time The time when the path starts
+	 * @return The earliest arrival time or Double.MAX_VALUE if the
+	 * destination can't be reached
+	 */
+	public double getEarliestArrival(int from, int to, double time) {
+		if (from == to) {
+			return time;
+		}
+
+		if (tables != null) {
+			return getTable(from, time).getTime(to);
+		}
+
+		search(from, time, to);
+		if (to >= stamps.length || stamps[to] != generation) {
+			return INFINITY;
+		}
+		return times[to];
+	}
+
+	/**
+	 * Returns the previous hop of a node in the current search
+	 * @param node The node
+	 * @return The schedule entry that leads to the node, or null if the
+	 * search didn't reach the node
+	 */
+	private ScheduleEntry getPrevHop(int node) {
+		if (node >= stamps.length || stamps[node] != generation) {
+			return null;
+		}
+		return prevHops[node];
+	}
+
+	/**
+	 * Returns the (cached) arrival table of a source node
+	 * @param from The source node
+	 * @param time The time when the paths start
+	 * @return The arrival table
+	 */
+	private ArrivalTable getTable(int from, double time) {
+		if (tablesVersion != oracle.getVersion() ||
+				tables.size() >= MAX_CACHED_TABLES) {
+			tables.clear();
+			tablesVersion = oracle.getVersion();
+		}
+
+		ScheduleOracle.SourceIndex si = oracle.getIndex(from);
+		int first = (si != null ? si.firstAt(time) : 0);
+		Long key = ((long)from << 32) | first;
+
+		ArrivalTable table = tables.get(key);
+		if (table == null) {
+			search(from, time, -1);
+			table = new ArrivalTable();
+			tables.put(key, table);
+		}
+
+		return table;
+	}
+
+	/**
+	 * Searches the earliest arrival times from a node
+	 * @param from The source node
+	 * @param time The time when the paths start
+	 * @param target Node where the search can stop, or -1 to search
+	 * all the reachable nodes
+	 */
+	private void search(int from, double time, int target) {
+		initWith(from, time);
+
+		while (heapSize > 0) {
+			int node = poll();
+			if (node == target) {
+				break;
+			}
+
+			visited[node] = true;
+			relax(node);
+		}
+	}
+
 	/**
 	 * Relaxes the neighbors of a node (updates the shortest distances).
 	 * @param node The node whose neighbors are relaxed
 	 */
-	private void relax(Integer node) {
-		double timeNow = times.get(node);
-		int to;
-		double timeTo;
-
-		for (ScheduleEntry se : oracle.getConnected(node, timeNow)) {
-			to = se.getTo();
-			if (visited.contains(to)) {
+	private void relax(int node) {
+		ScheduleOracle.SourceIndex si = oracle.getIndex(node);
+
+		if (si == null) {
+			return; // no schedules from the node
+		}
+
+		ScheduleEntry[] entries = si.entries;
+		for (int i = si.firstAt(times[node]); i < entries.length; i++) {
+			ScheduleEntry se = entries[i];
+			int to = se.getTo();
+			touch(to);
+			if (visited[to]) {
 				continue; // skip visited nodes
 			}
 
-			timeTo = se.getTime() +  se.getDuration();
+			double timeTo = si.times[i] + se.getDuration();
 
-			if (timeTo < times.get(to)) {
-				prevHops.put(to, se);
-				setTime(to, timeTo);
+			if (timeTo < times[to]) {
+				prevHops[to] = se;
+				times[to] = timeTo;
+				if (heapIndexes[to] < 0) {
+					push(to);
+				} else {
+					siftUp(heapIndexes[to]); // time decreased -> move up
+				}
 			}
 		}
 	}
 
 	/**
-	 * Sets the time when at a node
-	 * @param n The node whose time is set
-	 * @param time The time when at given node
+	 * Compares two nodes by their arrival times
+	 * @return True if node1 should be polled before node2
 	 */
-	private void setTime(Integer n, double time) {
-		unvisited.remove(n);
-		times.put(n, time);
-		unvisited.add(n);
+	private boolean isBefore(int node1, int node2) {
+		if (times[node1] != times[node2]) {
+			return times[node1] < times[node2];
+		}
+		return node1 < node2;
 	}
 
 	/**
-	 * Comparator that compares two nodes by their journey duration
+	 * Adds a node to the heap
+	 * @param node The node
 	 */
-	private class DurationComparator implements Comparator<Integer> {
+	private void push(int node) {
+		heap[heapSize] = node;
+		heapIndexes[node] = heapSize;
+		siftUp(heapSize++);
+	}
 
-		/**
-		 * Compares two nodes by their time to get there
-		 * @return -1, 0 or 1 if node1's time is smaller, equal to, or
-		 * bigger than node2's
-		 */
-		public int compare(Integer node1, Integer node2) {
-			double time1 = times.get(node1);
-			double time2 = times.get(node2);
+	/**
+	 * Removes and returns the first node of the heap
+	 * @return The node
+	 */
+	private int poll() {
+		int first = heap[0];
+		heapIndexes[first] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndexes[heap[0]] = 0;
+			siftDown(0);
+		}
+		return first;
+	}
 
-			if (time1 > time2) {
-				return 1;
+	private void siftUp(int index) {
+		int node = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!isBefore(node, heap[parent])) {
+				break;
 			}
-			else if (time1 < time2) {
-				return -1;
+			heap[index] = heap[parent];
+			heapIndexes[heap[index]] = index;
+			index = parent;
+		}
+		heap[index] = node;
+		heapIndexes[node] = index;
+	}
+
+	private void siftDown(int index) {
+		int node = heap[index];
+		int half = heapSize >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < heapSize && isBefore(heap[right], heap[child])) {
+				child = right;
 			}
-			else {
-				return 0;
+			if (!isBefore(heap[child], node)) {
+				break;
 			}
+			heap[index] = heap[child];
+			heapIndexes[heap[index]] = index;
+			index = child;
 		}
+		heap[index] = node;
+		heapIndexes[node] = index;
 	}
 
-	private class TimeMap {
-		private HashMap<Integer, Double> map;
-
-		/**
-		 * Constructor. Creates an empty map
-		 */
-		public TimeMap() {
-			this.map = new HashMap<Integer, Double>();
-		}
+	/**
+	 * Earliest arrival times and previous hops of a complete search
+	 */
+	private class ArrivalTable {
+		private final double[] arrivals;
+		private final ScheduleEntry[] prevs;
 
 		/**
-		 * Returns the currently known smallest time one has a path for to the
-		 * given node. If no time value is found, returns
-		 * {@link ScheduleDijkstra#INFINITY} as the value.
-		 * @param node The node whose time is requested
-		 * @return The time when one could be at that node
+		 * Creates a table of the results of the current search
 		 */
-		public double get(Integer node) {
-			Double value = map.get(node);
-			if (value != null) {
-				return value;
-			}
-			else {
-				return INFINITY;
+		public ArrivalTable() {
+			this.arrivals = new double[maxNode + 1];
+			this.prevs = new ScheduleEntry[maxNode + 1];
+			for (int n=0; n<=maxNode; n++) {
+				if (stamps[n] == generation) {
+					arrivals[n] = times[n];
+					prevs[n] = prevHops[n];
+				} else {
+					arrivals[n] = INFINITY;
+				}
 			}
 		}
 
 		/**
-		 * Puts a new time value for a node
+		 * Returns the earliest arrival time to a node
 		 * @param node The node
-		 * @param time Time at that node
+		 * @return The time or {@link ScheduleDijkstra#INFINITY} if the node
+		 * can't be reached
 		 */
-		public void put(Integer node, double time) {
-			map.put(node, time);
+		public double getTime(int node) {
+			return node < arrivals.length ? arrivals[node] : INFINITY;
 		}
 
 		/**
-		 * Returns a string representation of the map's contents
-		 * @return a string representation of the map's contents
+		 * Returns the previous hop on the fastest path to a node
+		 * @param node The node
+		 * @return The schedule entry or null if the node can't be reached
 		 */
-		public String toString() {
-			return map.toString();
+		public ScheduleEntry getPrevHop(int node) {
+			return node < prevs.length ? prevs[node] : null;
 		}
 	}
 }
@@ -16,6 +16,11 @@ public class ScheduleEntry implements Serializable {
 	private double delta;
 	private double duration;
 	private int usageCount;
+	/**
+	 * the oracle that has this entry (or null if none). Not serialized;
+	 * the oracle sets itself again when it's deserialized.
+	 */
+	private transient ScheduleOracle oracle;
 
 	/**
 	 * Constructor of new schedule entry
@@ -89,6 +94,17 @@ public class ScheduleEntry implements Serializable {
 	 */
 	public void setDelta(double delta) {
 		this.delta = delta;
+		if (this.oracle != null) {
+			this.oracle.schedulesChanged(); /* start time changed */
+		}
+	}
+
+	/**
+	 * Sets the oracle that has this entry
+	 * @param oracle The oracle
+	 */
+	void setOracle(ScheduleOracle oracle) {
+		this.oracle = oracle;
 	}
 
 	/**
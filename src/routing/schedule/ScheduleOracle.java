@@ -4,17 +4,35 @@
  */
 package routing.schedule;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * <P>Oracle that knows the schedules of all nodes.</P>
+ *
+ * <P>For lookups, the entries of each source node are indexed in arrays
+ * sorted by the start time, so the entries that start after a given time
+ * are found with a binary search. The index is built when it's needed and
+ * rebuilt after entries are added or their deltas are changed.</P>
+ */
 public class ScheduleOracle implements Serializable{
 	private static final long serialVersionUID = 42L;
 
 	Map<Integer, List<ScheduleEntry>> schedules;
 
+	/** time sorted entries by their source (null if not built) */
+	private transient Map<Integer, SourceIndex> index;
+	/** number of times the schedules have changed */
+	private transient int version;
+
 	public ScheduleOracle() {
 		this.schedules = new HashMap<Integer, List<ScheduleEntry>>();
 	}
@@ -36,7 +54,28 @@ public class ScheduleOracle implements Serializable{
 			schedules.put(from, list);
 		}
 
-		list.add(new ScheduleEntry(start, from, via, to, duration));
+		ScheduleEntry entry = new ScheduleEntry(start, from, via, to, duration);
+		entry.setOracle(this);
+		list.add(entry);
+		schedulesChanged();
+	}
+
+	/**
+	 * Drops the index of the entries. Called when entries are added or their
+	 * start times change.
+	 */
+	void schedulesChanged() {
+		this.index = null;
+		this.version++;
+	}
+
+	/**
+	 * Returns the number of times the schedules have changed. Search results
+	 * based on the schedules are valid as long as the version stays the same.
+	 * @return The version of the schedules
+	 */
+	public int getVersion() {
+		return this.version;
 	}
 
 	/**
@@ -52,26 +91,68 @@ public class ScheduleOracle implements Serializable{
 
 	/**
 	 * Returns a list of schedule entries for nodes reachable after given time
-	 * from the given node
+	 * from the given node. The entries are in the order of their start times
+	 * (equal start times in the order the entries were added).
 	 * @param from The source node
 	 * @param time Time to start
-	 * @return List of reachable nodes
+	 * @return Unmodifiable list of the entries
 	 */
 	public List<ScheduleEntry> getConnected(int from, double time) {
-		List<ScheduleEntry> connected = new ArrayList<ScheduleEntry>();
-		List<ScheduleEntry> all = schedules.get(from);
+		SourceIndex si = getIndex(from);
 
-		if (all == null) {
-			return connected;
+		if (si == null) {
+			return Collections.emptyList();
 		}
 
-		for (ScheduleEntry s : all) {
-			if (s.getTime() >= time) {
-				connected.add(s);
+		List<ScheduleEntry> all = Arrays.asList(si.entries);
+		return Collections.unmodifiableList(
+				all.subList(si.firstAt(time), all.size()));
+	}
+
+	/**
+	 * Returns the time sorted entries of a source node
+	 * @param from The source node
+	 * @return The entries or null if the node has no entries
+	 */
+	SourceIndex getIndex(int from) {
+		if (this.index == null) {
+			buildIndex();
+		}
+		return this.index.get(from);
+	}
+
+	/**
+	 * Reads the oracle and sets it back to its entries (the oracle
+	 * reference of the entries is not serialized)
+	 * @param in The stream to read from
+	 */
+	private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		for (List<ScheduleEntry> list : schedules.values()) {
+			for (ScheduleEntry entry : list) {
+				entry.setOracle(this);
 			}
 		}
+	}
 
-		return connected;
+	/**
+	 * Builds the time sorted index of all entries
+	 */
+	private void buildIndex() {
+		Comparator<ScheduleEntry> byTime = new Comparator<ScheduleEntry>() {
+			public int compare(ScheduleEntry e1, ScheduleEntry e2) {
+				return Double.compare(e1.getTime(), e2.getTime());
+			}
+		};
+
+		this.index = new HashMap<Integer, SourceIndex>();
+		for (Map.Entry<Integer, List<ScheduleEntry>> e : schedules.entrySet()) {
+			ScheduleEntry[] entries = e.getValue().toArray(
+					new ScheduleEntry[e.getValue().size()]);
+			Arrays.sort(entries, byTime); /* stable: ties in added order */
+			this.index.put(e.getKey(), new SourceIndex(entries));
+		}
 	}
 
 	/**
@@ -88,4 +169,42 @@ public class ScheduleOracle implements Serializable{
 
 		return entries;
 	}
+
+	/**
+	 * Entries of one source node sorted by their start times
+	 */
+	static class SourceIndex {
+		/** start times of the entries */
+		final double[] times;
+		final ScheduleEntry[] entries;
+
+		SourceIndex(ScheduleEntry[] entries) {
+			this.entries = entries;
+			this.times = new double[entries.length];
+			for (int i=0; i<entries.length; i++) {
+				this.times[i] = entries[i].getTime();
+			}
+		}
+
+		/**
+		 * Returns the index of the first entry that starts at or after the
+		 * given time
+		 * @param time The time
+		 * @return Index of the first such entry, or the number of entries if
+		 * there is no such entry
+		 */
+		int firstAt(double time) {
+			int low = 0;
+			int high = times.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (times[mid] < time) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
 }
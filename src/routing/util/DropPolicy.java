@@ -0,0 +1,21 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.Comparator;
+
+import core.Message;
+
+/**
+ * Policy that decides in which order messages are dropped from a full
+ * message buffer. A message that is smaller according to the comparison is
+ * dropped first. Messages that the policy considers equal are dropped in the
+ * order they were added to the buffer.
+ * The comparison must only depend on values that don't change while the
+ * message is in the buffer (e.g., receive time or size).
+ * @see MessageBuffer
+ */
+public interface DropPolicy extends Comparator<Message> {
+}
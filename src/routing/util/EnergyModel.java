@@ -57,6 +57,8 @@ public class EnergyModel implements ModuleCommunicationListener {
 	/** sim time of the last energy updated */
 	private double lastUpdate;
 	private ModuleCommunicationBus comBus;
+	/** combus slot of the energy value */
+	private ModuleCommunicationBus.DoubleSlot energySlot;
 	private static Random rng = null;
 
 	/**
@@ -150,9 +152,9 @@ public class EnergyModel implements ModuleCommunicationListener {
 		}
 
 		if (amount >= this.currentEnergy) {
-			comBus.updateProperty(ENERGY_VALUE_ID, 0.0);
+			energySlot.set(0.0);
 		} else {
-			comBus.updateDouble(ENERGY_VALUE_ID, -amount);
+			energySlot.add(-amount);
 		}
 
 	}
@@ -177,6 +179,7 @@ public class EnergyModel implements ModuleCommunicationListener {
 			this.comBus = comBus;
 			this.comBus.addProperty(ENERGY_VALUE_ID, this.currentEnergy);
 			this.comBus.subscribe(ENERGY_VALUE_ID, this);
+			this.energySlot = this.comBus.getDoubleSlot(ENERGY_VALUE_ID);
 		}
 
 		if (simTime > this.lastUpdate && iface.isTransferring()) {
@@ -0,0 +1,21 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import core.Message;
+
+/**
+ * Drop policy that drops the largest message first. Of equally large
+ * messages, the one that was received first is dropped first.
+ */
+public class LargestFirstDropPolicy implements DropPolicy {
+
+	public int compare(Message m1, Message m2) {
+		if (m1.getSize() != m2.getSize()) {
+			return m2.getSize() - m1.getSize();
+		}
+		return Double.compare(m1.getReceiveTime(), m2.getReceiveTime());
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.AbstractCollection;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+import core.Message;
+
+/**
+ * <P>Message buffer of a router. Messages are stored by their IDs and the
+ * buffer keeps count of the total size of the messages, so the free space
+ * can be checked in constant time.</P>
+ *
+ * <P>The ID indexes (see {@link Message#getIdIndex()}) of the messages are
+ * also kept in a bit set, the <I>summary vector</I> of the buffer, that
+ * can be used to check if a message is in the buffer without hashing its
+ * ID.</P>
+ *
+ * <P>The messages are also indexed in the order a {@link DropPolicy} wants
+ * them to be dropped, so the next message to drop is found in logarithmic
+ * time.</P>
+ */
+public class MessageBuffer {
+	/** The messages by their IDs */
+	private HashMap<String, Entry> entries;
+	/** The messages in the drop order */
+	private TreeSet<Entry> dropOrder;
+	/** ID indexes of the messages */
+	private BitSet summaryVector;
+	/** Total size of the messages */
+	private long occupancy;
+	/** Sequence number for the next added message */
+	private long nextSeqNo;
+
+	private final Collection<Message> messageView;
+	private final Iterable<Message> dropOrderView;
+
+	/**
+	 * Creates a new, empty, message buffer
+	 * @param policy The policy that defines the order the messages are
+	 * returned by {@link #getDropOrder()}
+	 */
+	public MessageBuffer(final DropPolicy policy) {
+		this.entries = new HashMap<String, Entry>();
+		this.summaryVector = new BitSet();
+		this.dropOrder = new TreeSet<Entry>(new Comparator<Entry>() {
+			public int compare(Entry e1, Entry e2) {
+				int c = policy.compare(e1.message, e2.message);
+				if (c != 0) {
+					return c;
+				}
+				if (e1.seqNo == e2.seqNo) {
+					return 0;
+				}
+				return e1.seqNo < e2.seqNo ? -1 : 1;
+			}
+		});
+		this.occupancy = 0;
+		this.nextSeqNo = 0;
+
+		this.messageView = new AbstractCollection<Message>() {
+			public Iterator<Message> iterator() {
+				return new MessageIterator(entries.values().iterator(), true);
+			}
+			public int size() {
+				return entries.size();
+			}
+		};
+		this.dropOrderView = new Iterable<Message>() {
+			public Iterator<Message> iterator() {
+				return new MessageIterator(dropOrder.iterator(), false);
+			}
+		};
+	}
+
+	/**
+	 * Adds a message to the buffer. If there already is a message with the
+	 * same ID, it is replaced.
+	 * @param m The message to add
+	 */
+	public void add(Message m) {
+		remove(m.getId());
+
+		Entry e = new Entry(m, nextSeqNo++);
+		entries.put(m.getId(), e);
+		dropOrder.add(e);
+		summaryVector.set(m.getIdIndex());
+		occupancy += m.getSize();
+	}
+
+	/**
+	 * Removes a message from the buffer
+	 * @param id ID of the message to remove
+	 * @return The removed message or null if there was no message with
+	 * the ID
+	 */
+	public Message remove(String id) {
+		Entry e = entries.remove(id);
+		if (e == null) {
+			return null;
+		}
+
+		dropOrder.remove(e);
+		summaryVector.clear(e.message.getIdIndex());
+		occupancy -= e.message.getSize();
+		return e.message;
+	}
+
+	/**
+	 * Returns a message from the buffer
+	 * @param id ID of the message
+	 * @return The message or null if there is no message with the ID
+	 */
+	public Message get(String id) {
+		Entry e = entries.get(id);
+		return e == null ? null : e.message;
+	}
+
+	/**
+	 * Returns true if the buffer has a message with the given ID
+	 * @param id ID of the message
+	 * @return True if the buffer has such message
+	 */
+	public boolean contains(String id) {
+		return entries.containsKey(id);
+	}
+
+	/**
+	 * Returns true if the buffer has a message with the same ID as the
+	 * given message. The check is done using the summary vector.
+	 * @param m The message
+	 * @return True if the buffer has such message
+	 */
+	public boolean contains(Message m) {
+		return summaryVector.get(m.getIdIndex());
+	}
+
+	/**
+	 * Returns the number of messages in the buffer
+	 * @return The number of messages
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the total size of the messages in the buffer
+	 * @return The total size in bytes
+	 */
+	public long getOccupancy() {
+		return this.occupancy;
+	}
+
+	/**
+	 * Returns a view of the messages in the buffer. Removing messages using
+	 * the iterator of the view removes them from the buffer.
+	 * @return The messages
+	 */
+	public Collection<Message> getMessages() {
+		return this.messageView;
+	}
+
+	/**
+	 * Returns the messages in the order they should be dropped (the first
+	 * message is dropped first). The buffer must not be modified while
+	 * iterating through the messages.
+	 * @return The messages in the drop order
+	 */
+	public Iterable<Message> getDropOrder() {
+		return this.dropOrderView;
+	}
+
+	/**
+	 * A message in the buffer
+	 */
+	private static class Entry {
+		private final Message message;
+		/** order of adding the message (breaks ties in the drop order) */
+		private final long seqNo;
+
+		public Entry(Message message, long seqNo) {
+			this.message = message;
+			this.seqNo = seqNo;
+		}
+	}
+
+	/**
+	 * Iterator that returns the messages of buffer entries
+	 */
+	private class MessageIterator implements Iterator<Message> {
+		private Iterator<Entry> iterator;
+		private boolean canRemove;
+		private Entry last;
+
+		/**
+		 * Constructor.
+		 * @param iterator Iterator of the entries
+		 * @param canRemove Is removing messages with the iterator allowed
+		 */
+		public MessageIterator(Iterator<Entry> iterator, boolean canRemove) {
+			this.iterator = iterator;
+			this.canRemove = canRemove;
+		}
+
+		public boolean hasNext() {
+			return iterator.hasNext();
+		}
+
+		public Message next() {
+			last = iterator.next();
+			return last.message;
+		}
+
+		public void remove() {
+			if (!canRemove) {
+				throw new UnsupportedOperationException();
+			}
+			iterator.remove();
+			dropOrder.remove(last);
+			summaryVector.clear(last.message.getIdIndex());
+			occupancy -= last.message.getSize();
+		}
+	}
+}
@@ -0,0 +1,17 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import core.Message;
+
+/**
+ * Drop policy that drops the message that was received first
+ */
+public class OldestFirstDropPolicy implements DropPolicy {
+
+	public int compare(Message m1, Message m2) {
+		return Double.compare(m1.getReceiveTime(), m2.getReceiveTime());
+	}
+}
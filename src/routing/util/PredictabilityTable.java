@@ -0,0 +1,193 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import java.util.Arrays;
+
+import core.DTNHost;
+
+/**
+ * <P>Delivery predictability table for PRoPHET style routers. Values are
+ * stored in arrays indexed by host address.</P>
+ *
+ * <P>Aging all the values (multiplying them by <CODE>gamma^k</CODE>) takes
+ * constant time: the table only accumulates the logarithm of the total
+ * aging multiplier and every value remembers the accumulated logarithm of
+ * the time it was last stored. When a value is read, it is scaled by the
+ * aging that has happened since then. Changing gamma between agings is
+ * fine, each aging uses the gamma it was given.</P>
+ *
+ * <P>The table can also store the last encounter time of each host.</P>
+ */
+public class PredictabilityTable {
+	/** Initial capacity of the table */
+	private static final int INIT_CAPACITY = 16;
+
+	/** predictability values (without the aging after their epoch) */
+	private double[] values;
+	/** accumulated log aging multiplier when the value was stored */
+	private double[] epochs;
+	/** last encounter times (NaN if no encounters) */
+	private double[] encounters;
+	/** positions of the hosts in the list of hosts (-1 = no value) */
+	private int[] positions;
+	/** hosts that have a value, in the order they got it */
+	private DTNHost[] hosts;
+	private int size;
+	/** accumulated logarithm of all aging multipliers */
+	private double logAging;
+
+	/**
+	 * Creates a new, empty, table
+	 */
+	public PredictabilityTable() {
+		this.values = new double[INIT_CAPACITY];
+		this.epochs = new double[INIT_CAPACITY];
+		this.encounters = new double[INIT_CAPACITY];
+		this.positions = new int[INIT_CAPACITY];
+		this.hosts = new DTNHost[INIT_CAPACITY];
+		Arrays.fill(encounters, Double.NaN);
+		Arrays.fill(positions, -1);
+		this.size = 0;
+		this.logAging = 0;
+	}
+
+	/**
+	 * Makes sure the arrays can be indexed with the address
+	 * @param address The address
+	 */
+	private void ensureCapacity(int address) {
+		if (address < values.length) {
+			return;
+		}
+
+		int oldLength = values.length;
+		int newLength = Math.max(address + 1, oldLength * 2);
+		values = Arrays.copyOf(values, newLength);
+		epochs = Arrays.copyOf(epochs, newLength);
+		encounters = Arrays.copyOf(encounters, newLength);
+		positions = Arrays.copyOf(positions, newLength);
+		hosts = Arrays.copyOf(hosts, newLength);
+		Arrays.fill(encounters, oldLength, newLength, Double.NaN);
+		Arrays.fill(positions, oldLength, newLength, -1);
+	}
+
+	/**
+	 * Ages all values: <CODE>P = P_old * (gamma ^ timeUnits)</CODE>
+	 * @param gamma The aging constant
+	 * @param timeUnits Number of time units elapsed since the last aging
+	 */
+	public void age(double gamma, double timeUnits) {
+		if (timeUnits == 0) {
+			return;
+		}
+
+		double logGamma = Math.log(gamma);
+		if (Double.isInfinite(logGamma)) { // gamma is 0 -> all values drop to 0
+			for (int i=0; i<size; i++) {
+				int address = hosts[i].getAddress();
+				values[address] = 0;
+				epochs[address] = logAging;
+			}
+			return;
+		}
+		logAging += timeUnits * logGamma;
+	}
+
+	/**
+	 * Returns the (aged) predictability value for a host
+	 * @param host The host
+	 * @return The value or 0 if the host has no value
+	 */
+	public double get(DTNHost host) {
+		int address = host.getAddress();
+		if (address >= positions.length || positions[address] < 0) {
+			return 0;
+		}
+		return valueOf(address);
+	}
+
+	/**
+	 * Returns the aged value of an address that has a value. The aging is
+	 * applied to the stored value, so it's done only once per aging.
+	 */
+	private double valueOf(int address) {
+		if (epochs[address] != logAging) {
+			values[address] *= Math.exp(logAging - epochs[address]);
+			epochs[address] = logAging;
+		}
+		return values[address];
+	}
+
+	/**
+	 * Sets the predictability value for a host
+	 * @param host The host
+	 * @param value The new value
+	 */
+	public void set(DTNHost host, double value) {
+		int address = host.getAddress();
+		ensureCapacity(address);
+		if (positions[address] < 0) {
+			if (size == hosts.length) {
+				hosts = Arrays.copyOf(hosts, size * 2);
+			}
+			positions[address] = size;
+			hosts[size++] = host;
+		}
+		values[address] = value;
+		epochs[address] = logAging;
+	}
+
+	/**
+	 * Returns the number of hosts that have a predictability value
+	 * @return The number of values in the table
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the host at the given position of the table (hosts are in the
+	 * order they got their first value)
+	 * @param index The position, 0 ... {@link #size()}-1
+	 * @return The host
+	 */
+	public DTNHost getHost(int index) {
+		return hosts[index];
+	}
+
+	/**
+	 * Returns the (aged) value at the given position of the table
+	 * @param index The position, 0 ... {@link #size()}-1
+	 * @return The value
+	 */
+	public double getValue(int index) {
+		return valueOf(hosts[index].getAddress());
+	}
+
+	/**
+	 * Returns the time of the last encounter with a host
+	 * @param host The host
+	 * @return The time or NaN if the host hasn't been encountered
+	 */
+	public double getLastEncounter(DTNHost host) {
+		int address = host.getAddress();
+		if (address >= encounters.length) {
+			return Double.NaN;
+		}
+		return encounters[address];
+	}
+
+	/**
+	 * Sets the time of the last encounter with a host
+	 * @param host The host
+	 * @param time The time of the encounter
+	 */
+	public void setLastEncounter(DTNHost host, double time) {
+		int address = host.getAddress();
+		ensureCapacity(address);
+		encounters[address] = time;
+	}
+}
@@ -29,6 +29,12 @@ public class AllTests {
 		suite.addTestSuite(ExternalMovementTest.class);
 		suite.addTestSuite(WKTReaderTest.class);
 		suite.addTestSuite(WKTPointReaderTest.class);
+		suite.addTestSuite(MapCompilerTest.class);
+		suite.addTestSuite(RouteCacheTest.class);
+		suite.addTestSuite(PredictabilityTableTest.class);
+		suite.addTestSuite(MessageBufferTest.class);
+		suite.addTestSuite(IntHashMapTest.class);
+		suite.addTestSuite(IntIntHashMapTest.class);
 		suite.addTestSuite(MapNodeTest.class);
 		suite.addTestSuite(MapBasedMovementTest.class);
 		suite.addTestSuite(CoordTest.class);
@@ -50,6 +56,13 @@ public class AllTests {
 		suite.addTestSuite(MessageTest.class);
 		suite.addTestSuite(ModuleCommunicationBusTest.class);
 		suite.addTestSuite(DTNHostTest.class);
+		suite.addTestSuite(ZoneIndexTest.class);
+		suite.addTestSuite(ReportWriterTest.class);
+		suite.addTestSuite(DoubleFormatterTest.class);
+		suite.addTestSuite(BinaryReportTest.class);
+		suite.addTestSuite(ContactGraphTest.class);
+		suite.addTestSuite(EventBusTest.class);
+		suite.addTestSuite(SamplingReportTest.class);
 		//$JUnit-END$
 		return suite;
 	}
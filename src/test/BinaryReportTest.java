@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+import report.CovidTransmissionReport;
+import report.DeliveredMessagesReport;
+import report.Report;
+import report.tools.ReportConverter;
+import report.util.BinaryReportReader;
+import report.util.BinaryReportWriter;
+import report.util.ReportSchema;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.SimClock;
+
+/**
+ * Tests for the binary report output and {@link ReportConverter}
+ */
+public class BinaryReportTest extends TestCase {
+	private File binFile;
+	private File textFile;
+	private File convertedFile;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		binFile = createTempFile();
+		textFile = createTempFile();
+		convertedFile = createTempFile();
+	}
+
+	private File createTempFile() throws IOException {
+		File f = File.createTempFile("brtest", ".tmp");
+		f.deleteOnExit();
+		return f;
+	}
+
+	public void testWriteAndRead() throws IOException {
+		int nrofRows = BinaryReportWriter.ROW_GROUP_SIZE * 2 + 10;
+		ReportSchema schema = new ReportSchema(null).addDouble("d")
+			.addInt("i").addString("s").setProperty("key", "value");
+		BinaryReportWriter w = new BinaryReportWriter(binFile.getPath(),
+				schema);
+		for (int i=0; i<nrofRows; i++) {
+			if (i % 3 != 0) { // every third row has default values
+				w.setDouble(0, i * 0.5);
+				w.setInt(1, -i);
+				w.setString(2, "s" + (i % 5));
+			}
+			w.endRow();
+		}
+		w.close();
+		w.endRow(); // ignored after close
+
+		BinaryReportReader r = new BinaryReportReader(binFile.getPath());
+		assertNull(r.getSchema().getLayout());
+		assertEquals("value", r.getSchema().getProperty("key"));
+		assertEquals(3, r.getSchema().getColumnCount());
+		assertEquals("s", r.getSchema().getColumnName(2));
+		assertEquals(ReportSchema.INT, r.getSchema().getColumnType(1));
+
+		for (int i=0; i<nrofRows; i++) {
+			assertTrue(r.next());
+			if (i % 3 != 0) {
+				assertEquals(i * 0.5, r.getDouble(0));
+				assertEquals(-i, r.getInt(1));
+				assertEquals("s" + (i % 5), r.getString(2));
+			} else {
+				assertTrue(Double.isNaN(r.getDouble(0)));
+				assertEquals(0, r.getInt(1));
+				assertNull(r.getString(2));
+			}
+		}
+		assertFalse(r.next());
+		r.close();
+	}
+
+	public void testNotBinaryFile() throws IOException {
+		try {
+			new BinaryReportReader(textFile.getPath());
+			fail("Empty file was accepted");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public void testDeliveredMessagesReport() throws IOException {
+		final String NS = "DeliveredMessagesReport.";
+		TestSettings ts = new TestSettings();
+		ts.putSetting(NS + Report.PRECISION_SETTING, "2");
+
+		ts.putSetting(NS + Report.OUTPUT_SETTING, textFile.getPath());
+		Report text = new DeliveredMessagesReport();
+		ts.putSetting(NS + Report.OUTPUT_SETTING, binFile.getPath());
+		ts.putSetting(NS + Report.OUTPUT_FORMAT_S, Report.BINARY_FORMAT);
+		Report binary = new DeliveredMessagesReport();
+
+		runTransfers(ts, text, binary);
+		assertConverted(4);
+	}
+
+	public void testCovidTransmissionReport() throws IOException {
+		final String NS = "CovidTransmissionReport.";
+		TestSettings ts = new TestSettings();
+
+		ts.putSetting(NS + Report.OUTPUT_SETTING, textFile.getPath());
+		Report text = new CovidTransmissionReport();
+		ts.putSetting(NS + Report.OUTPUT_SETTING, binFile.getPath());
+		ts.putSetting(NS + Report.OUTPUT_FORMAT_S, Report.BINARY_FORMAT);
+		Report binary = new CovidTransmissionReport();
+
+		runTransfers(ts, text, binary);
+		assertConverted(7);
+	}
+
+	/**
+	 * Creates and transfers messages between hosts with the reports as
+	 * message listeners
+	 */
+	private void runTransfers(TestSettings ts, Report text, Report binary) {
+		Vector<MessageListener> ml = new Vector<MessageListener>();
+		ml.add((MessageListener)text);
+		ml.add((MessageListener)binary);
+		TestUtils utils = new TestUtils(null, ml, ts);
+		SimClock clock = SimClock.getInstance();
+
+		/* hosts carrying a message don't accept new ones, so each message
+		 * goes between its own pair of hosts */
+		DTNHost h1 = utils.createHost(new Coord(0,0));
+		DTNHost h2 = utils.createHost(new Coord(2.5,0));
+		DTNHost h3 = utils.createHost(new Coord(0,5.125));
+		DTNHost h4 = utils.createHost(new Coord(10,10));
+		DTNHost h5 = utils.createHost(new Coord(20,10));
+		DTNHost h6 = utils.createHost(new Coord(20,30));
+
+		Message m1 = new Message(h1, h2, "tst1", 10);
+		h1.createNewMessage(m1);
+		clock.advance(1.255);
+		h1.sendMessage("tst1", h2);
+		h2.messageTransferred("tst1", h1);
+
+		Message m2 = new Message(h3, h4, "tst2", 20);
+		m2.setTtl(100);
+		h3.createNewMessage(m2);
+		Message m3 = new Message(h5, h6, "tst3", 30);
+		h5.createNewMessage(m3);
+		clock.advance(0.5);
+		h3.sendMessage("tst2", h4);
+		h4.messageTransferred("tst2", h3);
+		clock.advance(1.0);
+		h5.sendMessage("tst3", h6);
+		h6.messageTransferred("tst3", h5);
+
+		text.done();
+		binary.done();
+	}
+
+	/**
+	 * Converts the binary file to text and checks that the result equals
+	 * the text file
+	 * @param nrofLines Expected number of lines in the text file
+	 */
+	private void assertConverted(int nrofLines) throws IOException {
+		ReportConverter.toText(binFile.getPath(), convertedFile.getPath());
+
+		BufferedReader expected = new BufferedReader(new FileReader(textFile));
+		BufferedReader converted = new BufferedReader(
+				new FileReader(convertedFile));
+		for (int i=0; i<nrofLines; i++) {
+			String line = expected.readLine();
+			assertNotNull(line);
+			assertEquals(line, converted.readLine());
+		}
+		assertNull(expected.readLine());
+		assertNull(converted.readLine());
+		expected.close();
+		converted.close();
+	}
+}
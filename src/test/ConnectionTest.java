@@ -9,6 +9,8 @@ import java.util.List;
 
 import junit.framework.TestCase;
 import core.CBRConnection;
+import core.Connection;
+import core.Coord;
 import core.DTNHost;
 import core.Message;
 import core.NetworkInterface;
@@ -105,6 +107,52 @@ public class ConnectionTest extends TestCase {
 		assertEquals(doneTime, c[1].getTransferDoneTime());
 	}
 
+	public void testGetNextUpdateTime() {
+		assertEquals(Double.MAX_VALUE, c[3].getNextUpdateTime());
+
+		double next = c[0].getNextUpdateTime();
+		assertEquals(c[0].getTransferDoneTime() - 1.0 / speed[0], next);
+		clock.setTime(next - 0.01);
+		assertFalse(c[0].isMessageTransferred());
+		clock.setTime(next + 0.01);
+		assertTrue(c[0].isMessageTransferred());
+
+		c[1].abortTransfer();
+		assertEquals(Double.MAX_VALUE, c[1].getNextUpdateTime());
+	}
+
+	public void testHostConnections() {
+		DTNHost from = h[3];
+		DTNHost to = h[4];
+		long epoch = from.getConnectionEpoch();
+		List<Connection> cons = from.getConnections();
+		assertEquals(0, cons.size());
+
+		from.forceConnection(to, null, true);
+		assertEquals(1, cons.size()); // the view is kept up to date
+		assertSame(cons.get(0), to.getConnections().get(0));
+		assertEquals(epoch + 1, from.getConnectionEpoch());
+		try {
+			cons.clear();
+			fail("Connection list of a host was modifiable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		from.forceConnection(to, null, false);
+		assertEquals(0, cons.size());
+		assertEquals(0, to.getConnections().size());
+		assertEquals(epoch + 2, from.getConnectionEpoch());
+
+		/* out of range connection is torn down by the interface update */
+		from.forceConnection(to, null, true);
+		to.setLocation(new Coord(10, 0));
+		from.getInterfaces().get(0).update();
+		assertEquals(0, cons.size());
+		assertEquals(0, to.getConnections().size());
+		assertEquals(epoch + 4, from.getConnectionEpoch());
+	}
+
 	public void testGetRemainingByteCount() {
 		double STEP = 0.1;
 		int transferred;
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import report.util.ContactGraph;
+
+/**
+ * Tests for {@link ContactGraph}
+ */
+public class ContactGraphTest extends TestCase {
+	private static final int NROF_NODES = 200;
+
+	public void testAddAndGet() {
+		ContactGraph g = new ContactGraph(4);
+		assertFalse(g.contains(0, 1));
+		assertEquals(-1, g.get(0, 1, -1));
+		assertEquals(0, g.getDegree(0));
+		assertEquals(0, g.getDegree(1000));
+
+		assertEquals(1, g.add(0, 1, 1));
+		assertEquals(2, g.add(0, 1, 1));
+		assertTrue(g.contains(0, 1));
+		assertFalse(g.contains(1, 0));
+		assertEquals(2, g.get(0, 1, -1));
+
+		g.put(1, 0, 5);
+		assertEquals(5, g.get(1, 0, -1));
+		g.put(1, 0, 7);
+		assertEquals(7, g.get(1, 0, -1));
+		assertEquals(1, g.getDegree(1));
+		assertEquals(2, g.getEdgeCount());
+
+		/* nodes beyond the initial size */
+		g.put(100, 3, 9);
+		assertEquals(9, g.get(100, 3, -1));
+		assertEquals(1, g.getDegree(100));
+	}
+
+	public void testGrowingNodes() {
+		ContactGraph g = new ContactGraph();
+
+		/* put() and add() of new edges that grow the node's map */
+		for (int i = 0; i < NROF_NODES; i++) {
+			if (i % 2 == 0) {
+				g.put(0, i + 1, i);
+			} else {
+				assertEquals(i, g.add(0, i + 1, i));
+			}
+		}
+		assertEquals(NROF_NODES, g.getDegree(0));
+		for (int i = 0; i < NROF_NODES; i++) {
+			assertEquals(i, g.get(0, i + 1, -1));
+		}
+		assertFalse(g.contains(0, 0));
+		assertFalse(g.contains(0, NROF_NODES + 1));
+	}
+
+	public void testAgainstMatrix() {
+		Random rng = new Random(3);
+		int[][] matrix = new int[NROF_NODES][NROF_NODES];
+		ContactGraph g = new ContactGraph(NROF_NODES / 4);
+
+		for (int i = 0; i < 5000; i++) {
+			int a = rng.nextInt(NROF_NODES);
+			int b = rng.nextInt(NROF_NODES / 10); // sparse
+			matrix[a][b]++;
+			g.add(a, b, 1);
+		}
+
+		int nrofEdges = 0;
+		for (int a = 0; a < NROF_NODES; a++) {
+			int degree = 0;
+			for (int b = 0; b < NROF_NODES; b++) {
+				assertEquals(matrix[a][b], g.get(a, b, 0));
+				assertEquals(matrix[a][b] > 0, g.contains(a, b));
+				if (matrix[a][b] > 0) {
+					degree++;
+				}
+			}
+			assertEquals(degree, g.getDegree(a));
+			nrofEdges += degree;
+
+			int[] neighbors = g.getNeighbors(a);
+			assertEquals(degree, neighbors.length);
+			for (int i = 0; i < neighbors.length; i++) {
+				assertTrue(matrix[a][neighbors[i]] > 0);
+				if (i > 0) {
+					assertTrue(neighbors[i - 1] < neighbors[i]);
+				}
+			}
+		}
+		assertEquals(nrofEdges, g.getEdgeCount());
+
+		g.clear();
+		assertEquals(0, g.getEdgeCount());
+		assertEquals(0, g.getDegree(0));
+		assertFalse(g.contains(0, 0));
+	}
+}
@@ -73,6 +73,46 @@ public class DijkstraPathFinderTest extends TestCase {
 		checkPath(getPath(n8,n4), n8, n7, n6, n5, n4);
 	}
 
+	public void testPathFindingWithHeuristic() {
+		r = new DijkstraPathFinder(null, true);
+		checkPath(getPath(n1,n1), n1);
+		checkPath(getPath(n1,n3), n1, n2, n3);
+		checkPath(getPath(n5,n3), n5, n6, n3);
+		checkPath(getPath(n4,n8), n4, n5, n6, n7, n8);
+		checkPath(getPath(n8,n4), n8, n7, n6, n5, n4);
+		assertEquals(25.0, getLength(getPath(n1,n6)));
+	}
+
+	public void testUnreachable() {
+		MapNode n9 = newNode(30,10);
+		assertEquals(0, getPath(n1,n9).size());
+		/* searches after an unsuccessful one must not be affected */
+		checkPath(getPath(n4,n8), n4, n5, n6, n7, n8);
+
+		n9.addNeighbor(n8);
+		n8.addNeighbor(n9);
+		assertEquals(40.0, getLength(getPath(n1,n9)));
+	}
+
+	public void testOkMapNodes() {
+		n1.addType(1);
+		n2.addType(1);
+		n3.addType(1);
+		n4.addType(2);
+		r = new DijkstraPathFinder(new int[] {1});
+		checkPath(getPath(n1,n3), n1, n2, n3);
+		assertEquals(0, getPath(n1,n4).size());
+	}
+
+	private double getLength(List<MapNode> path) {
+		double length = 0;
+		for (int i=1; i < path.size(); i++) {
+			length += path.get(i-1).getLocation().distance(
+					path.get(i).getLocation());
+		}
+		return length;
+	}
+
 	private void checkPath(List<MapNode> path, MapNode ... nodes) {
 		assertEquals(nodes.length,path.size());
 
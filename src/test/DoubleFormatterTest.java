@@ -0,0 +1,48 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import report.util.DoubleFormatter;
+
+/**
+ * Tests for {@link DoubleFormatter}
+ */
+public class DoubleFormatterTest extends TestCase {
+
+	public void testFormat() {
+		DoubleFormatter f = new DoubleFormatter(4);
+		assertEquals("1.0000", f.format(1));
+		assertEquals("0.0001", f.format(0.00005));
+		assertEquals("-12.3457", f.format(-12.345678));
+		assertEquals("-0.0000", f.format(-0.0));
+		assertEquals("NaN", f.format(Double.NaN));
+		assertEquals("Infinity", f.format(Double.POSITIVE_INFINITY));
+
+		/* half up rounding of the decimal presentation (1.00499999...) */
+		assertEquals("1.01", new DoubleFormatter(2).format(1.005));
+		assertEquals("3", new DoubleFormatter(0).format(2.5));
+		assertEquals("x=0.50", new DoubleFormatter(2).appendTo(0.5,
+				new StringBuilder("x=")).toString());
+	}
+
+	public void testSameAsStringFormat() {
+		Random rng = new Random(42);
+		for (int precision=0; precision<=6; precision++) {
+			DoubleFormatter f = new DoubleFormatter(precision);
+			String format = "%." + precision + "f";
+			for (int i=0; i<10000; i++) {
+				double value = (rng.nextDouble() - 0.5) *
+					Math.pow(10, rng.nextInt(12));
+				if (i % 2 == 0) { /* values with few decimals */
+					value = Math.round(value * 1000) / 1000.0;
+				}
+				assertEquals(String.format(format, value), f.format(value));
+			}
+		}
+	}
+}
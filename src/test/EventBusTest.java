@@ -0,0 +1,270 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.ConnectionListener;
+import core.Coord;
+import core.DTNHost;
+import core.EventBatch;
+import core.EventBatchListener;
+import core.EventBus;
+import core.EventSubscriber;
+import core.Message;
+import core.MessageListener;
+import core.ScheduledUpdateListener;
+import core.SimClock;
+import core.UpdateListener;
+
+/**
+ * Tests for {@link EventBus}
+ */
+public class EventBusTest extends TestCase {
+	private SimClock clock;
+	private DTNHost h1;
+	private DTNHost h2;
+	private Message m;
+	private List<DTNHost> hosts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		clock = SimClock.getInstance();
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		h1 = utils.createHost(new Coord(0,0));
+		h2 = utils.createHost(new Coord(1,0));
+		m = new Message(h1, h2, "M1", 1);
+		hosts = new ArrayList<DTNHost>();
+		hosts.add(h1);
+		hosts.add(h2);
+	}
+
+	public void testSubscriptions() {
+		EventBus bus = new EventBus(false);
+		Recorder all = new Recorder(EventBus.ALL_EVENTS);
+		Recorder some = new Recorder(EventBus.CONNECTION_DOWN |
+				EventBus.MESSAGE_TRANSFERRED);
+		LogListener unfiltered = new LogListener();
+		for (LogListener r : new LogListener[] {all, some, unfiltered}) {
+			bus.addConnectionListener(r);
+			bus.addMessageListener(r);
+			bus.addUpdateListener(r);
+		}
+
+		fireAllEvents(bus);
+		assertEquals("up down new start del abort xfer upd ", all.log);
+		assertEquals("down xfer ", some.log);
+		assertEquals(all.log, unfiltered.log);
+	}
+
+	public void testScheduledUpdates() {
+		EventBus bus = new EventBus(false);
+		Sampler sampler = new Sampler(10);
+		Recorder every = new Recorder(EventBus.UPDATE);
+		bus.addUpdateListener(sampler);
+		bus.addUpdateListener(every);
+
+		for (int i=0; i<25; i++) {
+			clock.advance(1);
+			bus.updated(hosts);
+		}
+		assertEquals(25, every.log.length() / "upd ".length());
+		assertEquals("10.0 20.0 ", sampler.log);
+	}
+
+	public void testBatching() {
+		EventBus bus = new EventBus(true);
+		Batcher batcher = new Batcher(EventBus.CONNECTION_UP |
+				EventBus.MESSAGE_DELETED | EventBus.UPDATE, 10);
+		bus.addConnectionListener(batcher);
+		bus.addMessageListener(batcher);
+		bus.addUpdateListener(batcher);
+
+		clock.advance(10);
+		fireAllEvents(bus); // first update is due right away
+		assertEquals("batch[up@10.0 del@10.0] upd ", batcher.log);
+
+		batcher.log = "";
+		clock.advance(1);
+		fireAllEvents(bus); // not due: events wait in the batch
+		assertEquals("", batcher.log);
+		clock.advance(9);
+		bus.hostsConnected(h2, h1);
+		bus.updated(hosts);
+		assertEquals("batch[up@11.0 del@11.0 up@20.0] upd ", batcher.log);
+
+		batcher.log = "";
+		bus.hostsConnected(h1, h2);
+		bus.flush();
+		bus.flush(); // empty batches are not delivered
+		assertEquals("batch[up@20.0] ", batcher.log);
+	}
+
+	public void testBatchingDisabled() {
+		EventBus bus = new EventBus(false);
+		Batcher batcher = new Batcher(EventBus.CONNECTION_UP, 10);
+		bus.addConnectionListener(batcher);
+		bus.hostsConnected(h1, h2);
+		bus.flush();
+		assertEquals("up ", batcher.log);
+	}
+
+	public void testFullBatch() {
+		EventBus bus = new EventBus(true);
+		Batcher batcher = new Batcher(EventBus.CONNECTION_UP,
+				Double.MAX_VALUE);
+		bus.addConnectionListener(batcher);
+
+		for (int i=0; i<EventBus.MAX_BATCH_SIZE; i++) {
+			assertEquals(0, batcher.nrofEvents);
+			bus.hostsConnected(h1, h2);
+		}
+		assertEquals(EventBus.MAX_BATCH_SIZE, batcher.nrofEvents);
+		assertEquals(1, batcher.nrofBatches);
+	}
+
+	private void fireAllEvents(EventBus bus) {
+		bus.hostsConnected(h1, h2);
+		bus.hostsDisconnected(h1, h2);
+		bus.newMessage(m);
+		bus.messageTransferStarted(m, h1, h2);
+		bus.messageDeleted(m, h1, true);
+		bus.messageTransferAborted(m, h1, h2);
+		bus.messageTransferred(m, h1, h2, true);
+		bus.updated(hosts);
+	}
+
+	/**
+	 * Listener that logs the events it gets
+	 */
+	private static class LogListener implements ConnectionListener,
+		MessageListener, UpdateListener {
+		protected String log = "";
+
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			log += "up ";
+		}
+
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+			log += "down ";
+		}
+
+		public void newMessage(Message m) {
+			log += "new ";
+		}
+
+		public void messageTransferStarted(Message m, DTNHost from,
+				DTNHost to) {
+			log += "start ";
+		}
+
+		public void messageDeleted(Message m, DTNHost where,
+				boolean dropped) {
+			log += "del ";
+		}
+
+		public void messageTransferAborted(Message m, DTNHost from,
+				DTNHost to) {
+			log += "abort ";
+		}
+
+		public void messageTransferred(Message m, DTNHost from, DTNHost to,
+				boolean firstDelivery) {
+			log += "xfer ";
+		}
+
+		public void updated(List<DTNHost> hosts) {
+			log += "upd ";
+		}
+	}
+
+	/**
+	 * Logging listener that subscribes to some of the event types
+	 */
+	private static class Recorder extends LogListener
+		implements EventSubscriber {
+		private int types;
+
+		public Recorder(int types) {
+			this.types = types;
+		}
+
+		public int getEventTypes() {
+			return types;
+		}
+	}
+
+	/**
+	 * Update listener that wants an update every "interval" seconds
+	 */
+	private static class Sampler implements ScheduledUpdateListener {
+		private String log = "";
+		private double interval;
+		private double next;
+
+		public Sampler(double interval) {
+			this.interval = interval;
+			this.next = interval;
+		}
+
+		public void updated(List<DTNHost> hosts) {
+			assertTrue(SimClock.getTime() >= next);
+			log += SimClock.getTime() + " ";
+			next += interval;
+		}
+
+		public double getNextUpdateTime() {
+			return next;
+		}
+	}
+
+	/**
+	 * Batch listener that wants an update every "interval" seconds
+	 */
+	private static class Batcher extends Recorder implements
+		ScheduledUpdateListener, EventBatchListener {
+		private double interval;
+		private double next;
+		private int nrofEvents;
+		private int nrofBatches;
+
+		public Batcher(int types, double interval) {
+			super(types);
+			this.interval = interval;
+			this.next = 0;
+		}
+
+		@Override
+		public void updated(List<DTNHost> hosts) {
+			super.updated(hosts);
+			next = SimClock.getTime() + interval;
+		}
+
+		public double getNextUpdateTime() {
+			return next;
+		}
+
+		public void eventsOccurred(EventBatch batch) {
+			log += "batch[";
+			for (int i=0; i<batch.size(); i++) {
+				if (batch.getType(i) == EventBus.CONNECTION_UP) {
+					assertNull(batch.getMessage(i));
+					log += (i > 0 ? " " : "") + "up@" + batch.getTime(i);
+				} else {
+					assertEquals(EventBus.MESSAGE_DELETED, batch.getType(i));
+					assertTrue(batch.getFlag(i));
+					assertNotNull(batch.getMessage(i));
+					log += (i > 0 ? " " : "") + "del@" + batch.getTime(i);
+				}
+			}
+			log += "] ";
+			nrofEvents += batch.size();
+			nrofBatches++;
+		}
+	}
+}
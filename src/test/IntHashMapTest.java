@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import util.IntHashMap;
+
+/**
+ * Tests for {@link IntHashMap}
+ */
+public class IntHashMapTest extends TestCase {
+
+	public void testPutGetRemove() {
+		IntHashMap<String> map = new IntHashMap<String>();
+		assertNull(map.put(1, "a"));
+		assertNull(map.put(17, "b"));
+		assertEquals("a", map.put(1, "c"));
+
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(1));
+		assertEquals("b", map.get(17));
+		assertNull(map.get(2));
+		assertTrue(map.containsKey(17));
+
+		assertEquals("c", map.remove(1));
+		assertNull(map.remove(1));
+		assertFalse(map.containsKey(1));
+		assertEquals("b", map.get(17));
+		assertEquals(1, map.size());
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.values().iterator().hasNext());
+	}
+
+	/**
+	 * Compares the map to a HashMap with random operations (causes
+	 * collisions, growing and removals from the middle of probe sequences)
+	 */
+	public void testAgainstHashMap() {
+		Random rng = new Random(1);
+		IntHashMap<Integer> map = new IntHashMap<Integer>();
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+
+		for (int i=0; i<20000; i++) {
+			int key = rng.nextInt(500);
+			if (rng.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), map.remove(key));
+			} else {
+				assertEquals(expected.put(key, i), map.put(key, i));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+
+		for (int key=0; key<500; key++) {
+			assertEquals(expected.get(key), map.get(key));
+		}
+
+		int sum = 0;
+		for (Integer value : map.values()) {
+			sum += value;
+		}
+		int expectedSum = 0;
+		for (Integer value : expected.values()) {
+			expectedSum += value;
+		}
+		assertEquals(expectedSum, sum);
+		assertEquals(expected.size(), map.keys().length);
+	}
+}
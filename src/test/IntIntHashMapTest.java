@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import util.IntIntHashMap;
+
+/**
+ * Tests for {@link IntIntHashMap}
+ */
+public class IntIntHashMapTest extends TestCase {
+
+	public void testPutAddRemove() {
+		IntIntHashMap map = new IntIntHashMap(2);
+		map.put(1, 5);
+		assertEquals(7, map.add(1, 2));
+		assertEquals(3, map.add(17, 3));
+		map.put(33, 0);
+
+		assertEquals(3, map.size());
+		assertEquals(7, map.get(1, -1));
+		assertEquals(3, map.get(17, -1));
+		assertEquals(0, map.get(33, -1));
+		assertEquals(-1, map.get(2, -1));
+		assertTrue(map.containsKey(33));
+
+		assertTrue(map.remove(1));
+		assertFalse(map.remove(1));
+		assertFalse(map.containsKey(1));
+		assertEquals(3, map.get(17, -1));
+		assertEquals(2, map.size());
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertEquals(-1, map.get(17, -1));
+		assertEquals(0, map.keys().length);
+	}
+
+	/**
+	 * Compares the map to a HashMap with random operations (causes
+	 * collisions, growing and removals from the middle of probe sequences)
+	 */
+	public void testAgainstHashMap() {
+		Random rng = new Random(1);
+		IntIntHashMap map = new IntIntHashMap();
+		Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+
+		for (int i=0; i<20000; i++) {
+			int key = rng.nextInt(500);
+			int op = rng.nextInt(3);
+			if (op == 0) {
+				assertEquals(expected.remove(key) != null, map.remove(key));
+			} else if (op == 1) {
+				expected.put(key, i);
+				map.put(key, i);
+			} else {
+				Integer old = expected.get(key);
+				int value = (old == null ? 0 : old) + i;
+				expected.put(key, value);
+				assertEquals(value, map.add(key, i));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+
+		for (int key=0; key<500; key++) {
+			Integer value = expected.get(key);
+			assertEquals(value == null ? -1 : value, map.get(key, -1));
+		}
+		assertEquals(expected.size(), map.keys().length);
+	}
+}
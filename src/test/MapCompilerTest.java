@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.BinaryMapReader;
+import input.MapCompiler;
+import input.WKTMapReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.map.MapNode;
+import movement.map.SimMap;
+
+/**
+ * Tests for compiling maps with {@link MapCompiler} and reading them with
+ * {@link BinaryMapReader}
+ */
+public class MapCompilerTest extends TestCase {
+	private static final String MAP1 =
+		"LINESTRING (1.0 1.0, 2.0 1.0, 3.0 1.0, 8.0 1.0)\n" +
+		"LINESTRING (1.0 1.0, 1.0 3.0)\n" +
+		"LINESTRING (2.0 1.0, 2.0 0.0, 3.0 0.0, 3.0 1.0)\n";
+	private static final String MAP2 =
+		"LINESTRING (1.0 3.0, 2.0 3.0, 3.0 3.0)\n";
+	private static final String UNCONNECTED =
+		"LINESTRING (10.0 10.0, 11.0 10.0)\n";
+
+	private List<String> mapFiles;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		mapFiles = new ArrayList<String>();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		if (mapFiles.size() > 0) {
+			BinaryMapReader.getCompiledFile(mapFiles).delete();
+		}
+	}
+
+	private void addMapFile(String contents) throws IOException {
+		File wktFile = File.createTempFile("MapCompilerTest", ".wkt");
+		wktFile.deleteOnExit();
+		PrintWriter pw = new PrintWriter(wktFile);
+		pw.print(contents);
+		pw.close();
+		mapFiles.add(wktFile.getPath());
+	}
+
+	private SimMap readWkt() throws IOException {
+		WKTMapReader r = new WKTMapReader(true);
+		for (int i = 1; i <= mapFiles.size(); i++) {
+			r.addPaths(new File(mapFiles.get(i-1)), i);
+		}
+		return r.getMap();
+	}
+
+	public void testSameMap() throws IOException {
+		addMapFile(MAP1);
+		addMapFile(MAP2);
+		File compiled = BinaryMapReader.getCompiledFile(mapFiles);
+
+		assertTrue(MapCompiler.compile(mapFiles, compiled));
+		BinaryMapReader reader = new BinaryMapReader(compiled);
+		assertEquals(mapFiles, reader.getMapFiles());
+		assertTrue(reader.isConnected());
+
+		SimMap wktMap = readWkt();
+		SimMap binMap = reader.getMap();
+		List<MapNode> wktNodes = wktMap.getNodes();
+		List<MapNode> binNodes = binMap.getNodes();
+
+		assertEquals(wktNodes.size(), binNodes.size());
+		assertEquals(wktMap.getMinBound(), binMap.getMinBound());
+		assertEquals(wktMap.getMaxBound(), binMap.getMaxBound());
+
+		for (int i = 0; i < wktNodes.size(); i++) {
+			MapNode wn = wktNodes.get(i);
+			MapNode bn = binNodes.get(i);
+			assertEquals(wn.getLocation(), bn.getLocation());
+			assertTrue(bn == binMap.getNodeByCoord(bn.getLocation()));
+			for (int t = MapNode.MIN_TYPE; t <= MapNode.MAX_TYPE; t++) {
+				assertEquals(wn.isType(t), bn.isType(t));
+			}
+
+			assertEquals(wn.getNeighbors().size(), bn.getNeighbors().size());
+			for (int j = 0; j < wn.getNeighbors().size(); j++) {
+				assertEquals(wn.getNeighbors().get(j).getLocation(),
+						bn.getNeighbors().get(j).getLocation());
+			}
+		}
+	}
+
+	public void testUnconnectedMap() throws IOException {
+		addMapFile(MAP1);
+		addMapFile(UNCONNECTED);
+		File compiled = BinaryMapReader.getCompiledFile(mapFiles);
+
+		assertFalse(MapCompiler.compile(mapFiles, compiled));
+		assertFalse(new BinaryMapReader(compiled).isConnected());
+	}
+
+	public void testOpenCompiled() throws IOException {
+		addMapFile(MAP1);
+		assertNull(BinaryMapReader.openCompiled(mapFiles));
+
+		File compiled = BinaryMapReader.getCompiledFile(mapFiles);
+		MapCompiler.compile(mapFiles, compiled);
+		File source = new File(mapFiles.get(0));
+		source.setLastModified(compiled.lastModified() - 10000);
+		assertNotNull(BinaryMapReader.openCompiled(mapFiles));
+
+		/* a source newer than the compiled map */
+		source.setLastModified(compiled.lastModified() + 10000);
+		assertNull(BinaryMapReader.openCompiled(mapFiles));
+	}
+}
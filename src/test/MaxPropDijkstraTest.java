@@ -123,6 +123,31 @@ public class MaxPropDijkstraTest extends TestCase {
 		assertEquals( (1-0.625)+(1-0.5), result.get(5));
 	}
 
+	public void testCachedCosts() {
+		MeetingProbabilitySet mps0 = mapping.get(0);
+		MeetingProbabilitySet mps1 = mapping.get(1);
+
+		mps0.updateMeetingProbFor(1);
+		mps1.updateMeetingProbFor(2);
+		mps1.updateMeetingProbFor(3);
+		assertEquals(0.0, mpd.getCost(0, 1));
+		assertEquals(0.5, mpd.getCost(0, 2), DELTA);
+		assertEquals(Double.MAX_VALUE, mpd.getCost(0, 4));
+
+		/* h4 wasn't reached -> changing its probabilities doesn't matter */
+		mapping.get(4).updateMeetingProbFor(2);
+		mpd.probsChanged(4);
+		assertEquals(0.5, mpd.getCost(0, 2), DELTA);
+
+		/* without telling about the change the cached cost is used */
+		mps1.updateMeetingProbFor(2);
+		assertEquals(0.5, mpd.getCost(0, 2), DELTA);
+
+		mpd.probsChanged(1);
+		assertEquals(1-0.75, mpd.getCost(0, 2), DELTA);
+		assertEquals(1-0.25, mpd.getCost(0, 3), DELTA);
+	}
+
 
 	public void testProbabilitySumsToOne() {
 		double total;
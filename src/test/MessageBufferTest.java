@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+import routing.util.LargestFirstDropPolicy;
+import routing.util.MessageBuffer;
+import routing.util.OldestFirstDropPolicy;
+import core.Message;
+import core.SimClock;
+
+/**
+ * Tests for {@link MessageBuffer} and the drop policies
+ */
+public class MessageBufferTest extends TestCase {
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+	}
+
+	private Message newMessage(String id, int size, double receiveTime) {
+		Message m = new Message(null, null, id, size);
+		m.setReceiveTime(receiveTime);
+		return m;
+	}
+
+	private List<String> getDropOrder(MessageBuffer buffer) {
+		List<String> ids = new ArrayList<String>();
+		for (Message m : buffer.getDropOrder()) {
+			ids.add(m.getId());
+		}
+		return ids;
+	}
+
+	public void testOccupancy() {
+		MessageBuffer buffer = new MessageBuffer(new OldestFirstDropPolicy());
+		buffer.add(newMessage("M1", 100, 0));
+		buffer.add(newMessage("M2", 50, 0));
+		assertEquals(150, buffer.getOccupancy());
+		assertEquals(2, buffer.size());
+
+		buffer.add(newMessage("M1", 10, 0)); // replaces the old M1
+		assertEquals(60, buffer.getOccupancy());
+		assertEquals(2, buffer.size());
+		assertEquals(10, buffer.get("M1").getSize());
+
+		assertEquals("M2", buffer.remove("M2").getId());
+		assertNull(buffer.remove("M2"));
+		assertFalse(buffer.contains("M2"));
+		assertEquals(10, buffer.getOccupancy());
+
+		Iterator<Message> i = buffer.getMessages().iterator();
+		i.next();
+		i.remove();
+		assertEquals(0, buffer.getOccupancy());
+		assertEquals(0, buffer.getMessages().size());
+		assertEquals(0, getDropOrder(buffer).size());
+	}
+
+	public void testSummaryVector() {
+		MessageBuffer buffer = new MessageBuffer(new OldestFirstDropPolicy());
+		Message m1 = newMessage("M1", 100, 0);
+		Message m2 = newMessage("M2", 100, 0);
+		buffer.add(m1);
+		buffer.add(m2);
+		assertTrue(buffer.contains(m1.replicate()));
+		assertTrue(buffer.contains(m2));
+
+		buffer.remove("M1");
+		assertFalse(buffer.contains(m1));
+		buffer.add(m1.replicate());
+		assertTrue(buffer.contains(m1));
+
+		Iterator<Message> i = buffer.getMessages().iterator();
+		while (i.hasNext()) {
+			if (i.next().getId().equals("M2")) {
+				i.remove();
+			}
+		}
+		assertFalse(buffer.contains(m2));
+		assertTrue(buffer.contains(m1));
+	}
+
+	public void testOldestFirst() {
+		MessageBuffer buffer = new MessageBuffer(new OldestFirstDropPolicy());
+		buffer.add(newMessage("M1", 100, 30));
+		buffer.add(newMessage("M2", 100, 10));
+		buffer.add(newMessage("M3", 100, 20));
+		buffer.add(newMessage("M4", 100, 10));
+
+		/* equally old messages are dropped in the order they were added */
+		assertEquals("[M2, M4, M3, M1]", getDropOrder(buffer).toString());
+
+		buffer.remove("M2");
+		buffer.add(newMessage("M5", 100, 5));
+		assertEquals("[M5, M4, M3, M1]", getDropOrder(buffer).toString());
+	}
+
+	public void testLargestFirst() {
+		MessageBuffer buffer = new MessageBuffer(new LargestFirstDropPolicy());
+		buffer.add(newMessage("M1", 100, 30));
+		buffer.add(newMessage("M2", 300, 10));
+		buffer.add(newMessage("M3", 100, 20));
+		buffer.add(newMessage("M4", 200, 10));
+
+		assertEquals("[M2, M4, M3, M1]", getDropOrder(buffer).toString());
+	}
+}
@@ -60,5 +60,47 @@ public class MessageTest extends TestCase {
 		assertEquals(value2, msg.getProperty("bar"));
 	}
 
+	@Test
+	public void testReplicate() {
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		DTNHost h1 = utils.createHost();
+		DTNHost h2 = utils.createHost();
+		DTNHost h3 = utils.createHost();
+
+		Message m = new Message(h1, h3, "M2", 100);
+		m.addProperty("foo", "value1");
+		Message r = m.replicate();
+		r.addNodeOnPath(h2);
+		r.updateProperty("foo", "value2");
+		m.addProperty("bar", "value3");
+
+		assertEquals(0, m.getHopCount());
+		assertEquals(1, m.getHops().size());
+		assertFalse(m.getHops().contains(h2));
+		assertEquals(1, r.getHopCount());
+		assertEquals(h1, r.getHops().get(0));
+		assertEquals(h2, r.getHops().get(1));
+		assertTrue(r.getHops().contains(h2));
+
+		/* changing the properties of one doesn't change the other's */
+		assertEquals("value1", m.getProperty("foo"));
+		assertEquals("value2", r.getProperty("foo"));
+		assertNull(r.getProperty("bar"));
+	}
+
+	@Test
+	public void testIdIndex() {
+		Message m2 = new Message(from, to, "M2", 100);
+		Message m3 = new Message(from, to, "M3", 100);
+
+		assertEquals(msg.getIdIndex(), msg.replicate().getIdIndex());
+		assertEquals(msg.getIdIndex(),
+				new Message(from, to, "M", 10).getIdIndex());
+		assertFalse(m2.getIdIndex() == m3.getIdIndex());
+		assertEquals(m3.getIdIndex(), Message.getIdIndex("M3"));
+		assertEquals("M2", Message.getIdForIndex(m2.getIdIndex()));
+		assertEquals(-1, Message.getIdIndex("no such ID"));
+	}
+
 
 }
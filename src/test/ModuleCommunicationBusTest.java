@@ -103,4 +103,52 @@ public class ModuleCommunicationBusTest extends TestCase {
 		assertEquals(-16.7, b.getDouble(key, -1.0));
 	}
 
+	@Test
+	public void testDoubleSlot() {
+		String key = "slottst";
+		ModuleCommunicationBus.DoubleSlot slot = b.getDoubleSlot(key);
+		assertSame(slot, b.getDoubleSlot(key));
+		assertFalse(slot.isSet());
+		assertFalse(b.containsProperty(key));
+		assertEquals(-1.0, slot.get(-1.0));
+
+		b.subscribe(key, mcl);
+		b.addProperty(key, 2.5); // the string API uses the same slot
+		assertEquals(2.5, slot.get(-1.0));
+		assertEquals(key, notifyKey);
+		assertEquals(2.5, notifyValue);
+
+		notifyKey = null;
+		slot.set(2.5); // no change -> no notification
+		assertNull(notifyKey);
+
+		assertEquals(3.5, slot.add(1.0));
+		assertEquals(3.5, notifyValue);
+		assertEquals(3.5, b.getProperty(key));
+		assertEquals(4.0, b.updateDouble(key, 0.5));
+		assertEquals(4.0, slot.get(-1.0));
+
+		try {
+			b.addProperty(key, 1.0);
+			fail("Adding an existing slot value should fail");
+		} catch (core.SimError e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testDoubleSlotForExistingValue() {
+		String key = "slottst2";
+		b.addProperty(key, 1.5);
+		assertEquals(1.5, b.getDoubleSlot(key).get(-1.0));
+
+		b.addProperty("strtst", "value");
+		try {
+			b.getDoubleSlot("strtst");
+			fail("Slot for a non-double value should fail");
+		} catch (core.SimError e) {
+			// expected
+		}
+	}
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import routing.util.PredictabilityTable;
+import core.DTNHost;
+
+/**
+ * Tests for {@link PredictabilityTable}
+ */
+public class PredictabilityTableTest extends TestCase {
+	private static final double DELTA = 1e-12;
+
+	private PredictabilityTable table;
+	private DTNHost h1;
+	private DTNHost h2;
+	private DTNHost h3;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		h1 = utils.createHost();
+		h2 = utils.createHost();
+		h3 = utils.createHost();
+		table = new PredictabilityTable();
+	}
+
+	public void testGetAndSet() {
+		assertEquals(0.0, table.get(h1));
+		table.set(h2, 0.5);
+		table.set(h1, 0.25);
+		table.set(h2, 0.75);
+
+		assertEquals(0.25, table.get(h1));
+		assertEquals(0.75, table.get(h2));
+		assertEquals(0.0, table.get(h3));
+
+		assertEquals(2, table.size());
+		assertSame(h2, table.getHost(0));
+		assertEquals(0.75, table.getValue(0));
+		assertSame(h1, table.getHost(1));
+		assertEquals(0.25, table.getValue(1));
+	}
+
+	public void testAging() {
+		double gamma = 0.98;
+		double eager = 0.5;
+		table.set(h1, 0.5);
+
+		for (int i=1; i<=100; i++) {
+			table.age(gamma, i);
+			eager *= Math.pow(gamma, i);
+			if (i % 10 == 0) { // read only now and then
+				assertEquals(eager, table.get(h1), DELTA);
+			}
+		}
+
+		/* a value set after aging isn't aged by the earlier agings */
+		table.set(h2, 0.5);
+		assertEquals(0.5, table.get(h2));
+		table.age(0.5, 2);
+		assertEquals(0.125, table.get(h2), DELTA);
+		assertEquals(eager * 0.25, table.get(h1), DELTA);
+	}
+
+	public void testAgingWithZeroGamma() {
+		table.set(h1, 0.5);
+		table.age(0.5, 1);
+		table.age(0, 1);
+		assertEquals(0.0, table.get(h1));
+
+		table.set(h1, 0.5);
+		table.age(0.5, 1);
+		assertEquals(0.25, table.get(h1), DELTA);
+	}
+
+	public void testLastEncounter() {
+		assertTrue(Double.isNaN(table.getLastEncounter(h1)));
+		table.setLastEncounter(h1, 10);
+		table.setLastEncounter(h3, 20);
+		assertEquals(10.0, table.getLastEncounter(h1));
+		assertEquals(20.0, table.getLastEncounter(h3));
+		assertTrue(Double.isNaN(table.getLastEncounter(h2)));
+		assertEquals(0, table.size()); // encounters are not predictabilities
+	}
+}
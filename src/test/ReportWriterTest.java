@@ -0,0 +1,82 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import junit.framework.TestCase;
+import report.util.ReportWriter;
+
+/**
+ * Tests for {@link ReportWriter}
+ */
+public class ReportWriterTest extends TestCase {
+	private static final int NROF_LINES = 20000;
+	private File outFile;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		outFile = File.createTempFile("rwtest", ".tmp");
+		outFile.deleteOnExit();
+	}
+
+	private void writeAndCheck(boolean async) throws IOException {
+		ReportWriter writer = new ReportWriter(outFile.getPath(), async);
+		PrintWriter out = new PrintWriter(writer);
+
+		/* enough lines for several chunks */
+		for (int i=0; i<NROF_LINES; i++) {
+			if (i % 2 == 0) {
+				writer.writeLine("p:", "line " + i);
+			} else {
+				out.println("p:line " + i);
+			}
+		}
+		out.close();
+		assertFalse(out.checkError());
+
+		BufferedReader reader = new BufferedReader(new FileReader(outFile));
+		for (int i=0; i<NROF_LINES; i++) {
+			assertEquals("p:line " + i, reader.readLine());
+		}
+		assertNull(reader.readLine());
+		reader.close();
+
+		writer.writeLine("", "ignored after close");
+		assertEquals(NROF_LINES, countLines());
+	}
+
+	private int countLines() throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(outFile));
+		int count = 0;
+		while (reader.readLine() != null) {
+			count++;
+		}
+		reader.close();
+		return count;
+	}
+
+	public void testAsync() throws IOException {
+		writeAndCheck(true);
+	}
+
+	public void testSync() throws IOException {
+		writeAndCheck(false);
+	}
+
+	public void testFlush() throws IOException {
+		ReportWriter writer = new ReportWriter(outFile.getPath(), true);
+		writer.writeLine("", "first");
+		writer.flush();
+		assertEquals(1, countLines());
+		writer.writeLine("", "second");
+		writer.close();
+		assertEquals(2, countLines());
+	}
+}
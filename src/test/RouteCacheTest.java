@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.map.DijkstraPathFinder;
+import movement.map.MapNode;
+import movement.map.RouteCache;
+import core.Coord;
+
+/**
+ * Tests for {@link RouteCache}
+ */
+public class RouteCacheTest extends TestCase {
+	private DijkstraPathFinder finder;
+
+	/* n1--n2--n3
+	 * |        |
+	 * n4--n5--n6 */
+	private final MapNode n1 = newNode(0,0);
+	private final MapNode n2 = newNode(10,0);
+	private final MapNode n3 = newNode(20,0);
+	private final MapNode n4 = newNode(0,5);
+	private final MapNode n5 = newNode(10,5);
+	private final MapNode n6 = newNode(20,5);
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		finder = new DijkstraPathFinder(null);
+		connect(n1, n2);
+		connect(n2, n3);
+		connect(n1, n4);
+		connect(n4, n5);
+		connect(n5, n6);
+		connect(n3, n6);
+	}
+
+	private MapNode newNode(double x, double y) {
+		return new MapNode(new Coord(x,y));
+	}
+
+	private void connect(MapNode a, MapNode b) {
+		a.addNeighbor(b);
+		b.addNeighbor(a);
+	}
+
+	public void testHitsAndMisses() {
+		RouteCache cache = new RouteCache(10, false);
+		List<MapNode> path = cache.getShortestPath(finder, n1, n3);
+		assertEquals(finder.getShortestPath(n1, n3), path);
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		assertSame(path, cache.getShortestPath(finder, n1, n3));
+		assertEquals(1, cache.getHits());
+
+		/* different kind of path finder -> different path in the cache */
+		n1.addType(1);
+		n2.addType(1);
+		n3.addType(1);
+		DijkstraPathFinder other = new DijkstraPathFinder(new int[] {1});
+		cache.getShortestPath(other, n1, n3);
+		assertEquals(2, cache.getMisses());
+		assertEquals(2, cache.size());
+	}
+
+	public void testLruEviction() {
+		RouteCache cache = new RouteCache(2, false);
+		cache.getShortestPath(finder, n1, n3);
+		cache.getShortestPath(finder, n1, n6);
+		cache.getShortestPath(finder, n1, n3); // n1->n6 is now the eldest
+		cache.getShortestPath(finder, n4, n3);
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getHits());
+
+		cache.getShortestPath(finder, n1, n3);
+		assertEquals(2, cache.getHits());
+		cache.getShortestPath(finder, n1, n6);
+		assertEquals(2, cache.getHits());
+		assertEquals(4, cache.getMisses());
+	}
+
+	public void testPrecompute() {
+		RouteCache cache = new RouteCache(100, true);
+		cache.addPointsOfInterest(finder, Arrays.asList(n1, n3));
+		cache.addPointsOfInterest(finder, Arrays.asList(n6));
+		assertEquals(9, cache.size());
+
+		for (MapNode from : Arrays.asList(n1, n3, n6)) {
+			for (MapNode to : Arrays.asList(n1, n3, n6)) {
+				assertEquals(finder.getShortestPath(from, to),
+						cache.getShortestPath(finder, from, to));
+			}
+		}
+		assertEquals(9, cache.getHits());
+		assertEquals(0, cache.getMisses());
+	}
+
+	public void testDisabled() {
+		RouteCache cache = new RouteCache(0, true);
+		cache.addPointsOfInterest(finder, Arrays.asList(n1, n3));
+		cache.getShortestPath(finder, n1, n3);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+	}
+}
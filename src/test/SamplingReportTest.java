@@ -0,0 +1,235 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import report.JumpSizeDistributionReport;
+import report.NodeDensityReport;
+import report.RadiusOfGyrationReport;
+import report.Report;
+import report.SamplingReport;
+import core.Coord;
+import core.DTNHost;
+import core.Settings;
+import core.SimClock;
+import core.SimScenario;
+
+/**
+ * Tests for the results that {@link NodeDensityReport},
+ * {@link RadiusOfGyrationReport} and {@link JumpSizeDistributionReport}
+ * accumulate over the samples, and for resetting them when the
+ * {@link SamplingReport} output is flushed to a new interval file.
+ * The hosts are sampled at 10, 20 and 30 seconds and the report interval
+ * is 15 seconds, so the first file has the first two samples and the
+ * second file only the last one.
+ */
+public class SamplingReportTest extends TestCase {
+	private static final String SETTINGS =
+		"Scenario.name = test\n" +
+		"Scenario.simulateConnections = false\n" +
+		"Scenario.updateInterval = 1\n" +
+		"Scenario.endTime = 100\n" +
+		"Scenario.nrofHostGroups = 1\n" +
+		"Group.groupID = n\n" +
+		"Group.nrofHosts = 2\n" +
+		"Group.nrofInterfaces = 0\n" +
+		"Group.movementModel = StationaryMovement\n" +
+		"Group.nodeLocation = 0,0\n" +
+		"Group.router = PassiveRouter\n" +
+		"Group.bufferSize = 1M\n" +
+		"Events.nrof = 0\n" +
+		"MovementModel.worldSize = 100,100\n";
+
+	private File outDir;
+	private List<DTNHost> hosts;
+	private DTNHost h0, h1;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		outDir = File.createTempFile("srtest", "");
+		outDir.delete();
+		outDir.mkdir();
+		outDir.deleteOnExit();
+	}
+
+	/**
+	 * Initializes the settings and the scenario with two hosts at (0,0)
+	 * @param reportSettings Additional settings for the reports
+	 */
+	private void initScenario(String reportSettings) throws Exception {
+		Settings.initFromStream(new ByteArrayInputStream(
+				(SETTINGS + reportSettings).getBytes("UTF-8")));
+		SimClock.reset();
+		SimScenario.reset();
+		DTNHost.reset();
+		hosts = new ArrayList<DTNHost>(SimScenario.getInstance().getHosts());
+		h0 = hosts.get(0);
+		h1 = hosts.get(1);
+	}
+
+	/**
+	 * Returns the common settings of a report
+	 * @param report Name of the report class
+	 * @return The settings
+	 */
+	private String reportSettings(String report) {
+		return report + "." + SamplingReport.SAMPLE_INTERVAL_SETTING +
+			" = 10\n" +
+			report + "." + Report.INTERVAL_SETTING + " = 15\n" +
+			report + "." + Report.OUTPUT_SETTING + " = " +
+			new File(outDir, report).getPath() + "\n";
+	}
+
+	/**
+	 * Moves the hosts and samples them at the given time
+	 */
+	private void sample(SamplingReport r, double time, Coord c0, Coord c1) {
+		SimClock.getInstance().setTime(time);
+		h0.setLocation(c0);
+		h1.setLocation(c1);
+		r.updated(hosts);
+	}
+
+	private List<String> readLines(String report, int interval)
+			throws IOException {
+		File file = new File(outDir, report +
+				String.format(Report.INTERVALLED_FORMAT, interval));
+		file.deleteOnExit();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		List<String> lines = new ArrayList<String>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+
+	private void checkLines(String[] expected, List<String> lines) {
+		assertEquals(expected.length, lines.size());
+		for (int i=0; i<expected.length; i++) {
+			assertEquals(expected[i], lines.get(i));
+		}
+	}
+
+	public void testNodeDensityAverages() throws Exception {
+		String name = "NodeDensityReport";
+		initScenario(reportSettings(name) +
+				name + "." + NodeDensityReport.X_COUNT_SETTING + " = 2\n" +
+				name + "." + NodeDensityReport.Y_COUNT_SETTING + " = 2\n" +
+				name + "." + NodeDensityReport.GNUPLOT_SETTING + " = false\n");
+		NodeDensityReport r = new NodeDensityReport();
+
+		sample(r, 10, new Coord(10, 10), new Coord(60, 10));
+		sample(r, 20, new Coord(10, 10), new Coord(10, 60));
+		sample(r, 30, new Coord(90, 90), new Coord(90, 90));
+		r.done();
+
+		/* G_x G_y average count_1 count_2 */
+		checkLines(new String[] {"0 0 1.0 1 1", "0 1 0.5 0 1",
+				"1 0 0.5 1 0", "1 1 0.0 0 0"}, readLines(name, 0));
+		/* the counts of the first interval are not in the second one */
+		checkLines(new String[] {"0 0 0.0 0", "0 1 0.0 0",
+				"1 0 0.0 0", "1 1 2.0 2"}, readLines(name, 1));
+	}
+
+	public void testNodeDensityOnlyAverage() throws Exception {
+		String name = "NodeDensityReport";
+		initScenario(reportSettings(name) +
+				name + "." + NodeDensityReport.X_COUNT_SETTING + " = 2\n" +
+				name + "." + NodeDensityReport.Y_COUNT_SETTING + " = 1\n" +
+				name + "." + NodeDensityReport.GNUPLOT_SETTING + " = false\n" +
+				name + "." + NodeDensityReport.ONLY_AVERAGE_SETTING +
+				" = true\n");
+		NodeDensityReport r = new NodeDensityReport();
+
+		sample(r, 10, new Coord(10, 10), new Coord(60, 10));
+		sample(r, 20, new Coord(10, 10), new Coord(10, 60));
+		sample(r, 30, new Coord(60, 10), new Coord(60, 90));
+		r.done();
+
+		checkLines(new String[] {"0 0 1.5", "1 0 0.5"}, readLines(name, 0));
+		checkLines(new String[] {"0 0 0.0", "1 0 2.0"}, readLines(name, 1));
+	}
+
+	public void testRadiusOfGyration() throws Exception {
+		String name = "RadiusOfGyrationReport";
+		initScenario(reportSettings(name));
+		RadiusOfGyrationReport r = new RadiusOfGyrationReport();
+
+		sample(r, 10, new Coord(10, 10), new Coord(60, 10));
+		sample(r, 20, new Coord(30, 10), new Coord(60, 10));
+		sample(r, 30, new Coord(50, 50), new Coord(60, 10));
+		r.done();
+
+		/* node_id node_name r_cm_x r_cm_y r_g */
+		checkLines(new String[] {"0 " + h0 + " 20.0 10.0 10.0",
+				"1 " + h1 + " 60.0 10.0 0.0"}, readLines(name, 0));
+		checkLines(new String[] {"0 " + h0 + " 50.0 50.0 0.0",
+				"1 " + h1 + " 60.0 10.0 0.0"}, readLines(name, 1));
+	}
+
+	public void testJumpSizeFixedBuckets() throws Exception {
+		String name = "JumpSizeDistributionReport";
+		initScenario(reportSettings(name) + name + "." +
+				JumpSizeDistributionReport.BUCKET_WIDTH_SETTING + " = 10\n");
+		JumpSizeDistributionReport r = new JumpSizeDistributionReport();
+
+		/* jumps: 5 and 15, 25 and 0 | 0 and 35 */
+		sample(r, 10, new Coord(3, 4), new Coord(0, 15));
+		sample(r, 20, new Coord(3, 29), new Coord(0, 15));
+		sample(r, 30, new Coord(3, 29), new Coord(0, 50));
+		r.done();
+
+		/* jump_length probability sample_count */
+		checkLines(new String[] {"5.0 0.05 2", "15.0 0.025 1",
+				"25.0 0.025 1"}, readLines(name, 0));
+		checkLines(new String[] {"5.0 0.05 1", "15.0 0.0 0", "25.0 0.0 0",
+				"35.0 0.05 1"}, readLines(name, 1));
+	}
+
+	public void testJumpSizeBucketCount() throws Exception {
+		String name = "JumpSizeDistributionReport";
+		initScenario(reportSettings(name) + name + "." +
+				JumpSizeDistributionReport.BUCKET_COUNT_SETTING + " = 2\n");
+		JumpSizeDistributionReport r = new JumpSizeDistributionReport();
+
+		sample(r, 10, new Coord(3, 4), new Coord(0, 15));
+		sample(r, 20, new Coord(3, 29), new Coord(0, 15));
+		sample(r, 30, new Coord(3, 29), new Coord(0, 50));
+		r.done();
+
+		/* the width is 1% over the longest jump (25) divided to 2 buckets */
+		double width = 1.01 * 25 / 2;
+		List<String> lines = readLines(name, 0);
+		assertEquals(2, lines.size());
+		checkBucket(lines.get(0), 0.5 * width, 2.0 / (4 * width), 2);
+		checkBucket(lines.get(1), 1.5 * width, 2.0 / (4 * width), 2);
+
+		/* only the jumps of the second interval: 0 and 35 */
+		width = 1.01 * 35 / 2;
+		lines = readLines(name, 1);
+		assertEquals(2, lines.size());
+		checkBucket(lines.get(0), 0.5 * width, 1.0 / (2 * width), 1);
+		checkBucket(lines.get(1), 1.5 * width, 1.0 / (2 * width), 1);
+	}
+
+	private void checkBucket(String line, double jumpLength, double density,
+			int count) {
+		String[] values = line.split(" ");
+		assertEquals(3, values.length);
+		assertEquals(jumpLength, Double.parseDouble(values[0]), 1e-9);
+		assertEquals(density, Double.parseDouble(values[1]), 1e-9);
+		assertEquals(count, Integer.parseInt(values[2]));
+	}
+}
@@ -96,4 +96,40 @@ public class ScheduleDijkstraTest extends TestCase {
 		comparePaths(new int[]{3,12,13,14,20}, d.getShortestPath(3, 20, 40));
 	}
 
+	public void testGetConnected() {
+		oracle.addEntry(15, 1, 6, 10);
+		List<ScheduleEntry> c = oracle.getConnected(1, 20);
+		assertEquals(3, c.size());
+		assertEquals(3, c.get(0).getTo()); /* equal times in added order */
+		assertEquals(4, c.get(1).getTo());
+		assertEquals(5, c.get(2).getTo());
+
+		assertEquals(5, oracle.getConnected(1, 0).size());
+		assertEquals(0, oracle.getConnected(1, 31).size());
+		assertEquals(0, oracle.getConnected(2, 0).size());
+
+		/* changing the delta moves the entry */
+		c.get(2).setDelta(-25);
+		assertEquals(5, oracle.getConnected(1, 5).get(0).getTo());
+	}
+
+	public void testStaticSchedule() {
+		ScheduleDijkstra sd = new ScheduleDijkstra(oracle, true);
+		oracle.addEntry(40, 3, 10, 5);
+		oracle.addEntry(60, 10, 20, 10);
+		oracle.addEntry(100, 1, 20, 5);
+
+		comparePaths(new int[]{1,3,10,20}, sd.getShortestPath(1, 20, 0));
+		assertEquals(70.0, sd.getEarliestArrival(1, 20, 0));
+		assertEquals(70.0, d.getEarliestArrival(1, 20, 0));
+		/* same start slot (first usable entry is the same) */
+		assertEquals(70.0, sd.getEarliestArrival(1, 20, 20));
+		assertEquals(105.0, sd.getEarliestArrival(1, 20, 21));
+		assertEquals(Double.MAX_VALUE, sd.getEarliestArrival(20, 1, 0));
+
+		/* new entries must be taken into account */
+		oracle.addEntry(45, 3, 20, 2);
+		comparePaths(new int[]{1,3,20}, sd.getShortestPath(1, 20, 0));
+		assertEquals(47.0, sd.getEarliestArrival(1, 20, 0));
+	}
 }
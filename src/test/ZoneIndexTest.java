@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import util.ZoneIndex;
+import core.Coord;
+
+/**
+ * Tests for the ZoneIndex class
+ */
+public class ZoneIndexTest extends TestCase {
+
+	public void testContains() {
+		List<Coord> centers = new ArrayList<Coord>();
+		centers.add(new Coord(100, 100));
+		centers.add(new Coord(-50, 30));
+		ZoneIndex zones = new ZoneIndex(centers, 20);
+
+		assertTrue(zones.contains(new Coord(100, 100)));
+		assertTrue(zones.contains(new Coord(119.9, 100)));
+		assertFalse(zones.contains(new Coord(120, 100)));
+		assertTrue(zones.contains(new Coord(-50, 49)));
+		assertFalse(zones.contains(new Coord(0, 0)));
+	}
+
+	public void testPointZone() {
+		ZoneIndex zones = new ZoneIndex(
+				Collections.singletonList(new Coord(10, 10)), 0);
+		assertTrue(zones.contains(new Coord(10, 10)));
+		assertFalse(zones.contains(new Coord(10, 10.001)));
+	}
+
+	public void testNoZones() {
+		ZoneIndex zones = new ZoneIndex(new ArrayList<Coord>(), 20);
+		assertFalse(zones.contains(new Coord(0, 0)));
+		assertFalse(zones.contains(new Coord(0, 0), new ZoneIndex.Cache()));
+	}
+
+	public void testDistantZones() {
+		List<Coord> centers = new ArrayList<Coord>();
+		centers.add(new Coord(-1e6, 0));
+		centers.add(new Coord(1e6, 1e6));
+		ZoneIndex zones = new ZoneIndex(centers, 1);
+		ZoneIndex.Cache cache = new ZoneIndex.Cache();
+
+		assertTrue(zones.contains(new Coord(-1e6 + 0.5, 0), cache));
+		assertTrue(zones.contains(new Coord(1e6, 1e6 - 0.5), cache));
+		assertFalse(zones.contains(new Coord(1e6, 1e6 + 1), cache));
+		assertFalse(zones.contains(new Coord(0, 0), cache));
+		/* outside of the zones' grid */
+		assertFalse(zones.contains(new Coord(3e6, -3e6), cache));
+	}
+
+	public void testSameResultsAsLinearSearch() {
+		Random rng = new Random(1);
+		List<Coord> centers = new ArrayList<Coord>();
+		for (int i=0; i<50; i++) {
+			centers.add(new Coord(rng.nextDouble() * 1000,
+					rng.nextDouble() * 1000));
+		}
+		ZoneIndex zones = new ZoneIndex(centers, 20);
+		ZoneIndex.Cache cache = new ZoneIndex.Cache();
+
+		Coord loc = new Coord(500, 500);
+		for (int i=0; i<10000; i++) {
+			loc.translate(rng.nextDouble() * 20 - 10,
+					rng.nextDouble() * 20 - 10);
+			boolean expected = false;
+			for (Coord c : centers) {
+				if (loc.distance(c) < 20) {
+					expected = true;
+				}
+			}
+			assertEquals(expected, zones.contains(loc));
+			assertEquals(expected, zones.contains(loc, cache));
+			assertEquals(expected, zones.contains(loc, cache));
+		}
+	}
+}
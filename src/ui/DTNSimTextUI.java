@@ -5,6 +5,8 @@
 package ui;
 
 import core.SimClock;
+import movement.map.RouteCache;
+import routing.ActiveRouter;
 
 /**
  * Simple text-based user interface.
@@ -43,6 +45,14 @@ public class DTNSimTextUI extends DTNSimUI {
 		this.update(true); // force final UI update
 
 		print("Simulation done in " + String.format("%.2f", duration) + "s");
+		print("Avoided polls: " + world.getNrofSkippedUpdates() +
+				" host (and router) updates, " +
+				ActiveRouter.getNrofSkippedTtlChecks() + " TTL buffer scans");
+		if (RouteCache.isCreated()) {
+			RouteCache routes = RouteCache.getInstance();
+			print("Route cache: " + routes.getHits() + " hits, " +
+					routes.getMisses() + " misses");
+		}
 
 	}
 
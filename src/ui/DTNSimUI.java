@@ -129,9 +129,11 @@ public abstract class DTNSimUI {
 	 * Runs maintenance jobs that are needed before exiting.
 	 */
 	public void done() {
+		scen.getEventBus().flush();
 		for (Report r : this.reports) {
 			r.done();
 		}
+		world.done();
 	}
 
 	/**
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package util;
+
+import java.util.Arrays;
+
+/**
+ * <P>Base class for hash maps with non-negative int keys. The keys are
+ * stored in an array (open addressing with linear probing) and the
+ * subclasses store the values in an array of their own using the same
+ * slots, so the keys are not boxed and no entry objects are created.</P>
+ *
+ * <P>At least half of the slots are kept free. The iteration order of the
+ * slots depends on the hashes of the keys, i.e., it's not the insertion
+ * order.</P>
+ */
+public abstract class AbstractIntHashMap {
+	/** Key of a free slot */
+	protected static final int FREE = -1;
+
+	protected int[] keys;
+	private int size;
+	private int mask;
+
+	/**
+	 * Creates a new, empty, map. The subclass must allocate its values for
+	 * the capacity (see {@link #getCapacity()}).
+	 * @param initCapacity Initial number of slots (rounded up to a power of
+	 * two)
+	 */
+	protected AbstractIntHashMap(int initCapacity) {
+		int capacity = 2;
+		while (capacity < initCapacity) {
+			capacity *= 2;
+		}
+		allocateKeys(capacity);
+	}
+
+	private void allocateKeys(int capacity) {
+		this.keys = new int[capacity];
+		Arrays.fill(this.keys, FREE);
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the number of slots
+	 * @return The number of slots
+	 */
+	protected int getCapacity() {
+		return this.keys.length;
+	}
+
+	/**
+	 * Returns the preferred slot of a key
+	 */
+	private int slot(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * Returns the slot where a key is stored
+	 * @param key The key
+	 * @return The slot or -1 if the key is not in the map
+	 */
+	protected final int find(int key) {
+		for (int i = slot(key); ; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return i;
+			}
+			if (keys[i] == FREE) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Returns the slot where a key is stored or, if the key is not in the
+	 * map, the free slot where it should be inserted (see
+	 * {@link #insert(int, int)})
+	 * @param key The key (must not be negative)
+	 * @return The slot
+	 */
+	protected final int findOrFree(int key) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Negative key " + key);
+		}
+		int i = slot(key);
+		while (keys[i] != FREE && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Stores a new key to the free slot returned by {@link #findOrFree(int)}.
+	 * The subclass must set the value of the slot and then call
+	 * {@link #growIfNeeded()}.
+	 * @param slot The slot
+	 * @param key The key
+	 */
+	protected final void insert(int slot, int key) {
+		keys[slot] = key;
+		size++;
+	}
+
+	/**
+	 * Doubles the number of slots if less than half of them are free
+	 */
+	protected final void growIfNeeded() {
+		if (size * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = this.keys;
+		int[] newSlots = new int[oldKeys.length];
+		allocateKeys(capacity);
+
+		for (int j=0; j<oldKeys.length; j++) {
+			newSlots[j] = FREE;
+			if (oldKeys[j] != FREE) {
+				int i = slot(oldKeys[j]);
+				while (keys[i] != FREE) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				newSlots[j] = i;
+			}
+		}
+		rehashValues(newSlots, capacity);
+	}
+
+	/**
+	 * Moves the values to new slots after the number of slots has changed
+	 * @param newSlots New slot of the value of each old slot (or
+	 * {@link #FREE} if the old slot was free)
+	 * @param capacity The new number of slots
+	 */
+	protected abstract void rehashValues(int[] newSlots, int capacity);
+
+	/**
+	 * Moves the value of a slot to another slot
+	 * @param from The slot to move the value from
+	 * @param to The slot to move the value to
+	 */
+	protected abstract void moveValue(int from, int to);
+
+	/**
+	 * Clears the value of a slot (e.g., to let the garbage collector free
+	 * the value object)
+	 * @param slot The slot
+	 */
+	protected abstract void clearValue(int slot);
+
+	/**
+	 * Removes the key of a slot from the map
+	 * @param i The slot (returned by {@link #find(int)})
+	 */
+	protected final void removeSlot(int i) {
+		size--;
+
+		/* move the following keys of the same probe sequence backwards so
+		 * that no free slot is left in the middle of a sequence */
+		for (int j = (i + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+			int s = slot(keys[j]);
+			boolean canMove = i <= j ? (s <= i || s > j) : (s <= i && s > j);
+			if (canMove) {
+				keys[i] = keys[j];
+				moveValue(j, i);
+				i = j;
+			}
+		}
+		keys[i] = FREE;
+		clearValue(i);
+	}
+
+	/**
+	 * Returns true if the map contains the key
+	 * @param key The key
+	 * @return True if the map contains the key
+	 */
+	public boolean containsKey(int key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Returns the number of keys in the map
+	 * @return The number of keys
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if the map is empty
+	 * @return True if the map is empty
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Removes all the keys from the map. Subclasses clear their values too.
+	 */
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		size = 0;
+	}
+
+	/**
+	 * Returns the keys of the map
+	 * @return A new array containing the keys
+	 */
+	public int[] keys() {
+		int[] result = new int[size];
+		int n = 0;
+		for (int i=0; i<keys.length; i++) {
+			if (keys[i] != FREE) {
+				result[n++] = keys[i];
+			}
+		}
+		return result;
+	}
+}
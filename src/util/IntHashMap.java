@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <P>Hash map with non-negative int keys. The keys and values are stored in
+ * arrays (see {@link AbstractIntHashMap}) so, unlike with
+ * {@link java.util.HashMap}, the keys are not boxed and no entry objects
+ * are created.</P>
+ *
+ * <P>The iteration order of the values depends on the hash slots of the
+ * keys, i.e., it's not the insertion order.</P>
+ *
+ * @param <V> Type of the values
+ */
+public class IntHashMap<V> extends AbstractIntHashMap {
+	/** Initial number of slots */
+	private static final int INIT_CAPACITY = 16;
+
+	private Object[] values;
+
+	/**
+	 * Creates a new, empty, map
+	 */
+	public IntHashMap() {
+		super(INIT_CAPACITY);
+		this.values = new Object[getCapacity()];
+	}
+
+	/**
+	 * Returns the value of a key
+	 * @param key The key
+	 * @return The value or null if the map doesn't contain the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int i = find(key);
+		return i < 0 ? null : (V)values[i];
+	}
+
+	/**
+	 * Sets the value of a key
+	 * @param key The key (must not be negative)
+	 * @param value The value
+	 * @return The previous value of the key or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		int i = findOrFree(key);
+		if (keys[i] == key) {
+			V old = (V)values[i];
+			values[i] = value;
+			return old;
+		}
+
+		insert(i, key);
+		values[i] = value;
+		growIfNeeded();
+		return null;
+	}
+
+	/**
+	 * Removes a key from the map
+	 * @param key The key
+	 * @return The value of the removed key or null if the map didn't
+	 * contain the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int i = find(key);
+		if (i < 0) {
+			return null;
+		}
+		V old = (V)values[i];
+		removeSlot(i);
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		Arrays.fill(values, null);
+	}
+
+	@Override
+	protected void rehashValues(int[] newSlots, int capacity) {
+		Object[] oldValues = this.values;
+		this.values = new Object[capacity];
+		for (int j=0; j<oldValues.length; j++) {
+			if (newSlots[j] != FREE) {
+				values[newSlots[j]] = oldValues[j];
+			}
+		}
+	}
+
+	@Override
+	protected void moveValue(int from, int to) {
+		values[to] = values[from];
+	}
+
+	@Override
+	protected void clearValue(int slot) {
+		values[slot] = null;
+	}
+
+	/**
+	 * Returns the values of the map. The map must not be modified while
+	 * iterating through the values.
+	 * @return The values
+	 */
+	public Iterable<V> values() {
+		return new Iterable<V>() {
+			public Iterator<V> iterator() {
+				return new ValueIterator();
+			}
+		};
+	}
+
+	/**
+	 * Iterator that goes through the used slots
+	 */
+	private class ValueIterator implements Iterator<V> {
+		private int next;
+
+		public ValueIterator() {
+			this.next = skipFree(0);
+		}
+
+		private int skipFree(int i) {
+			while (i < keys.length && keys[i] == FREE) {
+				i++;
+			}
+			return i;
+		}
+
+		public boolean hasNext() {
+			return next < keys.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		public V next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			V value = (V)values[next];
+			next = skipFree(next + 1);
+			return value;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
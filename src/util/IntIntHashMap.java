@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package util;
+
+/**
+ * Hash map with non-negative int keys and int values (see
+ * {@link AbstractIntHashMap}). Neither the keys nor the values are boxed.
+ */
+public class IntIntHashMap extends AbstractIntHashMap {
+	/** Default initial number of slots */
+	private static final int INIT_CAPACITY = 16;
+
+	private int[] values;
+
+	/**
+	 * Creates a new, empty, map
+	 */
+	public IntIntHashMap() {
+		this(INIT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new, empty, map
+	 * @param initCapacity Initial number of slots (the map grows as needed)
+	 */
+	public IntIntHashMap(int initCapacity) {
+		super(initCapacity);
+		this.values = new int[getCapacity()];
+	}
+
+	/**
+	 * Returns the value of a key
+	 * @param key The key
+	 * @param defaultValue Value to return if the map doesn't contain the key
+	 * @return The value or the default value
+	 */
+	public int get(int key, int defaultValue) {
+		int i = find(key);
+		return i < 0 ? defaultValue : values[i];
+	}
+
+	/**
+	 * Sets the value of a key
+	 * @param key The key (must not be negative)
+	 * @param value The value
+	 */
+	public void put(int key, int value) {
+		int i = findOrFree(key);
+		if (keys[i] == key) {
+			values[i] = value;
+			return;
+		}
+
+		insert(i, key);
+		values[i] = value;
+		growIfNeeded();
+	}
+
+	/**
+	 * Adds to the value of a key. The key is added with the value 0 if the
+	 * map doesn't contain it.
+	 * @param key The key (must not be negative)
+	 * @param delta The amount to add
+	 * @return The new value of the key
+	 */
+	public int add(int key, int delta) {
+		int i = findOrFree(key);
+		if (keys[i] == key) {
+			return values[i] += delta;
+		}
+
+		insert(i, key);
+		values[i] = delta;
+		growIfNeeded();
+		return delta;
+	}
+
+	/**
+	 * Removes a key from the map
+	 * @param key The key
+	 * @return True if the map contained the key
+	 */
+	public boolean remove(int key) {
+		int i = find(key);
+		if (i < 0) {
+			return false;
+		}
+		removeSlot(i);
+		return true;
+	}
+
+	@Override
+	protected void rehashValues(int[] newSlots, int capacity) {
+		int[] oldValues = this.values;
+		this.values = new int[capacity];
+		for (int j=0; j<oldValues.length; j++) {
+			if (newSlots[j] != FREE) {
+				values[newSlots[j]] = oldValues[j];
+			}
+		}
+	}
+
+	@Override
+	protected void moveValue(int from, int to) {
+		values[to] = values[from];
+	}
+
+	@Override
+	protected void clearValue(int slot) {
+		values[slot] = 0;
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import core.Coord;
+
+/**
+ * <P>Spatial index of circular zones (e.g., smoking spots, classrooms or
+ * stations). All zones of an index have the same radius and a location is
+ * in a zone if its distance to the zone's center is less than the radius.
+ * Zones with radius 0 are points: a location is in such a zone only if its
+ * distance to the center is 0.</P>
+ *
+ * <P>The zone centers are put in a grid whose cell size is at least the
+ * radius, so only the centers in the same or neighboring cells of a
+ * location can be close enough. Each cell's candidate centers are
+ * precomputed in an array that covers the zones, so a lookup takes constant
+ * time regardless of the number of zones. A {@link Cache}
+ * can be used to avoid the lookups when the location hasn't changed or is
+ * still in the same cell.</P>
+ */
+public class ZoneIndex {
+	private static final Coord[] NO_ZONES = new Coord[0];
+	/** Maximum average number of grid cells per zone */
+	private static final int CELLS_PER_ZONE = 64;
+
+	private final double radius;
+	private final double cellSize;
+	/** grid column and row of the first cell and the size of the grid */
+	private final int minCol;
+	private final int minRow;
+	private final int cols;
+	private final int rows;
+	/** zone centers that may contain locations in a cell, by cell index
+	 * (row * cols + col, relative to the first cell) */
+	private final Coord[][] candidates;
+
+	/**
+	 * Creates a new zone index
+	 * @param centers The centers of the zones
+	 * @param radius Radius of all the zones
+	 */
+	public ZoneIndex(Collection<Coord> centers, double radius) {
+		this.radius = radius;
+
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (Coord c : centers) {
+			minX = Math.min(minX, c.getX());
+			minY = Math.min(minY, c.getY());
+			maxX = Math.max(maxX, c.getX());
+			maxY = Math.max(maxY, c.getY());
+		}
+
+		/* cells must be at least as big as the zones; bigger cells keep
+		 * the grid small if the zones are far from each other */
+		double area = centers.isEmpty() ? 0 :
+			(maxX - minX + radius + 1) * (maxY - minY + radius + 1);
+		this.cellSize = Math.max(Math.max(radius, 1.0),
+				Math.sqrt(area / (CELLS_PER_ZONE * (centers.size() + 1))));
+
+		if (centers.isEmpty()) {
+			this.minCol = this.minRow = 0;
+			this.cols = this.rows = 0;
+		} else {
+			/* one extra cell on each side for the neighbors of the zones */
+			this.minCol = (int)Math.floor(minX / cellSize) - 1;
+			this.minRow = (int)Math.floor(minY / cellSize) - 1;
+			this.cols = (int)Math.floor(maxX / cellSize) + 2 - minCol;
+			this.rows = (int)Math.floor(maxY / cellSize) + 2 - minRow;
+		}
+
+		List<List<Coord>> cells = new ArrayList<List<Coord>>(cols * rows);
+		for (int i=0; i<cols * rows; i++) {
+			cells.add(null);
+		}
+		for (Coord c : centers) {
+			int col = column(c);
+			int row = row(c);
+			for (int dx=-1; dx<=1; dx++) {
+				for (int dy=-1; dy<=1; dy++) {
+					int cell = cellIndex(col + dx, row + dy);
+					List<Coord> list = cells.get(cell);
+					if (list == null) {
+						list = new ArrayList<Coord>();
+						cells.set(cell, list);
+					}
+					list.add(c);
+				}
+			}
+		}
+
+		this.candidates = new Coord[cols * rows][];
+		for (int i=0; i<candidates.length; i++) {
+			List<Coord> list = cells.get(i);
+			candidates[i] = list == null ? NO_ZONES :
+				list.toArray(new Coord[list.size()]);
+		}
+	}
+
+	/**
+	 * Returns the radius of the zones
+	 * @return the radius of the zones
+	 */
+	public double getRadius() {
+		return this.radius;
+	}
+
+	/**
+	 * Returns true if the location is in any of the zones
+	 * @param loc The location
+	 * @return True if the location is in a zone
+	 */
+	public boolean contains(Coord loc) {
+		return isInZone(loc, getCandidates(column(loc), row(loc)));
+	}
+
+	/**
+	 * Returns true if the location is in any of the zones. The result and
+	 * the cell's candidate zones are stored to the cache and reused as long
+	 * as the location (for the result) or the cell (for the candidates)
+	 * stays the same.
+	 * @param loc The location
+	 * @param cache Cache of the object whose location is checked
+	 * @return True if the location is in a zone
+	 */
+	public boolean contains(Coord loc, Cache cache) {
+		double x = loc.getX();
+		double y = loc.getY();
+		if (x == cache.x && y == cache.y) {
+			return cache.inZone;
+		}
+
+		int col = column(loc);
+		int row = row(loc);
+		if (cache.candidates == null || col != cache.col || row != cache.row) {
+			cache.candidates = getCandidates(col, row);
+			cache.col = col;
+			cache.row = row;
+		}
+
+		cache.x = x;
+		cache.y = y;
+		cache.inZone = isInZone(loc, cache.candidates);
+		return cache.inZone;
+	}
+
+	/**
+	 * Returns true if the location is in any of the given zones
+	 */
+	private boolean isInZone(Coord loc, Coord[] centers) {
+		for (Coord c : centers) {
+			double distance = loc.distance(c);
+			if (distance < radius || (radius == 0 && distance == 0)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the zones that may contain locations in a cell
+	 */
+	private Coord[] getCandidates(int col, int row) {
+		int cell = cellIndex(col, row);
+		return cell < 0 ? NO_ZONES : candidates[cell];
+	}
+
+	/**
+	 * Returns the index of a cell or -1 if the cell is outside the grid
+	 * (i.e., has no zones)
+	 */
+	private int cellIndex(int col, int row) {
+		int c = col - minCol;
+		int r = row - minRow;
+		if (c < 0 || c >= cols || r < 0 || r >= rows) {
+			return -1;
+		}
+		return r * cols + c;
+	}
+
+	private int column(Coord c) {
+		return (int)Math.floor(c.getX() / cellSize);
+	}
+
+	private int row(Coord c) {
+		return (int)Math.floor(c.getY() / cellSize);
+	}
+
+	/**
+	 * Lookup cache for a single moving object (e.g., a network interface).
+	 * A cache must not be shared between objects or threads.
+	 */
+	public static class Cache {
+		private double x = Double.NaN;
+		private double y = Double.NaN;
+		private boolean inZone;
+		private int col;
+		private int row;
+		private Coord[] candidates;
+	}
+}